@@ -88,7 +88,7 @@ DROP TABLE IF EXISTS `User`;
 CREATE TABLE `User` (
   `idUser` binary(16) NOT NULL,
   `username` varchar(100) NOT NULL,
-  `password` varchar(100) NOT NULL,
+  `password` varchar(255) NOT NULL,
   `name` varchar(100) DEFAULT NULL,
   `surname` varchar(100) DEFAULT NULL,
   PRIMARY KEY (`idUser`),
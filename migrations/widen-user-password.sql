@@ -0,0 +1,7 @@
+-- Widens the password column of databases created before the passwords were
+-- hashed: an Argon2id hash in the PHC string format is about 97 characters
+-- with the default cost, and grows with it. TIW.sql already creates the
+-- column with this size.
+USE `TIW2025`;
+
+ALTER TABLE `User` MODIFY `password` varchar(255) NOT NULL;
@@ -0,0 +1,181 @@
+package it.polimi.tiw.projects.beans;
+
+import it.polimi.tiw.projects.utils.Genre;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable view of everything a user owns (songs, albums and playlist
+ * summaries) at a given library version. Instances are shared between requests
+ * by the {@link it.polimi.tiw.projects.cache.LibraryCache}, so the lists are
+ * unmodifiable and hold read-only copies of the beans given to the
+ * constructor, whose setters throw {@link UnsupportedOperationException}.
+ *
+ * @param version   The library version the snapshot was loaded at.
+ * @param songs     The songs uploaded by the user.
+ * @param albums    The albums created by the user, ordered by year and name.
+ * @param playlists The playlists of the user (with their song IDs), newest
+ *                  first.
+ */
+public record LibrarySnapshot(long version, List<Song> songs, List<Album> albums, List<Playlist> playlists) {
+
+    public LibrarySnapshot {
+        songs = songs.stream().<Song>map(FrozenSong::new).toList();
+        albums = albums.stream().<Album>map(FrozenAlbum::new).toList();
+        playlists = playlists.stream().<Playlist>map(FrozenPlaylist::new).toList();
+    }
+
+    /**
+     * @param idPlaylist The ID of the playlist to look for.
+     * @return The playlist with the given ID, or null if the user doesn't own it.
+     */
+    public Playlist findPlaylist(int idPlaylist) {
+        return playlists.stream().filter(p -> p.getIdPlaylist() == idPlaylist).findFirst().orElse(null);
+    }
+
+    /**
+     * @param idSong The ID of the song to look for.
+     * @return The song with the given ID, or null if the user doesn't own it.
+     */
+    public Song findSong(int idSong) {
+        return songs.stream().filter(s -> s.getIdSong() == idSong).findFirst().orElse(null);
+    }
+
+    /**
+     * @param idAlbum The ID of the album to look for.
+     * @return The album with the given ID, or null if the user doesn't own it.
+     */
+    public Album findAlbum(int idAlbum) {
+        return albums.stream().filter(a -> a.getIdAlbum() == idAlbum).findFirst().orElse(null);
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("The beans of a library snapshot are shared, copy them to modify");
+    }
+
+    private static final class FrozenSong extends Song {
+        private FrozenSong(Song song) {
+            super.setIdSong(song.getIdSong());
+            super.setTitle(song.getTitle());
+            super.setIdAlbum(song.getIdAlbum());
+            super.setGenre(song.getGenre());
+            super.setAudioFile(song.getAudioFile());
+            super.setIdUser(song.getIdUser());
+        }
+
+        @Override
+        public void setIdSong(int idSong) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setTitle(String title) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdAlbum(int idAlbum) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setGenre(Genre genre) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAudioFile(String audioFile) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdUser(UUID idUser) {
+            throw readOnly();
+        }
+    }
+
+    private static final class FrozenAlbum extends Album {
+        private FrozenAlbum(Album album) {
+            super.setIdAlbum(album.getIdAlbum());
+            super.setName(album.getName());
+            super.setYear(album.getYear());
+            super.setArtist(album.getArtist());
+            super.setImage(album.getImage());
+            super.setIdUser(album.getIdUser());
+        }
+
+        @Override
+        public void setIdAlbum(int idAlbum) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setYear(int year) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setArtist(String artist) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setImage(String image) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdUser(UUID idUser) {
+            throw readOnly();
+        }
+    }
+
+    private static final class FrozenPlaylist extends Playlist {
+        private FrozenPlaylist(Playlist playlist) {
+            super.setIdPlaylist(playlist.getIdPlaylist());
+            super.setName(playlist.getName());
+            super.setBirthday(playlist.getBirthday() != null ? (Timestamp) playlist.getBirthday().clone() : null);
+            super.setIdUser(playlist.getIdUser());
+            super.setSongs(playlist.getSongs() != null ? List.copyOf(playlist.getSongs()) : null);
+        }
+
+        // Timestamps are mutable
+        @Override
+        public Timestamp getBirthday() {
+            Timestamp birthday = super.getBirthday();
+            return birthday != null ? (Timestamp) birthday.clone() : null;
+        }
+
+        @Override
+        public void setIdPlaylist(int idPlaylist) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setBirthday(Timestamp birthday) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setIdUser(UUID idUser) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSongs(List<Integer> songs) {
+            throw readOnly();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package it.polimi.tiw.projects.cache;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide, size-bounded cache of {@link Album} entities keyed by album ID,
+ * used by {@link AlbumDAO#findAlbumById(int)} and
+ * {@link AlbumDAO#findAlbumsByIds(java.util.Collection)}.
+ * <p>
+ * Albums only change through {@link AlbumDAO#updateAlbum} and
+ * {@link AlbumDAO#deleteAlbum}, which call {@link #invalidate(int)}. Every
+ * invalidation bumps a generation counter: a reader captures it with
+ * {@link #generation()} before querying and passes it back to
+ * {@link #put(Album, long)}, so an album read before a concurrent update is
+ * never stored. Entries can also expire after a configurable time to live.
+ * <p>
+ * Album beans are mutable, so the cache stores and returns private copies.
+ */
+public class AlbumCache {
+    public static final int DEFAULT_MAX_ENTRIES = 5000;
+    private static final Logger logger = LoggerFactory.getLogger(AlbumCache.class);
+    private static volatile AlbumCache instance = new AlbumCache(DEFAULT_MAX_ENTRIES, 0);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    // Access-ordered map used as an LRU, guarded by "this"
+    private final Map<Integer, Entry> entries;
+    private long generation = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} albums.
+     *
+     * @param maxEntries The maximum number of albums kept in memory.
+     * @param ttlSeconds The time to live of an entry in seconds, 0 to keep entries
+     *                   until they are evicted or invalidated.
+     * @throws IllegalArgumentException if maxEntries is not positive or
+     *                                  ttlSeconds is negative.
+     */
+    public AlbumCache(int maxEntries, long ttlSeconds) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive, was " + maxEntries);
+        }
+        if (ttlSeconds < 0) {
+            throw new IllegalArgumentException("ttlSeconds must not be negative, was " + ttlSeconds);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > AlbumCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by the whole application.
+     */
+    public static AlbumCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the shared cache with an empty one. Meant to be called once at
+     * application startup.
+     *
+     * @param maxEntries The maximum number of albums kept in memory.
+     * @param ttlSeconds The time to live of an entry in seconds, 0 for no expiry.
+     */
+    public static void configure(int maxEntries, long ttlSeconds) {
+        instance = new AlbumCache(maxEntries, ttlSeconds);
+        logger.info("AlbumCache configured with maxEntries={}, ttlSeconds={}", maxEntries, ttlSeconds);
+    }
+
+    /**
+     * Returns a copy of the cached album, or null if it is not cached or expired.
+     *
+     * @param idAlbum The ID of the album.
+     * @return A copy of the cached album, or null on a miss.
+     */
+    public synchronized Album get(int idAlbum) {
+        Entry entry = entries.get(idAlbum);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.loadedAt > ttlNanos) {
+            entries.remove(idAlbum);
+            expirations.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copyOf(entry.album);
+    }
+
+    /**
+     * @return The current invalidation generation, to be captured before reading
+     *         an album from the database.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Stores a copy of an album read from the database, unless an invalidation
+     * happened since {@code readGeneration} was captured.
+     *
+     * @param album          The album read from the database.
+     * @param readGeneration The value returned by {@link #generation()} before
+     *                       the read.
+     */
+    public synchronized void put(@NotNull Album album, long readGeneration) {
+        if (readGeneration != generation) {
+            logger.debug("Album {} changed while being read, not caching it", album.getIdAlbum());
+            return;
+        }
+        entries.put(album.getIdAlbum(), new Entry(copyOf(album), System.nanoTime()));
+    }
+
+    /**
+     * Drops an album from the cache. Called by the DAO after every successful
+     * update or deletion.
+     *
+     * @param idAlbum The ID of the album that changed.
+     */
+    public synchronized void invalidate(int idAlbum) {
+        generation++;
+        entries.remove(idAlbum);
+        logger.debug("Album cache invalidated for album {}", idAlbum);
+    }
+
+    private static Album copyOf(Album album) {
+        Album copy = new Album();
+        copy.setIdAlbum(album.getIdAlbum());
+        copy.setName(album.getName());
+        copy.setYear(album.getYear());
+        copy.setArtist(album.getArtist());
+        copy.setImage(album.getImage());
+        copy.setIdUser(album.getIdUser());
+        return copy;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return The ratio of hits over all lookups, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AlbumCache[size=%d/%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, expirations=%d]",
+                size(), maxEntries, getHitCount(), getMissCount(), getHitRate(), getEvictionCount(),
+                getExpirationCount());
+    }
+
+    private record Entry(Album album, long loadedAt) {
+    }
+}
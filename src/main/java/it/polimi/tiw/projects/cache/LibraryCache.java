@@ -0,0 +1,324 @@
+package it.polimi.tiw.projects.cache;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.AsyncDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.JdbcDAOFactory;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide, size-bounded cache of {@link LibrarySnapshot}s keyed by user.
+ * <p>
+ * Every cached user carries a library version. The write methods of
+ * {@link SongDAO}, {@link AlbumDAO} and {@link PlaylistDAO}, decorated by the
+ * {@link LibraryInvalidatingDAOFactory}, call {@link #invalidate(UUID)} after
+ * a successful modification, which drops the snapshot and assigns a new
+ * version. A snapshot loaded concurrently with a write is only stored if the
+ * version it was loaded at is still current, so a stale read can never
+ * overwrite a newer invalidation.
+ * <p>
+ * Only the writes made by this node are seen, so the cache must be disabled,
+ * with a size of 0, when several nodes serve the same users: snapshots are
+ * then loaded on every lookup and every version is new.
+ * <p>
+ * Versions are drawn from a single increasing sequence, so a user whose entry
+ * was evicted never gets back a version it had before.
+ * <p>
+ * When an {@link AsyncDAO} is available, the songs, albums and playlists of a
+ * missing snapshot are loaded concurrently on separate connections.
+ */
+public class LibraryCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(LibraryCache.class);
+    private static volatile LibraryCache instance = new LibraryCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final AsyncDAO asyncDAO;
+    private final DAOFactory daoFactory;
+    private final AtomicLong versionSequence = new AtomicLong();
+    // Access-ordered map used as an LRU, guarded by "this"
+    private final Map<UUID, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} users.
+     *
+     * @param maxEntries The maximum number of users kept in memory, 0 to
+     *                   disable caching.
+     * @throws IllegalArgumentException if maxEntries is negative.
+     */
+    public LibraryCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} users, loading missing
+     * snapshots through the given asynchronous facade.
+     *
+     * @param maxEntries The maximum number of users kept in memory, 0 to
+     *                   disable caching.
+     * @param asyncDAO   The facade used for concurrent loads, or null to load on
+     *                   the caller's connection only.
+     * @throws IllegalArgumentException if maxEntries is negative.
+     */
+    public LibraryCache(int maxEntries, AsyncDAO asyncDAO) {
+        this(maxEntries, asyncDAO, new JdbcDAOFactory());
+    }
+
+    /**
+     * Creates a cache holding at most {@code maxEntries} users, loading missing
+     * snapshots through the DAOs of the given factory.
+     *
+     * @param maxEntries The maximum number of users kept in memory, 0 to
+     *                   disable caching.
+     * @param asyncDAO   The facade used for concurrent loads, or null to load on
+     *                   the caller's connection only.
+     * @param daoFactory The factory of the DAOs used for loads on the caller's
+     *                   connection.
+     * @throws IllegalArgumentException if maxEntries is negative.
+     */
+    public LibraryCache(int maxEntries, AsyncDAO asyncDAO, DAOFactory daoFactory) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative, was " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.asyncDAO = asyncDAO;
+        this.daoFactory = daoFactory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                if (size() > LibraryCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by the whole application.
+     */
+    public static LibraryCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the shared cache with an empty one of the given size. Meant to be
+     * called once at application startup.
+     *
+     * @param maxEntries The maximum number of users kept in memory, 0 to
+     *                   disable caching.
+     * @param asyncDAO   The facade used for concurrent loads, or null.
+     */
+    public static void configure(int maxEntries, AsyncDAO asyncDAO) {
+        configure(maxEntries, asyncDAO, new JdbcDAOFactory());
+    }
+
+    /**
+     * Replaces the shared cache with an empty one of the given size, loading
+     * through the DAOs of the given factory. Meant to be called once at
+     * application startup.
+     *
+     * @param maxEntries The maximum number of users kept in memory, 0 to
+     *                   disable caching.
+     * @param asyncDAO   The facade used for concurrent loads, or null.
+     * @param daoFactory The factory of the DAOs used for loads.
+     */
+    public static void configure(int maxEntries, AsyncDAO asyncDAO, DAOFactory daoFactory) {
+        instance = new LibraryCache(maxEntries, asyncDAO, daoFactory);
+        logger.info("LibraryCache configured with maxEntries={} ({}), concurrent loads {}", maxEntries,
+                maxEntries > 0 ? "enabled" : "disabled",
+                asyncDAO != null ? "enabled" : "disabled");
+    }
+
+    /**
+     * Returns the library snapshot of a user, loading it from the database on a
+     * miss. Snapshots read inside an explicit transaction (auto-commit disabled)
+     * are returned but not cached, since they may contain uncommitted data.
+     *
+     * @param userId     The UUID of the user.
+     * @param connection The connection used to load the snapshot on a miss, or
+     *                   null if the DAOs don't use the database.
+     * @return The current library snapshot of the user.
+     * @throws DAOException if loading the snapshot fails
+     *                      ({@link DAOErrorType#GENERIC_ERROR}).
+     */
+    public LibrarySnapshot get(@NotNull UUID userId, Connection connection) throws DAOException {
+        if (maxEntries == 0) {
+            misses.increment();
+            return load(userId, versionSequence.incrementAndGet(), connection, isAutoCommit(userId, connection));
+        }
+        long version;
+        synchronized (this) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.snapshot != null) {
+                hits.increment();
+                logger.debug("Library cache hit for user {} at version {}", userId, entry.version);
+                return entry.snapshot;
+            }
+            if (entry == null) {
+                entry = new Entry(versionSequence.incrementAndGet());
+                entries.put(userId, entry);
+            }
+            version = entry.version;
+        }
+        misses.increment();
+        logger.debug("Library cache miss for user {}, loading version {}", userId, version);
+
+        boolean autoCommit = isAutoCommit(userId, connection);
+        LibrarySnapshot snapshot = load(userId, version, connection, autoCommit);
+
+        if (autoCommit) {
+            synchronized (this) {
+                Entry entry = entries.get(userId);
+                if (entry != null && entry.version == version) {
+                    entry.snapshot = snapshot;
+                } else {
+                    logger.debug("Library of user {} changed while loading version {}, not caching it", userId,
+                            version);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the current library version of a user without loading anything
+     * from the database.
+     *
+     * @param userId The UUID of the user.
+     * @return The current library version, a new one at each call when caching
+     *         is disabled.
+     */
+    public synchronized long currentVersion(@NotNull UUID userId) {
+        if (maxEntries == 0) {
+            return versionSequence.incrementAndGet();
+        }
+        return entries.computeIfAbsent(userId, id -> new Entry(versionSequence.incrementAndGet())).version;
+    }
+
+    /**
+     * Drops the snapshot of a user and moves it to a new library version. Called
+     * after every successful write on the user's library.
+     *
+     * @param userId The UUID of the user whose library changed.
+     */
+    public synchronized void invalidate(@NotNull UUID userId) {
+        invalidations.increment();
+        if (maxEntries == 0) {
+            return;
+        }
+        entries.put(userId, new Entry(versionSequence.incrementAndGet()));
+        logger.debug("Library cache invalidated for user {}", userId);
+    }
+
+    /**
+     * Drops every snapshot. Used by writes whose owner is unknown.
+     */
+    public synchronized void invalidateAll() {
+        invalidations.increment();
+        entries.clear();
+        logger.debug("Library cache fully invalidated");
+    }
+
+    private static boolean isAutoCommit(UUID userId, Connection connection) {
+        try {
+            return connection == null || connection.getAutoCommit();
+        } catch (SQLException e) {
+            logger.warn("Could not read auto-commit state, not caching library of user {}: {}", userId,
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    private LibrarySnapshot load(UUID userId, long version, Connection connection, boolean autoCommit)
+            throws DAOException {
+        // Inside a transaction the caller's connection must be used to see its own writes
+        if (autoCommit && asyncDAO != null) {
+            return loadConcurrently(userId, version);
+        }
+        List<Song> songs = daoFactory.getSongDAO(connection).findSongsByUser(userId);
+        List<Album> albums = daoFactory.getAlbumDAO(connection).findAlbumsByUser(userId);
+        List<Playlist> playlists = daoFactory.getPlaylistDAO(connection).findPlaylistsByUser(userId);
+        return new LibrarySnapshot(version, songs, albums, playlists);
+    }
+
+    private LibrarySnapshot loadConcurrently(UUID userId, long version) throws DAOException {
+        CompletableFuture<List<Song>> songs = asyncDAO.findSongsByUser(userId);
+        CompletableFuture<List<Album>> albums = asyncDAO.findAlbumsByUser(userId);
+        CompletableFuture<List<Playlist>> playlists = asyncDAO.findPlaylistsByUser(userId);
+        return new LibrarySnapshot(version, AsyncDAO.join(songs), AsyncDAO.join(albums), AsyncDAO.join(playlists));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return The ratio of hits over all lookups, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LibraryCache[size=%d/%d, hits=%d, misses=%d, hitRate=%.3f, evictions=%d, invalidations=%d]",
+                size(), maxEntries, getHitCount(), getMissCount(), getHitRate(), getEvictionCount(),
+                getInvalidationCount());
+    }
+
+    private static final class Entry {
+        private final long version;
+        private LibrarySnapshot snapshot;
+
+        private Entry(long version) {
+            this.version = version;
+        }
+    }
+}
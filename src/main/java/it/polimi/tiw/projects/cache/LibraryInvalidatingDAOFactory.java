@@ -0,0 +1,105 @@
+package it.polimi.tiw.projects.cache;
+
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.ReadOnly;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.UserDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Decorates another {@link DAOFactory} so that the writes on a library drop
+ * its snapshot from the {@link LibraryCache}, keeping the DAOs unaware of the
+ * cache.
+ * <p>
+ * Every method of the song, album and playlist DAOs that is not
+ * {@link ReadOnly} and returns normally invalidates the library of the user
+ * among its arguments, or of the user it returns, such as the owner of a
+ * deleted song. The invalidation happens when the DAO returns: the DAOs commit
+ * their own transactions before, but a caller running several writes in one
+ * transaction must invalidate again after its commit.
+ */
+public class LibraryInvalidatingDAOFactory implements DAOFactory {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryInvalidatingDAOFactory.class);
+
+    private final DAOFactory delegate;
+    private final Supplier<LibraryCache> cache;
+
+    /**
+     * @param cache Gives the cache to invalidate, looked up at each write.
+     */
+    public LibraryInvalidatingDAOFactory(DAOFactory delegate, Supplier<LibraryCache> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return delegate.requiresConnection();
+    }
+
+    @Override
+    public UserDAO getUserDAO(Connection connection) {
+        // The library holds nothing of the user's profile
+        return delegate.getUserDAO(connection);
+    }
+
+    @Override
+    public SongDAO getSongDAO(Connection connection) {
+        return invalidating(SongDAO.class, delegate.getSongDAO(connection));
+    }
+
+    @Override
+    public AlbumDAO getAlbumDAO(Connection connection) {
+        return invalidating(AlbumDAO.class, delegate.getAlbumDAO(connection));
+    }
+
+    @Override
+    public PlaylistDAO getPlaylistDAO(Connection connection) {
+        return invalidating(PlaylistDAO.class, delegate.getPlaylistDAO(connection));
+    }
+
+    private <T> T invalidating(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getDeclaringClass() != Object.class && !method.isAnnotationPresent(ReadOnly.class)) {
+                invalidate(method, args, result);
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private void invalidate(Method method, Object[] args, Object result) {
+        UUID owner = result instanceof UUID userId ? userId : null;
+        if (args != null) {
+            for (int i = 0; i < args.length && owner == null; i++) {
+                if (args[i] instanceof UUID userId) {
+                    owner = userId;
+                }
+            }
+        }
+        if (owner != null) {
+            cache.get().invalidate(owner);
+        } else {
+            logger.warn("{}.{} changed a library without naming its owner, dropping every cached library",
+                    method.getDeclaringClass().getSimpleName(), method.getName());
+            cache.get().invalidateAll();
+        }
+    }
+}
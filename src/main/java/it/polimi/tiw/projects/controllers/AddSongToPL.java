@@ -1,9 +1,11 @@
 package it.polimi.tiw.projects.controllers;
 
-import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.dao.PlaylistDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -13,8 +15,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -23,7 +23,7 @@ import java.util.UUID;
 public class AddSongToPL extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(AddSongToPL.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection;
+    private transient DAOFactory daoFactory;
 
     public AddSongToPL() {
         super();
@@ -32,13 +32,12 @@ public class AddSongToPL extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
     }
 
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
-        PlaylistDAO playlistDAO = new PlaylistDAO(connection);
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         // Check parameter
         String checkResult = areParametersOk(req);
@@ -57,10 +56,17 @@ public class AddSongToPL extends HttpServlet {
         Integer playlistId = Integer.parseInt(req.getParameter("playlistId"));
 
         try {
-            for (Integer id : songIDs) {
-                playlistDAO.addSongToPlaylist(playlistId, userId, id);
-            }
+            ConnectionHandler.withConnection(getServletContext(), Workload.WRITE, connection -> {
+                PlaylistDAO playlistDAO = daoFactory.getPlaylistDAO(connection);
+                for (Integer id : songIDs) {
+                    playlistDAO.addSongToPlaylist(playlistId, userId, id);
+                }
+                return null;
+            });
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             switch (e.getErrorType()) {
                 case NOT_FOUND, DUPLICATE_ENTRY: {
                     req.setAttribute("errorAddSongMsg", e.getMessage());
@@ -91,15 +97,6 @@ public class AddSongToPL extends HttpServlet {
         this.doPost(req, resp);
     }
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
     private String areParametersOk(HttpServletRequest req) {
 
         String playlistString = req.getParameter("playlistId");
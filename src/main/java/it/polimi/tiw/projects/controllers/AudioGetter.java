@@ -1,14 +1,17 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.FileData;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
 import it.polimi.tiw.projects.beans.Song;
-import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.cache.LibraryCache;
 import it.polimi.tiw.projects.dao.AudioDAO;
-import it.polimi.tiw.projects.dao.SongDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.Gauge;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
-import jakarta.servlet.ServletContext;
-import jakarta.servlet.ServletException;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,8 +20,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,20 +27,16 @@ public class AudioGetter extends HttpServlet {
     static final long serialVersionUID = 1L;
     private static final Logger logger = LoggerFactory.getLogger(AudioGetter.class);
     private static final int DEFAULT_BUFFER_SIZE = 8192;
-    private Connection connection = null;
-
-    @Override
-    public void init() throws ServletException {
-        ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
-    }
+    private static final Counter bytesSent = MetricsRegistry.getInstance().counter("spolify_media_bytes_total",
+            "Bytes of media files sent to the clients", "type", "audio");
+    private static final Gauge activeStreams = MetricsRegistry.getInstance().gauge("spolify_media_active_streams",
+            "Media files being sent to the clients", "type", "audio");
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         AudioDAO audioDAO = (AudioDAO) getServletContext().getAttribute("audioDAO");
-        SongDAO songDAO = new SongDAO(connection);
 
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         String audioName = req.getParameter("audioName");
 
@@ -51,7 +48,10 @@ public class AudioGetter extends HttpServlet {
         }
 
         try {
-            List<String> userSongs = songDAO.findSongsByUser(userId).stream().map(Song::getAudioFile).toList();
+            // The connection is given back before the file is streamed
+            LibrarySnapshot library = ConnectionHandler.withConnection(getServletContext(), Workload.MEDIA,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
+            List<String> userSongs = library.songs().stream().map(Song::getAudioFile).toList();
 
             if (userSongs.stream().noneMatch(aud -> aud.equals(audioName))) {
                 resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -59,6 +59,9 @@ public class AudioGetter extends HttpServlet {
             }
 
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error("Database error {}", e.getMessage(), e);
         }
 
@@ -98,6 +101,7 @@ public class AudioGetter extends HttpServlet {
         // output stream
         // The try-with-resources will automatically flush and close the output stream
         // when done
+        activeStreams.increment();
         try (ServletOutputStream out = resp.getOutputStream()) {
             byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
             int bytesRead;
@@ -108,18 +112,12 @@ public class AudioGetter extends HttpServlet {
                 // Write the buffered bytes to the response output stream, sending them to the
                 // client
                 out.write(buffer, 0, bytesRead);
+                bytesSent.add(bytesRead);
             }
+        } finally {
+            activeStreams.decrement();
         }
 
     }
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
 }
@@ -1,10 +1,13 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.dao.UserDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
 import it.polimi.tiw.projects.utils.TemplateHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -16,14 +19,12 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.Objects;
 
 public class CheckLogin extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(CheckLogin.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection = null;
+    private transient DAOFactory daoFactory;
     private TemplateEngine templateEngine;
 
     public CheckLogin() {
@@ -33,13 +34,12 @@ public class CheckLogin extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
         templateEngine = TemplateHandler.initializeEngine(context);
     }
 
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        UserDAO userDAO = new UserDAO(connection);
         User user = null;
 
         String username = req.getParameter("lUsername").strip();
@@ -52,9 +52,12 @@ public class CheckLogin extends HttpServlet {
             return;
         }
 
-        // Searching for the user
+        // Searching for the user, the password is verified once the connection is given back
+        UserDAO.Credentials credentials;
         try {
-            user = userDAO.checkCredentials(username, password);
+            credentials = ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                    connection -> daoFactory.getUserDAO(connection).findCredentials(username));
+            user = credentials.verify(password);
         } catch (DAOException e) {
             if (Objects.requireNonNull(e.getErrorType()) == DAOException.DAOErrorType.INVALID_CREDENTIALS) {// No user found with that username/password combination
                 logger.warn("Invalid credentials");
@@ -63,7 +66,10 @@ public class CheckLogin extends HttpServlet {
                 ctx.setVariable("errorLogInMsg", "No user found with that username/password combination");
                 String path = "/index.html";
                 resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                templateEngine.process(path, ctx, resp.getWriter());
+                TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
+                return;
+            }
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {// Too many logins being verified
                 return;
             }// If another exception occurs
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Unexpected error during authentication");
@@ -71,22 +77,17 @@ public class CheckLogin extends HttpServlet {
         }
 
         logger.info("User {} logged in", user.getUsername());
+        // A password stored in plain text or with an outdated cost is hashed again
+        credentials.rehash(password, (userId, expectedHash, passwordHash) -> ConnectionHandler.withConnection(
+                getServletContext(), Workload.WRITE,
+                connection -> daoFactory.getUserDAO(connection).updatePassword(userId, expectedHash, passwordHash)));
 
-        // Assign the user to the session
-        req.getSession().setAttribute("user", user);
+        // Log the user in, in the session or with a signed cookie
+        AuthHandler.logIn(req, resp, user);
 
         String path = getServletContext().getContextPath() + "/Home";
         resp.sendRedirect(path);
 
     }
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
 }
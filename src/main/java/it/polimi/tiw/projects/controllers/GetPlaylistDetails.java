@@ -1,12 +1,15 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.*;
+import it.polimi.tiw.projects.cache.LibraryCache;
 import it.polimi.tiw.projects.dao.AlbumDAO;
-import it.polimi.tiw.projects.dao.PlaylistDAO;
-import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
+import it.polimi.tiw.projects.utils.ETagHandler;
 import it.polimi.tiw.projects.utils.TemplateHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -18,34 +21,42 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.*;
 
 public class GetPlaylistDetails extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(GetPlaylistDetails.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection;
+    private static final String PAGE_TAG = "GetPlaylistDetails";
+    private static final int PAGE_SIZE = 5;
+    private transient DAOFactory daoFactory;
     private TemplateEngine templateEngine;
 
     public GetPlaylistDetails() {
         super();
     }
 
-    private static List<SongWithAlbum> orderAllSongs(Playlist playlist, SongDAO songDao, AlbumDAO albumDao, UUID userId)
+    // The helpers below are package-private so the benchmarks can call them directly
+
+    static List<SongWithAlbum> orderAllSongs(Playlist playlist, LibrarySnapshot library, AlbumDAO albumDao)
             throws DAOException {
 
-        List<Integer> songsIDs = playlist.getSongs();
-        List<Song> songs = songDao.findSongsByIdsAndUser(songsIDs, userId);
+        Set<Integer> songsIDs = new HashSet<>(playlist.getSongs());
+        List<Song> songs = library.songs().stream().filter(s -> songsIDs.contains(s.getIdSong())).toList();
 
-        // Pre-load albums
+        // Pre-load albums, the ones owned by the user are already in the snapshot
         Map<Integer, Album> albumMap = new HashMap<>();
+        for (Album album : library.albums()) {
+            albumMap.put(album.getIdAlbum(), album);
+        }
+        Set<Integer> missingAlbumIds = new HashSet<>();
         for (Song song : songs) {
-            int albumId = song.getIdAlbum();
-            if (!albumMap.containsKey(albumId)) {
-                albumMap.put(albumId, albumDao.findAlbumById(albumId));
+            if (!albumMap.containsKey(song.getIdAlbum())) {
+                missingAlbumIds.add(song.getIdAlbum());
             }
         }
+        if (!missingAlbumIds.isEmpty()) {
+            albumMap.putAll(albumDao.findAlbumsByIds(missingAlbumIds));
+        }
 
         List<SongWithAlbum> result = new ArrayList<>();
         for (Song s : songs) {
@@ -61,39 +72,41 @@ public class GetPlaylistDetails extends HttpServlet {
 
     }
 
-    private static List<Song> getUnusedSongs(Playlist playlist, SongDAO songDao, UUID userId) throws DAOException {
-
-        List<Song> result = songDao.findSongsByUser(userId);
+    static List<Song> getUnusedSongs(Playlist playlist, LibrarySnapshot library) {
 
-        List<Integer> alreadyPresentSongsIDs = playlist.getSongs();
+        // The snapshot lists are shared between requests, so we build a new list
+        Set<Integer> alreadyPresentSongsIDs = new HashSet<>(playlist.getSongs());
 
-        List<Song> toRemove = new ArrayList<>();
-        for (Song song : result) {
-            if (alreadyPresentSongsIDs.contains(song.getIdSong())) {
-                toRemove.add(song);
+        List<Song> result = new ArrayList<>();
+        for (Song song : library.songs()) {
+            if (!alreadyPresentSongsIDs.contains(song.getIdSong())) {
+                result.add(song);
             }
         }
-        result.removeAll(toRemove);
 
         return result;
 
     }
 
+    static int totalPages(int songCount) {
+        return (songCount + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    static List<SongWithAlbum> pageOf(List<SongWithAlbum> orderedSongs, int page) {
+        return orderedSongs.stream().skip((long) page * PAGE_SIZE).limit(PAGE_SIZE).toList();
+    }
+
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
         templateEngine = TemplateHandler.initializeEngine(context);
 
     }
 
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
-        PlaylistDAO playlistDAO = new PlaylistDAO(connection);
-        SongDAO songDAO = new SongDAO(connection);
-        AlbumDAO albumDAO = new AlbumDAO(connection);
-
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         // Get and check params
         Integer playlistId = null;
@@ -105,32 +118,45 @@ public class GetPlaylistDetails extends HttpServlet {
             return;
         }
 
+        // The page only depends on the library and on the parameters below
+        boolean conditional = ETagHandler.isConditionalCandidate(req);
+        Object[] pageParams = {PAGE_TAG, playlistId, req.getParameter("page"), req.getParameter("errorAddSongMsg")};
+        if (conditional && ETagHandler.checkNotModified(req, resp,
+                ETagHandler.weakETag(userId, LibraryCache.getInstance().currentVersion(userId), pageParams))) {
+            return;
+        }
 
-        // If a playlist with that id exists for that user, find it
-        Playlist myPlaylist;
+        LibrarySnapshot library;
         try {
-            myPlaylist = playlistDAO.findPlaylistById(playlistId, userId);
+            library = ConnectionHandler.withConnection(getServletContext(), Workload.INTERACTIVE,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
         } catch (DAOException e) {
-            switch (e.getErrorType()) {
-                case NOT_FOUND, ACCESS_DENIED: {
-                    req.setAttribute("errorOpeningPlaylist", "The playlist you selected was not found");
-                    resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    req.getRequestDispatcher("/Home").forward(req, resp);
-                    return;
-                }
-                default: {
-                    logger.error("Error while searching for playlist", e.getMessage(), e);
-                    resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An internal error occurred");
-                    return;
-                }
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
             }
+            logger.error("Error while loading the library", e.getMessage(), e);
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An internal error occurred");
+            return;
+        }
+
+        // If a playlist with that id exists for that user, find it
+        Playlist myPlaylist = library.findPlaylist(playlistId);
+        if (myPlaylist == null) {
+            req.setAttribute("errorOpeningPlaylist", "The playlist you selected was not found");
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            req.getRequestDispatcher("/Home").forward(req, resp);
+            return;
         }
 
         // We need the list of songs in the playlist
         List<SongWithAlbum> songWithAlbumOrdered;
         try {
-            songWithAlbumOrdered = orderAllSongs(myPlaylist, songDAO, albumDAO, userId);
+            songWithAlbumOrdered = ConnectionHandler.withConnection(getServletContext(), Workload.INTERACTIVE,
+                    connection -> orderAllSongs(myPlaylist, library, daoFactory.getAlbumDAO(connection)));
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error("Failed to order songs", e.getMessage(), e);
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An internal error occurred");
             return;
@@ -149,23 +175,20 @@ public class GetPlaylistDetails extends HttpServlet {
             page = 0;
         }
 
-        int totPages = (songWithAlbumOrdered.size() + 4) / 5;
+        int totPages = totalPages(songWithAlbumOrdered.size());
 
         if (page > totPages - 1) {
             page = totPages - 1;
         }
 
-        List<SongWithAlbum> songWithAlbumDisplayed = songWithAlbumOrdered.stream().skip(page * 5L).limit(5).toList();
+        List<SongWithAlbum> songWithAlbumDisplayed = pageOf(songWithAlbumOrdered, page);
 
         // We need the list of not added songs for the form
 
-        List<Song> unusedSongs;
-        try {
-            unusedSongs = getUnusedSongs(myPlaylist, songDAO, userId);
-        } catch (DAOException e) {
-            logger.error("Failed to get unused songs", e.getMessage(), e);
-            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An internal error occurred");
-            return;
+        List<Song> unusedSongs = getUnusedSongs(myPlaylist, library);
+
+        if (conditional) {
+            ETagHandler.setValidators(resp, ETagHandler.weakETag(userId, library.version(), pageParams));
         }
 
         WebContext ctx = TemplateHandler.getWebContext(req, resp, getServletContext());
@@ -178,17 +201,8 @@ public class GetPlaylistDetails extends HttpServlet {
         ctx.setVariable("errorAddSongMsg", req.getParameter("errorAddSongMsg"));
 
         String path = "/WEB-INF/Playlist.html";
-        templateEngine.process(path, ctx, resp.getWriter());
-
-    }
+        TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
     }
 
 }
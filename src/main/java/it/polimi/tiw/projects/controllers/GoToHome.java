@@ -1,14 +1,16 @@
 package it.polimi.tiw.projects.controllers;
 
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
 import it.polimi.tiw.projects.beans.Playlist;
 import it.polimi.tiw.projects.beans.Song;
-import it.polimi.tiw.projects.beans.User;
-import it.polimi.tiw.projects.dao.PlaylistDAO;
-import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.cache.LibraryCache;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
+import it.polimi.tiw.projects.utils.ETagHandler;
 import it.polimi.tiw.projects.utils.Genre;
 import it.polimi.tiw.projects.utils.TemplateHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -20,14 +22,12 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.*;
 
 public class GoToHome extends HttpServlet {
     static final long serialVersionUID = 1L;
     private static final Logger logger = LoggerFactory.getLogger(GoToHome.class);
-    private Connection connection;
+    private static final String PAGE_TAG = "Home";
     private TemplateEngine templateEngine;
 
     public GoToHome() {
@@ -37,28 +37,38 @@ public class GoToHome extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
         templateEngine = TemplateHandler.initializeEngine(context);
     }
 
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         logger.debug("Loading HOME");
-        PlaylistDAO playlistDAO = new PlaylistDAO(connection);
-        SongDAO songDAO = new SongDAO(connection);
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        // If the library didn't change since the last visit the browser can reuse its copy
+        boolean conditional = ETagHandler.isConditionalCandidate(req);
+        if (conditional && ETagHandler.checkNotModified(req, resp,
+                ETagHandler.weakETag(userId, LibraryCache.getInstance().currentVersion(userId), PAGE_TAG))) {
+            return;
+        }
 
-        List<Integer> playlistIDs = null;
         List<Song> songList = null;
         List<Genre> genresList = Arrays.asList(Genre.values());
 
         List<Playlist> playlists = null;
         try {
-            playlists = playlistDAO.findPlaylistsByUser(userId);
-            songList = songDAO.findSongsByUser(userId);
+            LibrarySnapshot library = ConnectionHandler.withConnection(getServletContext(), Workload.INTERACTIVE,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
+            playlists = library.playlists();
+            songList = library.songs();
+            if (conditional) {
+                ETagHandler.setValidators(resp, ETagHandler.weakETag(userId, library.version(), PAGE_TAG));
+            }
             logger.debug("Searched for songs and playlists");
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error(e.getMessage(), e);
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
             return;
@@ -75,7 +85,7 @@ public class GoToHome extends HttpServlet {
         ctx.setVariable("errorOpeningPlaylist", req.getAttribute("errorOpeningPlaylist"));
 
         String path = "/WEB-INF/Home.html";
-        templateEngine.process(path, ctx, resp.getWriter());
+        TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
 
     }
 
@@ -83,13 +93,4 @@ public class GoToHome extends HttpServlet {
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         this.doGet(req, resp);
     }
-
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
 }
@@ -2,13 +2,16 @@ package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.Album;
 import it.polimi.tiw.projects.beans.FileData;
-import it.polimi.tiw.projects.beans.User;
-import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
+import it.polimi.tiw.projects.cache.LibraryCache;
 import it.polimi.tiw.projects.dao.ImageDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.Gauge;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
-import jakarta.servlet.ServletContext;
-import jakarta.servlet.ServletException;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -17,7 +20,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.sql.Connection;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,20 +27,16 @@ public class ImageGetter extends HttpServlet {
     static final long serialVersionUID = 1L;
     private static final Logger logger = LoggerFactory.getLogger(ImageGetter.class);
     private static final int DEFAULT_BUFFER_SIZE = 8192;
-    private Connection connection = null;
-
-    @Override
-    public void init() throws ServletException {
-        ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
-    }
+    private static final Counter bytesSent = MetricsRegistry.getInstance().counter("spolify_media_bytes_total",
+            "Bytes of media files sent to the clients", "type", "image");
+    private static final Gauge activeStreams = MetricsRegistry.getInstance().gauge("spolify_media_active_streams",
+            "Media files being sent to the clients", "type", "image");
 
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         ImageDAO imageDAO = (ImageDAO) getServletContext().getAttribute("imageDAO");
-        AlbumDAO albumDAO = new AlbumDAO(connection);
 
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
         String imageName = req.getParameter("imageName");
 
         // Check Parameter, if the image is not fount nothing happen
@@ -48,7 +46,10 @@ public class ImageGetter extends HttpServlet {
         }
 
         try {
-            List<String> userAlbums = albumDAO.findAlbumsByUser(userId).stream().map(Album::getImage).toList();
+            // The connection is given back before the file is streamed
+            LibrarySnapshot library = ConnectionHandler.withConnection(getServletContext(), Workload.MEDIA,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
+            List<String> userAlbums = library.albums().stream().map(Album::getImage).toList();
 
             if (userAlbums.stream().noneMatch(img -> img.equals(imageName))) {
                 resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -56,6 +57,9 @@ public class ImageGetter extends HttpServlet {
             }
 
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error(e.getMessage());
         }
 
@@ -93,6 +97,7 @@ public class ImageGetter extends HttpServlet {
         // output stream
         // The try-with-resources will automatically flush and close the output stream
         // when done
+        activeStreams.increment();
         try (ServletOutputStream out = resp.getOutputStream()) {
             byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
             int bytesRead;
@@ -103,7 +108,10 @@ public class ImageGetter extends HttpServlet {
                 // Write the buffered bytes to the response output stream, sending them to the
                 // client
                 out.write(buffer, 0, bytesRead);
+                bytesSent.add(bytesRead);
             }
+        } finally {
+            activeStreams.decrement();
         }
 
     }
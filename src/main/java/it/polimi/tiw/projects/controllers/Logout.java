@@ -1,9 +1,9 @@
 package it.polimi.tiw.projects.controllers;
 
+import it.polimi.tiw.projects.utils.AuthHandler;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 
 import java.io.IOException;
 
@@ -14,13 +14,8 @@ public class Logout extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
 
-        // Take the session if it exists
-        HttpSession session = req.getSession(false);
-
-        // Invalidate session
-        if (session != null) {
-            session.invalidate();
-        }
+        // Invalidate the session and clear the token cookie
+        AuthHandler.logOut(req, resp);
 
         // Redirect to the login page
         String path = getServletContext().getContextPath() + "/index.html";
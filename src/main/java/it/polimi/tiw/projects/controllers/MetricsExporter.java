@@ -0,0 +1,25 @@
+package it.polimi.tiw.projects.controllers;
+
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Metrics endpoint for Prometheus: writes every metric of the
+ * {@link MetricsRegistry} in the text exposition format.
+ */
+public class MetricsExporter extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("text/plain; version=0.0.4");
+        resp.setCharacterEncoding("UTF-8");
+        MetricsRegistry.getInstance().writePrometheus(resp.getWriter());
+    }
+}
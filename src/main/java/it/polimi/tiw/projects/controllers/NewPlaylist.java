@@ -1,11 +1,14 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.Playlist;
-import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.cache.LibraryCache;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.dao.PlaylistDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.listeners.AppContextListener;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -16,8 +19,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -28,7 +29,7 @@ import java.util.stream.Collectors;
 public class NewPlaylist extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(NewPlaylist.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection;
+    private transient DAOFactory daoFactory;
 
     public NewPlaylist() {
         super();
@@ -71,14 +72,12 @@ public class NewPlaylist extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
     }
 
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
-        PlaylistDAO playlistDAO = new PlaylistDAO(connection);
-
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         // Check Parameters
 
@@ -101,9 +100,14 @@ public class NewPlaylist extends HttpServlet {
         Playlist playlist;
         try {
             // Search for a playlist with the same name
-            List<Playlist> listOfPlaylists = playlistDAO.findPlaylistsByUser(userId);
-            playlist = findPlaylistByName(playlistDAO, listOfPlaylists, name, userId);
+            playlist = ConnectionHandler.withConnection(getServletContext(), Workload.WRITE, connection -> {
+                List<Playlist> listOfPlaylists = LibraryCache.getInstance().get(userId, connection).playlists();
+                return findPlaylistByName(daoFactory.getPlaylistDAO(connection), listOfPlaylists, name, userId);
+            });
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error("Error in database: {}", e.getMessage(), e);
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
             return;
@@ -112,8 +116,12 @@ public class NewPlaylist extends HttpServlet {
         if (playlist == null) {
             // Let's create a new playlist
             try {
-                playlistDAO.createPlaylist(name, userId, songIDs);
+                ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                        connection -> daoFactory.getPlaylistDAO(connection).createPlaylist(name, userId, songIDs));
             } catch (DAOException e) {
+                if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                    return;
+                }
                 switch (e.getErrorType()) {
                 case NOT_FOUND: {
                     req.setAttribute("errorNewPlaylistMsg", "One of the song you selected was not found");
@@ -147,15 +155,6 @@ public class NewPlaylist extends HttpServlet {
 
     }
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
-
     private Playlist findPlaylistByName(PlaylistDAO dao, List<Playlist> list, String name, UUID userId) {
         return list.stream().filter(playlist -> playlist.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
     }
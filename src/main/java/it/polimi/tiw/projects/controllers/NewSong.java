@@ -1,15 +1,18 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.Album;
-import it.polimi.tiw.projects.beans.User;
-import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
+import it.polimi.tiw.projects.cache.LibraryCache;
 import it.polimi.tiw.projects.dao.AudioDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.dao.ImageDAO;
-import it.polimi.tiw.projects.dao.SongDAO;
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.listeners.AppContextListener;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
 import it.polimi.tiw.projects.utils.Genre;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.MultipartConfig;
@@ -24,8 +27,6 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Paths;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
 import java.util.regex.Pattern;
@@ -34,7 +35,7 @@ import java.util.regex.Pattern;
 public class NewSong extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(NewSong.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection = null;
+    private transient DAOFactory daoFactory;
 
     public NewSong() {
         super();
@@ -125,17 +126,15 @@ public class NewSong extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
     }
 
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         logger.debug("processing the Post request");
-        SongDAO songDAO = new SongDAO(connection);
-        AlbumDAO albumDAO = new AlbumDAO(connection);
         AudioDAO audioDAO = (AudioDAO) getServletContext().getAttribute("audioDAO");
         ImageDAO imageDAO = (ImageDAO) getServletContext().getAttribute("imageDAO");
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         // Check Parameters
         String checkResult = areParametersOk(req, getServletContext());
@@ -169,18 +168,23 @@ public class NewSong extends HttpServlet {
 
         logger.debug("Retrieved Parameters");
 
-        // Find the list of all the albums
-        List<Album> albums;
+        // Find the list of all the albums. Every database step borrows its own
+        // connection, none is held while the files are written
+        LibrarySnapshot library;
         try {
-            albums = albumDAO.findAlbumsByUser(userId);
+            library = ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error("Failed to retrieve the album by user: {}", e.getMessage(), e);
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
             return;
         }
 
         // Search if there is already an album with that name
-        Album album = findAlbum(albums, albumName);
+        Album album = findAlbum(library.albums(), albumName);
 
         if (album != null && (!(album.getYear() == year) || !album.getArtist().equalsIgnoreCase(artist))) {
             // If an album with that name already exists but the information don't match
@@ -192,19 +196,12 @@ public class NewSong extends HttpServlet {
         }
 
         // An album can't have songs with the same name
-        try {
-            if (album != null && songDAO.findSongsByUser(userId).stream()
-                    .anyMatch(s -> s.getTitle().equals(title))) {
+        if (album != null && library.songs().stream().anyMatch(s -> s.getTitle().equals(title))) {
 
-                req.setAttribute("errorNewSongMsg", "The song titled \"" + title + "\" of the album \""
-                        + album.getName() + "\" have already been uploaded");
-                resp.setStatus(HttpServletResponse.SC_CONFLICT);
-                req.getRequestDispatcher("/Home").forward(req, resp);
-                return;
-            }
-        } catch (DAOException e) {
-            logger.error("Error while searching user songs: {}", e.getMessage(), e);
-            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
+            req.setAttribute("errorNewSongMsg", "The song titled \"" + title + "\" of the album \""
+                    + album.getName() + "\" have already been uploaded");
+            resp.setStatus(HttpServletResponse.SC_CONFLICT);
+            req.getRequestDispatcher("/Home").forward(req, resp);
             return;
         }
 
@@ -238,8 +235,11 @@ public class NewSong extends HttpServlet {
 
         // Create a new album if it doesn't exist
         if (album == null) {
+            String image = imageFileRename;
             try {
-                album = albumDAO.createAlbum(albumName, year, artist, imageFileRename, userId);
+                album = ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                        connection -> daoFactory.getAlbumDAO(connection).createAlbum(albumName, year, artist, image,
+                                userId));
             } catch (DAOException e) {
                 // We need to delete the saved image since the album creation failed.
 
@@ -250,7 +250,9 @@ public class NewSong extends HttpServlet {
                     return;
                 }
 
-                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
+                if (!ConnectionHandler.sendIfUnavailable(resp, e)) {
+                    resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
+                }
                 logger.error("Error creating album: {}", e.getMessage(), e);
                 return;
             }
@@ -275,7 +277,7 @@ public class NewSong extends HttpServlet {
             if (isAlbumNew) {
                 try {
                     imageDAO.deleteImage(album.getImage());
-                    albumDAO.deleteAlbum(idAlbum, userId);
+                    deleteAlbum(idAlbum, userId);
                 } catch (DAOException e1) {
                     logger.error(
                             "While trying to delete an album because of the failed creation of the song an error occurred: {}",
@@ -290,7 +292,7 @@ public class NewSong extends HttpServlet {
             if (isAlbumNew) {
                 try {
                     imageDAO.deleteImage(album.getImage());
-                    albumDAO.deleteAlbum(idAlbum, userId);
+                    deleteAlbum(idAlbum, userId);
                 } catch (DAOException e1) {
                     logger.error(
                             "While trying to delete an album because of the failed creation of the song an error occurred: {}",
@@ -301,9 +303,13 @@ public class NewSong extends HttpServlet {
         }
 
         try {
-            songDAO.createSong(title, idAlbum, genre, audioFileRename, userId);
+            ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                    connection -> daoFactory.getSongDAO(connection).createSong(title, idAlbum, genre, audioFileRename,
+                            userId));
         } catch (DAOException e) {
-            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
+            if (!ConnectionHandler.sendIfUnavailable(resp, e)) {
+                resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error in the database");
+            }
             logger.error("An error occurred while creating the song: {}", e.getMessage(), e);
             // Deleting the audio
 
@@ -318,7 +324,7 @@ public class NewSong extends HttpServlet {
             if (isAlbumNew) {
                 try {
                     imageDAO.deleteImage(album.getImage());
-                    albumDAO.deleteAlbum(idAlbum, userId);
+                    deleteAlbum(idAlbum, userId);
                 } catch (DAOException e1) {
                     logger.error(
                             "While trying to delete an album because of the failed creation of the song an error occurred: {}",
@@ -334,12 +340,12 @@ public class NewSong extends HttpServlet {
 
     }
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    private void deleteAlbum(int idAlbum, UUID userId) throws DAOException {
+        // Undoing the upload must not be cut short by the deadline that failed it
+        RequestTrace.clearDeadline();
+        ConnectionHandler.withConnection(getServletContext(), Workload.WRITE, connection -> {
+            daoFactory.getAlbumDAO(connection).deleteAlbum(idAlbum, userId);
+            return null;
+        });
     }
 }
@@ -1,14 +1,16 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
 import it.polimi.tiw.projects.beans.Song;
 import it.polimi.tiw.projects.beans.SongWithAlbum;
-import it.polimi.tiw.projects.beans.User;
-import it.polimi.tiw.projects.dao.AlbumDAO;
-import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.cache.LibraryCache;
+import it.polimi.tiw.projects.dao.DAOFactory;
 import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
 import it.polimi.tiw.projects.utils.TemplateHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -20,31 +22,24 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
-import java.util.List;
 import java.util.UUID;
 
 public class OpenSong extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(OpenSong.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection;
+    private transient DAOFactory daoFactory;
     private TemplateEngine templateEngine;
 
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
         templateEngine = TemplateHandler.initializeEngine(context);
     }
 
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
-        SongDAO songDAO = new SongDAO(connection);
-        AlbumDAO albumDAO = new AlbumDAO(connection);
-
-
-        UUID userId = ((User) req.getSession().getAttribute("user")).getIdUser();
+        UUID userId = AuthHandler.getUser(req).getIdUser();
 
         // Get and check params
         Integer playlistId = null;
@@ -73,9 +68,26 @@ public class OpenSong extends HttpServlet {
         Song song;
         Album album;
         try {
-            song = songDAO.findSongsByIdsAndUser(List.of(songId), userId).getFirst();
-            album = albumDAO.findAlbumById(song.getIdAlbum());
+            LibrarySnapshot library = ConnectionHandler.withConnection(getServletContext(), Workload.INTERACTIVE,
+                    connection -> LibraryCache.getInstance().get(userId, connection));
+            song = library.findSong(songId);
+            if (song == null) {
+                logger.warn("Song {} not found for user {}", songId, userId);
+                req.setAttribute("errorOpeningSong", "The server doesn't recognise your song, retry!");
+                resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                req.getRequestDispatcher("/GetPlaylistDetails").forward(req, resp);
+                return;
+            }
+            album = library.findAlbum(song.getIdAlbum());
+            if (album == null) {
+                int idAlbum = song.getIdAlbum();
+                album = ConnectionHandler.withConnection(getServletContext(), Workload.INTERACTIVE,
+                        connection -> daoFactory.getAlbumDAO(connection).findAlbumById(idAlbum));
+            }
         } catch (DAOException e) {
+            if (ConnectionHandler.sendIfUnavailable(resp, e)) {
+                return;
+            }
             logger.error("DAO exception: {}", e.getMessage());
             resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "An internal error occurred");
             return;
@@ -89,16 +101,7 @@ public class OpenSong extends HttpServlet {
         ctx.setVariable("swa", swa);
 
         String path = "/WEB-INF/SongInspector.html";
-        templateEngine.process(path, ctx, resp.getWriter());
-
-    }
+        TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
 
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
     }
 }
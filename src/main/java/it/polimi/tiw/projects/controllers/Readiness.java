@@ -0,0 +1,35 @@
+package it.polimi.tiw.projects.controllers;
+
+import it.polimi.tiw.projects.utils.WarmUp;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Readiness endpoint for load balancers: answers 200 once the warm-up phase is
+ * over and 503 before that.
+ */
+public class Readiness extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        WarmUp warmUp = (WarmUp) getServletContext().getAttribute(WarmUp.ATTRIBUTE);
+        boolean ready = warmUp != null && warmUp.isDone();
+
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        if (ready) {
+            resp.setStatus(HttpServletResponse.SC_OK);
+            resp.getWriter().write("READY");
+        } else {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            resp.setHeader("Retry-After", "5");
+            resp.getWriter().write("WARMING_UP");
+        }
+    }
+}
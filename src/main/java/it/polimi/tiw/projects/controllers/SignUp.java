@@ -1,11 +1,14 @@
 package it.polimi.tiw.projects.controllers;
 
 import it.polimi.tiw.projects.beans.User;
-import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.PasswordHasher;
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.listeners.AppContextListener;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import it.polimi.tiw.projects.utils.ConnectionHandler;
 import it.polimi.tiw.projects.utils.TemplateHandler;
+import it.polimi.tiw.projects.utils.Workload;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -18,15 +21,13 @@ import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.WebContext;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
 public class SignUp extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(SignUp.class);
     private static final long serialVersionUID = 1L;
-    private Connection connection;
+    private transient DAOFactory daoFactory;
     private TemplateEngine templateEngine;
 
     public SignUp() {
@@ -44,15 +45,13 @@ public class SignUp extends HttpServlet {
     @Override
     public void init() throws ServletException {
         ServletContext context = getServletContext();
-        connection = ConnectionHandler.getConnection(context);
+        daoFactory = ConnectionHandler.getDAOFactory(context);
         templateEngine = TemplateHandler.initializeEngine(context);
 
     }
 
     @Override
     public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        UserDAO userDAO = new UserDAO(connection);
-
         String name = req.getParameter("sName").strip();
         String surname = req.getParameter("sSurname").strip();
         String username = req.getParameter("sUsername").strip();
@@ -81,7 +80,7 @@ public class SignUp extends HttpServlet {
                     "Invalid name format. Use letters, spaces, hyphens, or apostrophes (3-100 characters).");
             String path = "/index.html";
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            templateEngine.process(path, ctx, resp.getWriter());
+            TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
             return;
         }
         if (isValid(surname, namePattern)) {
@@ -90,7 +89,7 @@ public class SignUp extends HttpServlet {
                     "Invalid surname format. Use letters, spaces, hyphens, or apostrophes (3-100 characters).");
             String path = "/index.html";
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            templateEngine.process(path, ctx, resp.getWriter());
+            TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
             return;
         }
         if (isValid(username, usernamePattern)) {
@@ -99,7 +98,7 @@ public class SignUp extends HttpServlet {
                     "Invalid username format. Use alphanumeric characters or underscores (3-100 characters).");
             String path = "/index.html";
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            templateEngine.process(path, ctx, resp.getWriter());
+            TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
             return;
         }
         if (!validLengthConstraints(passwordMinLength, passwordMaxLength, password)) {
@@ -109,48 +108,32 @@ public class SignUp extends HttpServlet {
                     + passwordMaxLength + " characters");
             String path = "/index.html";
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            templateEngine.process(path, ctx, resp.getWriter());
+            TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
             return;
         }
 
-        // Try to create a new user
+        // Try to create a new user, hashing the password before borrowing a connection
+        User user;
         try {
-            userDAO.createUser(username, password, name, surname);
+            String passwordHash = PasswordHasher.getInstance().hash(password);
+            user = ConnectionHandler.withConnection(getServletContext(), Workload.WRITE,
+                    connection -> daoFactory.getUserDAO(connection).insertUser(username, passwordHash, name, surname));
         } catch (DAOException e) {
             if (Objects.requireNonNull(e.getErrorType()) == DAOException.DAOErrorType.NAME_ALREADY_EXISTS) {// If a user with that name already exists:
                 logger.warn("Username already taken");
                 ctx.setVariable("errorSignUpMsg", "Username already taken");
                 String path = "/index.html";
                 resp.setStatus(HttpServletResponse.SC_CONFLICT);
-                templateEngine.process(path, ctx, resp.getWriter());
-            } else {// If another exception occurs
+                TemplateHandler.render(templateEngine, path, ctx, resp.getWriter());
+            } else if (!ConnectionHandler.sendIfUnavailable(resp, e)) {// Unless too many passwords are being hashed
                 resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Not possible to sign up");
             }
             return;
         }
 
-        // If we are here the user was created successfully, let's retrieve it
-        User user = null;
-        try {
-            user = userDAO.checkCredentials(username, password);
-        } catch (DAOException e) { // Failed to retrieve the newly created user
-            e.printStackTrace();
-            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Not Possible to check credentials");
-            return;
-        }
-
-        // Assign the user to the session
-        req.getSession().setAttribute("user", user);
+        // Log the user in, in the session or with a signed cookie
+        AuthHandler.logIn(req, resp, user);
         String path = getServletContext().getContextPath() + "/Home";
         resp.sendRedirect(path);
     }
-
-    @Override
-    public void destroy() {
-        try {
-            ConnectionHandler.closeConnection(connection);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
 }
@@ -0,0 +1,54 @@
+package it.polimi.tiw.projects.controllers;
+
+import it.polimi.tiw.projects.metrics.StatementProfiler;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Plain text report of the SQL statements recorded by the
+ * {@link StatementProfiler}. The optional {@code top} parameter limits the
+ * number of statements (default 20), {@code order} sorts them by
+ * {@code total} time (default), {@code count}, {@code p99} or {@code rows}.
+ */
+public class StatementReport extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_TOP = 20;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        StatementProfiler profiler = (StatementProfiler) getServletContext().getAttribute(StatementProfiler.ATTRIBUTE);
+        if (profiler == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "The statement profiler is disabled");
+            return;
+        }
+
+        int top = DEFAULT_TOP;
+        StatementProfiler.Order order = StatementProfiler.Order.TOTAL;
+        try {
+            String topParam = req.getParameter("top");
+            if (topParam != null) {
+                top = Integer.parseInt(topParam.strip());
+                if (top < 1) {
+                    throw new IllegalArgumentException("top must be positive");
+                }
+            }
+            String orderParam = req.getParameter("order");
+            if (orderParam != null) {
+                order = StatementProfiler.Order.valueOf(orderParam.strip().toUpperCase(Locale.ROOT));
+            }
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid top or order parameter");
+            return;
+        }
+
+        resp.setHeader("Cache-Control", "no-store");
+        resp.setContentType("text/plain");
+        resp.setCharacterEncoding("UTF-8");
+        profiler.writeReport(resp.getWriter(), top, order);
+    }
+}
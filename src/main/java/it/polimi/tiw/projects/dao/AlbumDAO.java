@@ -2,210 +2,100 @@ package it.polimi.tiw.projects.dao;
 
 import it.polimi.tiw.projects.beans.Album;
 import it.polimi.tiw.projects.exceptions.DAOException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.sql.*;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-
+import java.util.stream.Stream;
 
 /**
- * Data Access Object for managing Album data in the database. Provides methods for creating, retrieving, updating, and deleting albums.
+ * Data Access Object for managing albums. Provides methods for creating,
+ * retrieving, updating, and deleting albums.
  */
-public class AlbumDAO {
-    private static final Logger logger = LoggerFactory.getLogger(AlbumDAO.class);
-    private final Connection connection;
-
-    public AlbumDAO(Connection connection) {
-        this.connection = connection;
-    }
+public interface AlbumDAO {
 
     /**
-     * Creates a new album in the database.
+     * Creates a new album.
      *
      * @param name   The name of the album.
      * @param year   The release year of the album.
      * @param artist The artist of the album.
-     * @param image  The path to the album's image file (can be null).
+     * @param image  The name of the album's image file (can be null).
      * @param idUser The UUID of the user creating the album.
      * @return The newly created Album object with its generated ID.
-     * @throws DAOException if a database access error occurs
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR})
-     *                      or the name already exists for this user
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}).
+     * @throws DAOException if the name already exists for this user
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS})
+     *                      or another error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public Album createAlbum(String name, int year, String artist, String image, UUID idUser) throws DAOException {
-        logger.debug("Attempting to create album: name={}, year={}, artist={}, image={}, userId={}", name, year, artist,
-                image, idUser);
-        String query = "INSERT into Album (name, year, artist, image, idUser) VALUES(?, ?, ?, ?, UUID_TO_BIN(?))";
-        Album newAlbum = null;
-
-        try (PreparedStatement pStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-            pStatement.setString(1, name);
-            pStatement.setInt(2, year);
-            pStatement.setString(3, artist);
-            // Handle potentially null image
-            if (image != null) {
-                pStatement.setString(4, image);
-            } else {
-                pStatement.setNull(4, Types.VARCHAR);
-            }
-            pStatement.setString(5, idUser.toString());
-            int affectedRows = pStatement.executeUpdate();
-
-            if (affectedRows == 0) {
-                // ? This case might not happen with auto-increment keys but kept for robustness
-                throw new DAOException("Creating album failed, no rows affected.",
-                        DAOException.DAOErrorType.GENERIC_ERROR);
-            }
-
-            try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int newId = generatedKeys.getInt(1);
-                    // Create the Album bean
-                    newAlbum = new Album();
-                    newAlbum.setIdAlbum(newId);
-                    newAlbum.setName(name);
-                    newAlbum.setYear(year);
-                    newAlbum.setArtist(artist);
-                    newAlbum.setImage(image);
-                    newAlbum.setIdUser(idUser);
-                    logger.info("Album created successfully with ID: {}", newAlbum.getIdAlbum());
-                } else {
-                    logger.error("Creating album failed, no ID obtained for name={}, userId={}", name, idUser);
-                    throw new DAOException("Creating album failed, no ID obtained.",
-                            DAOException.DAOErrorType.GENERIC_ERROR);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("SQL error during album creation for name={}, userId={}: SQLState={}, Message={}", name,
-                    idUser, e.getSQLState(), e.getMessage(), e);
-            // Check for unique constraint violation (MySQL error code 1062, SQLState
-            // '23000') - Handles the composite unique key (name, idUser)
-            if ("23000".equals(e.getSQLState())) {
-                throw new DAOException("Album name '" + name + "' already exists for this user.", e,
-                        DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
-            } else {
-                throw new DAOException("Error creating album: " + e.getMessage(), e,
-                        DAOException.DAOErrorType.GENERIC_ERROR);
-            }
-        }
-        return newAlbum;
-    }
+    Album createAlbum(String name, int year, String artist, String image, UUID idUser) throws DAOException;
 
     /**
      * Finds an album by its ID.
      *
      * @param idAlbum The ID of the album to find.
      * @return The Album object if found.
-     * @throws DAOException if a database access error occurs
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR})
-     *                      or the album is not found
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}).
+     * @throws DAOException if the album is not found
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
+     *                      or another error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public Album findAlbumById(int idAlbum) throws DAOException {
-        logger.debug("Attempting to find album by ID: {}", idAlbum);
-        Album album = null;
-        String query = "SELECT idAlbum, name, year, artist, image, BIN_TO_UUID(idUser) as idUser FROM Album WHERE idAlbum = ?";
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            pStatement.setInt(1, idAlbum);
-            try (ResultSet result = pStatement.executeQuery()) {
-                if (result.next()) {
-                    album = new Album();
-                    album.setIdAlbum(result.getInt("idAlbum"));
-                    album.setName(result.getString("name"));
-                    album.setYear(result.getInt("year"));
-                    album.setArtist(result.getString("artist"));
-                    album.setImage(result.getString("image"));
-                    album.setIdUser(UUID.fromString(result.getString("idUser")));
-                    logger.debug("Found album with ID: {}", idAlbum);
-                } else {
-                    logger.warn("Album not found with ID: {}", idAlbum);
-                    throw new DAOException("Album with ID " + idAlbum + " not found.",
-                            DAOException.DAOErrorType.NOT_FOUND);
-                }
-            }
-        } catch (SQLException | IllegalArgumentException e) { // Catch UUID parsing errors too
-            logger.error("SQL error finding album by ID {}: {}", idAlbum, e.getMessage(), e);
-            throw new DAOException("Error finding album by ID: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
-        }
-        // If we reach here, album must have been found and populated
-        return album;
-    }
+    @ReadOnly
+    Album findAlbumById(int idAlbum) throws DAOException;
 
     /**
-     * Finds all albums in the database.
+     * Finds several albums by their IDs.
+     *
+     * @param idAlbums The IDs of the albums to find.
+     * @return A map from album ID to album. IDs that don't exist are not present
+     *         in the map.
+     * @throws DAOException if an error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @ReadOnly
+    Map<Integer, Album> findAlbumsByIds(Collection<Integer> idAlbums) throws DAOException;
+
+    /**
+     * Finds all albums, ordered by artist, year and name.
      *
      * @return A list of all albums.
-     * @throws DAOException if a database access error occurs
+     * @throws DAOException if an error occurs
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public List<Album> findAllAlbums() throws DAOException {
-        logger.debug("Attempting to find all albums");
-        List<Album> albums = new ArrayList<>();
-        String query = "SELECT idAlbum, name, year, artist, image, BIN_TO_UUID(idUser) as idUser FROM Album ORDER BY artist, year, name";
-        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(query)) {
-            while (result.next()) {
-                Album album = new Album();
-                album.setIdAlbum(result.getInt("idAlbum"));
-                album.setName(result.getString("name"));
-                album.setYear(result.getInt("year"));
-                album.setArtist(result.getString("artist"));
-                album.setImage(result.getString("image"));
-                album.setIdUser(UUID.fromString(result.getString("idUser")));
-                albums.add(album);
-            }
-            logger.debug("Found {} albums", albums.size());
-        } catch (SQLException e) {
-            logger.error("SQL error finding all albums: {}", e.getMessage(), e);
-            throw new DAOException("Error finding all albums: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
-        }
-        return albums;
-    }
+    @ReadOnly
+    List<Album> findAllAlbums() throws DAOException;
+
+    /**
+     * Streams all albums, ordered by artist, year and name, reading them as the
+     * stream is consumed so that a full scan runs in constant memory. The
+     * stream must be closed, e.g. with try-with-resources; errors while reading
+     * it are thrown as
+     * {@link it.polimi.tiw.projects.exceptions.UncheckedDAOException}. The
+     * stream reads from the connection of the DAO, so it must be consumed and
+     * closed inside the {@code ConnectionHandler.withConnection} step that
+     * created it: once the step returns the connection is back in the pool.
+     *
+     * @return A stream of all albums.
+     * @throws DAOException if an error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @ReadOnly
+    Stream<Album> streamAllAlbums() throws DAOException;
 
     /**
      * Finds all albums created by a specific user.
      *
      * @param userId The UUID of the user.
      * @return A list of albums created by the user, ordered by year and name.
-     * @throws DAOException if a database access error occurs
+     * @throws DAOException if an error occurs
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public List<Album> findAlbumsByUser(UUID userId) throws DAOException {
-        logger.debug("Attempting to find albums for user ID: {}", userId);
-        List<Album> userAlbums = new ArrayList<>();
-        String query = "SELECT idAlbum, name, year, artist, image, BIN_TO_UUID(idUser) as idUser FROM Album WHERE idUser = UUID_TO_BIN(?) ORDER BY year, name";
-
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            pStatement.setString(1, userId.toString());
-            try (ResultSet result = pStatement.executeQuery()) {
-                while (result.next()) {
-                    Album album = new Album();
-                    album.setIdAlbum(result.getInt("idAlbum"));
-                    album.setName(result.getString("name"));
-                    album.setYear(result.getInt("year"));
-                    album.setArtist(result.getString("artist"));
-                    album.setImage(result.getString("image"));
-                    album.setIdUser(UUID.fromString(result.getString("idUser")));
-                    userAlbums.add(album);
-                }
-                logger.debug("Found {} albums for user ID: {}", userAlbums.size(), userId);
-            }
-        } catch (SQLException e) {
-            logger.error("SQL error finding albums for user ID {}: {}", userId, e.getMessage(), e);
-            throw new DAOException("Error finding albums by user: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
-        }
-        return userAlbums;
-    }
+    @ReadOnly
+    List<Album> findAlbumsByUser(UUID userId) throws DAOException;
 
     /**
-     * Updates an existing album in the database, only modifying fields with
-     * non-null values.
+     * Updates an existing album, only modifying fields with non-null values.
      *
      * @param idAlbum The ID of the album to update.
      * @param userId  The UUID of the user attempting the update (for
@@ -213,137 +103,31 @@ public class AlbumDAO {
      * @param name    The new name for the album (or null to keep existing).
      * @param year    The new release year for the album (or null to keep existing).
      * @param artist  The new artist for the album (or null to keep existing).
-     * @param image   The new image path for the album (or null to keep existing).
-     * @throws DAOException             if a database access error occurs
-     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}),
-     *                                  the album is not found or the user is not
-     *                                  authorized
+     * @param image   The new image name for the album (or null to keep existing).
+     * @throws DAOException             if the album is not found or the user is
+     *                                  not authorized
      *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}),
-     *                                  or the new name already exists for this user
-     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}).
+     *                                  the new name already exists for this user
+     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}),
+     *                                  or another error occurs
+     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      * @throws IllegalArgumentException if all update parameters (name, year,
      *                                  artist, image) are null.
      */
-    public void updateAlbum(int idAlbum, UUID userId, String name, Integer year, String artist, String image)
-            throws DAOException {
-        logger.debug(
-                "Attempting to update album ID: {} for user ID: {} with data: name={}, year={}, artist={}, image={}",
-                idAlbum, userId, name, year, artist, image);
-        // Build the query dynamically
-        StringBuilder queryBuilder = new StringBuilder("UPDATE Album SET ");
-        List<Object> params = new ArrayList<>();
-        boolean firstField = true;
-
-        if (name != null) {
-            queryBuilder.append("name = ?");
-            params.add(name);
-            firstField = false;
-        }
-        if (year != null) {
-            if (!firstField)
-                queryBuilder.append(", ");
-            queryBuilder.append("year = ?");
-            params.add(year);
-            firstField = false;
-        }
-        if (artist != null) {
-            if (!firstField)
-                queryBuilder.append(", ");
-            queryBuilder.append("artist = ?");
-            params.add(artist);
-            firstField = false;
-        }
-        if (image != null) {
-            if (!firstField)
-                queryBuilder.append(", ");
-            queryBuilder.append("image = ?");
-            params.add(image);
-            firstField = false;
-        }
-
-        // Check if any field was actually added for update
-        if (params.isEmpty()) {
-            logger.warn("Update attempt for album ID {} failed: No fields provided for update.", idAlbum);
-            throw new IllegalArgumentException("No fields provided for update.");
-        }
-
-        // Add authorization check
-        queryBuilder.append(" WHERE idAlbum = ? AND idUser = UUID_TO_BIN(?)");
-        params.add(idAlbum);
-        params.add(userId.toString());
-
-        String query = queryBuilder.toString();
-
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            // Set parameters dynamically
-            for (int i = 0; i < params.size(); i++) {
-                Object param = params.get(i);
-                if (param instanceof String) {
-                    pStatement.setString(i + 1, (String) param);
-                } else if (param instanceof Integer) {
-                    pStatement.setInt(i + 1, (Integer) param);
-                }
-                // * Note: We don't handle setNull here because the update logic only adds
-                // * non-null parameters to the list. If a user wants to set image to NULL,
-                // * they would need a different mechanism or a specific value indicating NULL.
-                // * For now, this update only sets non-null values.
-            }
-
-            int affectedRows = pStatement.executeUpdate();
-            if (affectedRows == 0) {
-                logger.warn("Update failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
-                // We throw NOT_FOUND here, but it could also be ACCESS_DENIED. The DB doesn't
-                // distinguish.
-                throw new DAOException("Album with ID " + idAlbum + " not found for update or user not authorized.",
-                        DAOException.DAOErrorType.NOT_FOUND);
-            }
-            logger.info("Album ID {} updated successfully by user {}", idAlbum, userId);
-            // No return value needed, success is indicated by lack of exception
-        } catch (SQLException e) {
-            logger.error("SQL error updating album ID {} for user {}: SQLState={}, Message={}", idAlbum, userId,
-                    e.getSQLState(), e.getMessage(), e);
-            // Check for unique constraint violation (name, idUser)
-            if ("23000".equals(e.getSQLState()) && name != null) {
-                throw new DAOException("Album name '" + name + "' already exists for this user.", e,
-                        DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
-            } else {
-                throw new DAOException("Error updating album: " + e.getMessage(), e,
-                        DAOException.DAOErrorType.GENERIC_ERROR);
-            }
-        }
-    }
+    void updateAlbum(int idAlbum, UUID userId, String name, Integer year, String artist, String image)
+            throws DAOException;
 
     /**
-     * Deletes an album from the database by its ID, ensuring user authorization.
+     * Deletes an album and its songs, ensuring user authorization.
      *
      * @param idAlbum The ID of the album to delete.
      * @param userId  The UUID of the user attempting the deletion (for
      *                authorization).
-     * @throws DAOException if a database access error occurs
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}),
-     *                      the album is not found, or the user is not authorized
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}).
+     * @throws DAOException if the album is not found or the user is not
+     *                      authorized
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
+     *                      or another error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public void deleteAlbum(int idAlbum, UUID userId) throws DAOException {
-        logger.debug("Attempting to delete album ID: {} by user ID: {}", idAlbum, userId);
-        String query = "DELETE FROM Album WHERE idAlbum = ? AND idUser = UUID_TO_BIN(?)";
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            pStatement.setInt(1, idAlbum);
-            pStatement.setString(2, userId.toString());
-            int affectedRows = pStatement.executeUpdate();
-            if (affectedRows == 0) {
-                logger.warn("Delete failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
-                // We throw NOT_FOUND here, but it could also be ACCESS_DENIED. The DB doesn't
-                // distinguish.
-                throw new DAOException("Album with ID " + idAlbum + " not found for deletion or user not authorized.",
-                        DAOException.DAOErrorType.NOT_FOUND);
-            }
-            logger.info("Album ID {} deleted successfully by user {}", idAlbum, userId);
-            // No return value needed, success is indicated by lack of exception
-        } catch (SQLException e) {
-            logger.error("SQL error deleting album ID {} by user {}: {}", idAlbum, userId, e.getMessage(), e);
-            throw new DAOException("Error deleting album: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
-        }
-    }
+    void deleteAlbum(int idAlbum, UUID userId) throws DAOException;
 }
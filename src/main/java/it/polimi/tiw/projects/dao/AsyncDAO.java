@@ -0,0 +1,193 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade over the read methods of the DAOs. Every call borrows its
+ * own connection from the pool and runs on a dedicated executor, so independent
+ * reads can be issued together and the caller waits for the slowest of them
+ * instead of their sum. The DAOs come from the configured {@link DAOFactory},
+ * so the reads are timed like the others.
+ * <p>
+ * The executor queues a bounded number of reads: beyond it a read fails at
+ * once with {@link DAOErrorType#UNAVAILABLE} instead of piling up, and
+ * {@link #join} waits no longer than the deadline of the calling request.
+ * <p>
+ * Reads on separate connections do not share a transaction, so this facade must
+ * only be used by callers that tolerate the results being taken at slightly
+ * different points in time. The reads run with the request ID and
+ * {@link RequestTrace} of the caller, so their logs and statements are
+ * attributed to its request. With a {@link ReplicaRouter}, the reads go to the
+ * replica whenever the router allows it for the calling request.
+ */
+public class AsyncDAO {
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDAO.class);
+    private final DataSource dataSource;
+    private final DAOFactory daoFactory;
+    private final ReplicaRouter router;
+    private final ExecutorService executor;
+
+    /**
+     * @param dataSource The pool the connections are borrowed from.
+     * @param threads    The number of reads that can run at the same time.
+     * @throws IllegalArgumentException if threads is not positive.
+     */
+    public AsyncDAO(DataSource dataSource, int threads) {
+        this(dataSource, new JdbcDAOFactory(), null, threads, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param dataSource The pool of the primary.
+     * @param daoFactory The factory of the DAOs running the reads. It must not
+     *                   route them to the replica itself.
+     * @param router     Routes the reads to the replica, or null to read from
+     *                   the primary only.
+     * @param threads    The number of reads that can run at the same time.
+     * @param queueSize  The number of reads that can wait for a thread.
+     * @throws IllegalArgumentException if threads or queueSize is not positive.
+     */
+    public AsyncDAO(DataSource dataSource, DAOFactory daoFactory, ReplicaRouter router, int threads,
+                    int queueSize) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive, was " + threads);
+        }
+        if (queueSize <= 0) {
+            throw new IllegalArgumentException("queueSize must be positive, was " + queueSize);
+        }
+        this.dataSource = dataSource;
+        this.daoFactory = daoFactory;
+        this.router = router;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "async-dao-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("AsyncDAO initialized with {} threads and a queue of {} reads", threads, queueSize);
+    }
+
+    /**
+     * Waits for an asynchronous read, at most until the deadline of the current
+     * request, and unwraps its failure.
+     *
+     * @param future The future returned by one of the methods of this class.
+     * @return The result of the read.
+     * @throws DAOException the exception thrown by the DAO,
+     *                      {@link DAOErrorType#TIMEOUT} if the deadline passed
+     *                      first, or {@link DAOErrorType#GENERIC_ERROR} if the
+     *                      read could not complete.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws DAOException {
+        long remainingNanos = RequestTrace.remainingNanos();
+        try {
+            return remainingNanos == Long.MAX_VALUE ? future.join()
+                    : future.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // A read still queued is skipped
+            future.cancel(false);
+            throw new DAOException("Asynchronous read ran past the deadline of the request", e,
+                    DAOErrorType.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("Interrupted while waiting for an asynchronous read", e,
+                    DAOErrorType.GENERIC_ERROR);
+        } catch (CompletionException | ExecutionException | CancellationException e) {
+            if (e.getCause() instanceof DAOException daoException) {
+                throw daoException;
+            }
+            throw new DAOException("Asynchronous read failed: " + e.getMessage(), e, DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * @see SongDAO#findSongsByUser(UUID)
+     */
+    public CompletableFuture<List<Song>> findSongsByUser(UUID userId) {
+        return supply(userId, connection -> daoFactory.getSongDAO(connection).findSongsByUser(userId));
+    }
+
+    /**
+     * @see AlbumDAO#findAlbumsByUser(UUID)
+     */
+    public CompletableFuture<List<Album>> findAlbumsByUser(UUID userId) {
+        return supply(userId, connection -> daoFactory.getAlbumDAO(connection).findAlbumsByUser(userId));
+    }
+
+    /**
+     * @see PlaylistDAO#findPlaylistsByUser(UUID)
+     */
+    public CompletableFuture<List<Playlist>> findPlaylistsByUser(UUID userId) {
+        return supply(userId, connection -> daoFactory.getPlaylistDAO(connection).findPlaylistsByUser(userId));
+    }
+
+    /**
+     * Stops accepting new reads. Reads already submitted are allowed to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        logger.info("AsyncDAO executor shut down");
+    }
+
+    private <T> CompletableFuture<T> supply(UUID userId, DAOCall<T> call) {
+        // Routed on the calling thread, which knows whether its request has written
+        DataSource replica = router != null ? router.replicaFor(userId) : null;
+        try {
+            return CompletableFuture.supplyAsync(RequestTrace.propagate(() -> {
+                try (Connection connection = getConnection(replica)) {
+                    return call.apply(connection);
+                } catch (DAOException e) {
+                    throw new CompletionException(e);
+                } catch (SQLException e) {
+                    // As for the servlets, a saturated pool asks the client to retry later
+                    logger.warn("No connection free for an asynchronous read: {}", e.getMessage());
+                    throw new CompletionException(new DAOException("The database is busy, retry later", e,
+                            DAOErrorType.UNAVAILABLE));
+                }
+            }), executor);
+        } catch (RejectedExecutionException e) {
+            if (executor.isShutdown()) {
+                return CompletableFuture.failedFuture(new DAOException("Asynchronous reads are shut down", e,
+                        DAOErrorType.GENERIC_ERROR));
+            }
+            logger.warn("Asynchronous read rejected, the queue is full");
+            return CompletableFuture.failedFuture(new DAOException("Too many reads in progress, retry later", e,
+                    DAOErrorType.UNAVAILABLE));
+        }
+    }
+
+    private Connection getConnection(DataSource replica) throws SQLException {
+        if (!daoFactory.requiresConnection()) {
+            return null;
+        }
+        if (replica != null) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                logger.warn("Could not get a replica connection, reading from the primary: {}", e.getMessage());
+            }
+        }
+        return dataSource.getConnection();
+    }
+
+    @FunctionalInterface
+    private interface DAOCall<T> {
+        T apply(Connection connection) throws DAOException;
+    }
+}
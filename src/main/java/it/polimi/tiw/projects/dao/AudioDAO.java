@@ -3,6 +3,7 @@ package it.polimi.tiw.projects.dao;
 import it.polimi.tiw.projects.beans.FileData;
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.jfr.FileIOEvent;
 import it.polimi.tiw.projects.utils.StorageUtils;
 import org.apache.tika.Tika;
 import org.slf4j.Logger;
@@ -94,12 +95,16 @@ public class AudioDAO {
             throw new IllegalArgumentException("Original filename cannot be null or empty.");
         }
 
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        String savedFilename = null;
+        long bytes = 0;
         Path tempFile = null;
         try {
             // Create a temporary file (use a generic suffix initially)
             tempFile = Files.createTempFile("audio_upload_", ".tmp");
             log.debug("Created temporary file: {}", tempFile);
-            Files.copy(audioStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            bytes = Files.copy(audioStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
             log.debug("Copied input stream to temporary file.");
 
             // Validate content and get the correct extension based on MIME type
@@ -118,6 +123,7 @@ public class AudioDAO {
 
             // Return the final filename (relative to the song storage directory)
             log.debug("Returning final filename: {}", finalFilename);
+            savedFilename = finalFilename;
             return finalFilename;
 
         } catch (IOException e) {
@@ -130,6 +136,8 @@ public class AudioDAO {
             log.warn("IllegalArgumentException during audio save: {}", e.getMessage());
             deleteTempFile(tempFile);
             throw e;
+        } finally {
+            event.finish("audio", "save", savedFilename != null ? savedFilename : originalFileName, bytes);
         }
     }
 
@@ -147,7 +155,7 @@ public class AudioDAO {
      *                                  during detection.
      */
     private String validateAndGetExtension(Path audioFile) throws IllegalArgumentException, IOException {
-        Tika tika = new Tika();
+        Tika tika = StorageUtils.getMimeDetector();
         String mimeType = null;
         try {
             mimeType = tika.detect(audioFile);
@@ -310,15 +318,19 @@ public class AudioDAO {
     public FileData getAudio(String filename) throws DAOException, IllegalArgumentException {
         log.info("Attempting to retrieve audio file with filename: {}", filename);
 
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        long bytes = 0;
         try {
             // Validate, resolve, and check existence using utility
             Path fileRealPath = StorageUtils.validateAndResolveSecurePath(filename, this.songStorageDirectory);
             log.debug("Path validated for retrieval: {}", fileRealPath);
 
             // Get metadata and open stream
-            String mimeType = new Tika().detect(fileRealPath);
+            String mimeType = StorageUtils.getMimeDetector().detect(fileRealPath);
             long size = Files.size(fileRealPath);
             InputStream contentStream = Files.newInputStream(fileRealPath);
+            bytes = size;
 
             log.info("Successfully prepared FileData for audio: {}", filename);
             return new FileData(contentStream, filename, mimeType, size);
@@ -337,6 +349,8 @@ public class AudioDAO {
             throw new DAOException(
                     "Failed to retrieve audio metadata or content due to security restrictions: " + e.getMessage(), e,
                     DAOErrorType.GENERIC_ERROR);
+        } finally {
+            event.finish("audio", "get", filename, bytes);
         }
     }
 }
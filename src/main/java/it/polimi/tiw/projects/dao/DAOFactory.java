@@ -0,0 +1,29 @@
+package it.polimi.tiw.projects.dao;
+
+import java.sql.Connection;
+
+/**
+ * Creates the DAOs used by the servlets. The implementation is selected at
+ * startup through the {@code dao.implementation} context parameter and stored
+ * in the servlet context under {@link #ATTRIBUTE}.
+ * <p>
+ * Implementations that don't need a database ignore the connection they are
+ * given, which may then be null.
+ */
+public interface DAOFactory {
+    String ATTRIBUTE = "daoFactory";
+
+    /**
+     * @return true if the DAOs read and write through the given connection, false
+     *         if the connection is ignored and callers don't need to open one.
+     */
+    boolean requiresConnection();
+
+    UserDAO getUserDAO(Connection connection);
+
+    SongDAO getSongDAO(Connection connection);
+
+    AlbumDAO getAlbumDAO(Connection connection);
+
+    PlaylistDAO getPlaylistDAO(Connection connection);
+}
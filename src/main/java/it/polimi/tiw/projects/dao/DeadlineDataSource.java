@@ -0,0 +1,116 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.utils.RequestTrace;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * DataSource whose statements can't outlive the deadline of the request that
+ * creates them.
+ * <p>
+ * Every statement created on its connections gets a query timeout of the time
+ * left before the deadline in {@link RequestTrace}, rounded up to the second
+ * JDBC counts in; when it expires the driver cancels the statement on the
+ * server and throws a {@link SQLTimeoutException}. Once the deadline has
+ * passed, creating a statement throws one right away. Statements created
+ * outside of a request, or of one without a deadline, are left unbounded. The
+ * DAOs are unaware of the deadline, and report the timeouts as
+ * {@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#TIMEOUT}.
+ */
+public class DeadlineDataSource implements DataSource {
+    private final DataSource delegate;
+
+    public DeadlineDataSource(DataSource delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return The query timeout in seconds for the given time left, at least 1.
+     */
+    static int timeoutSeconds(long remainingNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long seconds = remainingNanos / second + (remainingNanos % second > 0 ? 1 : 0);
+        return (int) Math.max(1, Math.min(seconds, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(delegate.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private static Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    boolean createsStatement = Statement.class.isAssignableFrom(method.getReturnType());
+                    long remainingNanos = createsStatement ? RequestTrace.remainingNanos() : Long.MAX_VALUE;
+                    if (remainingNanos <= 0) {
+                        throw new SQLTimeoutException("The deadline of the request has expired");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (remainingNanos != Long.MAX_VALUE && result instanceof Statement statement) {
+                        try {
+                            statement.setQueryTimeout(timeoutSeconds(remainingNanos));
+                        } catch (SQLException | RuntimeException e) {
+                            statement.close();
+                            throw e;
+                        }
+                    }
+                    return result;
+                });
+    }
+}
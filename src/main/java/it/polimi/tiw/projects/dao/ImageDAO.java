@@ -3,6 +3,7 @@ package it.polimi.tiw.projects.dao;
 import it.polimi.tiw.projects.beans.FileData;
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.jfr.FileIOEvent;
 import it.polimi.tiw.projects.utils.StorageUtils;
 import org.apache.tika.Tika;
 import org.slf4j.Logger;
@@ -83,12 +84,16 @@ public class ImageDAO {
             throw new IllegalArgumentException("Original filename cannot be null or empty.");
         }
 
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        String savedFilename = null;
+        long bytes = 0;
         Path tempFile = null;
         try {
             // Create a temporary file (use a generic suffix initially)
             tempFile = Files.createTempFile("img_upload_", ".tmp");
             log.debug("Created temporary file: {}", tempFile);
-            Files.copy(imageStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            bytes = Files.copy(imageStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
             log.debug("Copied input stream to temporary file.");
 
             // Validate content and get the correct extension based on MIME type
@@ -107,6 +112,7 @@ public class ImageDAO {
 
             // Return the final filename (relative to the image storage directory)
             log.debug("Returning final filename: {}", finalFilename);
+            savedFilename = finalFilename;
             return finalFilename;
 
         } catch (IOException e) {
@@ -121,6 +127,8 @@ public class ImageDAO {
             // If it was thrown earlier (e.g., filename check), tempFile might be null.
             deleteTempFile(tempFile); // Attempt cleanup just in case
             throw e;
+        } finally {
+            event.finish("image", "save", savedFilename != null ? savedFilename : originalFileName, bytes);
         }
     }
 
@@ -138,7 +146,7 @@ public class ImageDAO {
      *                                  during detection.
      */
     private String validateAndGetExtension(Path imageFile) throws IllegalArgumentException, IOException {
-        Tika tika = new Tika();
+        Tika tika = StorageUtils.getMimeDetector();
         String mimeType = null;
         try {
             mimeType = tika.detect(imageFile);
@@ -301,15 +309,19 @@ public class ImageDAO {
     public FileData getImage(String filename) throws DAOException, IllegalArgumentException {
         log.info("Attempting to retrieve image file with filename: {}", filename);
 
+        FileIOEvent event = new FileIOEvent();
+        event.begin();
+        long bytes = 0;
         try {
             // Validate, resolve, and check existence using utility
             Path fileRealPath = StorageUtils.validateAndResolveSecurePath(filename, this.imageStorageDirectory);
             log.debug("Path validated for retrieval: {}", fileRealPath);
 
             // Get metadata and open stream
-            String mimeType = new Tika().detect(fileRealPath);
+            String mimeType = StorageUtils.getMimeDetector().detect(fileRealPath);
             long size = Files.size(fileRealPath);
             InputStream contentStream = Files.newInputStream(fileRealPath);
+            bytes = size;
 
             log.info("Successfully prepared FileData for image: {}", filename);
             return new FileData(contentStream, filename, mimeType, size);
@@ -328,6 +340,8 @@ public class ImageDAO {
             throw new DAOException(
                     "Failed to retrieve image metadata or content due to security restrictions: " + e.getMessage(), e,
                     DAOErrorType.GENERIC_ERROR);
+        } finally {
+            event.finish("image", "get", filename, bytes);
         }
     }
 }
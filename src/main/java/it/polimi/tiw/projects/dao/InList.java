@@ -0,0 +1,76 @@
+package it.polimi.tiw.projects.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the {@code IN} conditions on a list of integer IDs so that their
+ * statements have few distinct texts and stay in the prepared statement caches
+ * of the driver and of the server.
+ * <p>
+ * Up to {@link #MAX_PLACEHOLDERS} IDs, the placeholders are padded to the next
+ * power of two and the extra ones are bound to the last ID again, which
+ * doesn't change the result. Longer lists are bound as a single JSON array and
+ * unpacked by {@code JSON_TABLE}, so that the statement stays the same however
+ * many IDs there are.
+ */
+final class InList {
+    static final int MAX_PLACEHOLDERS = 256;
+    // PLACEHOLDERS[i] holds 2^i placeholders
+    private static final String[] PLACEHOLDERS = IntStream
+            .rangeClosed(0, Integer.numberOfTrailingZeros(MAX_PLACEHOLDERS))
+            .mapToObj(i -> String.join(", ", Collections.nCopies(1 << i, "?")))
+            .toArray(String[]::new);
+
+    private InList() {
+    }
+
+    /**
+     * @return The number of placeholders used for the given number of IDs, or 1
+     *         for a JSON array.
+     */
+    static int placeholders(int size) {
+        if (size > MAX_PLACEHOLDERS) {
+            return 1;
+        }
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * @param column The column compared to the IDs.
+     * @param size   The number of IDs, at least one.
+     * @return The condition, to be bound with {@link #bind}.
+     */
+    static String condition(String column, int size) {
+        if (size > MAX_PLACEHOLDERS) {
+            return column + " IN (SELECT ids.id FROM JSON_TABLE(?, '$[*]' COLUMNS (id INT PATH '$')) AS ids)";
+        }
+        return column + " IN (" + PLACEHOLDERS[Integer.numberOfTrailingZeros(placeholders(size))] + ")";
+    }
+
+    /**
+     * Binds the IDs to the parameters of a {@link #condition}.
+     *
+     * @param index The index of the first parameter of the condition.
+     * @return The index of the parameter following the condition.
+     */
+    static int bind(PreparedStatement statement, int index, Collection<Integer> ids) throws SQLException {
+        if (ids.size() > MAX_PLACEHOLDERS) {
+            statement.setString(index, ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]")));
+            return index + 1;
+        }
+        int last = 0;
+        for (int id : ids) {
+            statement.setInt(index++, id);
+            last = id;
+        }
+        for (int padding = placeholders(ids.size()) - ids.size(); padding > 0; padding--) {
+            statement.setInt(index++, last);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,474 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.cache.AlbumCache;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+
+/**
+ * Data Access Object for managing Album data in the database. Provides methods for creating, retrieving, updating, and deleting albums.
+ * <p>
+ * Albums are cached in the {@link AlbumCache} on auto-commit connections only. A caller that updates or deletes an
+ * album inside its own transaction invalidates it in the cache after the commit.
+ */
+public class JdbcAlbumDAO implements AlbumDAO {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcAlbumDAO.class);
+    // Read by albumMapper, in this order
+    private static final String ALBUM_COLUMNS = "idAlbum, name, year, artist, image, idUser";
+    private static final String FIND_ALL_QUERY = "SELECT " + ALBUM_COLUMNS
+            + " FROM Album ORDER BY artist, year, name";
+    private final Connection connection;
+
+    public JdbcAlbumDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Creates a new album in the database.
+     *
+     * @param name   The name of the album.
+     * @param year   The release year of the album.
+     * @param artist The artist of the album.
+     * @param image  The path to the album's image file (can be null).
+     * @param idUser The UUID of the user creating the album.
+     * @return The newly created Album object with its generated ID.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR})
+     *                      or the name already exists for this user
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}).
+     */
+    @Override
+    public Album createAlbum(String name, int year, String artist, String image, UUID idUser) throws DAOException {
+        logger.debug("Attempting to create album: name={}, year={}, artist={}, image={}, userId={}", name, year, artist,
+                image, idUser);
+        String query = "INSERT into Album (name, year, artist, image, idUser) VALUES(?, ?, ?, ?, ?)";
+        Album newAlbum = null;
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            pStatement.setString(1, name);
+            pStatement.setInt(2, year);
+            pStatement.setString(3, artist);
+            // Handle potentially null image
+            if (image != null) {
+                pStatement.setString(4, image);
+            } else {
+                pStatement.setNull(4, Types.VARCHAR);
+            }
+            UUIDCodec.bind(pStatement, 5, idUser);
+            int affectedRows = pStatement.executeUpdate();
+
+            if (affectedRows == 0) {
+                // ? This case might not happen with auto-increment keys but kept for robustness
+                throw new DAOException("Creating album failed, no rows affected.",
+                        DAOException.DAOErrorType.GENERIC_ERROR);
+            }
+
+            try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    int newId = generatedKeys.getInt(1);
+                    // Create the Album bean
+                    newAlbum = new Album();
+                    newAlbum.setIdAlbum(newId);
+                    newAlbum.setName(name);
+                    newAlbum.setYear(year);
+                    newAlbum.setArtist(artist);
+                    newAlbum.setImage(image);
+                    newAlbum.setIdUser(idUser);
+                    logger.info("Album created successfully with ID: {}", newAlbum.getIdAlbum());
+                } else {
+                    logger.error("Creating album failed, no ID obtained for name={}, userId={}", name, idUser);
+                    throw new DAOException("Creating album failed, no ID obtained.",
+                            DAOException.DAOErrorType.GENERIC_ERROR);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("SQL error during album creation for name={}, userId={}: SQLState={}, Message={}", name,
+                    idUser, e.getSQLState(), e.getMessage(), e);
+            // Check for unique constraint violation (MySQL error code 1062, SQLState
+            // '23000') - Handles the composite unique key (name, idUser)
+            if ("23000".equals(e.getSQLState())) {
+                throw new DAOException("Album name '" + name + "' already exists for this user.", e,
+                        DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
+            } else {
+                throw new DAOException("Error creating album: " + e.getMessage(), e,
+                        DAOException.DAOErrorType.GENERIC_ERROR);
+            }
+        }
+        return newAlbum;
+    }
+
+    /**
+     * Finds an album by its ID.
+     *
+     * @param idAlbum The ID of the album to find.
+     * @return The Album object if found.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR})
+     *                      or the album is not found
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}).
+     */
+    @Override
+    public Album findAlbumById(int idAlbum) throws DAOException {
+        logger.debug("Attempting to find album by ID: {}", idAlbum);
+        AlbumCache cache = AlbumCache.getInstance();
+        boolean cacheable = isCacheable();
+        if (cacheable) {
+            Album cached = cache.get(idAlbum);
+            if (cached != null) {
+                logger.debug("Found album with ID {} in cache", idAlbum);
+                return cached;
+            }
+        }
+        long generation = cache.generation();
+        Album album = null;
+        String query = "SELECT " + ALBUM_COLUMNS + " FROM Album WHERE idAlbum = ?";
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            pStatement.setInt(1, idAlbum);
+            try (ResultSet result = pStatement.executeQuery()) {
+                if (result.next()) {
+                    album = albumMapper(UUIDCodec.reader()).map(result);
+                    logger.debug("Found album with ID: {}", idAlbum);
+                } else {
+                    logger.warn("Album not found with ID: {}", idAlbum);
+                    throw new DAOException("Album with ID " + idAlbum + " not found.",
+                            DAOException.DAOErrorType.NOT_FOUND);
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("SQL error finding album by ID {}: {}", idAlbum, e.getMessage(), e);
+            throw new DAOException("Error finding album by ID: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        // If we reach here, album must have been found and populated
+        if (cacheable) {
+            cache.put(album, generation);
+        }
+        return album;
+    }
+
+    /**
+     * Finds several albums by their IDs. Albums found in the {@link AlbumCache}
+     * are returned directly, all the others are loaded with a single IN query.
+     *
+     * @param idAlbums The IDs of the albums to find.
+     * @return A map from album ID to album. IDs that don't exist are not present
+     *         in the map.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public Map<Integer, Album> findAlbumsByIds(Collection<Integer> idAlbums) throws DAOException {
+        logger.debug("Attempting to find {} albums by ID", idAlbums.size());
+        Map<Integer, Album> albums = new HashMap<>();
+        AlbumCache cache = AlbumCache.getInstance();
+        boolean cacheable = isCacheable();
+
+        Set<Integer> missing = new LinkedHashSet<>();
+        for (Integer idAlbum : idAlbums) {
+            Album cached = cacheable ? cache.get(idAlbum) : null;
+            if (cached != null) {
+                albums.put(idAlbum, cached);
+            } else {
+                missing.add(idAlbum);
+            }
+        }
+        if (missing.isEmpty()) {
+            return albums;
+        }
+
+        long generation = cache.generation();
+        String query = "SELECT " + ALBUM_COLUMNS + " FROM Album WHERE " + InList.condition("idAlbum", missing.size());
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            InList.bind(pStatement, 1, missing);
+            try (ResultSet result = pStatement.executeQuery()) {
+                RowMapper<Album> mapper = albumMapper(UUIDCodec.reader());
+                while (result.next()) {
+                    Album album = mapper.map(result);
+                    albums.put(album.getIdAlbum(), album);
+                    if (cacheable) {
+                        cache.put(album, generation);
+                    }
+                }
+            }
+            logger.debug("Found {} albums, {} of them queried from the database", albums.size(), missing.size());
+        } catch (SQLException e) {
+            logger.error("SQL error finding albums by IDs {}: {}", missing, e.getMessage(), e);
+            throw new DAOException("Error finding albums by IDs: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return albums;
+    }
+
+    /**
+     * Finds all albums in the database.
+     *
+     * @return A list of all albums.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public List<Album> findAllAlbums() throws DAOException {
+        logger.debug("Attempting to find all albums");
+        List<Album> albums;
+        try (PreparedStatement pStatement = connection.prepareStatement(FIND_ALL_QUERY);
+             ResultSet result = pStatement.executeQuery()) {
+            albums = JdbcRows.list(result, albumMapper(UUIDCodec.reader()));
+            logger.debug("Found {} albums", albums.size());
+        } catch (SQLException e) {
+            logger.error("SQL error finding all albums: {}", e.getMessage(), e);
+            throw new DAOException("Error finding all albums: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return albums;
+    }
+
+    /**
+     * Streams all albums in the database without holding them in memory. The
+     * connection must not be used for anything else until the stream is closed.
+     *
+     * @return A stream of all albums, ordered by artist, year and name, to be
+     *         closed after use.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public Stream<Album> streamAllAlbums() throws DAOException {
+        logger.debug("Attempting to stream all albums");
+        try {
+            return JdbcRows.stream(connection, FIND_ALL_QUERY, albumMapper(UUIDCodec.streamReader()));
+        } catch (SQLException e) {
+            logger.error("SQL error streaming all albums: {}", e.getMessage(), e);
+            throw new DAOException("Error streaming all albums: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Finds all albums created by a specific user.
+     *
+     * @param userId The UUID of the user.
+     * @return A list of albums created by the user, ordered by year and name.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public List<Album> findAlbumsByUser(UUID userId) throws DAOException {
+        logger.debug("Attempting to find albums for user ID: {}", userId);
+        List<Album> userAlbums;
+        String query = "SELECT " + ALBUM_COLUMNS + " FROM Album WHERE idUser = ? ORDER BY year, name";
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            UUIDCodec.bind(pStatement, 1, userId);
+            try (ResultSet result = pStatement.executeQuery()) {
+                userAlbums = JdbcRows.list(result, albumMapper(UUIDCodec.reader()));
+                logger.debug("Found {} albums for user ID: {}", userAlbums.size(), userId);
+            }
+        } catch (SQLException e) {
+            logger.error("SQL error finding albums for user ID {}: {}", userId, e.getMessage(), e);
+            throw new DAOException("Error finding albums by user: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return userAlbums;
+    }
+
+    /**
+     * Updates an existing album in the database, only modifying fields with
+     * non-null values.
+     *
+     * @param idAlbum The ID of the album to update.
+     * @param userId  The UUID of the user attempting the update (for
+     *                authorization).
+     * @param name    The new name for the album (or null to keep existing).
+     * @param year    The new release year for the album (or null to keep existing).
+     * @param artist  The new artist for the album (or null to keep existing).
+     * @param image   The new image path for the album (or null to keep existing).
+     * @throws DAOException             if a database access error occurs
+     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}),
+     *                                  the album is not found or the user is not
+     *                                  authorized
+     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}),
+     *                                  or the new name already exists for this user
+     *                                  ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}).
+     * @throws IllegalArgumentException if all update parameters (name, year,
+     *                                  artist, image) are null.
+     */
+    @Override
+    public void updateAlbum(int idAlbum, UUID userId, String name, Integer year, String artist, String image)
+            throws DAOException {
+        logger.debug(
+                "Attempting to update album ID: {} for user ID: {} with data: name={}, year={}, artist={}, image={}",
+                idAlbum, userId, name, year, artist, image);
+        // Build the query dynamically
+        StringBuilder queryBuilder = new StringBuilder("UPDATE Album SET ");
+        List<Object> params = new ArrayList<>();
+        boolean firstField = true;
+
+        if (name != null) {
+            queryBuilder.append("name = ?");
+            params.add(name);
+            firstField = false;
+        }
+        if (year != null) {
+            if (!firstField)
+                queryBuilder.append(", ");
+            queryBuilder.append("year = ?");
+            params.add(year);
+            firstField = false;
+        }
+        if (artist != null) {
+            if (!firstField)
+                queryBuilder.append(", ");
+            queryBuilder.append("artist = ?");
+            params.add(artist);
+            firstField = false;
+        }
+        if (image != null) {
+            if (!firstField)
+                queryBuilder.append(", ");
+            queryBuilder.append("image = ?");
+            params.add(image);
+            firstField = false;
+        }
+
+        // Check if any field was actually added for update
+        if (params.isEmpty()) {
+            logger.warn("Update attempt for album ID {} failed: No fields provided for update.", idAlbum);
+            throw new IllegalArgumentException("No fields provided for update.");
+        }
+
+        // Add authorization check
+        queryBuilder.append(" WHERE idAlbum = ? AND idUser = ?");
+        params.add(idAlbum);
+        params.add(userId);
+
+        String query = queryBuilder.toString();
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            // Set parameters dynamically
+            for (int i = 0; i < params.size(); i++) {
+                Object param = params.get(i);
+                if (param instanceof String) {
+                    pStatement.setString(i + 1, (String) param);
+                } else if (param instanceof Integer) {
+                    pStatement.setInt(i + 1, (Integer) param);
+                } else if (param instanceof UUID) {
+                    UUIDCodec.bind(pStatement, i + 1, (UUID) param);
+                }
+                // * Note: We don't handle setNull here because the update logic only adds
+                // * non-null parameters to the list. If a user wants to set image to NULL,
+                // * they would need a different mechanism or a specific value indicating NULL.
+                // * For now, this update only sets non-null values.
+            }
+
+            int affectedRows = pStatement.executeUpdate();
+            if (affectedRows == 0) {
+                logger.warn("Update failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
+                // We throw NOT_FOUND here, but it could also be ACCESS_DENIED. The DB doesn't
+                // distinguish.
+                throw new DAOException("Album with ID " + idAlbum + " not found for update or user not authorized.",
+                        DAOException.DAOErrorType.NOT_FOUND);
+            }
+            logger.info("Album ID {} updated successfully by user {}", idAlbum, userId);
+            invalidateCommitted(idAlbum);
+            // No return value needed, success is indicated by lack of exception
+        } catch (SQLException e) {
+            logger.error("SQL error updating album ID {} for user {}: SQLState={}, Message={}", idAlbum, userId,
+                    e.getSQLState(), e.getMessage(), e);
+            // Check for unique constraint violation (name, idUser)
+            if ("23000".equals(e.getSQLState()) && name != null) {
+                throw new DAOException("Album name '" + name + "' already exists for this user.", e,
+                        DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
+            } else {
+                throw new DAOException("Error updating album: " + e.getMessage(), e,
+                        DAOException.DAOErrorType.GENERIC_ERROR);
+            }
+        }
+    }
+
+    /**
+     * Deletes an album from the database by its ID, ensuring user authorization.
+     *
+     * @param idAlbum The ID of the album to delete.
+     * @param userId  The UUID of the user attempting the deletion (for
+     *                authorization).
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}),
+     *                      the album is not found, or the user is not authorized
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND}).
+     */
+    @Override
+    public void deleteAlbum(int idAlbum, UUID userId) throws DAOException {
+        logger.debug("Attempting to delete album ID: {} by user ID: {}", idAlbum, userId);
+        String query = "DELETE FROM Album WHERE idAlbum = ? AND idUser = ?";
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            pStatement.setInt(1, idAlbum);
+            UUIDCodec.bind(pStatement, 2, userId);
+            int affectedRows = pStatement.executeUpdate();
+            if (affectedRows == 0) {
+                logger.warn("Delete failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
+                // We throw NOT_FOUND here, but it could also be ACCESS_DENIED. The DB doesn't
+                // distinguish.
+                throw new DAOException("Album with ID " + idAlbum + " not found for deletion or user not authorized.",
+                        DAOException.DAOErrorType.NOT_FOUND);
+            }
+            logger.info("Album ID {} deleted successfully by user {}", idAlbum, userId);
+            invalidateCommitted(idAlbum);
+            // No return value needed, success is indicated by lack of exception
+        } catch (SQLException e) {
+            logger.error("SQL error deleting album ID {} by user {}: {}", idAlbum, userId, e.getMessage(), e);
+            throw new DAOException("Error deleting album: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Drops an album changed by this connection from the cache, if the change
+     * is already committed. Inside an explicit transaction the other
+     * connections still read the old row until the commit, and could cache it
+     * again right after an early invalidation: the caller invalidates the album
+     * once its transaction is committed instead.
+     */
+    private void invalidateCommitted(int idAlbum) {
+        if (isCacheable()) {
+            AlbumCache.getInstance().invalidate(idAlbum);
+        } else {
+            logger.debug("Album ID {} changed in a transaction, to be invalidated after its commit", idAlbum);
+        }
+    }
+
+    /**
+     * Albums read inside an explicit transaction may not be committed yet, so
+     * the cache is only used on auto-commit connections.
+     */
+    private boolean isCacheable() {
+        try {
+            return connection.getAutoCommit();
+        } catch (SQLException e) {
+            logger.warn("Could not read auto-commit state, bypassing the album cache: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return A mapper of the {@link #ALBUM_COLUMNS}, sharing the owner UUIDs of
+     *         its result set as the given reader does.
+     */
+    private static RowMapper<Album> albumMapper(UUIDCodec.Reader uuids) {
+        return result -> {
+            Album album = new Album();
+            album.setIdAlbum(result.getInt(1));
+            album.setName(result.getString(2));
+            album.setYear(result.getInt(3));
+            album.setArtist(result.getString(4));
+            album.setImage(result.getString(5));
+            album.setIdUser(uuids.read(result, 6));
+            return album;
+        };
+    }
+}
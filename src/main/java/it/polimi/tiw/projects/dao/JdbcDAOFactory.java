@@ -0,0 +1,34 @@
+package it.polimi.tiw.projects.dao;
+
+import java.sql.Connection;
+
+/**
+ * Creates DAOs backed by the MySQL database, bound to the caller's connection.
+ */
+public class JdbcDAOFactory implements DAOFactory {
+
+    @Override
+    public boolean requiresConnection() {
+        return true;
+    }
+
+    @Override
+    public UserDAO getUserDAO(Connection connection) {
+        return new JdbcUserDAO(connection);
+    }
+
+    @Override
+    public SongDAO getSongDAO(Connection connection) {
+        return new JdbcSongDAO(connection);
+    }
+
+    @Override
+    public AlbumDAO getAlbumDAO(Connection connection) {
+        return new JdbcAlbumDAO(connection);
+    }
+
+    @Override
+    public PlaylistDAO getPlaylistDAO(Connection connection) {
+        return new JdbcPlaylistDAO(connection);
+    }
+}
@@ -0,0 +1,109 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.UncheckedDAOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs the mapping loops of the JDBC DAOs, either collecting all the rows or
+ * streaming them.
+ * <p>
+ * A streamed query is read as it is consumed instead of being buffered by the
+ * driver, so a full scan runs in constant memory. With a fetch size of 0 (the
+ * default) MySQL sends the rows one after the other and the connection can't
+ * run other statements until the stream is closed. With a positive fetch size
+ * the rows are fetched that many at a time from a server-side cursor, which
+ * needs {@code useCursorFetch=true} on the connection.
+ */
+public final class JdbcRows {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRows.class);
+    private static volatile int fetchSize = 0;
+
+    private JdbcRows() {
+    }
+
+    /**
+     * Sets the rows fetched at a time by the streamed queries, 0 to stream them
+     * one by one. Meant to be called once at application startup.
+     *
+     * @throws IllegalArgumentException if the fetch size is negative.
+     */
+    public static void configure(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must not be negative, was " + fetchSize);
+        }
+        JdbcRows.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return All the remaining rows of the result set.
+     */
+    static <T> List<T> list(ResultSet result, RowMapper<T> mapper) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        while (result.next()) {
+            rows.add(mapper.map(result));
+        }
+        return rows;
+    }
+
+    /**
+     * Runs a query without parameters and streams its rows. The stream holds
+     * the statement open and must be closed, e.g. with try-with-resources;
+     * errors while reading it are thrown as {@link UncheckedDAOException}. It
+     * must not outlive the connection: a stream returned from a
+     * {@code ConnectionHandler.withConnection} step would read from a
+     * connection already given back to the pool. The mapper should use a
+     * {@link UUIDCodec#streamReader()}, whose memory doesn't grow with the rows.
+     */
+    static <T> Stream<T> stream(Connection connection, String query, RowMapper<T> mapper) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        try {
+            statement.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+            ResultSet result = statement.executeQuery();
+            Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!result.next()) {
+                            return false;
+                        }
+                        action.accept(mapper.map(result));
+                        return true;
+                    } catch (SQLException e) {
+                        logger.error("SQL error reading the rows of a streamed query: {}", e.getMessage(), e);
+                        throw new UncheckedDAOException(new DAOException("Error reading rows: " + e.getMessage(), e,
+                                DAOException.DAOErrorType.GENERIC_ERROR));
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> close(statement));
+        } catch (SQLException | RuntimeException e) {
+            close(statement);
+            throw e;
+        }
+    }
+
+    private static void close(PreparedStatement statement) {
+        // Closes the result set too; a streamed one is first read to its end by the driver
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.warn("Could not close a streamed query: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.Genre;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Data Access Object for managing songs in the database. Provides methods for creating, retrieving, updating, and deleting songs.
+ */
+public class JdbcSongDAO implements SongDAO {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcSongDAO.class);
+    // Read by songMapper, in this order
+    private static final String SONG_COLUMNS = "idSong, title, idAlbum, genre, audioFile, idUser";
+    private static final String FIND_ALL_QUERY = "SELECT " + SONG_COLUMNS + " FROM Song";
+    private final Connection connection;
+
+    public JdbcSongDAO(@NotNull Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Creates a new song in the database.
+     *
+     * @param title     The title of the song.
+     * @param idAlbum   The ID of the album the song belongs to.
+     * @param genre     The genre of the song. (Can be null based on DB)
+     * @param audioFile The path or URL to the audio file.
+     * @param idUser    The UUID of the user who uploaded the song.
+     * @return The newly created Song object with its generated ID.
+     * @throws DAOException if the specified album ID does not exist
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
+     *                      or another database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public Song createSong(@NotBlank String title, int idAlbum, Genre genre, @NotBlank String audioFile,
+                           @NotNull UUID idUser) throws DAOException {
+        logger.debug("Attempting to create song: title={}, idAlbum={}, genre={}, audioFile={}, userId={}", title,
+                idAlbum, genre, audioFile, idUser);
+        String query = "INSERT into Song (title, idAlbum, genre, audioFile, idUser) VALUES(?, ?, ?, ?, ?)";
+        Song newSong;
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+            pStatement.setString(1, title);
+            pStatement.setInt(2, idAlbum);
+            if (genre != null) {
+                pStatement.setString(3, genre.name());
+            } else {
+                pStatement.setNull(3, Types.VARCHAR);
+            }
+            pStatement.setString(4, audioFile);
+            UUIDCodec.bind(pStatement, 5, idUser);
+            int affectedRows = pStatement.executeUpdate();
+
+            if (affectedRows == 0) {
+                throw new DAOException("Creating song failed, no rows affected.",
+                        DAOException.DAOErrorType.GENERIC_ERROR);
+            }
+
+            try (ResultSet generatedKeys = pStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    int newId = generatedKeys.getInt(1);
+                    // Create the Song bean
+                    newSong = new Song();
+                    newSong.setIdSong(newId);
+                    newSong.setTitle(title);
+                    newSong.setIdAlbum(idAlbum);
+                    newSong.setGenre(genre);
+                    newSong.setAudioFile(audioFile);
+                    newSong.setIdUser(idUser);
+                    logger.info("Song created successfully with ID: {}", newId);
+
+                } else {
+                    logger.error("Creating song failed, no ID obtained for title={}, userId={}", title, idUser);
+                    throw new DAOException("Creating song failed, no ID obtained.",
+                            DAOException.DAOErrorType.GENERIC_ERROR);
+                }
+            }
+        } catch (SQLException e) {
+            // Check for foreign key constraint violation on idAlbum (MySQL error code 1452)
+            if (e.getErrorCode() == 1452) { // NOT_FOUND
+                logger.warn(
+                        "Failed to create song title='{}', userId={}: Album ID {} not found. Details: SQLState={}, Message={}",
+                        title, idUser, idAlbum, e.getSQLState(), e.getMessage());
+                throw new DAOException("Album with ID " + idAlbum + " not found.", e,
+                        DAOException.DAOErrorType.NOT_FOUND);
+            } else { // GENERIC_ERROR
+                logger.error("SQL error creating song title={}, userId={}: SQLState={}, ErrorCode={}, Message={}",
+                        title, idUser, e.getSQLState(), e.getErrorCode(), e.getMessage(), e);
+                throw new DAOException("Error creating song: " + e.getMessage(), e,
+                        DAOException.DAOErrorType.GENERIC_ERROR);
+            }
+        }
+        return newSong;
+    }
+
+    /**
+     * Finds all songs uploaded by a specific user.
+     *
+     * @param userId The UUID of the user.
+     * @return A list of songs uploaded by the user.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public List<Song> findSongsByUser(@NotNull UUID userId) throws DAOException {
+        logger.debug("Attempting to find songs for user ID: {}", userId);
+        List<Song> songs;
+        String query = "SELECT " + SONG_COLUMNS + " FROM Song WHERE idUser = ?";
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            UUIDCodec.bind(pStatement, 1, userId);
+            try (ResultSet result = pStatement.executeQuery()) {
+                songs = JdbcRows.list(result, songMapper(UUIDCodec.reader()));
+                logger.debug("Found {} songs for user ID: {}", songs.size(), userId);
+            }
+        } catch (SQLException e) { // GENERIC_ERROR (unexpected)
+            logger.error("SQL error finding songs for user ID {}: {}", userId, e.getMessage(), e);
+            throw new DAOException("Error finding songs by user: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return songs;
+    }
+
+    /**
+     * Finds all songs in the database.
+     *
+     * @return A list of all songs.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public List<Song> findAllSongs() throws DAOException {
+        logger.debug("Attempting to find all songs");
+        List<Song> songs;
+        try (PreparedStatement pStatement = connection.prepareStatement(FIND_ALL_QUERY);
+             ResultSet result = pStatement.executeQuery()) {
+            songs = JdbcRows.list(result, songMapper(UUIDCodec.reader()));
+            logger.debug("Found {} songs in total.", songs.size());
+        } catch (SQLException e) {
+            logger.error("SQL error finding all songs: {}", e.getMessage(), e);
+            throw new DAOException("Error finding all songs: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return songs;
+    }
+
+    /**
+     * Streams all songs in the database without holding them in memory. The
+     * connection must not be used for anything else until the stream is closed.
+     *
+     * @return A stream of all songs, to be closed after use.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public Stream<Song> streamAllSongs() throws DAOException {
+        logger.debug("Attempting to stream all songs");
+        try {
+            return JdbcRows.stream(connection, FIND_ALL_QUERY, songMapper(UUIDCodec.streamReader()));
+        } catch (SQLException e) {
+            logger.error("SQL error streaming all songs: {}", e.getMessage(), e);
+            throw new DAOException("Error streaming all songs: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Deletes a song from the database.
+     *
+     * @param songId The ID of the song to delete.
+     * @return The UUID of the user who owned the song.
+     * @throws DAOException if the song is not found
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
+     *                      or another database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public UUID deleteSong(int songId) throws DAOException {
+        logger.debug("Attempting to delete song ID: {}", songId);
+
+        // The owner of a song never changes, it can be read before the delete
+        String ownerQuery = "SELECT idUser FROM Song WHERE idSong = ?";
+        String query = "DELETE FROM Song WHERE idSong = ?";
+        try (PreparedStatement ownerStatement = connection.prepareStatement(ownerQuery);
+             PreparedStatement pStatement = connection.prepareStatement(query)) {
+            ownerStatement.setInt(1, songId);
+            UUID owner = null;
+            try (ResultSet result = ownerStatement.executeQuery()) {
+                if (result.next()) {
+                    owner = UUIDCodec.read(result, 1);
+                }
+            }
+            pStatement.setInt(1, songId);
+            int affectedRows = owner != null ? pStatement.executeUpdate() : 0;
+            if (affectedRows == 0) {
+                logger.warn("Deleting song ID {} from database failed (0 rows affected). Song might not exist in DB.",
+                        songId);
+                throw new DAOException("Deleting song failed, song ID " + songId + " not found in database.",
+                        DAOException.DAOErrorType.NOT_FOUND);
+            }
+            logger.info("Song ID {} of user {} deleted successfully from database.", songId, owner);
+            return owner;
+        } catch (SQLException e) {
+            logger.error("SQL error deleting song ID {}: {}", songId, e.getMessage(), e);
+            throw new DAOException("Error deleting song: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Finds songs by a list of their IDs, ensuring they belong to a specific user.
+     * Returns only the songs that match both the ID list and the user ID.
+     *
+     * @param songIds The list of song IDs to retrieve.
+     * @param userId  The UUID of the user who must own the songs.
+     * @return A list of {@link Song} objects matching the criteria. Returns an
+     * empty list if songIds is null or empty, or if no matching songs are
+     * found for this user.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public List<Song> findSongsByIdsAndUser(@NotNull List<Integer> songIds, @NotNull UUID userId) throws DAOException {
+        logger.debug("Attempting to find songs by IDs: {} for user ID: {}", songIds, userId);
+
+        if (songIds == null || songIds.isEmpty()) {
+            logger.debug("Input song ID list is null or empty. Returning empty list.");
+            return new ArrayList<>(); // Return empty list if no IDs provided
+        }
+
+        List<Song> songs;
+        // Padded to a few statement texts, see InList
+        String query = "SELECT " + SONG_COLUMNS + " FROM Song WHERE idUser = ? AND "
+                + InList.condition("idSong", songIds.size());
+        logger.trace("Executing query: {}", query);
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            UUIDCodec.bind(pStatement, 1, userId);
+            InList.bind(pStatement, 2, songIds);
+
+            try (ResultSet result = pStatement.executeQuery()) {
+                songs = JdbcRows.list(result, songMapper(UUIDCodec.reader()));
+                logger.debug("Found {} songs matching IDs {} for user ID: {}", songs.size(), songIds, userId);
+            }
+        } catch (SQLException e) {
+            throw new DAOException("Error finding songs by IDs and user: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        return songs;
+    }
+
+    /**
+     * @return A mapper of the {@link #SONG_COLUMNS}, sharing the owner UUIDs of
+     *         its result set as the given reader does.
+     */
+    private static RowMapper<Song> songMapper(UUIDCodec.Reader uuids) {
+        return result -> {
+            Song song = new Song();
+            song.setIdSong(result.getInt(1));
+            song.setTitle(result.getString(2));
+            song.setIdAlbum(result.getInt(3));
+            String genre = result.getString(4);
+            if (genre != null) {
+                try {
+                    song.setGenre(Genre.valueOf(genre));
+                } catch (IllegalArgumentException e) {
+                    throw new SQLException("Unknown genre: " + genre, e);
+                }
+            }
+            song.setAudioFile(result.getString(5));
+            song.setIdUser(uuids.read(result, 6));
+            return song;
+        };
+    }
+}
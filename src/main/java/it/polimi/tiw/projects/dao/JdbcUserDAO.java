@@ -0,0 +1,196 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.UUIDv7;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Data Access Object for managing User data in the database. Provides methods
+ * for creating, retrieving, and modifying user information. Passwords are
+ * stored hashed by the {@link PasswordHasher}, outside of this class;
+ * passwords stored in plain text or hashed with an outdated cost are rehashed
+ * at the next successful login.
+ */
+public class JdbcUserDAO implements UserDAO {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcUserDAO.class);
+    private static final int ER_DUP_ENTRY = 1062;
+    private static final String USERNAME_KEY = "username_UNIQUE";
+    private final Connection connection;
+
+    /**
+     * Constructs a UserDAO with the given database connection.
+     *
+     * @param connection the database connection to use for DAO operations.
+     */
+    public JdbcUserDAO(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Creates a new user in the database with a single INSERT, relying on the
+     * unique constraint of the username to detect duplicates. The ID is a
+     * time-ordered {@link UUIDv7}, so that new rows are appended to the primary
+     * key index.
+     *
+     * @param username     the username for the new user.
+     * @param passwordHash the hash of the password of the new user.
+     * @param name         the first name of the new user.
+     * @param surname      the last name of the new user.
+     * @return the created user.
+     * @throws DAOException if the username already exists
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS})
+     *                      or another database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public User insertUser(String username, String passwordHash, String name, String surname) throws DAOException {
+        logger.debug("Attempting to create user: username={}, name={}, surname={}", username, name, surname);
+        String insertQuery = "INSERT INTO User (idUser, username, password, name, surname) VALUES (?, ?, ?, ?, ?)";
+        UUID userId = UUIDv7.randomUUID();
+        logger.debug("Generated new user ID: {}", userId);
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertQuery)) {
+            UUIDCodec.bind(insertStatement, 1, userId);
+            insertStatement.setString(2, username);
+            insertStatement.setString(3, passwordHash);
+            insertStatement.setString(4, name);
+            insertStatement.setString(5, surname);
+            insertStatement.executeUpdate();
+        } catch (SQLException e) {
+            // Only a duplicate key on the username means the name is taken: the
+            // other integrity violations (SQLState '23000') are errors
+            if (e.getErrorCode() == ER_DUP_ENTRY && e.getMessage() != null
+                    && e.getMessage().contains(USERNAME_KEY)) {
+                logger.warn("User creation failed: Username '{}' already exists.", username);
+                throw new DAOException("Username already exists", e, DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
+            }
+            logger.error("SQL error during user creation for username {}: SQLState={}, Message={}", username,
+                    e.getSQLState(), e.getMessage(), e);
+            throw new DAOException("Error creating user: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+        logger.info("User '{}' created successfully with ID: {}", username, userId);
+
+        User user = new User();
+        user.setIdUser(userId);
+        user.setUsername(username);
+        user.setName(name);
+        user.setSurname(surname);
+        return user;
+    }
+
+    /**
+     * Reads the user with the given username and its stored password.
+     *
+     * @param username the username to look for.
+     * @return the credentials of the user, empty if there is no such user.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public Credentials findCredentials(String username) throws DAOException {
+        logger.debug("Attempting to read credentials for username: {}", username);
+        String query = "SELECT idUser, username, password, name, surname FROM User WHERE username = ?";
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            pStatement.setString(1, username);
+            try (ResultSet result = pStatement.executeQuery()) {
+                if (!result.next()) {
+                    return new Credentials(null, null);
+                }
+                User user = new User();
+                user.setIdUser(UUIDCodec.read(result, 1));
+                user.setUsername(result.getString(2));
+                user.setName(result.getString(4));
+                user.setSurname(result.getString(5));
+                return new Credentials(user, result.getString(3));
+            }
+        } catch (SQLException e) {
+            logger.error("Error checking credentials for username {}: {}", username, e.getMessage(), e);
+            throw new DAOException("Error checking credentials: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Replaces a password stored in plain text or hashed with an outdated cost,
+     * only if nobody changed it since it was read.
+     *
+     * @param userId       the ID of the user.
+     * @param expectedHash the stored password, as read by
+     *                     {@link #findCredentials}.
+     * @param passwordHash the new hash of the password.
+     * @return true if the password was replaced.
+     * @throws DAOException if a database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public boolean updatePassword(UUID userId, String expectedHash, String passwordHash) throws DAOException {
+        String query = "UPDATE User SET password = ? WHERE idUser = ? AND password = ?";
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            pStatement.setString(1, passwordHash);
+            UUIDCodec.bind(pStatement, 2, userId);
+            pStatement.setString(3, expectedHash);
+            if (pStatement.executeUpdate() == 0) {
+                return false;
+            }
+            logger.info("Password of user ID {} rehashed", userId);
+            return true;
+        } catch (SQLException e) {
+            logger.error("SQL error updating the password of user ID {}: {}", userId, e.getMessage(), e);
+            throw new DAOException("Error updating password: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * Modifies the name and/or surname of an existing user. If name or surname
+     * parameters are null, the existing values are kept.
+     *
+     * @param user    the User object representing the user to modify (must contain
+     *                the user ID).
+     * @param name    the new first name (or null to keep the existing one).
+     * @param surname the new last name (or null to keep the existing one).
+     * @throws DAOException if the user is not found
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
+     *                      or another database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    @Override
+    public void modifyUser(User user, String name, String surname) throws DAOException {
+        logger.debug("Attempting to modify user ID: {} with name={}, surname={}", user.getIdUser(), name, surname);
+        String query = "UPDATE User SET name = ?, surname = ? WHERE idUser = ?";
+
+        String finalName = (name == null) ? user.getName() : name;
+        String finalSurname = (surname == null) ? user.getSurname() : surname;
+
+        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
+            pStatement.setString(1, finalName);
+            pStatement.setString(2, finalSurname);
+            UUIDCodec.bind(pStatement, 3, user.getIdUser());
+            int affectedRows = pStatement.executeUpdate();
+
+            if (affectedRows == 0) {
+                logger.warn("User modification failed: User ID {} not found.", user.getIdUser());
+                throw new DAOException("User with ID " + user.getIdUser() + " not found for modification.",
+                        DAOException.DAOErrorType.NOT_FOUND);
+            }
+            // Update the user bean in memory if modification was successful
+            logger.info("User ID {} modified successfully. New name={}, surname={}", user.getIdUser(), finalName,
+                    finalSurname);
+            user.setName(finalName);
+            user.setSurname(finalSurname);
+
+        } catch (SQLException e) {
+            logger.error("SQL error modifying user ID {}: {}", user.getIdUser(), e.getMessage(), e);
+            throw new DAOException("Error modifying user: " + e.getMessage(), e,
+                    DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.Histogram;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and verifies the passwords of the users with Argon2id.
+ * <p>
+ * Hashing is deliberately expensive, so it runs on a dedicated pool with a
+ * bounded queue instead of on the request threads: a burst of logins can only
+ * keep {@code threads} cores busy, and once {@code queueSize} hashes are
+ * waiting new ones are rejected with {@link DAOErrorType#UNAVAILABLE} rather
+ * than piling up, leaving the other pages responsive. The calling thread waits
+ * for its hash.
+ * <p>
+ * Hashes are stored in the PHC string format
+ * ({@code $argon2id$v=19$m=...,t=...,p=1$salt$hash}), which records their
+ * cost. Stored values in any other format are passwords saved in plain text
+ * by older versions: they are still accepted, and {@link #needsRehash(String)}
+ * reports them, as well as hashes made with a different cost, so that the
+ * DAOs replace them at the next successful login.
+ */
+public class PasswordHasher {
+    public static final int DEFAULT_MEMORY_KIB = 19456;
+    public static final int DEFAULT_ITERATIONS = 2;
+    public static final int DEFAULT_QUEUE_SIZE = 64;
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+    private static final String PREFIX = "$argon2id$v=19$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getDecoder();
+    private static final SecureRandom random = new SecureRandom();
+    private static volatile PasswordHasher instance = new PasswordHasher(DEFAULT_MEMORY_KIB, DEFAULT_ITERATIONS,
+            defaultThreads(), DEFAULT_QUEUE_SIZE);
+
+    private final int memoryKiB;
+    private final int iterations;
+    private final String parameters;
+    private final ThreadPoolExecutor executor;
+    // Verified when the user doesn't exist, so that a login takes as long either way
+    private final String dummyHash;
+    private final Histogram duration;
+    private final Counter rejected;
+
+    /**
+     * @param memoryKiB  The memory used by a hash, in KiB.
+     * @param iterations The number of passes over the memory.
+     * @param threads    The number of hashes computed at the same time.
+     * @param queueSize  The number of hashes that can wait for a thread.
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public PasswordHasher(int memoryKiB, int iterations, int threads, int queueSize) {
+        if (memoryKiB < 8 || iterations < 1 || threads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("Invalid password hashing parameters: memoryKiB=" + memoryKiB
+                    + ", iterations=" + iterations + ", threads=" + threads + ", queueSize=" + queueSize);
+        }
+        this.memoryKiB = memoryKiB;
+        this.iterations = iterations;
+        this.parameters = "m=" + memoryKiB + ",t=" + iterations + ",p=1";
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.dummyHash = hashNow("dummy password");
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        this.duration = registry.histogram("spolify_password_hash_seconds",
+                "Time to hash or verify a password, waiting in the queue included");
+        this.rejected = registry.counter("spolify_password_hash_rejected_total",
+                "Password hashes rejected because the queue was full");
+        registry.gauge("spolify_password_hash_queued", "Password hashes waiting for a thread",
+                () -> executor.getQueue().size());
+        logger.info("PasswordHasher initialized: argon2id {}, {} threads, queue of {}", parameters, threads,
+                queueSize);
+    }
+
+    /**
+     * @return The hasher shared by the whole application.
+     */
+    public static PasswordHasher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Replaces the shared hasher. Meant to be called once at application
+     * startup.
+     */
+    public static void configure(int memoryKiB, int iterations, int threads, int queueSize) {
+        PasswordHasher previous = instance;
+        instance = new PasswordHasher(memoryKiB, iterations, threads, queueSize);
+        previous.shutdown();
+    }
+
+    /**
+     * @return Half of the available processors, at least one.
+     */
+    public static int defaultThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * Hashes a password with a random salt.
+     *
+     * @return The hash in the PHC string format.
+     * @throws DAOException if the queue is full ({@link DAOErrorType#UNAVAILABLE})
+     *                      or the hash can't be computed
+     *                      ({@link DAOErrorType#GENERIC_ERROR}).
+     */
+    public String hash(String password) throws DAOException {
+        return submit(() -> hashNow(password));
+    }
+
+    /**
+     * Checks a password against a stored hash, or against a password stored in
+     * plain text by older versions, which takes as long.
+     *
+     * @param stored The stored hash, or null if the user doesn't exist: the
+     *               check then fails, taking as long as with a real hash.
+     * @return true if the password matches.
+     * @throws DAOException if the queue is full ({@link DAOErrorType#UNAVAILABLE})
+     *                      or the hash can't be computed
+     *                      ({@link DAOErrorType#GENERIC_ERROR}).
+     */
+    public boolean verify(String password, String stored) throws DAOException {
+        if (stored == null) {
+            submit(() -> verifyNow(password, dummyHash));
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            // Padded to the cost of a hash, so that the latency doesn't tell
+            // which accounts still have a password in plain text
+            return submit(() -> {
+                verifyNow(password, dummyHash);
+                return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                        stored.getBytes(StandardCharsets.UTF_8));
+            });
+        }
+        return submit(() -> verifyNow(password, stored));
+    }
+
+    /**
+     * @return true if the stored value is in plain text or was hashed with a
+     *         different cost than the current one.
+     */
+    public boolean needsRehash(String stored) {
+        return !stored.startsWith(PREFIX + parameters + "$");
+    }
+
+    /**
+     * Stops the hashing threads. Hashes already submitted are allowed to finish.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Callable<T> task) throws DAOException {
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Password hashing queue is full, rejecting the request");
+            throw new DAOException("Too many logins at the same time, try again later", e,
+                    DAOErrorType.UNAVAILABLE);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new DAOException("Interrupted while hashing a password", e, DAOErrorType.GENERIC_ERROR);
+        } catch (ExecutionException e) {
+            throw new DAOException("Error hashing a password: " + e.getCause().getMessage(), e.getCause(),
+                    DAOErrorType.GENERIC_ERROR);
+        } finally {
+            duration.observeNanos(System.nanoTime() - start);
+        }
+    }
+
+    private String hashNow(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = argon2(password, salt, memoryKiB, iterations, HASH_BYTES);
+        return PREFIX + parameters + "$" + ENCODER.encodeToString(salt) + "$" + ENCODER.encodeToString(hash);
+    }
+
+    private static boolean verifyNow(String password, String stored) {
+        // $argon2id$v=19$m=...,t=...,p=1$salt$hash
+        String[] fields = stored.split("\\$");
+        if (fields.length != 6) {
+            return false;
+        }
+        try {
+            int memory = 0;
+            int passes = 0;
+            for (String parameter : fields[3].split(",")) {
+                if (parameter.startsWith("m=")) {
+                    memory = Integer.parseInt(parameter.substring(2));
+                } else if (parameter.startsWith("t=")) {
+                    passes = Integer.parseInt(parameter.substring(2));
+                }
+            }
+            byte[] expected = DECODER.decode(fields[5]);
+            byte[] actual = argon2(password, DECODER.decode(fields[4]), memory, passes, expected.length);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Bad number, Base64, cost or length
+            logger.error("Malformed password hash: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] argon2(String password, byte[] salt, int memoryKiB, int iterations, int length) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13).withMemoryAsKB(memoryKiB)
+                .withIterations(iterations).withParallelism(1).withSalt(salt).build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        byte[] hash = new byte[length];
+        generator.generateBytes(password.toCharArray(), hash);
+        return hash;
+    }
+}
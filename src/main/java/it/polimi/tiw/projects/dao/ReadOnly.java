@@ -0,0 +1,19 @@
+package it.polimi.tiw.projects.dao;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DAO method that never writes, so that the {@link RoutingDAOFactory}
+ * can run it on a read replica instead of the caller's connection. Methods
+ * that may write as a side effect, such as rehashing a password on login,
+ * must not be marked.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
@@ -0,0 +1,108 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.utils.RequestTrace;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a read can be served by the read replica.
+ * <p>
+ * A replica lags behind the primary, so reads must not go there when they
+ * could miss a write the user is expecting to see. Reads stay on the primary
+ * when the current request has written, and for the sticky time after any
+ * write made on behalf of the same user, which covers the request that
+ * follows a POST-redirect-GET and the library snapshots cached after it.
+ * Writes with no known user keep every read on the primary for the sticky
+ * time. The sticky time must therefore exceed the replication lag.
+ */
+public class ReplicaRouter {
+    // Beyond this many users, the writes older than the sticky time are forgotten
+    static final int MAX_TRACKED_USERS = 10_000;
+
+    private final DataSource replica;
+    private final long stickyNanos;
+    private final LongSupplier clock;
+    private final Map<UUID, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long lastAnonymousWrite;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    /**
+     * @param replica The pool of connections to the replica.
+     * @param sticky  How long reads of a user stay on the primary after a write.
+     * @throws IllegalArgumentException if the sticky time is negative.
+     */
+    public ReplicaRouter(DataSource replica, Duration sticky) {
+        this(replica, sticky, System::nanoTime);
+    }
+
+    ReplicaRouter(DataSource replica, Duration sticky, LongSupplier clock) {
+        if (sticky.isNegative()) {
+            throw new IllegalArgumentException("sticky must not be negative, was " + sticky);
+        }
+        this.replica = replica;
+        this.stickyNanos = sticky.toNanos();
+        this.clock = clock;
+        this.lastAnonymousWrite = clock.getAsLong() - stickyNanos - 1;
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        String help = "Read-only DAO calls by the database they were routed to";
+        this.replicaReads = registry.counter("spolify_dao_routed_reads_total", help, "target", "replica");
+        this.primaryReads = registry.counter("spolify_dao_routed_reads_total", help, "target", "primary");
+    }
+
+    /**
+     * Routes a read of the current request.
+     *
+     * @param userId The user the read is made for, used when the request has no
+     *               authenticated user. May be null.
+     * @return The replica, or null if the read must go to the primary.
+     */
+    public DataSource replicaFor(UUID userId) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null && trace.getUserId() != null) {
+            userId = trace.getUserId();
+        }
+        long now = clock.getAsLong();
+        boolean primary = (trace != null && trace.hasWritten()) || now - lastAnonymousWrite <= stickyNanos;
+        if (!primary && userId != null) {
+            Long lastWrite = lastWrites.get(userId);
+            primary = lastWrite != null && now - lastWrite <= stickyNanos;
+        }
+        (primary ? primaryReads : replicaReads).increment();
+        return primary ? null : replica;
+    }
+
+    /**
+     * Records a write made by the current request.
+     *
+     * @param userId The user the write was made for, used when the request has
+     *               no authenticated user. May be null.
+     */
+    public void recordWrite(UUID userId) {
+        RequestTrace.recordWrite();
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null && trace.getUserId() != null) {
+            userId = trace.getUserId();
+        }
+        long now = clock.getAsLong();
+        if (userId == null) {
+            lastAnonymousWrite = now;
+            return;
+        }
+        lastWrites.put(userId, now);
+        if (lastWrites.size() > MAX_TRACKED_USERS) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite > stickyNanos);
+        }
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+}
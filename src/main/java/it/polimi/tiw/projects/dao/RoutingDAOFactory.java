@@ -0,0 +1,183 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.beans.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Decorates another {@link DAOFactory} so that the {@link ReadOnly} methods of
+ * its DAOs run on the read replica when the {@link ReplicaRouter} allows it.
+ * <p>
+ * Such a call borrows a replica connection, runs on a DAO created for it and
+ * gives it back, leaving the caller's connection idle. Calls made while the
+ * caller's connection is in a transaction stay on it, so they see the
+ * transaction's own writes, and so do the reads that can't get a replica
+ * connection and the streams, which hold their connection open until they are
+ * closed. Every other method runs on the caller's connection and, when it
+ * returns after changing rows, is recorded as a write by the router: a login
+ * that only checks a password, or a write that fails and is rolled back,
+ * doesn't delay the replica reads of anybody.
+ */
+public class RoutingDAOFactory implements DAOFactory {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingDAOFactory.class);
+
+    private final DAOFactory delegate;
+    private final ReplicaRouter router;
+
+    public RoutingDAOFactory(DAOFactory delegate, ReplicaRouter router) {
+        this.delegate = delegate;
+        this.router = router;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return delegate.requiresConnection();
+    }
+
+    @Override
+    public UserDAO getUserDAO(Connection connection) {
+        return routed(UserDAO.class, connection, delegate::getUserDAO);
+    }
+
+    @Override
+    public SongDAO getSongDAO(Connection connection) {
+        return routed(SongDAO.class, connection, delegate::getSongDAO);
+    }
+
+    @Override
+    public AlbumDAO getAlbumDAO(Connection connection) {
+        return routed(AlbumDAO.class, connection, delegate::getAlbumDAO);
+    }
+
+    @Override
+    public PlaylistDAO getPlaylistDAO(Connection connection) {
+        return routed(PlaylistDAO.class, connection, delegate::getPlaylistDAO);
+    }
+
+    private <T> T routed(Class<T> type, Connection connection, Function<Connection, T> factory) {
+        RowChangeTracker tracker = new RowChangeTracker();
+        T primary = factory.apply(connection != null ? tracker.track(connection) : null);
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return invoke(primary, method, args);
+            }
+            if (method.isAnnotationPresent(ReadOnly.class)) {
+                return read(connection, factory, primary, method, args);
+            }
+            tracker.changed = false;
+            Object result = invoke(primary, method, args);
+            // Without a connection to watch, every write counts
+            if (connection == null || tracker.changed) {
+                router.recordWrite(userOf(args, result));
+            }
+            return result;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private <T> Object read(Connection connection, Function<Connection, T> factory, T primary, Method method,
+                            Object[] args) throws Throwable {
+        if (method.getReturnType() == Stream.class || inTransaction(connection)) {
+            return invoke(primary, method, args);
+        }
+        DataSource replica = router.replicaFor(userOf(args, null));
+        if (replica == null) {
+            return invoke(primary, method, args);
+        }
+        Connection replicaConnection;
+        try {
+            replicaConnection = replica.getConnection();
+        } catch (SQLException e) {
+            logger.warn("Could not get a replica connection, reading from the primary: {}", e.getMessage());
+            return invoke(primary, method, args);
+        }
+        try (replicaConnection) {
+            return invoke(factory.apply(replicaConnection), method, args);
+        }
+    }
+
+    private static boolean inTransaction(Connection connection) {
+        try {
+            return connection == null || !connection.getAutoCommit();
+        } catch (SQLException e) {
+            // A broken connection fails the call on its own
+            return true;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return The first user ID among the arguments and the result, or null.
+     */
+    private static UUID userOf(Object[] args, Object result) {
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof UUID userId) {
+                    return userId;
+                }
+                if (arg instanceof User user) {
+                    return user.getIdUser();
+                }
+            }
+        }
+        return result instanceof User user ? user.getIdUser() : null;
+    }
+
+    /**
+     * Notes whether the statements run on a connection changed any row.
+     */
+    private static class RowChangeTracker {
+        boolean changed;
+
+        Connection track(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof Statement statement) {
+                            return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                    new Class<?>[]{method.getReturnType()},
+                                    (statementProxy, statementMethod, statementArgs) -> {
+                                        Object executed = invoke(statement, statementMethod, statementArgs);
+                                        if (changesRows(statementMethod.getName(), executed)) {
+                                            changed = true;
+                                        }
+                                        return executed;
+                                    });
+                        }
+                        return result;
+                    });
+        }
+
+        private static boolean changesRows(String method, Object result) {
+            return switch (method) {
+                // A statement run with execute may be an update, assume it is
+                case "execute" -> true;
+                case "executeUpdate", "executeLargeUpdate" -> ((Number) result).longValue() > 0;
+                // Batched rows may be reported as SUCCESS_NO_INFO (-2)
+                case "executeBatch" -> Arrays.stream((int[]) result).anyMatch(count -> count != 0);
+                case "executeLargeBatch" -> Arrays.stream((long[]) result).anyMatch(count -> count != 0);
+                default -> false;
+            };
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package it.polimi.tiw.projects.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds an object from the current row of a result set. Mappers read the
+ * columns by their position in the SELECT list of their query, and are
+ * created for each result set, so they can keep state such as a
+ * {@link UUIDCodec.Reader}.
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+
+    T map(ResultSet result) throws SQLException;
+}
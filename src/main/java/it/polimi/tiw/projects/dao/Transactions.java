@@ -0,0 +1,194 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs the transactions of the JDBC DAOs, retrying the ones that fail for a
+ * transient reason.
+ * <p>
+ * Under concurrent edits InnoDB ends some transactions with a deadlock or a
+ * lock wait timeout. Such a transaction is rolled back and run again from the
+ * start, after a random delay growing exponentially with the attempts (full
+ * jitter), up to the configured number of attempts and never past the
+ * deadline of the request. A transaction that still can't commit fails with
+ * {@link DAOErrorType#UNAVAILABLE}, so the client is asked to retry later
+ * instead of getting an error. Only the transactions started here are
+ * retried: when the caller already has one open, the rollback also undid the
+ * caller's work, so the failure is reported to it.
+ * <p>
+ * {@code spolify_dao_transaction_retries_total} counts the retries and
+ * {@code spolify_dao_transaction_aborts_total} the transactions given up,
+ * by DAO operation.
+ */
+public final class Transactions {
+    private static final Logger logger = LoggerFactory.getLogger(Transactions.class);
+    // Serialization failure (deadlock) and lock wait timeout
+    private static final Set<String> RETRYABLE_STATES = Set.of("40001", "41000");
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static volatile int maxAttempts = 3;
+    private static volatile long baseDelayNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    private static volatile long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private Transactions() {
+    }
+
+    /**
+     * Sets how the transactions are retried. Meant to be called once at
+     * application startup.
+     *
+     * @param maxAttempts The attempts of a transaction, 1 to never retry.
+     * @param baseDelay   The upper bound of the delay before the first retry,
+     *                    doubled at each following one.
+     * @param maxDelay    The upper bound of the delay before any retry.
+     * @throws IllegalArgumentException if maxAttempts is not positive or a
+     *                                  delay is negative.
+     */
+    public static void configure(int maxAttempts, Duration baseDelay, Duration maxDelay) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive, was " + maxAttempts);
+        }
+        if (baseDelay.isNegative() || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Delays must not be negative, were " + baseDelay + " and " + maxDelay);
+        }
+        Transactions.maxAttempts = maxAttempts;
+        Transactions.baseDelayNanos = baseDelay.toNanos();
+        Transactions.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    /**
+     * Runs work in a transaction and commits it, retrying it if it fails for a
+     * transient reason. The work may run several times, so it must not have
+     * effects outside of the database that can't be repeated. The auto-commit
+     * mode of the connection is restored afterwards.
+     *
+     * @param operation  The name of the DAO operation, for the logs and the
+     *                   metrics.
+     * @param translator Turns the SQLException that ended the transaction into
+     *                   a DAOException.
+     * @return The result of the work.
+     * @throws DAOException the exception thrown by the work, the translated
+     *                      SQLException, or {@link DAOErrorType#UNAVAILABLE}
+     *                      if the transaction was given up after transient
+     *                      failures.
+     */
+    static <T> T run(Connection connection, String operation, Work<T> work,
+                     Function<SQLException, DAOException> translator) throws DAOException {
+        boolean previousAutoCommit;
+        try {
+            previousAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw translator.apply(e);
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Exception failure;
+                try {
+                    T result = work.run();
+                    connection.commit();
+                    return result;
+                } catch (DAOException | SQLException e) {
+                    failure = e;
+                } catch (RuntimeException e) {
+                    // Restoring the auto-commit mode would commit the partial work
+                    rollback(connection, operation);
+                    throw e;
+                }
+                rollback(connection, operation);
+                SQLException transientCause = previousAutoCommit ? transientCause(failure) : null;
+                if (transientCause == null) {
+                    if (failure instanceof SQLException e) {
+                        throw translator.apply(e);
+                    }
+                    throw (DAOException) failure;
+                }
+                retryOrGiveUp(operation, attempt, transientCause);
+            }
+        } finally {
+            try {
+                connection.setAutoCommit(previousAutoCommit);
+            } catch (SQLException e) {
+                logger.error("Failed to restore auto-commit state after {}: {}", operation, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * @return The upper bound of the delay before the given retry, counted
+     *         from 1.
+     */
+    static long delayBoundNanos(int retry) {
+        // The base delay doubled retry - 1 times, without overflowing
+        int shift = Math.min(retry - 1, 62);
+        return baseDelayNanos > maxDelayNanos >> shift ? maxDelayNanos : baseDelayNanos << shift;
+    }
+
+    /**
+     * @return The SQLException among the causes of the failure that makes it
+     *         worth running the transaction again, or null.
+     */
+    static SQLException transientCause(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SQLException e && (e instanceof SQLTransactionRollbackException
+                    || (e.getSQLState() != null && RETRYABLE_STATES.contains(e.getSQLState()))
+                    || e.getErrorCode() == ER_LOCK_DEADLOCK
+                    || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static void retryOrGiveUp(String operation, int attempt, SQLException cause) throws DAOException {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        long delayNanos = ThreadLocalRandom.current().nextLong(delayBoundNanos(attempt) + 1);
+        if (attempt >= maxAttempts || RequestTrace.remainingNanos() <= delayNanos) {
+            registry.counter("spolify_dao_transaction_aborts_total",
+                    "Transactions given up after transient failures", "operation", operation).increment();
+            logger.warn("Giving up {} after {} attempts: {}", operation, attempt, cause.getMessage());
+            throw new DAOException("The database is busy, retry later", cause, DAOErrorType.UNAVAILABLE);
+        }
+        registry.counter("spolify_dao_transaction_retries_total",
+                "Transactions run again after a transient failure", "operation", operation).increment();
+        logger.info("Retrying {} in {} ms after attempt {} failed: {}", operation,
+                TimeUnit.NANOSECONDS.toMillis(delayNanos), attempt, cause.getMessage());
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("Interrupted while waiting to retry " + operation, e,
+                    DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    private static void rollback(Connection connection, String operation) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Rollback of {} failed: {}", operation, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The statements of a transaction.
+     */
+    @FunctionalInterface
+    interface Work<T> {
+        T run() throws DAOException, SQLException;
+    }
+}
@@ -0,0 +1,131 @@
+package it.polimi.tiw.projects.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Binds and reads the {@code BINARY(16)} user IDs as raw bytes, in the same
+ * byte order as {@code UUID_TO_BIN} without the swap flag. Compared to
+ * {@code UUID_TO_BIN(?)} with the text of the UUID and
+ * {@code BIN_TO_UUID(idUser)} parsed back with {@link UUID#fromString}, it
+ * sends and receives 16 bytes instead of 36 characters and builds the UUID
+ * from two longs, without any string.
+ * <p>
+ * Rows read with the same {@link Reader} share the instances of the UUIDs
+ * they repeat, such as the owner of every song of a user, so that a large
+ * result set retains one UUID per distinct owner instead of one per row. A
+ * streamed result set, whose rows aren't retained, uses a
+ * {@link #streamReader()} instead, which only remembers the last UUID.
+ */
+public final class UUIDCodec {
+    private static final int BYTES = 16;
+
+    private UUIDCodec() {
+    }
+
+    /**
+     * Sets a parameter to the 16 bytes of the UUID.
+     */
+    public static void bind(PreparedStatement statement, int index, UUID uuid) throws SQLException {
+        statement.setBytes(index, toBytes(uuid));
+    }
+
+    /**
+     * @return The UUID in a {@code BINARY(16)} column, or null if it is NULL.
+     * @throws SQLException if the column is not 16 bytes long.
+     */
+    public static UUID read(ResultSet result, int column) throws SQLException {
+        byte[] bytes = result.getBytes(column);
+        return bytes == null ? null : fromBytes(bytes);
+    }
+
+    /**
+     * @return A reader sharing the repeated UUIDs of a result set.
+     */
+    public static Reader reader() {
+        return new Reader(new HashMap<>());
+    }
+
+    /**
+     * @return A reader sharing a UUID only with the row right before, whose
+     *         memory doesn't grow with the distinct UUIDs of a streamed result
+     *         set.
+     */
+    public static Reader streamReader() {
+        return new Reader(null);
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[BYTES];
+        writeLong(bytes, 0, uuid.getMostSignificantBits());
+        writeLong(bytes, 8, uuid.getLeastSignificantBits());
+        return bytes;
+    }
+
+    static UUID fromBytes(byte[] bytes) throws SQLException {
+        checkLength(bytes);
+        return new UUID(readLong(bytes, 0), readLong(bytes, 8));
+    }
+
+    private static void checkLength(byte[] bytes) throws SQLException {
+        if (bytes.length != BYTES) {
+            throw new SQLException("Expected a 16 bytes UUID, got " + bytes.length + " bytes");
+        }
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the UUIDs of one result set, returning the same instance for equal
+     * values. Not thread-safe: meant to live as long as the result set.
+     */
+    public static final class Reader {
+        // Null to only remember the last value
+        private final Map<UUID, UUID> seen;
+        private UUID last;
+
+        private Reader(Map<UUID, UUID> seen) {
+            this.seen = seen;
+        }
+
+        /**
+         * @return The UUID in a {@code BINARY(16)} column, or null if it is NULL.
+         * @throws SQLException if the column is not 16 bytes long.
+         */
+        public UUID read(ResultSet result, int column) throws SQLException {
+            byte[] bytes = result.getBytes(column);
+            if (bytes == null) {
+                return null;
+            }
+            checkLength(bytes);
+            long mostSigBits = readLong(bytes, 0);
+            long leastSigBits = readLong(bytes, 8);
+            // Rows are often grouped by owner: skip the map for a repeated value
+            if (last != null && last.getMostSignificantBits() == mostSigBits
+                    && last.getLeastSignificantBits() == leastSigBits) {
+                return last;
+            }
+            UUID uuid = new UUID(mostSigBits, leastSigBits);
+            UUID previous = seen != null ? seen.putIfAbsent(uuid, uuid) : null;
+            last = previous != null ? previous : uuid;
+            return last;
+        }
+    }
+}
@@ -2,175 +2,177 @@ package it.polimi.tiw.projects.dao;
 
 import it.polimi.tiw.projects.beans.User;
 import it.polimi.tiw.projects.exceptions.DAOException;
-import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.UUID;
 
 /**
- * Data Access Object for managing User data in the database. Provides methods
- * for creating, retrieving, and modifying user information.
+ * Data Access Object for managing users. Provides methods for creating,
+ * authenticating and modifying users.
+ * <p>
+ * Hashing a password takes far longer than the queries around it, so the
+ * implementations only store and read hashes: {@link #createUser} and
+ * {@link #checkCredentials} hash and verify on top of them, and callers that
+ * borrow a pooled connection for each step can do the hashing in between, with
+ * no connection held.
  */
-public class UserDAO {
-    private static final Logger logger = LoggerFactory.getLogger(UserDAO.class);
-    private final Connection connection;
+public interface UserDAO {
 
     /**
-     * Constructs a UserDAO with the given database connection.
+     * Creates a new user, storing a hash of the password.
      *
-     * @param connection the database connection to use for DAO operations.
+     * @param username the username for the new user.
+     * @param pwd      the password for the new user.
+     * @param name     the first name of the new user.
+     * @param surname  the last name of the new user.
+     * @return the created user.
+     * @throws DAOException if the username already exists
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS}),
+     *                      too many passwords are being hashed
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#UNAVAILABLE})
+     *                      or another error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public UserDAO(Connection connection) {
-        this.connection = connection;
+    default User createUser(String username, String pwd, String name, String surname) throws DAOException {
+        return insertUser(username, PasswordHasher.getInstance().hash(pwd), name, surname);
     }
 
     /**
-     * Creates a new user in the database. Checks if the username already exists
-     * before insertion.
+     * Creates a new user whose password was already hashed by the
+     * {@link PasswordHasher}.
      *
-     * @param username the username for the new user.
-     * @param pwd      the password for the new user.
-     * @param name     the first name of the new user.
-     * @param surname  the last name of the new user.
+     * @param username     the username for the new user.
+     * @param passwordHash the hash of the password of the new user.
+     * @param name         the first name of the new user.
+     * @param surname      the last name of the new user.
+     * @return the created user.
      * @throws DAOException if the username already exists
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NAME_ALREADY_EXISTS})
-     *                      or another database access error occurs
+     *                      or another error occurs
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public void createUser(String username, String pwd, String name, String surname) throws DAOException {
-        logger.debug("Attempting to create user: username={}, name={}, surname={}", username, name, surname);
-        String insertQuery = "INSERT INTO User (idUser, username, password, name, surname) VALUES (UUID_TO_BIN(?), ?, ?, ?, ?)";
-        String checkExistence = "SELECT * FROM User WHERE username = ?";
-        try (PreparedStatement checkStatement = connection.prepareStatement(checkExistence);
-             PreparedStatement insertStatement = connection.prepareStatement(insertQuery)) {
-            checkStatement.setString(1, username);
-            try (ResultSet result = checkStatement.executeQuery()) {
-                if (result.next()) {
-                    logger.warn("User creation failed: Username '{}' already exists.", username);
-                    throw new DAOException("Username already exists", DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
-                } else {
-                    UUID userId = UUID.randomUUID();
-                    logger.debug("Generated new user ID: {}", userId);
-                    insertStatement.setString(1, userId.toString());
-                    insertStatement.setString(2, username);
-                    insertStatement.setString(3, pwd);
-                    insertStatement.setString(4, name);
-                    insertStatement.setString(5, surname);
-                    int affectedRows = insertStatement.executeUpdate();
-                    if (affectedRows == 0) {
-                        logger.error("Creating user failed, no rows affected for username: {}", username);
-                        // Should not happen with a valid insert unless there's a concurrent issue
-                        // or DB
-                        // problem
-                        throw new DAOException("Creating user failed, no rows affected.",
-                                DAOException.DAOErrorType.GENERIC_ERROR);
-                    }
-                    logger.info("User '{}' created successfully with ID: {}", username, userId);
-                }
-            }
-        } catch (SQLException e) {
-            logger.error("SQL error during user creation for username {}: SQLState={}, Message={}", username,
-                    e.getSQLState(), e.getMessage(), e);
-            // Check for unique constraint violation on username (MySQL error code 1062,
-            // SQLState '23000')
-            // This is a secondary check in case the initial SELECT misses a concurrent
-            // insert
-            if ("23000".equals(e.getSQLState())) {
-                // Logged above, re-throwing specific exception
-                throw new DAOException("Username '" + username + "' already exists.", e,
-                        DAOException.DAOErrorType.NAME_ALREADY_EXISTS);
-            } else {
-                throw new DAOException("Error creating user: " + e.getMessage(), e,
-                        DAOException.DAOErrorType.GENERIC_ERROR);
-            }
-        }
-    }
+    User insertUser(String username, String passwordHash, String name, String surname) throws DAOException;
 
     /**
-     * Checks if the provided username and password match a user in the database.
+     * Checks if the provided username and password match a user. A password
+     * stored in plain text or hashed with an outdated cost is rehashed.
      *
      * @param username the username to check.
      * @param pwd      the password to check.
      * @return a User object containing the user's details if credentials are valid.
      * @throws DAOException if the credentials are invalid
-     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#INVALID_CREDENTIALS})
-     *                      or another database access error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#INVALID_CREDENTIALS}),
+     *                      too many passwords are being hashed
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#UNAVAILABLE})
+     *                      or another error occurs
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public User checkCredentials(String username, String pwd) throws DAOException {
-        logger.debug("Attempting to check credentials for username: {}", username);
-        String query = "SELECT BIN_TO_UUID(idUser) as idUser, username, name, surname FROM User WHERE username = ? AND password = ?";
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            pStatement.setString(1, username);
-            pStatement.setString(2, pwd);
-            try (ResultSet result = pStatement.executeQuery()) {
-                if (result.next()) { // A user was matched with the password
-                    User user = new User();
-                    String userIdStr = result.getString("idUser");
-                    user.setIdUser(UUID.fromString(userIdStr));
-                    user.setUsername(result.getString("username"));
-                    user.setName(result.getString("name"));
-                    user.setSurname(result.getString("surname"));
-                    logger.info("Credentials valid for username: {}", username);
-                    return user;
-                } else {
-                    logger.warn("Invalid credentials provided for username: {}", username);
-                    // No user found with that username/password combination
-                    throw new DAOException("Invalid credentials", DAOException.DAOErrorType.INVALID_CREDENTIALS);
-                }
-            }
-        } catch (SQLException | IllegalArgumentException e) { // Catch UUID parsing errors too
-            logger.error("Error checking credentials for username {}: {}", username, e.getMessage(), e);
-            throw new DAOException("Error checking credentials: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
-        }
+    default User checkCredentials(String username, String pwd) throws DAOException {
+        Credentials credentials = findCredentials(username);
+        User user = credentials.verify(pwd);
+        credentials.rehash(pwd, this::updatePassword);
+        return user;
     }
 
+    /**
+     * Reads what is needed to check the password of a user.
+     *
+     * @param username the username to look for.
+     * @return the credentials of the user, empty if there is no such user.
+     * @throws DAOException if a database error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    Credentials findCredentials(String username) throws DAOException;
+
+    /**
+     * Replaces the stored password of a user, unless it was changed since it
+     * was read.
+     *
+     * @param userId       the ID of the user.
+     * @param expectedHash the stored password, as returned by
+     *                     {@link #findCredentials}.
+     * @param passwordHash the new hash of the password.
+     * @return true if the password was replaced.
+     * @throws DAOException if a database error occurs
+     *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
+     */
+    boolean updatePassword(UUID userId, String expectedHash, String passwordHash) throws DAOException;
+
     /**
      * Modifies the name and/or surname of an existing user. If name or surname
      * parameters are null, the existing values are kept.
      *
      * @param user    the User object representing the user to modify (must contain
-     *                the user ID).
+     *                the user ID), updated on success.
      * @param name    the new first name (or null to keep the existing one).
      * @param surname the new last name (or null to keep the existing one).
      * @throws DAOException if the user is not found
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#NOT_FOUND})
-     *                      or another database access error occurs
+     *                      or another error occurs
      *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#GENERIC_ERROR}).
      */
-    public void modifyUser(User user, String name, String surname) throws DAOException {
-        logger.debug("Attempting to modify user ID: {} with name={}, surname={}", user.getIdUser(), name, surname);
-        String query = "UPDATE User SET name = ?, surname = ? WHERE idUser = UUID_TO_BIN(?)";
+    void modifyUser(User user, String name, String surname) throws DAOException;
 
-        String finalName = (name == null) ? user.getName() : name;
-        String finalSurname = (surname == null) ? user.getSurname() : surname;
+    /**
+     * A user and the password stored for it, which may be a hash or, for
+     * legacy accounts, plain text.
+     *
+     * @param user         the user, null if there is no such user.
+     * @param passwordHash the stored password, null if there is no such user.
+     */
+    record Credentials(User user, String passwordHash) {
+        /**
+         * Checks a password against these credentials. Unknown users are
+         * verified against a dummy hash, so they take as long.
+         *
+         * @return the user if the password matches.
+         * @throws DAOException if it doesn't
+         *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#INVALID_CREDENTIALS})
+         *                      or too many passwords are being hashed
+         *                      ({@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#UNAVAILABLE}).
+         */
+        public User verify(String pwd) throws DAOException {
+            if (!PasswordHasher.getInstance().verify(pwd, passwordHash)) {
+                throw new DAOException("Invalid credentials", DAOException.DAOErrorType.INVALID_CREDENTIALS);
+            }
+            return user;
+        }
 
-        try (PreparedStatement pStatement = connection.prepareStatement(query)) {
-            pStatement.setString(1, finalName);
-            pStatement.setString(2, finalSurname);
-            pStatement.setString(3, user.getIdUser().toString());
-            int affectedRows = pStatement.executeUpdate();
+        /**
+         * @return true if the password must be hashed again once verified.
+         */
+        public boolean needsRehash() {
+            return passwordHash != null && PasswordHasher.getInstance().needsRehash(passwordHash);
+        }
 
-            if (affectedRows == 0) {
-                logger.warn("User modification failed: User ID {} not found.", user.getIdUser());
-                throw new DAOException("User with ID " + user.getIdUser() + " not found for modification.",
-                        DAOException.DAOErrorType.NOT_FOUND);
+        /**
+         * Replaces a verified password stored in plain text or hashed with an
+         * outdated cost. The new hash is computed before the update is called,
+         * so that the update alone can borrow a connection. The user is logged
+         * in all the same, so a failure is only logged and the password is
+         * rehashed at the next login.
+         *
+         * @param pwd    the password, already verified.
+         * @param update stores the new hash, as {@link UserDAO#updatePassword}.
+         */
+        public void rehash(String pwd, PasswordUpdate update) {
+            if (!needsRehash()) {
+                return;
+            }
+            try {
+                update.update(user.getIdUser(), passwordHash, PasswordHasher.getInstance().hash(pwd));
+            } catch (DAOException e) {
+                LoggerFactory.getLogger(UserDAO.class).warn("Could not rehash the password of user ID {}: {}",
+                        user.getIdUser(), e.getMessage());
             }
-            // Update the user bean in memory if modification was successful
-            logger.info("User ID {} modified successfully. New name={}, surname={}", user.getIdUser(), finalName,
-                    finalSurname);
-            user.setName(finalName);
-            user.setSurname(finalSurname);
-
-        } catch (SQLException e) {
-            logger.error("SQL error modifying user ID {}: {}", user.getIdUser(), e.getMessage(), e);
-            throw new DAOException("Error modifying user: " + e.getMessage(), e,
-                    DAOException.DAOErrorType.GENERIC_ERROR);
         }
     }
+
+    /**
+     * Stores the new hash of a password, as {@link UserDAO#updatePassword}.
+     */
+    @FunctionalInterface
+    interface PasswordUpdate {
+        boolean update(UUID userId, String expectedHash, String passwordHash) throws DAOException;
+    }
 }
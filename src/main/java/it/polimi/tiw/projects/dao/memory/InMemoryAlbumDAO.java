@@ -0,0 +1,192 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryStore.UserRow;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * {@link AlbumDAO} keeping albums in an {@link InMemoryStore}. Lookups by ID
+ * read the store directly, so the {@link it.polimi.tiw.projects.cache.AlbumCache}
+ * is not used.
+ */
+public class InMemoryAlbumDAO implements AlbumDAO {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryAlbumDAO.class);
+    private static final Comparator<Album> BY_ARTIST_YEAR_NAME = Comparator
+            .comparing(Album::getArtist, String.CASE_INSENSITIVE_ORDER).thenComparingInt(Album::getYear)
+            .thenComparing(Album::getName, String.CASE_INSENSITIVE_ORDER);
+    private static final Comparator<Album> BY_YEAR_NAME = Comparator.comparingInt(Album::getYear)
+            .thenComparing(Album::getName, String.CASE_INSENSITIVE_ORDER);
+
+    private final InMemoryStore store;
+
+    public InMemoryAlbumDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Album createAlbum(String name, int year, String artist, String image, UUID idUser) throws DAOException {
+        Album album = new Album();
+        album.setName(name);
+        album.setYear(year);
+        album.setArtist(artist);
+        album.setImage(image);
+        album.setIdUser(idUser);
+
+        store.lock.writeLock().lock();
+        try {
+            UserRow owner = store.existingUser(idUser);
+            if (owner.albumsByName.containsKey(InMemoryStore.nameKey(name))) {
+                logger.warn("Album creation failed: Name '{}' already exists for user {}", name, idUser);
+                throw new DAOException("Album name '" + name + "' already exists for this user.",
+                        DAOErrorType.NAME_ALREADY_EXISTS);
+            }
+            store.addAlbum(album, owner);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Album created successfully with ID: {}", album.getIdAlbum());
+        return InMemoryStore.copy(album);
+    }
+
+    @Override
+    public Album findAlbumById(int idAlbum) throws DAOException {
+        store.lock.readLock().lock();
+        try {
+            Album album = store.album(idAlbum);
+            if (album == null) {
+                logger.warn("Album with ID {} not found", idAlbum);
+                throw new DAOException("Album with ID " + idAlbum + " not found.", DAOErrorType.NOT_FOUND);
+            }
+            return InMemoryStore.copy(album);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Integer, Album> findAlbumsByIds(Collection<Integer> idAlbums) throws DAOException {
+        Map<Integer, Album> result = new HashMap<>();
+        if (idAlbums == null || idAlbums.isEmpty()) {
+            return result;
+        }
+        store.lock.readLock().lock();
+        try {
+            for (Integer idAlbum : idAlbums) {
+                Album album = idAlbum == null ? null : store.album(idAlbum);
+                if (album != null) {
+                    result.put(idAlbum, InMemoryStore.copy(album));
+                }
+            }
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    @Override
+    public List<Album> findAllAlbums() throws DAOException {
+        List<Album> albums;
+        store.lock.readLock().lock();
+        try {
+            albums = store.allAlbums();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        albums.sort(BY_ARTIST_YEAR_NAME);
+        return albums;
+    }
+
+    @Override
+    public Stream<Album> streamAllAlbums() throws DAOException {
+        // Already in memory, the copy is as large as the store
+        return findAllAlbums().stream();
+    }
+
+    @Override
+    public List<Album> findAlbumsByUser(UUID userId) throws DAOException {
+        List<Album> albums;
+        store.lock.readLock().lock();
+        try {
+            UserRow owner = store.user(userId);
+            albums = owner == null ? new ArrayList<>() : store.albumsOf(owner);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        albums.sort(BY_YEAR_NAME);
+        return albums;
+    }
+
+    @Override
+    public void updateAlbum(int idAlbum, UUID userId, String name, Integer year, String artist, String image)
+            throws DAOException {
+        if (name == null && year == null && artist == null && image == null) {
+            logger.warn("Update attempt for album ID {} failed: No fields provided for update.", idAlbum);
+            throw new IllegalArgumentException("No fields provided for update.");
+        }
+
+        store.lock.writeLock().lock();
+        try {
+            Album album = store.album(idAlbum);
+            UserRow owner = store.user(userId);
+            if (album == null || owner == null || !album.getIdUser().equals(userId)) {
+                logger.warn("Update failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
+                throw new DAOException("Album with ID " + idAlbum + " not found for update or user not authorized.",
+                        DAOErrorType.NOT_FOUND);
+            }
+            if (name != null) {
+                Integer sameName = owner.albumsByName.get(InMemoryStore.nameKey(name));
+                if (sameName != null && sameName != idAlbum) {
+                    logger.warn("Update failed for album ID {}: Name '{}' already exists for user {}", idAlbum, name,
+                            userId);
+                    throw new DAOException("Album name '" + name + "' already exists for this user.",
+                            DAOErrorType.NAME_ALREADY_EXISTS);
+                }
+                owner.albumsByName.remove(InMemoryStore.nameKey(album.getName()));
+                owner.albumsByName.put(InMemoryStore.nameKey(name), idAlbum);
+                album.setName(name);
+            }
+            if (year != null) {
+                album.setYear(year);
+            }
+            if (artist != null) {
+                album.setArtist(artist);
+            }
+            if (image != null) {
+                album.setImage(image);
+            }
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Album ID {} updated successfully by user {}", idAlbum, userId);
+    }
+
+    @Override
+    public void deleteAlbum(int idAlbum, UUID userId) throws DAOException {
+        store.lock.writeLock().lock();
+        try {
+            Album album = store.album(idAlbum);
+            if (album == null || !album.getIdUser().equals(userId)) {
+                logger.warn("Delete failed for album ID {}: Not found or user {} not authorized.", idAlbum, userId);
+                throw new DAOException("Album with ID " + idAlbum + " not found for deletion or user not authorized.",
+                        DAOErrorType.NOT_FOUND);
+            }
+            store.removeAlbum(album);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Album ID {} deleted successfully by user {}", idAlbum, userId);
+    }
+}
@@ -0,0 +1,58 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.UserDAO;
+
+import java.sql.Connection;
+
+/**
+ * Hands out DAOs sharing a single {@link InMemoryStore}. They are thread-safe
+ * and ignore the connection, so the same instances are returned every time.
+ * Everything is lost when the application stops; meant for benchmarks and load
+ * tests that must not depend on MySQL.
+ */
+public class InMemoryDAOFactory implements DAOFactory {
+    private final UserDAO userDAO;
+    private final SongDAO songDAO;
+    private final AlbumDAO albumDAO;
+    private final PlaylistDAO playlistDAO;
+
+    public InMemoryDAOFactory() {
+        this(new InMemoryStore());
+    }
+
+    public InMemoryDAOFactory(InMemoryStore store) {
+        this.userDAO = new InMemoryUserDAO(store);
+        this.songDAO = new InMemorySongDAO(store);
+        this.albumDAO = new InMemoryAlbumDAO(store);
+        this.playlistDAO = new InMemoryPlaylistDAO(store);
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return false;
+    }
+
+    @Override
+    public UserDAO getUserDAO(Connection connection) {
+        return userDAO;
+    }
+
+    @Override
+    public SongDAO getSongDAO(Connection connection) {
+        return songDAO;
+    }
+
+    @Override
+    public AlbumDAO getAlbumDAO(Connection connection) {
+        return albumDAO;
+    }
+
+    @Override
+    public PlaylistDAO getPlaylistDAO(Connection connection) {
+        return playlistDAO;
+    }
+}
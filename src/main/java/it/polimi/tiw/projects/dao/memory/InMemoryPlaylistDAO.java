@@ -0,0 +1,215 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.AddSongsToPlaylistResult;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryStore.PlaylistRow;
+import it.polimi.tiw.projects.dao.memory.InMemoryStore.UserRow;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PlaylistDAO} keeping playlists in an {@link InMemoryStore}. The songs
+ * of a playlist are a sorted array of IDs; every check is done before the
+ * first change, so a failing operation leaves the store untouched.
+ */
+public class InMemoryPlaylistDAO implements PlaylistDAO {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryPlaylistDAO.class);
+    private static final Comparator<PlaylistRow> NEWEST_FIRST = Comparator
+            .comparing((PlaylistRow p) -> p.birthday).thenComparingInt(p -> p.id).reversed();
+
+    private final InMemoryStore store;
+
+    public InMemoryPlaylistDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Playlist createPlaylist(@NotBlank String name, @NotNull UUID idUser, @NotNull List<Integer> songIds)
+            throws DAOException {
+        Playlist playlist;
+        store.lock.writeLock().lock();
+        try {
+            UserRow owner = store.existingUser(idUser);
+            if (owner.playlistsByName.containsKey(InMemoryStore.nameKey(name))) {
+                logger.warn("Playlist creation failed: Name '{}' already exists for user {}", name, idUser);
+                throw new DAOException("Playlist name '" + name + "' already exists for this user.",
+                        DAOErrorType.NAME_ALREADY_EXISTS);
+            }
+            int[] songs = new int[0];
+            if (songIds != null) {
+                for (Integer songId : songIds) {
+                    if (songId == null) {
+                        logger.warn("Playlist creation failed: Null song ID provided for user {}.", idUser);
+                        throw new DAOException("Playlist cannot contain null song IDs.",
+                                DAOErrorType.CONSTRAINT_VIOLATION);
+                    }
+                    checkSongOwnership(songId, idUser);
+                    if (Arrays.binarySearch(songs, songId) >= 0) {
+                        logger.warn("Playlist creation failed: Song ID {} provided twice for user {}.", songId, idUser);
+                        throw new DAOException("Song ID " + songId + " is provided more than once.",
+                                DAOErrorType.DUPLICATE_ENTRY);
+                    }
+                    songs = InMemoryStore.insertSorted(songs, songId);
+                }
+            }
+            PlaylistRow row = store.addPlaylist(name, owner);
+            row.songs = songs;
+            playlist = row.toBean();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Playlist ID {} created successfully for user {}", playlist.getIdPlaylist(), idUser);
+        return playlist;
+    }
+
+    @Override
+    public Playlist findPlaylistById(int playlistId, @NotNull UUID userId) throws DAOException {
+        store.lock.readLock().lock();
+        try {
+            return accessiblePlaylist(playlistId, userId).toBean();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Playlist> findPlaylistsByUser(@NotNull UUID idUser) throws DAOException {
+        store.lock.readLock().lock();
+        try {
+            UserRow owner = store.user(idUser);
+            if (owner == null) {
+                return new ArrayList<>();
+            }
+            // Converted under the lock, the song arrays may be replaced concurrently
+            return store.playlistsOf(owner).stream().sorted(NEWEST_FIRST).map(PlaylistRow::toBean)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void deletePlaylist(int playlistId, @NotNull UUID userId) throws DAOException {
+        store.lock.writeLock().lock();
+        try {
+            store.removePlaylist(accessiblePlaylist(playlistId, userId));
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Playlist ID {} deleted successfully by user {}", playlistId, userId);
+    }
+
+    @Override
+    public void addSongToPlaylist(int playlistId, @NotNull UUID userId, int songId) throws DAOException {
+        store.lock.writeLock().lock();
+        try {
+            PlaylistRow playlist = accessiblePlaylist(playlistId, userId);
+            checkSongOwnership(songId, userId);
+            if (Arrays.binarySearch(playlist.songs, songId) >= 0) {
+                logger.warn("Attempt to add duplicate song ID {} to playlist ID {} by user {}", songId, playlistId,
+                        userId);
+                throw new DAOException("Song ID " + songId + " is already in playlist ID " + playlistId + ".",
+                        DAOErrorType.DUPLICATE_ENTRY);
+            }
+            playlist.songs = InMemoryStore.insertSorted(playlist.songs, songId);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Song ID {} added successfully to playlist ID {} by user {}", songId, playlistId, userId);
+    }
+
+    @Override
+    public boolean removeSongFromPlaylist(int playlistId, @NotNull UUID userId, int songId) throws DAOException {
+        boolean removed;
+        store.lock.writeLock().lock();
+        try {
+            PlaylistRow playlist = accessiblePlaylist(playlistId, userId);
+            int[] songs = InMemoryStore.removeSorted(playlist.songs, songId);
+            removed = songs != playlist.songs;
+            playlist.songs = songs;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        if (removed) {
+            logger.info("Song ID {} removed successfully from playlist ID {} by user {}", songId, playlistId, userId);
+        }
+        return removed;
+    }
+
+    @Override
+    public AddSongsToPlaylistResult addSongsToPlaylist(int playlistId, @NotNull UUID userId,
+                                                       @NotNull List<Integer> songIdsToAdd) throws DAOException {
+        AddSongsToPlaylistResult result = new AddSongsToPlaylistResult();
+        store.lock.writeLock().lock();
+        try {
+            PlaylistRow playlist = accessiblePlaylist(playlistId, userId);
+            // Built on a copy and published at the end, so a failure leaves the playlist unchanged
+            int[] songs = playlist.songs;
+            for (Integer songId : songIdsToAdd) {
+                if (songId == null) {
+                    logger.warn("Null song ID provided in list for playlist {}, user {}", playlistId, userId);
+                    throw new DAOException("Null song ID provided in the list.", DAOErrorType.CONSTRAINT_VIOLATION);
+                }
+                checkSongOwnership(songId, userId);
+                if (Arrays.binarySearch(songs, songId) >= 0) {
+                    result.addDuplicateSong(songId);
+                } else {
+                    songs = InMemoryStore.insertSorted(songs, songId);
+                    result.addSuccessfullyAddedSong(songId);
+                }
+            }
+            playlist.songs = songs;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Songs added to playlist {}. Added: {}, Duplicates: {}", playlistId,
+                result.getAddedSongIds().size(), result.getDuplicateSongIds().size());
+        if (!result.getAddedSongIds().isEmpty()) {
+        }
+        return result;
+    }
+
+    /**
+     * @return The playlist, if it exists and belongs to the user.
+     * @throws DAOException if the playlist is not found
+     *                      ({@link DAOErrorType#NOT_FOUND}) or belongs to another
+     *                      user ({@link DAOErrorType#ACCESS_DENIED}).
+     */
+    private PlaylistRow accessiblePlaylist(int playlistId, UUID userId) throws DAOException {
+        PlaylistRow playlist = store.playlist(playlistId);
+        if (playlist == null) {
+            logger.warn("Access check failed: Playlist ID {} not found.", playlistId);
+            throw new DAOException("Playlist with ID " + playlistId + " not found.", DAOErrorType.NOT_FOUND);
+        }
+        if (!playlist.owner.equals(userId)) {
+            logger.warn("Access check failed: User {} not authorized for playlist ID {} (owned by {}).", userId,
+                    playlistId, playlist.owner);
+            throw new DAOException("User not authorized to access playlist ID " + playlistId + ".",
+                    DAOErrorType.ACCESS_DENIED);
+        }
+        return playlist;
+    }
+
+    private void checkSongOwnership(int songId, UUID userId) throws DAOException {
+        Song song = store.song(songId);
+        if (song == null || !song.getIdUser().equals(userId)) {
+            logger.warn("Song existence/ownership check failed: Song ID {} not found or not owned by user {}.",
+                    songId, userId);
+            throw new DAOException("Song with ID " + songId + " not found or not accessible to this user.",
+                    DAOErrorType.NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryStore.UserRow;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.utils.Genre;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * {@link SongDAO} keeping songs in an {@link InMemoryStore}.
+ */
+public class InMemorySongDAO implements SongDAO {
+    private static final Logger logger = LoggerFactory.getLogger(InMemorySongDAO.class);
+    private final InMemoryStore store;
+
+    public InMemorySongDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Song createSong(@NotBlank String title, int idAlbum, Genre genre, @NotBlank String audioFile,
+                           @NotNull UUID idUser) throws DAOException {
+        Song song = new Song();
+        song.setTitle(title);
+        song.setIdAlbum(idAlbum);
+        song.setGenre(genre);
+        song.setAudioFile(audioFile);
+        song.setIdUser(idUser);
+
+        store.lock.writeLock().lock();
+        try {
+            UserRow owner = store.existingUser(idUser);
+            if (store.album(idAlbum) == null) {
+                logger.warn("Song creation failed: Album ID {} not found.", idAlbum);
+                throw new DAOException("Album with ID " + idAlbum + " not found.", DAOErrorType.NOT_FOUND);
+            }
+            store.addSong(song, owner);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Song created successfully with ID: {}", song.getIdSong());
+        return InMemoryStore.copy(song);
+    }
+
+    @Override
+    public List<Song> findSongsByUser(@NotNull UUID userId) throws DAOException {
+        store.lock.readLock().lock();
+        try {
+            UserRow owner = store.user(userId);
+            return owner == null ? new ArrayList<>() : store.songsOf(owner);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Song> findAllSongs() throws DAOException {
+        store.lock.readLock().lock();
+        try {
+            return store.allSongs();
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<Song> streamAllSongs() throws DAOException {
+        // Already in memory, the copy is as large as the store
+        return findAllSongs().stream();
+    }
+
+    @Override
+    public UUID deleteSong(int songId) throws DAOException {
+        UUID owner;
+        store.lock.writeLock().lock();
+        try {
+            Song song = store.song(songId);
+            if (song == null) {
+                logger.warn("Song deletion failed: Song ID {} not found.", songId);
+                throw new DAOException("Song with ID " + songId + " not found for deletion.", DAOErrorType.NOT_FOUND);
+            }
+            owner = song.getIdUser();
+            store.removeSong(song);
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        logger.info("Song ID {} deleted successfully.", songId);
+        return owner;
+    }
+
+    @Override
+    public List<Song> findSongsByIdsAndUser(@NotNull List<Integer> songIds, @NotNull UUID userId)
+            throws DAOException {
+        List<Song> result = new ArrayList<>();
+        if (songIds == null || songIds.isEmpty()) {
+            return result;
+        }
+        store.lock.readLock().lock();
+        try {
+            // Follow the ID order, like the primary key scan of the database
+            songIds.stream().filter(Objects::nonNull).distinct().sorted().forEach(id -> {
+                Song song = store.song(id);
+                if (song != null && song.getIdUser().equals(userId)) {
+                    result.add(InMemoryStore.copy(song));
+                }
+            });
+        } finally {
+            store.lock.readLock().unlock();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,327 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Data shared by the in-memory DAOs, mirroring the tables of the database.
+ * <p>
+ * Albums, songs and playlists are kept in arrays indexed by their ID. IDs are
+ * assigned from 1 like auto-increment columns and never reused, so a lookup by
+ * ID is a bounds check and an array read. Each user has an index of the IDs it
+ * owns and of its album and playlist names, which are compared ignoring case
+ * like the database collation.
+ * <p>
+ * Every access goes through a single read-write lock: reads run concurrently,
+ * writes are serialized, which makes multi-step writes (a playlist with its
+ * songs, an album with its songs) atomic. The methods of this class expect the
+ * caller to hold the lock; beans are copied on the way in and out, so callers
+ * never share mutable state with the store.
+ */
+public class InMemoryStore {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int[] NO_SONGS = new int[0];
+
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, UserRow> usersByUsername = new HashMap<>();
+    private final Map<UUID, UserRow> usersById = new HashMap<>();
+    private Album[] albums = new Album[INITIAL_CAPACITY];
+    private Song[] songs = new Song[INITIAL_CAPACITY];
+    private PlaylistRow[] playlists = new PlaylistRow[INITIAL_CAPACITY];
+    private int lastAlbumId = 0;
+    private int lastSongId = 0;
+    private int lastPlaylistId = 0;
+
+    static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    // --- Users ---
+
+    UserRow userByUsername(String username) {
+        return usersByUsername.get(nameKey(username));
+    }
+
+    UserRow user(UUID userId) {
+        return userId == null ? null : usersById.get(userId);
+    }
+
+    /**
+     * @return The row of the user, never null.
+     * @throws DAOException if the user doesn't exist
+     *                      ({@link DAOErrorType#NOT_FOUND}), like a foreign key
+     *                      violation on the database.
+     */
+    UserRow existingUser(UUID userId) throws DAOException {
+        UserRow row = user(userId);
+        if (row == null) {
+            throw new DAOException("User with ID " + userId + " not found.", DAOErrorType.NOT_FOUND);
+        }
+        return row;
+    }
+
+    void addUser(UserRow row) {
+        usersByUsername.put(nameKey(row.username), row);
+        usersById.put(row.id, row);
+    }
+
+    // --- Albums ---
+
+    Album album(int idAlbum) {
+        return idAlbum > 0 && idAlbum <= lastAlbumId ? albums[idAlbum] : null;
+    }
+
+    /**
+     * Stores a new album, assigning its ID.
+     */
+    Album addAlbum(Album album, UserRow owner) {
+        int id = ++lastAlbumId;
+        albums = ensureCapacity(albums, id);
+        album.setIdAlbum(id);
+        albums[id] = album;
+        owner.albumIds.add(id);
+        owner.albumsByName.put(nameKey(album.getName()), id);
+        return album;
+    }
+
+    /**
+     * Removes an album together with its songs, like the cascading foreign key of
+     * the database.
+     */
+    void removeAlbum(Album album) {
+        UserRow owner = user(album.getIdUser());
+        // Songs may belong to a different user than the album's owner
+        for (int id = 1; id <= lastSongId; id++) {
+            if (songs[id] != null && songs[id].getIdAlbum() == album.getIdAlbum()) {
+                removeSong(songs[id]);
+            }
+        }
+        albums[album.getIdAlbum()] = null;
+        if (owner != null) {
+            owner.albumIds.remove(album.getIdAlbum());
+            owner.albumsByName.remove(nameKey(album.getName()));
+        }
+    }
+
+    List<Album> albumsOf(UserRow owner) {
+        return Arrays.stream(owner.albumIds.toArray()).mapToObj(id -> copy(albums[id]))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    List<Album> allAlbums() {
+        return Arrays.stream(albums, 1, lastAlbumId + 1).filter(Objects::nonNull).map(InMemoryStore::copy)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // --- Songs ---
+
+    Song song(int idSong) {
+        return idSong > 0 && idSong <= lastSongId ? songs[idSong] : null;
+    }
+
+    /**
+     * Stores a new song, assigning its ID.
+     */
+    Song addSong(Song song, UserRow owner) {
+        int id = ++lastSongId;
+        songs = ensureCapacity(songs, id);
+        song.setIdSong(id);
+        songs[id] = song;
+        owner.songIds.add(id);
+        return song;
+    }
+
+    /**
+     * Removes a song from the store and from every playlist containing it. Only
+     * the owner's playlists can contain it.
+     */
+    void removeSong(Song song) {
+        int idSong = song.getIdSong();
+        songs[idSong] = null;
+        UserRow owner = user(song.getIdUser());
+        if (owner != null) {
+            owner.songIds.remove(idSong);
+            for (int i = 0; i < owner.playlistIds.size(); i++) {
+                PlaylistRow playlist = playlists[owner.playlistIds.get(i)];
+                playlist.songs = removeSorted(playlist.songs, idSong);
+            }
+        }
+    }
+
+    List<Song> songsOf(UserRow owner) {
+        return Arrays.stream(owner.songIds.toArray()).mapToObj(id -> copy(songs[id]))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    List<Song> allSongs() {
+        return Arrays.stream(songs, 1, lastSongId + 1).filter(Objects::nonNull).map(InMemoryStore::copy)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    // --- Playlists ---
+
+    PlaylistRow playlist(int idPlaylist) {
+        return idPlaylist > 0 && idPlaylist <= lastPlaylistId ? playlists[idPlaylist] : null;
+    }
+
+    /**
+     * Stores a new, empty playlist created now.
+     */
+    PlaylistRow addPlaylist(String name, UserRow owner) {
+        int id = ++lastPlaylistId;
+        playlists = ensureCapacity(playlists, id);
+        // The database column only keeps seconds
+        Timestamp birthday = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+        PlaylistRow row = new PlaylistRow(id, name, birthday, owner.id);
+        playlists[id] = row;
+        owner.playlistIds.add(id);
+        owner.playlistsByName.put(nameKey(name), id);
+        return row;
+    }
+
+    void removePlaylist(PlaylistRow playlist) {
+        playlists[playlist.id] = null;
+        UserRow owner = user(playlist.owner);
+        if (owner != null) {
+            owner.playlistIds.remove(playlist.id);
+            owner.playlistsByName.remove(nameKey(playlist.name));
+        }
+    }
+
+    List<PlaylistRow> playlistsOf(UserRow owner) {
+        return Arrays.stream(owner.playlistIds.toArray()).mapToObj(id -> playlists[id]).toList();
+    }
+
+    // --- Helpers ---
+
+    private static <T> T[] ensureCapacity(T[] array, int id) {
+        return id < array.length ? array : Arrays.copyOf(array, Math.max(array.length * 2, id + 1));
+    }
+
+    /**
+     * @return A copy of the sorted array with the value inserted, or the same
+     *         array if it is already present.
+     */
+    static int[] insertSorted(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index >= 0) {
+            return sorted;
+        }
+        int insertion = -index - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, insertion);
+        result[insertion] = value;
+        System.arraycopy(sorted, insertion, result, insertion + 1, sorted.length - insertion);
+        return result;
+    }
+
+    /**
+     * @return A copy of the sorted array without the value, or the same array if
+     *         it is not present.
+     */
+    static int[] removeSorted(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return sorted;
+        }
+        int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        System.arraycopy(sorted, index + 1, result, index, sorted.length - index - 1);
+        return result;
+    }
+
+    static Album copy(Album album) {
+        Album copy = new Album();
+        copy.setIdAlbum(album.getIdAlbum());
+        copy.setName(album.getName());
+        copy.setYear(album.getYear());
+        copy.setArtist(album.getArtist());
+        copy.setImage(album.getImage());
+        copy.setIdUser(album.getIdUser());
+        return copy;
+    }
+
+    static Song copy(Song song) {
+        Song copy = new Song();
+        copy.setIdSong(song.getIdSong());
+        copy.setTitle(song.getTitle());
+        copy.setIdAlbum(song.getIdAlbum());
+        copy.setGenre(song.getGenre());
+        copy.setAudioFile(song.getAudioFile());
+        copy.setIdUser(song.getIdUser());
+        return copy;
+    }
+
+    static final class UserRow {
+        final UUID id;
+        final String username;
+        String passwordHash;
+        String name;
+        String surname;
+        final IntList songIds = new IntList();
+        final IntList albumIds = new IntList();
+        final IntList playlistIds = new IntList();
+        final Map<String, Integer> albumsByName = new HashMap<>();
+        final Map<String, Integer> playlistsByName = new HashMap<>();
+
+        UserRow(UUID id, String username, String passwordHash, String name, String surname) {
+            this.id = id;
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.name = name;
+            this.surname = surname;
+        }
+
+        User toBean() {
+            User user = new User();
+            user.setIdUser(id);
+            user.setUsername(username);
+            user.setName(name);
+            user.setSurname(surname);
+            return user;
+        }
+    }
+
+    static final class PlaylistRow {
+        final int id;
+        final String name;
+        final Timestamp birthday;
+        final UUID owner;
+        // Song IDs in ascending order, replaced on every change
+        int[] songs = NO_SONGS;
+
+        PlaylistRow(int id, String name, Timestamp birthday, UUID owner) {
+            this.id = id;
+            this.name = name;
+            this.birthday = birthday;
+            this.owner = owner;
+        }
+
+        Playlist toBean() {
+            Playlist playlist = new Playlist();
+            playlist.setIdPlaylist(id);
+            playlist.setName(name);
+            playlist.setBirthday(birthday);
+            playlist.setIdUser(owner);
+            playlist.setSongs(Arrays.stream(songs).boxed().collect(Collectors.toCollection(ArrayList::new)));
+            return playlist;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.dao.PasswordHasher;
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryStore.UserRow;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.utils.UUIDv7;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+
+/**
+ * {@link UserDAO} keeping users in an {@link InMemoryStore}. Passwords are
+ * hashed with the {@link PasswordHasher} before the store is locked.
+ */
+public class InMemoryUserDAO implements UserDAO {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryUserDAO.class);
+    private final InMemoryStore store;
+
+    public InMemoryUserDAO(InMemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public User insertUser(String username, String passwordHash, String name, String surname) throws DAOException {
+        store.lock.writeLock().lock();
+        try {
+            if (store.userByUsername(username) != null) {
+                logger.warn("User creation failed: Username '{}' already exists.", username);
+                throw new DAOException("Username already exists", DAOErrorType.NAME_ALREADY_EXISTS);
+            }
+            UUID userId = UUIDv7.randomUUID();
+            UserRow row = new UserRow(userId, username, passwordHash, name, surname);
+            store.addUser(row);
+            logger.info("User '{}' created successfully with ID: {}", username, userId);
+            return row.toBean();
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Credentials findCredentials(String username) {
+        store.lock.readLock().lock();
+        try {
+            UserRow row = store.userByUsername(username);
+            return row != null ? new Credentials(row.toBean(), row.passwordHash) : new Credentials(null, null);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean updatePassword(UUID userId, String expectedHash, String passwordHash) {
+        store.lock.writeLock().lock();
+        try {
+            UserRow row = store.user(userId);
+            if (row == null || !row.passwordHash.equals(expectedHash)) {
+                return false;
+            }
+            row.passwordHash = passwordHash;
+            return true;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void modifyUser(User user, String name, String surname) throws DAOException {
+        String finalName = (name == null) ? user.getName() : name;
+        String finalSurname = (surname == null) ? user.getSurname() : surname;
+
+        store.lock.writeLock().lock();
+        try {
+            UserRow row = store.user(user.getIdUser());
+            if (row == null) {
+                logger.warn("User modification failed: User ID {} not found.", user.getIdUser());
+                throw new DAOException("User with ID " + user.getIdUser() + " not found for modification.",
+                        DAOErrorType.NOT_FOUND);
+            }
+            row.name = finalName;
+            row.surname = finalSurname;
+        } finally {
+            store.lock.writeLock().unlock();
+        }
+        user.setName(finalName);
+        user.setSurname(finalSurname);
+    }
+}
@@ -0,0 +1,47 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used for the per-user ID indexes so that
+ * they don't box every element.
+ */
+final class IntList {
+    private int[] values = new int[8];
+    private int size = 0;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Removes the first occurrence of a value, keeping the order of the others.
+     *
+     * @return true if the value was present.
+     */
+    boolean remove(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -1,17 +1,46 @@
 package it.polimi.tiw.projects.exceptions;
 
+import java.sql.SQLTimeoutException;
+
+/**
+ * Failure of a DAO call, with its {@link DAOErrorType}.
+ * <p>
+ * The {@link DAOErrorType#isExpected() expected} outcomes, such as a name
+ * already taken or a song already in a playlist, are thrown on ordinary user
+ * input and handled by the callers, so they don't capture a stack trace:
+ * filling it in is most of the cost of throwing. The other errors keep their
+ * full stack, and the causes of every exception keep theirs.
+ */
 public class DAOException extends Exception {
 
     private final DAOErrorType errorType;
 
     public DAOException(String message, DAOErrorType errorType) {
-        super(message);
+        super(message, null, true, !errorType.isExpected());
         this.errorType = errorType;
     }
 
+    /**
+     * A {@link DAOErrorType#GENERIC_ERROR} caused by a
+     * {@link SQLTimeoutException}, such as a statement cancelled at the
+     * deadline of its request, is reported as {@link DAOErrorType#TIMEOUT}.
+     */
     public DAOException(String message, Throwable cause, DAOErrorType errorType) {
-        super(message, cause);
-        this.errorType = errorType;
+        super(message, cause, true, !resolve(errorType, cause).isExpected());
+        this.errorType = resolve(errorType, cause);
+    }
+
+    private static DAOErrorType resolve(DAOErrorType errorType, Throwable cause) {
+        return errorType == DAOErrorType.GENERIC_ERROR && isTimeout(cause) ? DAOErrorType.TIMEOUT : errorType;
+    }
+
+    private static boolean isTimeout(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public DAOErrorType getErrorType() {
@@ -25,6 +54,20 @@ public class DAOException extends Exception {
         DUPLICATE_ENTRY, // e.g., Adding a song already in a playlist
         ACCESS_DENIED, // e.g., Operation on resource not owned by user
         CONSTRAINT_VIOLATION, // e.g., Other integrity constraint issues
-        GENERIC_ERROR // For other potential DAO errors
+        UNAVAILABLE, // e.g., Password hashing queue full, retry later
+        TIMEOUT, // e.g., Statement cancelled at the deadline of the request
+        GENERIC_ERROR; // For other potential DAO errors
+
+        /**
+         * @return true for the outcomes caused by the request rather than by a
+         *         fault, which are thrown without a stack trace.
+         */
+        public boolean isExpected() {
+            return switch (this) {
+                case NAME_ALREADY_EXISTS, INVALID_CREDENTIALS, NOT_FOUND, DUPLICATE_ENTRY, ACCESS_DENIED,
+                     UNAVAILABLE -> true;
+                case CONSTRAINT_VIOLATION, TIMEOUT, GENERIC_ERROR -> false;
+            };
+        }
     }
 }
@@ -0,0 +1,18 @@
+package it.polimi.tiw.projects.exceptions;
+
+/**
+ * Wraps a {@link DAOException} raised while consuming a stream of rows, where
+ * checked exceptions can't be thrown.
+ */
+public class UncheckedDAOException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedDAOException(DAOException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized DAOException getCause() {
+        return (DAOException) super.getCause();
+    }
+}
@@ -0,0 +1,92 @@
+package it.polimi.tiw.projects.filters;
+
+/**
+ * Concurrency limit of one endpoint, adapted to its latency by additive
+ * increase and multiplicative decrease.
+ * <p>
+ * Two moving averages of the latency are kept: a short one, following the
+ * last few dozen requests, and a long one, following the last thousands.
+ * While the short one stays within {@code tolerance} times the long one and
+ * at least half of the limit is in use, the limit grows by about one for each
+ * limit-many completed requests. When the short one goes past it, requests are
+ * queueing somewhere (threads, connection pools, the database) and the limit
+ * shrinks by a tenth, at most once per limit-many requests so that a single
+ * stall doesn't collapse it. The limit stays between {@code minLimit} and
+ * {@code maxLimit}.
+ */
+final class AdaptiveLimit {
+    static final double BACKOFF = 0.9;
+    private static final double SHORT_WEIGHT = 1.0 / 20;
+    private static final double LONG_WEIGHT = 1.0 / 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private double limit;
+    private int inFlight = 0;
+    private double shortLatency = -1;
+    private double longLatency = -1;
+    private int sinceDecrease = 0;
+
+    /**
+     * @throws IllegalArgumentException if the limits are not positive and
+     *                                  ordered, or the tolerance is not above 1.
+     */
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (!(tolerance > 1)) {
+            throw new IllegalArgumentException("tolerance must be above 1, was " + tolerance);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return true if the request can proceed, in which case {@link #release}
+     *         must be called once it is done.
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Ends an admitted request and adapts the limit to its latency.
+     */
+    synchronized void release(long latencyNanos) {
+        boolean used = inFlight * 2 >= limit;
+        inFlight--;
+        if (longLatency < 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+        shortLatency += (latencyNanos - shortLatency) * SHORT_WEIGHT;
+        longLatency += (latencyNanos - longLatency) * LONG_WEIGHT;
+        sinceDecrease++;
+        if (shortLatency > tolerance * longLatency) {
+            if (sinceDecrease >= limit) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                sinceDecrease = 0;
+            }
+        } else if (used) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    synchronized double getLimit() {
+        return limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
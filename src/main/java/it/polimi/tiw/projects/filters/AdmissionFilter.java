@@ -0,0 +1,135 @@
+package it.polimi.tiw.projects.filters;
+
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.utils.ContextParameters;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sheds load before it queues: every endpoint gets an {@link AdaptiveLimit} on
+ * the requests it serves at the same time, and the requests beyond it are
+ * answered right away with a 503 and {@code Retry-After}, instead of waiting
+ * for a thread and then for a connection until the pool times out. The limits
+ * follow the latency of the admitted requests, so these keep a flat latency
+ * under overload.
+ * <p>
+ * A request stops counting as soon as it starts writing a binary body, so the
+ * audio and image streams, whose length depends on the client, only hold a
+ * slot while they are authorized. Their latency is measured up to that point.
+ * <p>
+ * Mapped after the {@link MetricsFilter}, so the rejections are visible in the
+ * request metrics, and before the login check, so they cost nothing else.
+ */
+public class AdmissionFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private final Map<String, AdaptiveLimit> limits = new ConcurrentHashMap<>();
+    private int initialLimit;
+    private int minLimit;
+    private int maxLimit;
+    private double tolerance;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        ServletContext context = filterConfig.getServletContext();
+        minLimit = ContextParameters.readInt(context, "admission.minLimit", "Smallest concurrency limit", 2, 1);
+        maxLimit = ContextParameters.readInt(context, "admission.maxLimit", "Largest concurrency limit", 200,
+                minLimit);
+        initialLimit = Math.min(Math.max(ContextParameters.readInt(context, "admission.initialLimit",
+                "Initial concurrency limit", 20, 1), minLimit), maxLimit);
+        tolerance = ContextParameters.readInt(context, "admission.tolerancePercent", "Latency tolerance", 200, 101)
+                / 100.0;
+        logger.info("Admission control: limits from {} to {}, starting at {}, latency tolerance {}", minLimit,
+                maxLimit, initialLimit, tolerance);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        HttpServletResponse resp = (HttpServletResponse) servletResponse;
+
+        // The servlet name rather than the path keeps the number of limits bounded
+        HttpServletMapping mapping = req.getHttpServletMapping();
+        String endpoint = mapping != null && mapping.getServletName() != null ? mapping.getServletName() : "none";
+        AdaptiveLimit limit = limits.computeIfAbsent(endpoint, this::createLimit);
+        if (!limit.tryAcquire()) {
+            registry.counter("spolify_admission_rejected_total", "Requests rejected by the admission control",
+                    "endpoint", endpoint).increment();
+            resp.setHeader("Retry-After", "1");
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The server is busy, retry later");
+            return;
+        }
+
+        Permit permit = new Permit(limit);
+        try {
+            filterChain.doFilter(req, new AdmittedResponse(resp, permit));
+        } finally {
+            permit.release();
+        }
+    }
+
+    private AdaptiveLimit createLimit(String endpoint) {
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, tolerance);
+        registry.gauge("spolify_admission_limit", "Concurrency limit of the endpoints", limit::getLimit,
+                "endpoint", endpoint);
+        registry.gauge("spolify_admission_in_flight", "Admitted requests being served by the endpoints",
+                limit::getInFlight, "endpoint", endpoint);
+        return limit;
+    }
+
+    /**
+     * The slot of an admitted request, given back once.
+     */
+    private static final class Permit {
+        private final AdaptiveLimit limit;
+        private final long start = System.nanoTime();
+        private boolean released = false;
+
+        private Permit(AdaptiveLimit limit) {
+            this.limit = limit;
+        }
+
+        void release() {
+            if (!released) {
+                released = true;
+                limit.release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Gives the slot back when the servlet starts streaming a binary body.
+     */
+    private static final class AdmittedResponse extends HttpServletResponseWrapper {
+        private final Permit permit;
+
+        private AdmittedResponse(HttpServletResponse response, Permit permit) {
+            super(response);
+            this.permit = permit;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            permit.release();
+            return super.getOutputStream();
+        }
+    }
+}
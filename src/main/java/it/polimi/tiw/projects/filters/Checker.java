@@ -1,9 +1,10 @@
 package it.polimi.tiw.projects.filters;
 
+import it.polimi.tiw.projects.jfr.AuthenticationCheckEvent;
+import it.polimi.tiw.projects.utils.AuthHandler;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,15 +16,18 @@ public class Checker implements Filter {
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
             throws IOException, ServletException {
-        // If the user is not logged in (not present in session) redirect to the login
+        // If the user is not logged in (no user in the session or no valid token) redirect to the login
         HttpServletRequest req = (HttpServletRequest) servletRequest;
         HttpServletResponse resp = (HttpServletResponse) servletResponse;
 
-        HttpSession session = req.getSession();
-        logger.info("Session is new: {}", session.isNew());
+        AuthenticationCheckEvent event = new AuthenticationCheckEvent();
+        event.begin();
+        // Never creates a session, anonymous requests leave nothing behind
+        boolean authenticated = AuthHandler.authenticate(req, resp) != null;
+        event.finish(req.getRequestURI(), authenticated);
 
-        if (session.isNew() || session.getAttribute("user") == null) {
-            logger.info("User is not logged in");
+        if (!authenticated) {
+            logger.debug("User is not logged in, redirecting {} to the login", req.getRequestURI());
             String loginPath = req.getServletContext().getContextPath() + "/index.html";
             resp.sendRedirect(loginPath);
             return;
@@ -0,0 +1,68 @@
+package it.polimi.tiw.projects.filters;
+
+import it.polimi.tiw.projects.utils.ContextParameters;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives every request a deadline, counted from its arrival, after which its
+ * SQL statements are cancelled and its DAO calls fail with a
+ * {@link it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType#TIMEOUT},
+ * so that a slow query can't hold a request thread and a pooled connection
+ * indefinitely.
+ * <p>
+ * The deadline is {@code request.deadline.millis}, or
+ * {@code request.deadline.<servlet name>.millis} for the endpoints that need
+ * another one; 0 leaves the requests unbounded. Mapped after the
+ * {@link RequestTraceFilter}, whose trace carries the deadline.
+ */
+public class DeadlineFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineFilter.class);
+    private static final String PREFIX = "request.deadline.";
+    private static final String SUFFIX = ".millis";
+    private final Map<String, Duration> endpointDeadlines = new HashMap<>();
+    private Duration defaultDeadline;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        ServletContext context = filterConfig.getServletContext();
+        defaultDeadline = Duration.ofMillis(ContextParameters.readInt(context, PREFIX + "millis", "Request deadline",
+                5000, 0));
+        for (String name : Collections.list(context.getInitParameterNames())) {
+            if (name.startsWith(PREFIX) && name.endsWith(SUFFIX) && name.length() > PREFIX.length() + SUFFIX.length()) {
+                String endpoint = name.substring(PREFIX.length(), name.length() - SUFFIX.length());
+                endpointDeadlines.put(endpoint, Duration.ofMillis(ContextParameters.readInt(context, name,
+                        "Request deadline of " + endpoint, (int) defaultDeadline.toMillis(), 0)));
+            }
+        }
+        logger.info("Request deadline {} ms, overridden for {}", defaultDeadline.toMillis(), endpointDeadlines);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        HttpServletMapping mapping = ((HttpServletRequest) servletRequest).getHttpServletMapping();
+        Duration deadline = mapping != null && mapping.getServletName() != null
+                ? endpointDeadlines.getOrDefault(mapping.getServletName(), defaultDeadline) : defaultDeadline;
+        if (!deadline.isZero()) {
+            RequestTrace.setDeadline(deadline);
+        }
+        filterChain.doFilter(servletRequest, servletResponse);
+    }
+}
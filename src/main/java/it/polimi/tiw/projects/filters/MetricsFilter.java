@@ -0,0 +1,52 @@
+package it.polimi.tiw.projects.filters;
+
+import it.polimi.tiw.projects.jfr.HttpRequestEvent;
+import it.polimi.tiw.projects.metrics.Gauge;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Times every request, by servlet, HTTP method and status, and counts the
+ * requests being served. Mapped before the other filters, so the time spent
+ * in the authentication check is included. Each request is also recorded as
+ * an {@link HttpRequestEvent} for Flight Recorder.
+ */
+public class MetricsFilter implements Filter {
+    private final MetricsRegistry registry = MetricsRegistry.getInstance();
+    private final Gauge inFlight = registry.gauge("spolify_http_requests_in_flight",
+            "Requests currently being served");
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        HttpServletResponse resp = (HttpServletResponse) servletResponse;
+
+        HttpRequestEvent event = new HttpRequestEvent();
+        event.begin();
+        long start = System.nanoTime();
+        inFlight.increment();
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            inFlight.decrement();
+            long elapsed = System.nanoTime() - start;
+            // The servlet name rather than the path keeps the number of label values bounded
+            HttpServletMapping mapping = req.getHttpServletMapping();
+            String servlet = mapping != null && mapping.getServletName() != null ? mapping.getServletName() : "none";
+            registry.histogram("spolify_http_request_duration_seconds", "Duration of the HTTP requests", "servlet",
+                    servlet, "method", req.getMethod(), "status", Integer.toString(resp.getStatus()))
+                    .observeNanos(elapsed);
+            event.finish(servlet, req.getMethod(), req.getRequestURI(), resp.getStatus());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package it.polimi.tiw.projects.filters;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the monitoring endpoints private. The metrics and the SQL report tell
+ * a lot about the users and the database, so they are only served to the
+ * addresses in {@code metrics.allowedAddresses} (the loopback ones by
+ * default), or to requests carrying the bearer token in {@code metrics.token}
+ * when one is set. The others get a 403.
+ * <p>
+ * The address checked is the one of the TCP connection: behind a reverse
+ * proxy it is the proxy's, so the proxy itself must not forward the
+ * monitoring paths, or a token must be used.
+ */
+public class MonitoringAccessFilter implements Filter {
+    private static final Logger logger = LoggerFactory.getLogger(MonitoringAccessFilter.class);
+    private static final String DEFAULT_ALLOWED_ADDRESSES = "127.0.0.1, ::1";
+    private static final String BEARER = "Bearer ";
+    private final Set<InetAddress> allowedAddresses = new HashSet<>();
+    private byte[] token;
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        ServletContext context = filterConfig.getServletContext();
+        String addresses = context.getInitParameter("metrics.allowedAddresses");
+        if (addresses == null) {
+            addresses = DEFAULT_ALLOWED_ADDRESSES;
+        }
+        for (String address : addresses.split(",")) {
+            if (address.isBlank()) {
+                continue;
+            }
+            InetAddress parsed = parseAddress(address.strip());
+            if (parsed != null) {
+                allowedAddresses.add(parsed);
+            } else {
+                logger.error("Invalid address in metrics.allowedAddresses: '{}'. Ignoring it.", address.strip());
+            }
+        }
+        String configuredToken = context.getInitParameter("metrics.token");
+        if (configuredToken != null && !configuredToken.isBlank()) {
+            token = configuredToken.strip().getBytes(StandardCharsets.UTF_8);
+        }
+        logger.info("Monitoring endpoints served to {} {}", allowedAddresses,
+                token != null ? "and to requests with the token" : "only");
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        HttpServletResponse resp = (HttpServletResponse) servletResponse;
+
+        if (!isAllowed(req)) {
+            logger.warn("Monitoring endpoint {} refused to {}", req.getRequestURI(), req.getRemoteAddr());
+            resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        filterChain.doFilter(servletRequest, servletResponse);
+    }
+
+    private boolean isAllowed(HttpServletRequest req) {
+        String authorization = req.getHeader("Authorization");
+        if (token != null && authorization != null && authorization.startsWith(BEARER)) {
+            byte[] presented = authorization.substring(BEARER.length()).strip().getBytes(StandardCharsets.UTF_8);
+            if (MessageDigest.isEqual(token, presented)) {
+                return true;
+            }
+        }
+        InetAddress remote = parseAddress(req.getRemoteAddr());
+        return remote != null && allowedAddresses.contains(remote);
+    }
+
+    /**
+     * @return The address written as an IP literal, or null if it isn't one.
+     */
+    static InetAddress parseAddress(String address) {
+        // Host names are refused, so that no DNS lookup is made: only dotted
+        // IPv4 addresses and IPv6 ones, the only names with colons, are parsed
+        if (address == null || !(address.matches("\\d{1,3}(\\.\\d{1,3}){3}")
+                || (address.contains(":") && address.matches("[0-9A-Fa-f.:]+")))) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(address);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
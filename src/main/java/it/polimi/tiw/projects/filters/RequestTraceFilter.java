@@ -0,0 +1,183 @@
+package it.polimi.tiw.projects.filters;
+
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.utils.AuthHandler;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletMapping;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every request an ID, taken from the {@code X-Request-ID} header when
+ * the client or a proxy provides a valid one, and puts it in the SLF4J MDC so
+ * that every log line written while serving the request carries it. The ID is
+ * echoed in the response.
+ * <p>
+ * At the end of the request one summary line is logged with the endpoint, the
+ * user, the status, the DAO calls and SQL statements with their time, the
+ * template render time and the size of the body. The DAO calls and renders are
+ * logged as spans at debug level.
+ */
+public class RequestTraceFilter implements Filter {
+    public static final String HEADER = "X-Request-ID";
+    private static final Logger logger = LoggerFactory.getLogger(RequestTraceFilter.class);
+    // IDs coming from outside are only accepted if they can't break the log lines
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._:-]{1,64}");
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
+            throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        HttpServletResponse resp = (HttpServletResponse) servletResponse;
+
+        String requestId = req.getHeader(HEADER);
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = HEX.toHexDigits(ThreadLocalRandom.current().nextLong());
+        }
+        resp.setHeader(HEADER, requestId);
+
+        RequestTrace trace = RequestTrace.start(requestId);
+        CountingResponse countingResp = new CountingResponse(resp);
+        try {
+            filterChain.doFilter(req, countingResp);
+        } finally {
+            try {
+                logSummary(req, resp, trace, countingResp.getBytes());
+            } finally {
+                trace.end();
+            }
+        }
+    }
+
+    private static void logSummary(HttpServletRequest req, HttpServletResponse resp, RequestTrace trace,
+                                   long bytes) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
+        HttpServletMapping mapping = req.getHttpServletMapping();
+        String endpoint = mapping != null && mapping.getServletName() != null ? mapping.getServletName() : "none";
+        User user = AuthHandler.getUser(req);
+        logger.info("request method={} endpoint={} status={} user={} ms={} daoCalls={} daoMs={} queries={} dbMs={} "
+                        + "renderMs={} bytes={}", req.getMethod(), endpoint, resp.getStatus(),
+                user != null ? user.getIdUser() : "-", millis(trace.getElapsedNanos()), trace.getDAOCalls(),
+                millis(trace.getDAONanos()), trace.getQueries(), millis(trace.getDBNanos()),
+                millis(trace.getRenderNanos()), bytes);
+        if (logger.isDebugEnabled() && (trace.getDAOCalls() > 0 || trace.getRenders() > 0)) {
+            logger.debug("spans {}", trace.formatSpans());
+        }
+    }
+
+    private static String millis(long nanos) {
+        // One decimal without going through String.format
+        long tenths = (nanos + 50_000) / 100_000;
+        return tenths / 10 + "." + tenths % 10;
+    }
+
+    /**
+     * Counts the bytes written to the output stream, or the characters written
+     * to the writer, of a response.
+     */
+    private static final class CountingResponse extends HttpServletResponseWrapper {
+        private long bytes = 0;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream delegate = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public boolean isReady() {
+                        return delegate.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        delegate.setWriteListener(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        delegate.write(b);
+                        bytes++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        delegate.write(b, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        delegate.close();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                PrintWriter delegate = super.getWriter();
+                writer = new PrintWriter(new Writer() {
+                    @Override
+                    public void write(char[] cbuf, int off, int len) {
+                        delegate.write(cbuf, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void write(String str, int off, int len) {
+                        delegate.write(str, off, len);
+                        bytes += len;
+                    }
+
+                    @Override
+                    public void flush() {
+                        delegate.flush();
+                    }
+
+                    @Override
+                    public void close() {
+                        delegate.close();
+                    }
+                });
+            }
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.AuthenticationCheck")
+@Label("Authentication Check")
+@Description("The check of the session by the login filter, before the controller runs")
+@Category({"Spolify", "HTTP"})
+@Enabled(false)
+@StackTrace(false)
+public final class AuthenticationCheckEvent extends Event {
+    @Label("URI")
+    String uri;
+
+    @Label("Authenticated")
+    boolean authenticated;
+
+    public void finish(String uri, boolean authenticated) {
+        this.uri = uri;
+        this.authenticated = authenticated;
+        commit();
+    }
+}
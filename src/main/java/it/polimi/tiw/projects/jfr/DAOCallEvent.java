@@ -0,0 +1,34 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.DAOCall")
+@Label("DAO Call")
+@Description("A call to a method of a DAO, the SQL statements it runs are nested in it")
+@Category({"Spolify", "Database"})
+@Enabled(false)
+@StackTrace(false)
+public final class DAOCallEvent extends Event {
+    @Label("DAO")
+    String dao;
+
+    @Label("Method")
+    String method;
+
+    @Label("Error")
+    @Description("The error type of the DAOException or the class of the exception thrown, if any")
+    String error;
+
+    public void finish(String dao, String method, String error) {
+        this.dao = dao;
+        this.method = method;
+        this.error = error;
+        commit();
+    }
+}
@@ -0,0 +1,41 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.FileIO")
+@Label("Media File I/O")
+@Description("The upload or the opening of an audio or image file by AudioDAO and ImageDAO")
+@Category({"Spolify", "Storage"})
+@Enabled(false)
+@StackTrace(false)
+public final class FileIOEvent extends Event {
+    @Label("Media")
+    @Description("audio or image")
+    String media;
+
+    @Label("Operation")
+    @Description("save or get")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    public void finish(String media, String operation, String file, long bytes) {
+        this.media = media;
+        this.operation = operation;
+        this.file = file;
+        this.bytes = bytes;
+        commit();
+    }
+}
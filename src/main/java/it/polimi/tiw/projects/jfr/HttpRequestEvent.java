@@ -0,0 +1,37 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.HttpRequest")
+@Label("HTTP Request")
+@Description("A request handled by a servlet, including its filters")
+@Category({"Spolify", "HTTP"})
+@Enabled(false)
+@StackTrace(false)
+public final class HttpRequestEvent extends Event {
+    @Label("Servlet")
+    String servlet;
+
+    @Label("Method")
+    String method;
+
+    @Label("URI")
+    String uri;
+
+    @Label("Status")
+    int status;
+
+    public void finish(String servlet, String method, String uri, int status) {
+        this.servlet = servlet;
+        this.method = method;
+        this.uri = uri;
+        this.status = status;
+        commit();
+    }
+}
@@ -0,0 +1,34 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.SqlStatement")
+@Label("SQL Statement")
+@Description("The execution of a SQL statement by the driver. Rows are those written, or for queries those read "
+        + "before the result set was closed")
+@Category({"Spolify", "Database"})
+@Enabled(false)
+@StackTrace(false)
+public final class SqlStatementEvent extends Event {
+    @Label("Fingerprint")
+    String fingerprint;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+
+    public void finish(String fingerprint, long rows, boolean failed) {
+        this.fingerprint = fingerprint;
+        this.rows = rows;
+        this.failed = failed;
+        commit();
+    }
+}
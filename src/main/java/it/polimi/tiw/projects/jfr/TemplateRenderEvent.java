@@ -0,0 +1,25 @@
+package it.polimi.tiw.projects.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("spolify.TemplateRender")
+@Label("Template Render")
+@Description("The rendering of a Thymeleaf template into the response")
+@Category({"Spolify", "HTTP"})
+@Enabled(false)
+@StackTrace(false)
+public final class TemplateRenderEvent extends Event {
+    @Label("Template")
+    String template;
+
+    public void finish(String template) {
+        this.template = template;
+        commit();
+    }
+}
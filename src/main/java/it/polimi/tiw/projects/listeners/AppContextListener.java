@@ -3,8 +3,31 @@ package it.polimi.tiw.projects.listeners;
 import com.mysql.cj.jdbc.AbandonedConnectionCleanupThread;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import it.polimi.tiw.projects.cache.AlbumCache;
+import it.polimi.tiw.projects.cache.LibraryCache;
+import it.polimi.tiw.projects.cache.LibraryInvalidatingDAOFactory;
+import it.polimi.tiw.projects.dao.AsyncDAO;
 import it.polimi.tiw.projects.dao.AudioDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.DeadlineDataSource;
 import it.polimi.tiw.projects.dao.ImageDAO;
+import it.polimi.tiw.projects.dao.JdbcDAOFactory;
+import it.polimi.tiw.projects.dao.JdbcRows;
+import it.polimi.tiw.projects.dao.PasswordHasher;
+import it.polimi.tiw.projects.dao.ReplicaRouter;
+import it.polimi.tiw.projects.dao.RoutingDAOFactory;
+import it.polimi.tiw.projects.dao.Transactions;
+import it.polimi.tiw.projects.dao.memory.InMemoryDAOFactory;
+import it.polimi.tiw.projects.metrics.HikariMetricsTrackerFactory;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.metrics.ProfilingDataSource;
+import it.polimi.tiw.projects.metrics.StatementProfiler;
+import it.polimi.tiw.projects.metrics.TimedDAOFactory;
+import it.polimi.tiw.projects.utils.AuthHandler;
+import it.polimi.tiw.projects.utils.AuthToken;
+import it.polimi.tiw.projects.utils.ContextParameters;
+import it.polimi.tiw.projects.utils.Workload;
+import it.polimi.tiw.projects.utils.WarmUp;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.ServletContextListener;
@@ -12,12 +35,19 @@ import jakarta.servlet.annotation.WebListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.SecureRandom;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -31,13 +61,93 @@ public class AppContextListener implements ServletContextListener {
     public static final String PASSWORD_MIN_LENGTH = "PASSWORD_MIN_LENGTH";
     public static final String PASSWORD_MAX_LENGTH = "PASSWORD_MAX_LENGTH";
     private static final Logger logger = LoggerFactory.getLogger(AppContextListener.class);
-    private HikariDataSource dataSource;
+    private static final int AUTH_SECRET_MIN_LENGTH = 32;
+    private static final long WARM_UP_JOIN_MILLIS = 5000;
+    private final Map<Workload, HikariDataSource> pools = new EnumMap<>(Workload.class);
+    // The pools as seen by the DAOs, profiled when the statement profiler is enabled
+    private final Map<Workload, DataSource> connectionSources = new EnumMap<>(Workload.class);
+    private HikariDataSource replicaDataSource;
+    private ReplicaRouter replicaRouter;
+    private StatementProfiler statementProfiler;
+    private int profilerTopN;
+    private AsyncDAO asyncDAO;
+    private DAOFactory daoFactory;
+    private DAOFactory asyncDAOFactory;
+    private Thread warmUpThread;
 
     @Override
     public void contextInitialized(ServletContextEvent sce) {
         ServletContext context = sce.getServletContext();
 
-        // Configure HikariCP
+        // Select the DAO implementation, the in-memory one needs no database, route
+        // its reads to the replica if there is one, time every DAO call for the
+        // metrics endpoint, and drop the cached library of the users who write
+        DAOFactory implementation = createDAOFactory(context);
+        DAOFactory routed = implementation;
+        if (implementation.requiresConnection()) {
+            initializeDataSource(context);
+            if (replicaRouter != null) {
+                routed = new RoutingDAOFactory(implementation, replicaRouter);
+            }
+        }
+        DAOFactory timed = new TimedDAOFactory(routed, MetricsRegistry.getInstance());
+        daoFactory = new LibraryInvalidatingDAOFactory(timed, LibraryCache::getInstance);
+        // The asynchronous reads borrow their replica connections themselves
+        asyncDAOFactory = routed == implementation ? timed
+                : new TimedDAOFactory(implementation, MetricsRegistry.getInstance());
+        context.setAttribute(DAOFactory.ATTRIBUTE, daoFactory);
+
+        // Create singleton ImageDAO and AudioDAO
+        String homeDirectory = System.getProperty("user.home"); // Get user's home directory
+        if (homeDirectory == null) {
+            logger.error("!!! FAILED TO GET USER HOME DIRECTORY (user.home property) !!!");
+            throw new RuntimeException("Could not determine user home directory for storage setup.");
+        }
+        Path storageBasePath = Paths.get(homeDirectory, "Spolify");
+        logger.info("Base storage path for DAOs set to: {}", storageBasePath);
+
+        try {
+            ImageDAO imageDAO = new ImageDAO(storageBasePath);
+            AudioDAO audioDAO = new AudioDAO(storageBasePath);
+
+            context.setAttribute("imageDAO", imageDAO);
+            context.setAttribute("audioDAO", audioDAO);
+
+            logger.info("ImageDAO and AudioDAO singletons created and added to ServletContext.");
+        } catch (RuntimeException e) {
+            logger.error("!!! FAILED TO INITIALIZE ImageDAO or AudioDAO !!!", e);
+            throw new RuntimeException("Failed to initialize file storage DAOs", e);
+        }
+
+        // Load and compile validation patterns
+        loadAndStoreValidationPatterns(context);
+
+        // Keep the logged-in users in sessions or in signed cookies, and hash their passwords
+        configureAuthentication(context);
+        configurePasswordHashing(context);
+
+        // Configure the per-user library cache and the album cache
+        configureCaches(context);
+
+        // Warm the application up in the background, the readiness endpoint reports when it's done
+        startWarmUp(context);
+
+    }
+
+    private DAOFactory createDAOFactory(ServletContext context) {
+        String implementation = context.getInitParameter("dao.implementation");
+        if (implementation != null && implementation.strip().equalsIgnoreCase("memory")) {
+            logger.warn("Using in-memory DAOs (dao.implementation=memory): data is lost when the application stops");
+            return new InMemoryDAOFactory();
+        }
+        if (implementation != null && !implementation.isBlank() && !implementation.strip().equalsIgnoreCase("jdbc")) {
+            logger.error("Unknown DAO implementation (dao.implementation): '{}'. Using jdbc.", implementation);
+        }
+        return new JdbcDAOFactory();
+    }
+
+    private void initializeDataSource(ServletContext context) {
+        // Configure HikariCP, with the settings shared by all the pools
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(context.getInitParameter("dbUrl"));
         config.setUsername(context.getInitParameter("dbUser"));
@@ -54,46 +164,234 @@ public class AppContextListener implements ServletContextListener {
         config.addDataSourceProperty("cacheServerConfiguration", "true");
         config.addDataSourceProperty("elideSetAutoCommits", "true");
         config.addDataSourceProperty("maintainTimeStats", "false");
+        // Full scans are streamed, a positive fetch size reads them through server-side cursors
+        int fetchSize = ContextParameters.readInt(context, "db.fetchSize",
+                "Rows fetched at a time by streamed queries", 0, 0);
+        if (fetchSize > 0) {
+            config.addDataSourceProperty("useCursorFetch", "true");
+        }
+        JdbcRows.configure(fetchSize);
+        // Transactions ended by a deadlock or a lock wait timeout are run again
+        int retryAttempts = ContextParameters.readInt(context, "db.retry.maxAttempts", "Attempts of a transaction",
+                3, 1);
+        int retryBaseMillis = ContextParameters.readInt(context, "db.retry.baseDelayMillis",
+                "Delay bound of the first retry", 10, 0);
+        int retryMaxMillis = ContextParameters.readInt(context, "db.retry.maxDelayMillis",
+                "Delay bound of the retries", 200, 0);
+        Transactions.configure(retryAttempts, Duration.ofMillis(retryBaseMillis), Duration.ofMillis(retryMaxMillis));
+        config.setMetricsTrackerFactory(new HikariMetricsTrackerFactory(MetricsRegistry.getInstance()));
 
-        // Create the DataSource
-        try {
-            // Create the DataSource
-            dataSource = new HikariDataSource(config);
-
-            // Store the DataSource in the ServletContext
-            context.setAttribute("dataSource", dataSource);
+        String profilerEnabled = context.getInitParameter("db.profiler.enabled");
+        if (profilerEnabled == null || Boolean.parseBoolean(profilerEnabled.strip())) {
+            int slowQueryMillis = ContextParameters.readInt(context, "db.profiler.slowQueryMillis",
+                    "Slow statement threshold", 200, 0);
+            profilerTopN = ContextParameters.readInt(context, "db.profiler.topN",
+                    "Statements in the profiler report", 20, 1);
+            statementProfiler = new StatementProfiler(slowQueryMillis);
+            context.setAttribute(StatementProfiler.ATTRIBUTE, statementProfiler);
+            logger.info("Statement profiler enabled, logging statements slower than {} ms", slowQueryMillis);
+        }
 
-            logger.info("HikariCP DataSource initialized and added to ServletContext.");
+        // Create one pool per workload, so that a burst of one can't starve the others
+        try {
+            for (Workload workload : Workload.values()) {
+                HikariDataSource pool = createPool(context, config, workload);
+                pools.put(workload, pool);
+                DataSource connectionSource = new DeadlineDataSource(statementProfiler != null
+                        ? new ProfilingDataSource(pool, statementProfiler) : pool);
+                connectionSources.put(workload, connectionSource);
+                // Store the DataSource in the ServletContext
+                context.setAttribute(workload.attribute(), connectionSource);
+            }
+            logger.info("HikariCP DataSources initialized and added to ServletContext.");
         } catch (Exception e) {
             logger.error("!!! FAILED TO INITIALIZE HIKARI DATASOURCE !!!", e);
+            pools.values().forEach(HikariDataSource::close);
             throw new RuntimeException("Failed to initialize database connection pool", e);
         }
 
-        // Create singleton ImageDAO and AudioDAO
-        String homeDirectory = System.getProperty("user.home"); // Get user's home directory
-        if (homeDirectory == null) {
-            logger.error("!!! FAILED TO GET USER HOME DIRECTORY (user.home property) !!!");
-            throw new RuntimeException("Could not determine user home directory for storage setup.");
+        initializeReplica(context, config);
+    }
+
+    private HikariDataSource createPool(ServletContext context, HikariConfig sharedConfig, Workload workload) {
+        // Sizes and timeouts fit a small deployment: pages and media checks are
+        // short and fail fast, uploads and logins hold their connection longer
+        int defaultSize = switch (workload) {
+            case INTERACTIVE -> 10;
+            case MEDIA -> 4;
+            case WRITE, BACKGROUND -> 6;
+        };
+        int defaultTimeoutMillis = switch (workload) {
+            case INTERACTIVE -> 1000;
+            case MEDIA -> 500;
+            case WRITE -> 2000;
+            case BACKGROUND -> 5000;
+        };
+        String name = workload.poolName();
+        HikariConfig config = new HikariConfig();
+        sharedConfig.copyStateTo(config);
+        config.setPoolName(name);
+        int maximumPoolSize = ContextParameters.readInt(context, "db.pool." + name + ".maximumSize",
+                "Size of the " + name + " connection pool", defaultSize, 1);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(maximumPoolSize);
+        // Hikari doesn't accept less than 250 ms
+        config.setConnectionTimeout(ContextParameters.readInt(context, "db.pool." + name + ".timeoutMillis",
+                "Connection timeout of the " + name + " pool", defaultTimeoutMillis, 250));
+        return new HikariDataSource(config);
+    }
+
+    private void initializeReplica(ServletContext context, HikariConfig sharedConfig) {
+        String url = context.getInitParameter("db.replica.url");
+        if (url == null || url.isBlank()) {
+            logger.info("No read replica configured (db.replica.url), all reads go to the primary");
+            return;
         }
-        Path storageBasePath = Paths.get(homeDirectory, "Spolify");
-        logger.info("Base storage path for DAOs set to: {}", storageBasePath);
+        // Same settings as the primary, with its own pool and credentials
+        HikariConfig config = new HikariConfig();
+        sharedConfig.copyStateTo(config);
+        config.setPoolName("replica");
+        config.setJdbcUrl(url.strip());
+        String user = context.getInitParameter("db.replica.user");
+        if (user != null && !user.isBlank()) {
+            config.setUsername(user.strip());
+            config.setPassword(context.getInitParameter("db.replica.password"));
+        }
+        config.setReadOnly(true);
+        int maximumPoolSize = ContextParameters.readInt(context, "db.replica.pool.maximumSize",
+                "Replica connection pool size", 10, 1);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(maximumPoolSize);
+        // A read that can't get a replica connection in time falls back to the primary
+        config.setConnectionTimeout(ContextParameters.readInt(context, "db.replica.pool.timeoutMillis",
+                "Connection timeout of the replica pool", 500, 250));
+        int stickySeconds = ContextParameters.readInt(context, "db.replica.stickySeconds",
+                "Seconds the reads of a user stay on the primary after a write", 5, 0);
 
         try {
-            ImageDAO imageDAO = new ImageDAO(storageBasePath);
-            AudioDAO audioDAO = new AudioDAO(storageBasePath);
+            replicaDataSource = new HikariDataSource(config);
+        } catch (Exception e) {
+            logger.error("!!! FAILED TO INITIALIZE THE REPLICA DATASOURCE !!!", e);
+            throw new RuntimeException("Failed to initialize replica connection pool", e);
+        }
+        DataSource replica = new DeadlineDataSource(statementProfiler != null
+                ? new ProfilingDataSource(replicaDataSource, statementProfiler) : replicaDataSource);
+        replicaRouter = new ReplicaRouter(replica, Duration.ofSeconds(stickySeconds));
+        logger.info("Read replica configured, reads stay on the primary for {} s after a write", stickySeconds);
+    }
 
-            context.setAttribute("imageDAO", imageDAO);
-            context.setAttribute("audioDAO", audioDAO);
+    private void startWarmUp(ServletContext context) {
+        String enabled = context.getInitParameter("warmup.enabled");
+        if (enabled != null && !Boolean.parseBoolean(enabled.strip())) {
+            logger.info("Warm-up disabled (warmup.enabled=false)");
+            context.setAttribute(WarmUp.ATTRIBUTE, WarmUp.skipped(context));
+            return;
+        }
 
-            logger.info("ImageDAO and AudioDAO singletons created and added to ServletContext.");
-        } catch (RuntimeException e) {
-            logger.error("!!! FAILED TO INITIALIZE ImageDAO or AudioDAO !!!", e);
-            throw new RuntimeException("Failed to initialize file storage DAOs", e);
+        UUID warmUpUserId = null;
+        String userIdStr = context.getInitParameter("warmup.userId");
+        if (userIdStr != null && !userIdStr.isBlank()) {
+            try {
+                warmUpUserId = UUID.fromString(userIdStr.strip());
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid warm-up user (warmup.userId): '{}'. DAO warm-up will be skipped.", userIdStr);
+            }
         }
+        int iterations = ContextParameters.readInt(context, "warmup.iterations", "Warm-up iterations", 200, 0);
 
-        // Load and compile validation patterns
-        loadAndStoreValidationPatterns(context);
+        WarmUp warmUp = new WarmUp(context, pools, daoFactory, warmUpUserId, iterations);
+        context.setAttribute(WarmUp.ATTRIBUTE, warmUp);
+        warmUpThread = new Thread(warmUp, "warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
 
+    private void stopWarmUp() {
+        if (warmUpThread == null) {
+            return;
+        }
+        warmUpThread.interrupt();
+        try {
+            warmUpThread.join(WARM_UP_JOIN_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (warmUpThread.isAlive()) {
+            logger.warn("Warm-up still running {} ms after being interrupted", WARM_UP_JOIN_MILLIS);
+        }
+        warmUpThread = null;
+    }
+
+    private void configureCaches(ServletContext context) {
+        int libraryMaxEntries = ContextParameters.readInt(context, "cache.library.maxEntries", "Library cache size",
+                LibraryCache.DEFAULT_MAX_ENTRIES, 0);
+        if (AuthHandler.isStateless(context) && libraryMaxEntries > 0) {
+            // The other nodes' writes can't invalidate the libraries cached here
+            logger.info("Library cache disabled in the token authentication mode, meant for several nodes");
+            libraryMaxEntries = 0;
+        }
+        int asyncThreads = ContextParameters.readInt(context, "dao.async.threads", "Asynchronous DAO threads", 4, 0);
+        int asyncQueueSize = ContextParameters.readInt(context, "dao.async.queueSize", "Asynchronous DAO queue size",
+                AsyncDAO.DEFAULT_QUEUE_SIZE, 1);
+        HikariDataSource backgroundPool = pools.get(Workload.BACKGROUND);
+        if (asyncThreads > 0 && backgroundPool != null) {
+            if (asyncThreads >= backgroundPool.getMaximumPoolSize()) {
+                logger.warn("The background pool has {} connections for {} asynchronous DAO threads and the warm-up",
+                        backgroundPool.getMaximumPoolSize(), asyncThreads);
+            }
+            asyncDAO = new AsyncDAO(connectionSources.get(Workload.BACKGROUND), asyncDAOFactory, replicaRouter,
+                    asyncThreads, asyncQueueSize);
+            context.setAttribute("asyncDAO", asyncDAO);
+        }
+        LibraryCache.configure(libraryMaxEntries, asyncDAO, daoFactory);
+
+        int albumMaxEntries = ContextParameters.readInt(context, "cache.album.maxEntries", "Album cache size",
+                AlbumCache.DEFAULT_MAX_ENTRIES, 1);
+        int albumTtlSeconds = ContextParameters.readInt(context, "cache.album.ttlSeconds",
+                "Album cache time to live", 0, 0);
+        AlbumCache.configure(albumMaxEntries, albumTtlSeconds);
+    }
+
+    private void configureAuthentication(ServletContext context) {
+        String mode = context.getInitParameter("auth.mode");
+        if (mode == null || mode.isBlank() || mode.strip().equalsIgnoreCase("session")) {
+            logger.info("Authentication mode: session");
+            return;
+        }
+        if (!mode.strip().equalsIgnoreCase("token")) {
+            logger.error("Unknown authentication mode (auth.mode): '{}'. Using session.", mode);
+            return;
+        }
+        String secret = context.getInitParameter("auth.token.secret");
+        byte[] key;
+        if (secret == null || secret.strip().length() < AUTH_SECRET_MIN_LENGTH) {
+            logger.warn("The token secret (auth.token.secret) is missing or shorter than {} characters. Using a "
+                    + "random key: tokens won't be accepted by other nodes nor survive a restart.",
+                    AUTH_SECRET_MIN_LENGTH);
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.strip().getBytes(StandardCharsets.UTF_8);
+        }
+        int ttlMinutes = ContextParameters.readInt(context, "auth.token.ttlMinutes", "Token time to live", 120, 1);
+        String secureCookie = context.getInitParameter("auth.cookie.secure");
+        boolean secure = secureCookie == null || secureCookie.isBlank() || !secureCookie.strip().equalsIgnoreCase("false");
+        context.setAttribute(AuthHandler.SECURE_COOKIE_ATTRIBUTE, secure);
+        context.setAttribute(AuthHandler.ATTRIBUTE, new AuthToken(key, Duration.ofMinutes(ttlMinutes)));
+        logger.info("Authentication mode: token, valid for {} minutes, {}", ttlMinutes,
+                secure ? "HTTPS only" : "also sent over plain HTTP");
+    }
+
+    private void configurePasswordHashing(ServletContext context) {
+        int memoryKiB = ContextParameters.readInt(context, "password.hash.memoryKiB", "Password hash memory",
+                PasswordHasher.DEFAULT_MEMORY_KIB, 8);
+        int iterations = ContextParameters.readInt(context, "password.hash.iterations", "Password hash iterations",
+                PasswordHasher.DEFAULT_ITERATIONS, 1);
+        int threads = ContextParameters.readInt(context, "password.hash.threads", "Password hashing threads", 0, 0);
+        int queueSize = ContextParameters.readInt(context, "password.hash.queueSize", "Password hashing queue size",
+                PasswordHasher.DEFAULT_QUEUE_SIZE, 0);
+        PasswordHasher.configure(memoryKiB, iterations, threads > 0 ? threads : PasswordHasher.defaultThreads(),
+                queueSize);
     }
 
     private void loadAndStoreValidationPatterns(ServletContext context) {
@@ -198,10 +496,32 @@ public class AppContextListener implements ServletContextListener {
 
     @Override
     public void contextDestroyed(ServletContextEvent sce) {
+        logger.info("Final library cache statistics: {}", LibraryCache.getInstance());
+        logger.info("Final album cache statistics: {}", AlbumCache.getInstance());
+        if (statementProfiler != null) {
+            logger.info("Top {} statements by total time:\n{}", profilerTopN,
+                    statementProfiler.report(profilerTopN, StatementProfiler.Order.TOTAL));
+        }
+
+        PasswordHasher.getInstance().shutdown();
+
+        // Stop the warm-up before the pools it uses are closed, and so that it
+        // does not keep the classloader of this webapp alive after an undeploy
+        stopWarmUp();
+
+        // Stop the asynchronous reads before their connections go away
+        if (asyncDAO != null) {
+            asyncDAO.shutdown();
+        }
+
         // Close the DataSource when the application shuts down
-        if (dataSource != null) {
-            dataSource.close();
-            logger.info("HikariCP DataSource closed.");
+        if (!pools.isEmpty()) {
+            pools.values().forEach(HikariDataSource::close);
+            logger.info("HikariCP DataSources closed.");
+        }
+        if (replicaDataSource != null) {
+            replicaDataSource.close();
+            logger.info("Replica DataSource closed.");
         }
 
         // * Tomcat gives a warning for memory leak for a thread created by jdbc to
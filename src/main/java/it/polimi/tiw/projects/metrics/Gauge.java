@@ -0,0 +1,25 @@
+package it.polimi.tiw.projects.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Value that goes up and down, such as the number of requests in flight.
+ */
+public final class Gauge {
+    private final LongAdder value = new LongAdder();
+
+    Gauge() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void decrement() {
+        value.decrement();
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
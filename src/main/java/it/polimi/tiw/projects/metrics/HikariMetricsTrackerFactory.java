@@ -0,0 +1,72 @@
+package it.polimi.tiw.projects.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the state of a HikariCP pool in the {@link MetricsRegistry}: the
+ * connections by state, the time spent waiting for a connection, holding it
+ * and creating it, and the number of acquisitions that timed out.
+ */
+public class HikariMetricsTrackerFactory implements MetricsTrackerFactory {
+    static final String CONNECTIONS = "spolify_pool_connections";
+
+    private final MetricsRegistry registry;
+
+    public HikariMetricsTrackerFactory(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        String help = "Connections of the pool by state, pending counts the threads waiting for one";
+        registry.gauge(CONNECTIONS, help, poolStats::getActiveConnections, "pool", poolName, "state", "active");
+        registry.gauge(CONNECTIONS, help, poolStats::getIdleConnections, "pool", poolName, "state", "idle");
+        registry.gauge(CONNECTIONS, help, poolStats::getPendingThreads, "pool", poolName, "state", "pending");
+        registry.gauge(CONNECTIONS, help, poolStats::getTotalConnections, "pool", poolName, "state", "total");
+        registry.gauge(CONNECTIONS, help, poolStats::getMaxConnections, "pool", poolName, "state", "max");
+        registry.gauge(CONNECTIONS, help, poolStats::getMinConnections, "pool", poolName, "state", "min");
+
+        Histogram acquire = registry.histogram("spolify_pool_acquire_seconds",
+                "Time spent waiting for a connection of the pool", "pool", poolName);
+        Histogram usage = registry.histogram("spolify_pool_usage_seconds",
+                "Time a connection was held before being returned to the pool", "pool", poolName);
+        Histogram creation = registry.histogram("spolify_pool_creation_seconds",
+                "Time spent opening a new connection of the pool", "pool", poolName);
+        Counter timeouts = registry.counter("spolify_pool_timeouts_total",
+                "Connection requests that timed out waiting for the pool", "pool", poolName);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.observeNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.observeNanos(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                creation.observeNanos(TimeUnit.MILLISECONDS.toNanos(connectionCreatedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+
+            @Override
+            public void close() {
+                // The pool is shut down: its state is no longer meaningful
+                for (String state : new String[]{"active", "idle", "pending", "total", "max", "min"}) {
+                    registry.remove(CONNECTIONS, "pool", poolName, "state", state);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package it.polimi.tiw.projects.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Distribution of durations over fixed buckets, exposed in seconds.
+ * <p>
+ * Recording is a linear scan over a few bucket bounds and two
+ * {@link LongAdder} updates: no locks and no allocation. The count is derived
+ * from the buckets, so a scrape concurrent with recording may see a sum and a
+ * count that are one observation apart, which Prometheus tolerates.
+ */
+public final class Histogram {
+    /**
+     * Upper bounds of the buckets in seconds, from half a millisecond for cache
+     * hits to ten seconds for uploads.
+     */
+    static final double[] BUCKETS_SECONDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1,
+            2.5, 5, 10};
+
+    private final double[] boundsSeconds;
+    private final long[] boundsNanos;
+    // One more than the bounds, the last one is +Inf
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        this(BUCKETS_SECONDS);
+    }
+
+    /**
+     * @param boundsSeconds The upper bounds of the buckets in seconds, in
+     *                      ascending order.
+     */
+    Histogram(double[] boundsSeconds) {
+        this.boundsSeconds = boundsSeconds.clone();
+        boundsNanos = new long[boundsSeconds.length];
+        for (int i = 0; i < boundsSeconds.length; i++) {
+            boundsNanos[i] = Math.round(boundsSeconds[i] * 1_000_000_000L);
+        }
+        buckets = new LongAdder[boundsSeconds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a duration, typically the difference of two
+     * {@link System#nanoTime()} readings.
+     */
+    public void observeNanos(long nanos) {
+        int bucket = 0;
+        while (bucket < boundsNanos.length && nanos > boundsNanos[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return The number of observations in each bucket, not cumulative, the
+     *         last element counting those above every bound.
+     */
+    long[] bucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    double[] boundsSeconds() {
+        return boundsSeconds;
+    }
+
+    /**
+     * Estimates a quantile by linear interpolation inside the bucket that
+     * contains it, so the error is bounded by the width of that bucket.
+     *
+     * @param quantile      The quantile, between 0 and 1.
+     * @param overflowNanos  The value to report when the quantile falls above
+     *                       the last bound, such as the largest observation.
+     * @return The estimated value in nanoseconds, or 0 if nothing was recorded.
+     */
+    long quantileNanos(double quantile, long overflowNanos) {
+        long[] counts = bucketCounts();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < boundsNanos.length; i++) {
+            if (cumulative + counts[i] >= rank) {
+                long lower = i == 0 ? 0 : boundsNanos[i - 1];
+                return lower + (boundsNanos[i] - lower) * (rank - cumulative) / counts[i];
+            }
+            cumulative += counts[i];
+        }
+        return Math.max(overflowNanos, boundsNanos[boundsNanos.length - 1]);
+    }
+
+    double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,191 @@
+package it.polimi.tiw.projects.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of the application metrics, exposed by the
+ * {@code /metrics} endpoint in the Prometheus text format.
+ * <p>
+ * A metric is identified by its name and its labels, given as alternating
+ * name and value strings. Asking twice for the same metric returns the same
+ * instance, so callers can either keep the instance in a field or look it up
+ * on each use when its labels depend on the request. Families and label sets
+ * are kept sorted so that consecutive scrapes list them in the same order.
+ */
+public final class MetricsRegistry {
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private record Family(String name, String help, Type type, ConcurrentMap<String, Object> children) {
+    }
+
+    MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) child(name, help, Type.COUNTER, labels, Counter::new);
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) child(name, help, Type.GAUGE, labels, Gauge::new);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) child(name, help, Type.HISTOGRAM, labels, Histogram::new);
+    }
+
+    /**
+     * Registers a gauge whose value is read from the supplier at every scrape,
+     * replacing a previous supplier with the same name and labels.
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, Type.GAUGE).children().put(labelsText(labels), supplier);
+    }
+
+    /**
+     * Removes every metric with the given name and labels, such as the gauges of
+     * a connection pool that has been closed.
+     */
+    public void remove(String name, String... labels) {
+        Family family = families.get(name);
+        if (family != null) {
+            family.children().remove(labelsText(labels));
+        }
+    }
+
+    private Object child(String name, String help, Type type, String[] labels, Supplier<Object> factory) {
+        ConcurrentMap<String, Object> children = family(name, help, type).children();
+        String key = labelsText(labels);
+        Object child = children.get(key);
+        return child != null ? child : children.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name,
+                    n -> new Family(n, help, type, new ConcurrentSkipListMap<>()));
+        }
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a "
+                    + family.type().name().toLowerCase());
+        }
+        return family;
+    }
+
+    /**
+     * @return The labels in the exposition syntax, such as
+     *         {@code method="GET",status="200"}, or an empty string.
+     */
+    private static String labelsText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            escape(labels[i + 1], text);
+            text.append('"');
+        }
+        return text.toString();
+    }
+
+    private static void escape(String value, StringBuilder text) {
+        if (value == null) {
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> text.append("\\\\");
+                case '"' -> text.append("\\\"");
+                case '\n' -> text.append("\\n");
+                default -> text.append(c);
+            }
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format, version
+     * 0.0.4.
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        for (Family family : families.values()) {
+            if (family.children().isEmpty()) {
+                continue;
+            }
+            writer.write("# HELP " + family.name() + " " + family.help().replace("\\", "\\\\").replace("\n", "\\n")
+                    + "\n");
+            writer.write("# TYPE " + family.name() + " " + family.type().name().toLowerCase() + "\n");
+            for (Map.Entry<String, Object> entry : family.children().entrySet()) {
+                writeChild(writer, family.name(), entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void writeChild(Writer writer, String name, String labels, Object child) throws IOException {
+        switch (child) {
+            case Counter counter -> writeSample(writer, name, labels, Long.toString(counter.get()));
+            case Gauge gauge -> writeSample(writer, name, labels, Long.toString(gauge.get()));
+            case DoubleSupplier supplier -> writeSample(writer, name, labels, formatDouble(supplier.getAsDouble()));
+            case Histogram histogram -> {
+                long[] counts = histogram.bucketCounts();
+                String prefix = labels.isEmpty() ? "" : labels + ",";
+                long cumulative = 0;
+                double[] bounds = histogram.boundsSeconds();
+                for (int i = 0; i < counts.length; i++) {
+                    cumulative += counts[i];
+                    String bound = i < bounds.length
+                            ? BigDecimal.valueOf(bounds[i]).stripTrailingZeros().toPlainString()
+                            : "+Inf";
+                    writeSample(writer, name + "_bucket", prefix + "le=\"" + bound + "\"", Long.toString(cumulative));
+                }
+                writeSample(writer, name + "_sum", labels, formatDouble(histogram.sumSeconds()));
+                writeSample(writer, name + "_count", labels, Long.toString(cumulative));
+            }
+            default -> throw new IllegalStateException("Unexpected metric " + child.getClass());
+        }
+    }
+
+    private static void writeSample(Writer writer, String name, String labels, String value) throws IOException {
+        writer.write(name);
+        if (!labels.isEmpty()) {
+            writer.write('{');
+            writer.write(labels);
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
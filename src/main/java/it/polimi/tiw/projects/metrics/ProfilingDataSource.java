@@ -0,0 +1,258 @@
+package it.polimi.tiw.projects.metrics;
+
+import it.polimi.tiw.projects.jfr.SqlStatementEvent;
+import it.polimi.tiw.projects.metrics.StatementProfiler.StatementStats;
+import it.polimi.tiw.projects.utils.RequestTrace;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * DataSource that reports every statement executed on its connections to a
+ * {@link StatementProfiler}.
+ * <p>
+ * Connections, statements and result sets are wrapped in dynamic proxies of
+ * their JDBC interface. A statement remembers its SQL and bind parameters,
+ * times each execution and records the rows written; result sets count the
+ * rows read as they are iterated. Everything else is passed through
+ * unchanged, so the DAOs are unaware of the profiler.
+ * <p>
+ * Each execution is also recorded as a {@link SqlStatementEvent} for Flight
+ * Recorder. The event of a query lasts as long as the execution but is only
+ * committed when its result set or statement is closed, once the rows read are
+ * known. The time of the execution is added to the {@link RequestTrace} of the
+ * current request.
+ */
+public class ProfilingDataSource implements DataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final DataSource delegate;
+    private final StatementProfiler profiler;
+
+    public ProfilingDataSource(DataSource delegate, StatementProfiler profiler) {
+        this.delegate = delegate;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(delegate.getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingDataSource.invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                // prepareStatement and prepareCall take the SQL first, createStatement gets it on execution
+                String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()},
+                        new StatementHandler(statement, sql, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Connection connection;
+        private final List<Object> parameters;
+        private String batchSql;
+        private StatementStats lastStats;
+        // Event of the last query, waiting for its rows to be read
+        private SqlStatementEvent pendingEvent;
+        private long pendingRows;
+
+        StatementHandler(Statement statement, String sql, Connection connection) {
+            this.statement = statement;
+            this.sql = sql;
+            this.connection = connection;
+            this.parameters = statement instanceof PreparedStatement ? new ArrayList<>() : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (EXECUTE_METHODS.contains(name)) {
+                return execute(method, args);
+            }
+            if (parameters != null && name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer index) {
+                setParameter(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters") && parameters != null) {
+                parameters.clear();
+            } else if (name.equals("addBatch") && args != null && args.length == 1) {
+                batchSql = (String) args[0];
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("close")) {
+                finishPendingEvent();
+            }
+            Object result = ProfilingDataSource.invoke(statement, method, args);
+            if (name.equals("getResultSet") && result != null && lastStats != null) {
+                return wrapResultSet((ResultSet) result, lastStats);
+            }
+            return result;
+        }
+
+        private void setParameter(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String executed = args != null && args.length > 0 && args[0] instanceof String s ? s
+                    : sql != null ? sql : batchSql;
+            finishPendingEvent();
+            SqlStatementEvent event = new SqlStatementEvent();
+            event.begin();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = ProfilingDataSource.invoke(statement, method, args);
+            } catch (Throwable t) {
+                long elapsed = System.nanoTime() - start;
+                RequestTrace.recordQuery(elapsed);
+                lastStats = profiler.record(executed, elapsed, 0, true, parameters);
+                event.finish(lastStats.fingerprint(), 0, true);
+                throw t;
+            }
+            long elapsed = System.nanoTime() - start;
+            event.end();
+            RequestTrace.recordQuery(elapsed);
+            long rows = updatedRows(result);
+            lastStats = profiler.record(executed, elapsed, rows, false, parameters);
+            if (result instanceof ResultSet resultSet) {
+                pendingEvent = event;
+                pendingRows = 0;
+                return wrapResultSet(resultSet, lastStats);
+            }
+            event.finish(lastStats.fingerprint(), rows, false);
+            return result;
+        }
+
+        private void finishPendingEvent() {
+            if (pendingEvent != null) {
+                pendingEvent.finish(lastStats.fingerprint(), pendingRows, false);
+                pendingEvent = null;
+            }
+        }
+
+        private static long updatedRows(Object result) {
+            return switch (result) {
+                case Integer count -> count;
+                case Long count -> count;
+                case int[] counts -> {
+                    long total = 0;
+                    for (int count : counts) {
+                        // Drivers may report SUCCESS_NO_INFO (-2) for batched rows
+                        total += Math.max(count, 0);
+                    }
+                    yield total;
+                }
+                case long[] counts -> {
+                    long total = 0;
+                    for (long count : counts) {
+                        total += Math.max(count, 0);
+                    }
+                    yield total;
+                }
+                case null, default -> 0;
+            };
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, StatementStats stats) {
+            return proxy(ResultSet.class, (proxy, method, args) -> {
+                Object result = ProfilingDataSource.invoke(resultSet, method, args);
+                if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                    stats.addRows(1);
+                    pendingRows++;
+                } else if (method.getName().equals("close")) {
+                    finishPendingEvent();
+                }
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package it.polimi.tiw.projects.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects execution statistics of the SQL statements run through a
+ * {@link ProfilingDataSource}.
+ * <p>
+ * Statements are grouped by fingerprint: the SQL with its literals replaced by
+ * {@code ?}, whitespace collapsed, the dynamic {@code IN (?, ?, ?)} lists of
+ * the DAOs reduced to {@code IN (?, ...)} and repeated {@code VALUES} rows to
+ * the first one, so that every size of the same query counts as one. For each fingerprint the
+ * profiler keeps the executions, failures, rows read or written and a latency
+ * histogram, all lock-free. Executions slower than a threshold are logged with
+ * a summary of their bind parameters, which never includes the text of a
+ * string: the same statements bind passwords.
+ */
+public class StatementProfiler {
+    public static final String ATTRIBUTE = "statementProfiler";
+    private static final Logger logger = LoggerFactory.getLogger(StatementProfiler.class);
+
+    /**
+     * Bounds of the latency buckets, finer than the HTTP ones because most
+     * statements complete in well under a millisecond.
+     */
+    static final double[] BUCKETS_SECONDS = {0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025,
+            0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    // Fingerprints of the SQL strings seen so far, bounded in case the SQL is built with literals
+    private static final int MAX_CACHED_FINGERPRINTS = 1024;
+    private static final int MAX_LOGGED_PARAMETERS = 10;
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\([^()]*\\))(\\s*,\\s*\\1)+");
+
+    /**
+     * Orders of the report.
+     */
+    public enum Order {
+        TOTAL(Comparator.comparingLong(StatementStats::totalNanos)),
+        COUNT(Comparator.comparingLong(StatementStats::count)),
+        P99(Comparator.comparingLong(StatementStats::p99Nanos)),
+        ROWS(Comparator.comparingLong(StatementStats::rows));
+
+        private final Comparator<StatementStats> comparator;
+
+        Order(Comparator<StatementStats> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    private final long slowThresholdNanos;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * @param slowThresholdMillis Executions taking at least this long are logged,
+     *                            0 logs every execution.
+     */
+    public StatementProfiler(long slowThresholdMillis) {
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * Records an execution of a statement.
+     *
+     * @param sql        The SQL as given to the driver.
+     * @param nanos      The time the driver took to execute it.
+     * @param rows       The rows written, or 0 for queries whose rows are counted
+     *                   separately through {@link StatementStats#addRows(long)}.
+     * @param failed     Whether the execution threw an exception.
+     * @param parameters The bind parameters, for the slow statement log, or null.
+     * @return The statistics of the statement.
+     */
+    StatementStats record(String sql, long nanos, long rows, boolean failed, List<Object> parameters) {
+        String fingerprint = fingerprint(sql);
+        StatementStats stats = statistics.get(fingerprint);
+        if (stats == null) {
+            stats = statistics.computeIfAbsent(fingerprint, StatementStats::new);
+        }
+        stats.record(nanos, rows, failed);
+        if (nanos >= slowThresholdNanos) {
+            logger.warn("Slow statement ({} ms{}): {} parameters: {}", nanos / 1_000_000,
+                    failed ? ", failed" : "", fingerprint, summarize(parameters));
+        }
+        return stats;
+    }
+
+    String fingerprint(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            if (fingerprints.size() < MAX_CACHED_FINGERPRINTS) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                while (i < sql.length() && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (!normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                continue;
+            }
+            if (c == '\'' || c == '"') {
+                // String literal, quotes are escaped by doubling them or with a backslash
+                i++;
+                while (i < sql.length()) {
+                    char d = sql.charAt(i++);
+                    if (d == '\\') {
+                        i++;
+                    } else if (d == c) {
+                        if (i < sql.length() && sql.charAt(i) == c) {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                }
+                normalized.append('?');
+                continue;
+            }
+            if (Character.isDigit(c) && (normalized.isEmpty() || !isIdentifierPart(normalized.charAt(
+                    normalized.length() - 1)))) {
+                while (i < sql.length() && (isIdentifierPart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                normalized.append('?');
+                continue;
+            }
+            normalized.append(c);
+            i++;
+        }
+        String result = normalized.toString().strip();
+        result = IN_LIST.matcher(result).replaceAll("IN (?, ...)");
+        return REPEATED_ROWS.matcher(result).replaceAll("$1, ...");
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    static String summarize(List<Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return "[]";
+        }
+        StringBuilder summary = new StringBuilder("[");
+        int logged = Math.min(parameters.size(), MAX_LOGGED_PARAMETERS);
+        for (int i = 0; i < logged; i++) {
+            if (i > 0) {
+                summary.append(", ");
+            }
+            Object value = parameters.get(i);
+            if (value == null) {
+                summary.append("NULL");
+            } else if (value instanceof byte[] bytes) {
+                summary.append("byte[").append(bytes.length).append(']');
+            } else if (value instanceof CharSequence text) {
+                // Only the length, as for byte arrays: strings may be passwords or personal data
+                summary.append("String(").append(text.length()).append(')');
+            } else if (value instanceof Number || value instanceof Boolean || value instanceof Date
+                    || value instanceof Temporal) {
+                summary.append(value);
+            } else {
+                summary.append(value.getClass().getSimpleName());
+            }
+        }
+        if (parameters.size() > logged) {
+            summary.append(", ... ").append(parameters.size() - logged).append(" more");
+        }
+        return summary.append(']').toString();
+    }
+
+    /**
+     * @return The statistics of the statements, ordered from the largest.
+     */
+    public List<StatementStats> top(int limit, Order order) {
+        List<StatementStats> sorted = new ArrayList<>(statistics.values());
+        sorted.sort(order.comparator.reversed());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    /**
+     * Writes a plain text table of the statements with the largest value for the
+     * given order.
+     */
+    public void writeReport(Writer writer, int limit, Order order) throws IOException {
+        writer.write(String.format(Locale.ROOT, "%10s %7s %10s %10s %8s %8s %8s %8s  %s%n", "count", "errors",
+                "rows", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms", "statement"));
+        for (StatementStats stats : top(limit, order)) {
+            long count = stats.count();
+            writer.write(String.format(Locale.ROOT, "%10d %7d %10d %10.1f %8.3f %8.3f %8.3f %8.3f  %s%n", count,
+                    stats.errors(), stats.rows(), stats.totalNanos() / 1e6,
+                    count == 0 ? 0.0 : stats.totalNanos() / 1e6 / count, stats.p50Nanos() / 1e6,
+                    stats.p99Nanos() / 1e6, stats.maxNanos() / 1e6, stats.fingerprint()));
+        }
+    }
+
+    public String report(int limit, Order order) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeReport(writer, limit, order);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Execution statistics of the statements sharing a fingerprint.
+     */
+    public static final class StatementStats {
+        private final String fingerprint;
+        private final Histogram latency = new Histogram(BUCKETS_SECONDS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        StatementStats(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void record(long nanos, long rowCount, boolean failed) {
+            latency.observeNanos(nanos);
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (failed) {
+                errors.increment();
+            }
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+        }
+
+        void addRows(long rowCount) {
+            rows.add(rowCount);
+        }
+
+        public String fingerprint() {
+            return fingerprint;
+        }
+
+        public long count() {
+            return latency.count();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        public long rows() {
+            return rows.sum();
+        }
+
+        public long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long maxNanos() {
+            return maxNanos.get();
+        }
+
+        public long p50Nanos() {
+            return Math.min(latency.quantileNanos(0.5, maxNanos()), maxNanos());
+        }
+
+        public long p99Nanos() {
+            return Math.min(latency.quantileNanos(0.99, maxNanos()), maxNanos());
+        }
+    }
+}
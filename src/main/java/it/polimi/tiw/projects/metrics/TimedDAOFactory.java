@@ -0,0 +1,107 @@
+package it.polimi.tiw.projects.metrics;
+
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.jfr.DAOCallEvent;
+import it.polimi.tiw.projects.utils.RequestTrace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorates another {@link DAOFactory} so that every DAO method call is timed.
+ * <p>
+ * The DAOs are wrapped in a dynamic proxy of their interface that records the
+ * duration of each call in {@code spolify_dao_call_duration_seconds} and
+ * counts the {@link DAOException}s in {@code spolify_dao_errors_total}, by DAO,
+ * method and error type. Each call is also recorded as a {@link DAOCallEvent}
+ * for Flight Recorder and as a span of the {@link RequestTrace} of the current
+ * request. The histogram of each method is looked up once and
+ * kept, so a call costs two {@link System#nanoTime()} readings and a
+ * reflective invocation on top of the DAO itself.
+ */
+public class TimedDAOFactory implements DAOFactory {
+    static final String DURATION = "spolify_dao_call_duration_seconds";
+    static final String ERRORS = "spolify_dao_errors_total";
+
+    private final DAOFactory delegate;
+    private final MetricsRegistry registry;
+    private final Map<Method, TimedMethod> methods = new ConcurrentHashMap<>();
+
+    private record TimedMethod(String dao, String name, String spanName, Histogram histogram) {
+    }
+
+    public TimedDAOFactory(DAOFactory delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean requiresConnection() {
+        return delegate.requiresConnection();
+    }
+
+    @Override
+    public UserDAO getUserDAO(Connection connection) {
+        return timed(UserDAO.class, delegate.getUserDAO(connection));
+    }
+
+    @Override
+    public SongDAO getSongDAO(Connection connection) {
+        return timed(SongDAO.class, delegate.getSongDAO(connection));
+    }
+
+    @Override
+    public AlbumDAO getAlbumDAO(Connection connection) {
+        return timed(AlbumDAO.class, delegate.getAlbumDAO(connection));
+    }
+
+    @Override
+    public PlaylistDAO getPlaylistDAO(Connection connection) {
+        return timed(PlaylistDAO.class, delegate.getPlaylistDAO(connection));
+    }
+
+    private <T> T timed(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> invoke(target, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        TimedMethod timed = methods.computeIfAbsent(method, m -> {
+            String dao = m.getDeclaringClass().getSimpleName();
+            return new TimedMethod(dao, m.getName(), dao + "." + m.getName(), registry.histogram(DURATION,
+                    "Duration of the DAO method calls", "dao", dao, "method", m.getName()));
+        });
+        DAOCallEvent event = new DAOCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            error = cause instanceof DAOException daoException ? daoException.getErrorType().name()
+                    : cause.getClass().getSimpleName();
+            registry.counter(ERRORS, "DAO method calls that threw an exception", "dao", timed.dao(), "method",
+                    timed.name(), "type", error).increment();
+            throw cause;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            timed.histogram().observeNanos(elapsed);
+            RequestTrace.recordDAOCall(timed.spanName(), start, elapsed);
+            event.finish(timed.dao(), timed.name(), error);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package it.polimi.tiw.projects.utils;
+
+import it.polimi.tiw.projects.beans.User;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Keeps track of the logged-in user, either in the HTTP session (the default)
+ * or, when an {@link AuthToken} is configured, in a signed cookie. In the
+ * stateless mode no session is ever created, so any node holding the same key
+ * can serve any request.
+ */
+public class AuthHandler {
+    /**
+     * Context attribute holding the {@link AuthToken} of the stateless mode.
+     */
+    public static final String ATTRIBUTE = "authToken";
+    /**
+     * Context attribute set to {@link Boolean#FALSE} to issue the token cookie
+     * without the Secure flag, for development over plain HTTP.
+     */
+    public static final String SECURE_COOKIE_ATTRIBUTE = "authCookieSecure";
+    public static final String COOKIE = "spolify_auth";
+    private static final String USER = "user";
+
+    private AuthHandler() {
+    }
+
+    /**
+     * @return true if the users are kept in signed cookies instead of sessions.
+     */
+    public static boolean isStateless(ServletContext context) {
+        return context.getAttribute(ATTRIBUTE) != null;
+    }
+
+    /**
+     * Logs the user in, storing it in the session or issuing its token cookie.
+     */
+    public static void logIn(HttpServletRequest req, HttpServletResponse resp, User user) {
+        AuthToken authToken = (AuthToken) req.getServletContext().getAttribute(ATTRIBUTE);
+        if (authToken != null) {
+            resp.addCookie(tokenCookie(req, authToken.issue(user), (int) authToken.getTtl().toSeconds()));
+        } else {
+            req.getSession().setAttribute(USER, user);
+        }
+        req.setAttribute(USER, user);
+        RequestTrace.setUser(user.getIdUser());
+    }
+
+    /**
+     * Logs the user out, invalidating the session and clearing the token cookie.
+     * <p>
+     * Tokens are not stored anywhere, so one can't be revoked: a copy of the
+     * cookie taken before the logout stays valid until it expires, at most
+     * {@code auth.token.ttlMinutes} later.
+     */
+    public static void logOut(HttpServletRequest req, HttpServletResponse resp) {
+        HttpSession session = req.getSession(false);
+        if (session != null) {
+            session.invalidate();
+        }
+        if (isStateless(req.getServletContext())) {
+            resp.addCookie(tokenCookie(req, "", 0));
+        }
+        req.removeAttribute(USER);
+    }
+
+    /**
+     * Finds the user of the request without creating a session. A token that
+     * is past half of its time to live is renewed, so that active users stay
+     * logged in.
+     *
+     * @return The logged-in user, or null. In the stateless mode only the ID and
+     *         the username of the user are set.
+     */
+    public static User authenticate(HttpServletRequest req, HttpServletResponse resp) {
+        AuthToken authToken = (AuthToken) req.getServletContext().getAttribute(ATTRIBUTE);
+        User user;
+        if (authToken != null) {
+            AuthToken.Claims claims = authToken.verify(readCookie(req));
+            if (claims == null) {
+                return null;
+            }
+            user = claims.user();
+            if (authToken.shouldRenew(claims)) {
+                resp.addCookie(tokenCookie(req, authToken.issue(user), (int) authToken.getTtl().toSeconds()));
+            }
+        } else {
+            HttpSession session = req.getSession(false);
+            user = session != null ? (User) session.getAttribute(USER) : null;
+        }
+        if (user != null) {
+            req.setAttribute(USER, user);
+            RequestTrace.setUser(user.getIdUser());
+        }
+        return user;
+    }
+
+    /**
+     * @return The user authenticated for this request by the login filter or by
+     *         a login, or null.
+     */
+    public static User getUser(HttpServletRequest req) {
+        return (User) req.getAttribute(USER);
+    }
+
+    private static String readCookie(HttpServletRequest req) {
+        Cookie[] cookies = req.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Cookie tokenCookie(HttpServletRequest req, String value, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(COOKIE, value);
+        String contextPath = req.getContextPath();
+        cookie.setPath(contextPath.isEmpty() ? "/" : contextPath);
+        cookie.setMaxAge(maxAgeSeconds);
+        cookie.setHttpOnly(true);
+        // Secure unless disabled: behind a TLS-terminating proxy the request itself is plain HTTP
+        cookie.setSecure(!Boolean.FALSE.equals(req.getServletContext().getAttribute(SECURE_COOKIE_ATTRIBUTE)));
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+}
@@ -0,0 +1,124 @@
+package it.polimi.tiw.projects.utils;
+
+import it.polimi.tiw.projects.beans.User;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and verifies the signed tokens of the stateless authentication.
+ * <p>
+ * A token is {@code payload.signature}, both Base64url encoded: the payload
+ * holds the ID and username of the user and the expiry time in epoch seconds,
+ * the signature is the HMAC-SHA256 of the payload. Verifying a token needs
+ * only the key, so every node sharing it accepts the tokens issued by the
+ * others.
+ */
+public class AuthToken {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+    // Mac instances are not thread-safe
+    private final ThreadLocal<Mac> macs;
+
+    public AuthToken(byte[] key, Duration ttl) {
+        this(key, ttl, Clock.systemUTC());
+    }
+
+    AuthToken(byte[] key, Duration ttl, Clock clock) {
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(this.key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
+        // Fail at startup rather than on the first login
+        macs.get();
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    /**
+     * @return A token for the user, expiring after the time to live.
+     */
+    public String issue(User user) {
+        long expiresAt = clock.instant().plus(ttl).getEpochSecond();
+        String payload = ENCODER.encodeToString(
+                (user.getIdUser() + "|" + user.getUsername() + "|" + expiresAt).getBytes(StandardCharsets.UTF_8));
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * @return The claims of the token, or null if it is malformed, forged or
+     *         expired.
+     */
+    public Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot != token.lastIndexOf('.')) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            if (!MessageDigest.isEqual(sign(payload), DECODER.decode(token.substring(dot + 1)))) {
+                return null;
+            }
+            String[] fields = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split("\\|", -1);
+            if (fields.length != 3) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(fields[2]);
+            if (clock.instant().getEpochSecond() >= expiresAt) {
+                return null;
+            }
+            User user = new User();
+            user.setIdUser(UUID.fromString(fields[0]));
+            user.setUsername(fields[1]);
+            return new Claims(user, expiresAt);
+        } catch (IllegalArgumentException e) {
+            // Bad Base64, UUID or number
+            return null;
+        }
+    }
+
+    /**
+     * @return true if less than half of the time to live of the token is left.
+     */
+    public boolean shouldRenew(Claims claims) {
+        return claims.expiresAt() - clock.instant().getEpochSecond() < ttl.toSeconds() / 2;
+    }
+
+    private byte[] sign(String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * The content of a valid token.
+     *
+     * @param user      The user, with only its ID and username set.
+     * @param expiresAt The expiry time in epoch seconds.
+     */
+    public record Claims(User user, long expiresAt) {
+    }
+}
@@ -1,11 +1,16 @@
 package it.polimi.tiw.projects.utils;
 
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.JdbcDAOFactory;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
 import jakarta.servlet.ServletContext;
-import jakarta.servlet.UnavailableException;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -13,41 +18,86 @@ public class ConnectionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ConnectionHandler.class);
 
-    public static Connection getConnection(ServletContext context) throws UnavailableException {
-        DataSource dataSource = (DataSource) context.getAttribute("dataSource");
+    /**
+     * Returns the factory of the DAOs selected at startup, defaulting to the
+     * database ones.
+     *
+     * @param context the servlet context holding the factory.
+     * @return the DAO factory.
+     */
+    public static DAOFactory getDAOFactory(ServletContext context) {
+        DAOFactory daoFactory = (DAOFactory) context.getAttribute(DAOFactory.ATTRIBUTE);
+        return daoFactory != null ? daoFactory : new JdbcDAOFactory();
+    }
+
+    /**
+     * Runs a database step on a connection taken from the pool of a workload,
+     * and gives the connection back as soon as the step is over, so that none
+     * is held while a request parses its body, writes files, renders its page
+     * or is forwarded. The step gets a null connection if the selected DAOs
+     * don't use the database.
+     *
+     * @param context  the servlet context holding the pools.
+     * @param workload the workload whose pool is used.
+     * @param step     the database step.
+     * @return the result of the step.
+     * @throws DAOException the exception thrown by the step, or
+     *                      {@link DAOErrorType#UNAVAILABLE} if no connection is
+     *                      free within the timeout of the pool.
+     */
+    public static <T> T withConnection(ServletContext context, Workload workload, DatabaseStep<T> step)
+            throws DAOException {
+        if (!getDAOFactory(context).requiresConnection()) {
+            return step.run(null);
+        }
+        DataSource dataSource = (DataSource) context.getAttribute(workload.attribute());
         if (dataSource == null) {
-            logger.error("DataSource not found in ServletContext. Check AppContextListener configuration.");
-            throw new UnavailableException("DataSource not initialized. Check AppContextListener configuration.");
+            logger.error("DataSource of the {} pool not found in ServletContext. Check AppContextListener configuration.",
+                    workload.poolName());
+            throw new DAOException("DataSource not initialized", DAOErrorType.UNAVAILABLE);
         }
-
-        Connection connection = null;
+        Connection connection;
         try {
-            logger.debug("Attempting to get connection from DataSource.");
             connection = dataSource.getConnection();
-            logger.debug("Successfully obtained connection from DataSource.");
         } catch (SQLException e) {
-            logger.error("Error getting connection from DataSource pool.", e);
-            throw new UnavailableException("Couldn't get DB connection from pool: " + e.getMessage());
+            logger.warn("No connection free in the {} pool: {}", workload.poolName(), e.getMessage());
+            throw new DAOException("The database is busy, retry later", e, DAOErrorType.UNAVAILABLE);
+        }
+        try {
+            return step.run(connection);
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error returning a connection to the {} pool: {}", workload.poolName(), e.getMessage());
+            }
         }
-        return connection;
     }
 
     /**
-     * Closes a connection, returning it to the pool.
+     * Answers 503 with a Retry-After header to a request whose DAO call failed
+     * because the database or the password hashing was saturated, or because
+     * the request ran past its deadline, so that the client retries later
+     * instead of the request queueing.
      *
-     * @param connection the connection to close.
-     * @throws SQLException if a database access error occurs.
+     * @return true if the error was sent, false if the exception is of another
+     *         type and still needs handling.
      */
-    public static void closeConnection(Connection connection) throws SQLException {
-        if (connection != null) {
-            try {
-                logger.debug("Closing connection (returning to pool).");
-                connection.close();
-                logger.debug("Connection closed successfully.");
-            } catch (SQLException e) {
-                logger.error("Error closing connection (returning to pool).", e);
-                throw e;
-            }
+    public static boolean sendIfUnavailable(HttpServletResponse resp, DAOException e) throws IOException {
+        if (e.getErrorType() != DAOErrorType.UNAVAILABLE && e.getErrorType() != DAOErrorType.TIMEOUT) {
+            return false;
         }
+        resp.setHeader("Retry-After", "1");
+        resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                e.getErrorType() == DAOErrorType.TIMEOUT ? "The request took too long, retry later" : e.getMessage());
+        return true;
+    }
+
+    /**
+     * A piece of work done on a database connection.
+     */
+    @FunctionalInterface
+    public interface DatabaseStep<T> {
+        T run(Connection connection) throws DAOException;
     }
 }
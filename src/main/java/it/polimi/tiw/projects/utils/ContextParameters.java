@@ -0,0 +1,45 @@
+package it.polimi.tiw.projects.utils;
+
+import jakarta.servlet.ServletContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the numeric context parameters of {@code web.xml}, falling back to a
+ * default, with a logged warning, when a value is missing, malformed or out of
+ * range.
+ */
+public final class ContextParameters {
+    private static final Logger logger = LoggerFactory.getLogger(ContextParameters.class);
+
+    private ContextParameters() {
+    }
+
+    /**
+     * @param name         The name of the context parameter.
+     * @param description  What the parameter sets, for the logs.
+     * @param defaultValue The value used when the parameter is missing or
+     *                     invalid.
+     * @param minValue     The smallest valid value.
+     * @return The value of the parameter, or the default.
+     */
+    public static int readInt(ServletContext context, String name, String description, int defaultValue,
+                              int minValue) {
+        String valueStr = context.getInitParameter(name);
+        if (valueStr == null || valueStr.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(valueStr.strip());
+            if (parsed >= minValue) {
+                return parsed;
+            }
+            logger.warn("{} ({}) must be at least {}, but was: {}. Using default {}.", description, name, minValue,
+                    valueStr, defaultValue);
+        } catch (NumberFormatException e) {
+            logger.error("Invalid number format for {} ({}): '{}'. Error: {}", description.toLowerCase(), name,
+                    valueStr, e.getMessage());
+        }
+        return defaultValue;
+    }
+}
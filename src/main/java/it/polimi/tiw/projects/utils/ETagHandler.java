@@ -0,0 +1,106 @@
+package it.polimi.tiw.projects.utils;
+
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Helpers for conditional GET requests on pages rendered from a user's library.
+ * <p>
+ * The weak ETag of a page is derived from the user's library version (see
+ * {@link it.polimi.tiw.projects.cache.LibraryCache}) and the request parameters
+ * that affect the page. Library versions restart on every deployment, so the
+ * tag also carries an identifier of the running instance.
+ */
+public class ETagHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ETagHandler.class);
+    private static final String BOOT_ID = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+
+    /**
+     * Builds the weak ETag of a page.
+     *
+     * @param userId  The UUID of the user the page belongs to.
+     * @param version The library version of the user.
+     * @param params  The request parameters that change the rendered page.
+     * @return The weak ETag, quoted as required by the header.
+     */
+    public static String weakETag(UUID userId, long version, Object... params) {
+        int paramsHash = Objects.hash(userId, Arrays.hashCode(params));
+        return "W/\"" + BOOT_ID + "-" + Long.toHexString(version) + "-" + Integer.toHexString(paramsHash) + "\"";
+    }
+
+    /**
+     * Only plain GET requests can be answered with 304: forwarded requests carry
+     * error messages that are not part of the tag.
+     *
+     * @param req The current request.
+     * @return true if the page may be answered with 304 Not Modified.
+     */
+    public static boolean isConditionalCandidate(HttpServletRequest req) {
+        return "GET".equals(req.getMethod()) && req.getDispatcherType() == DispatcherType.REQUEST;
+    }
+
+    /**
+     * Answers with 304 Not Modified if the client already has the current
+     * version of the page.
+     *
+     * @param req  The current request.
+     * @param resp The current response.
+     * @param etag The ETag of the page, as returned by
+     *             {@link #weakETag(UUID, long, Object...)}.
+     * @return true if a 304 was sent and the page must not be rendered.
+     */
+    public static boolean checkNotModified(HttpServletRequest req, HttpServletResponse resp, String etag) {
+        if (matches(req.getHeader("If-None-Match"), etag)) {
+            logger.debug("ETag {} matched, sending 304 for {}", etag, req.getRequestURI());
+            setValidators(resp, etag);
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets the ETag of a page that is about to be rendered successfully.
+     *
+     * @param resp The current response.
+     * @param etag The ETag of the rendered page.
+     */
+    public static void setValidators(HttpServletResponse resp, String etag) {
+        // Pages are per user: browsers must revalidate them and shared caches must not store them
+        resp.setHeader("Cache-Control", "private, no-cache");
+        resp.setHeader("ETag", etag);
+    }
+
+    /**
+     * Weak comparison of an If-None-Match header against an ETag.
+     *
+     * @param ifNoneMatch The value of the If-None-Match header, may be null.
+     * @param etag        The current ETag.
+     * @return true if any of the listed tags matches the current one.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaqueTag = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.strip();
+            if (candidate.equals("*") || stripWeakPrefix(candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
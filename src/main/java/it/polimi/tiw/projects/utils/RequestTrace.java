@@ -0,0 +1,268 @@
+package it.polimi.tiw.projects.utils;
+
+import org.slf4j.MDC;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timings collected while a request is served: the DAO calls, SQL statements
+ * and template renders it performs, and the size of its response.
+ * <p>
+ * The trace of the current request is bound to the serving thread, and the
+ * instrumented code (the DAO proxies, the profiled data source, the template
+ * helper) adds to it through the static methods of this class, which do
+ * nothing outside of a request. Work handed to another thread, like the reads
+ * of {@code AsyncDAO}, keeps counting towards the request when it is wrapped
+ * with {@link #propagate(Supplier)}, so counters are thread-safe. DAO calls
+ * and renders are also kept as spans, up to {@link #MAX_SPANS} per request.
+ * <p>
+ * The trace also carries the authenticated user and whether the request has
+ * written to the database, which decide where its reads can be routed, and the
+ * deadline of the request, which bounds the time its statements can run.
+ */
+public final class RequestTrace {
+    /**
+     * Key of the request ID in the SLF4J MDC, used by the log pattern.
+     */
+    public static final String MDC_KEY = "requestId";
+    static final int MAX_SPANS = 64;
+    private static final ThreadLocal<RequestTrace> current = new ThreadLocal<>();
+
+    private final String requestId;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder daoCalls = new LongAdder();
+    private final LongAdder daoNanos = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder dbNanos = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans = 0;
+    private volatile UUID userId;
+    private volatile boolean wrote = false;
+    private volatile boolean hasDeadline = false;
+    private volatile long deadlineNanos;
+
+    private record Span(String name, long startNanos, long durationNanos) {
+    }
+
+    private RequestTrace(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Starts the trace of a request on the current thread and puts its ID in
+     * the MDC.
+     */
+    public static RequestTrace start(String requestId) {
+        RequestTrace trace = new RequestTrace(requestId);
+        current.set(trace);
+        MDC.put(MDC_KEY, requestId);
+        return trace;
+    }
+
+    /**
+     * Detaches the trace from the current thread.
+     */
+    public void end() {
+        current.remove();
+        MDC.remove(MDC_KEY);
+    }
+
+    /**
+     * @return The trace of the request served by the current thread, or null.
+     */
+    public static RequestTrace current() {
+        return current.get();
+    }
+
+    public static void recordDAOCall(String name, long startNanos, long durationNanos) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.daoCalls.increment();
+            trace.daoNanos.add(durationNanos);
+            trace.addSpan(name, startNanos, durationNanos);
+        }
+    }
+
+    public static void recordQuery(long durationNanos) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.queries.increment();
+            trace.dbNanos.add(durationNanos);
+        }
+    }
+
+    public static void recordRender(String template, long startNanos, long durationNanos) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.renders.increment();
+            trace.renderNanos.add(durationNanos);
+            trace.addSpan("render " + template, startNanos, durationNanos);
+        }
+    }
+
+    /**
+     * Sets the authenticated user of the current request.
+     */
+    public static void setUser(UUID userId) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.userId = userId;
+        }
+    }
+
+    /**
+     * Marks the current request as having written to the database.
+     */
+    public static void recordWrite() {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.wrote = true;
+        }
+    }
+
+    /**
+     * Sets the deadline of the current request, counted from its start.
+     */
+    public static void setDeadline(Duration timeout) {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.deadlineNanos = trace.startNanos + timeout.toNanos();
+            trace.hasDeadline = true;
+        }
+    }
+
+    /**
+     * Removes the deadline of the current request, for the work that must be
+     * done even once it has expired, like undoing a partial write.
+     */
+    public static void clearDeadline() {
+        RequestTrace trace = current.get();
+        if (trace != null) {
+            trace.hasDeadline = false;
+        }
+    }
+
+    /**
+     * @return The nanoseconds left before the deadline of the current request,
+     *         negative once it has expired, or {@link Long#MAX_VALUE} if there
+     *         is no deadline.
+     */
+    public static long remainingNanos() {
+        RequestTrace trace = current.get();
+        if (trace == null || !trace.hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return trace.deadlineNanos - System.nanoTime();
+    }
+
+    private synchronized void addSpan(String name, long start, long durationNanos) {
+        if (spans.size() < MAX_SPANS) {
+            spans.add(new Span(name, start, durationNanos));
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    /**
+     * Wraps a task so that it runs with the trace and the MDC of the calling
+     * thread, restoring those of the executing thread afterwards.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        RequestTrace trace = current.get();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        if (trace == null && mdc == null) {
+            return task;
+        }
+        return () -> {
+            RequestTrace previousTrace = current.get();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            current.set(trace);
+            MDC.setContextMap(mdc != null ? mdc : Map.of());
+            try {
+                return task.get();
+            } finally {
+                current.set(previousTrace);
+                if (previousMdc != null) {
+                    MDC.setContextMap(previousMdc);
+                } else {
+                    MDC.clear();
+                }
+            }
+        };
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return The authenticated user of the request, or null.
+     */
+    public UUID getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return true if the request has written to the database.
+     */
+    public boolean hasWritten() {
+        return wrote;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getDAOCalls() {
+        return daoCalls.sum();
+    }
+
+    public long getDAONanos() {
+        return daoNanos.sum();
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    public long getDBNanos() {
+        return dbNanos.sum();
+    }
+
+    public long getRenders() {
+        return renders.sum();
+    }
+
+    public long getRenderNanos() {
+        return renderNanos.sum();
+    }
+
+    /**
+     * @return The spans in the order they ended, as
+     *         {@code name@start+duration} with times in milliseconds from the
+     *         start of the request.
+     */
+    public synchronized String formatSpans() {
+        StringBuilder text = new StringBuilder();
+        for (Span span : spans) {
+            if (!text.isEmpty()) {
+                text.append(", ");
+            }
+            text.append(span.name()).append(String.format(Locale.ROOT, "@%.1f+%.1fms",
+                    (span.startNanos() - startNanos) / 1e6, span.durationNanos() / 1e6));
+        }
+        if (droppedSpans > 0) {
+            text.append(", ... ").append(droppedSpans).append(" more");
+        }
+        return text.toString();
+    }
+}
@@ -2,6 +2,7 @@ package it.polimi.tiw.projects.utils;
 
 import it.polimi.tiw.projects.exceptions.DAOException;
 import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import org.apache.tika.Tika;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,11 +14,21 @@ import java.nio.file.Path;
 public class StorageUtils {
 
     private static final Logger log = LoggerFactory.getLogger(StorageUtils.class);
+    // Building a Tika instance scans the classpath for detectors, so a single
+    // thread-safe instance is shared by all the file DAOs
+    private static final Tika MIME_DETECTOR = new Tika();
 
     // Private constructor to prevent instantiation
     private StorageUtils() {
     }
 
+    /**
+     * @return The shared MIME type detector.
+     */
+    public static Tika getMimeDetector() {
+        return MIME_DETECTOR;
+    }
+
     /**
      * Validates a filename, resolves it against a base storage directory, and
      * ensures the resulting path is securely within that directory. Also verifies
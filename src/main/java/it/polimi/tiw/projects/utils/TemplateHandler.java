@@ -1,17 +1,40 @@
 package it.polimi.tiw.projects.utils;
 
+import it.polimi.tiw.projects.jfr.TemplateRenderEvent;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.context.IWebContext;
 import org.thymeleaf.context.WebContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
 import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.WebApplicationTemplateResolver;
 import org.thymeleaf.web.servlet.JakartaServletWebApplication;
 
+import java.io.Writer;
+import java.util.Map;
+
 public class TemplateHandler {
 
-    public static TemplateEngine initializeEngine(ServletContext context) {
+    private static final String TEMPLATE_ENGINE_ATTRIBUTE = "templateEngine";
+
+    /**
+     * Returns the template engine of the application, creating it on first use.
+     * The engine is thread-safe and caches parsed templates, so it is shared by
+     * all the servlets: a template parsed once (e.g. during warm-up) is not
+     * parsed again by the next servlet that renders it.
+     *
+     * @param context The servlet context of the application.
+     * @return The shared template engine.
+     */
+    public static synchronized TemplateEngine initializeEngine(ServletContext context) {
+        TemplateEngine shared = (TemplateEngine) context.getAttribute(TEMPLATE_ENGINE_ATTRIBUTE);
+        if (shared != null) {
+            return shared;
+        }
         // In Thymeleaf 3.1+, they introduced a new, flexible abstraction layer for web
         // environments called WebApplication, It wraps the standard ServletContext in a
         // higher-level abstraction that Thymeleaf understands.
@@ -28,10 +51,44 @@ public class TemplateHandler {
 
         TemplateEngine templateEngine = new TemplateEngine();
         templateEngine.setTemplateResolver(templateResolver);
+        // Context-relative links need a request to know the context path. Outside of
+        // a request (e.g. the warm-up) the one of the application is used instead
+        templateEngine.setLinkBuilder(new StandardLinkBuilder() {
+            @Override
+            protected String computeContextPath(IExpressionContext expressionContext, String base,
+                                                Map<String, Object> parameters) {
+                if (expressionContext instanceof IWebContext) {
+                    return super.computeContextPath(expressionContext, base, parameters);
+                }
+                return context.getContextPath();
+            }
+        });
+        context.setAttribute(TEMPLATE_ENGINE_ATTRIBUTE, templateEngine);
 
         return templateEngine;
     }
 
+    /**
+     * Renders a template, recording a {@link TemplateRenderEvent} for Flight
+     * Recorder and a span of the {@link RequestTrace} of the current request.
+     *
+     * @param templateEngine The template engine.
+     * @param template       The name of the template.
+     * @param context        The variables of the template.
+     * @param writer         Where the output is written.
+     */
+    public static void render(TemplateEngine templateEngine, String template, IContext context, Writer writer) {
+        TemplateRenderEvent event = new TemplateRenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            templateEngine.process(template, context, writer);
+        } finally {
+            RequestTrace.recordRender(template, start, System.nanoTime() - start);
+            event.finish(template);
+        }
+    }
+
     public static WebContext getWebContext(HttpServletRequest req, HttpServletResponse resp, ServletContext context) {
 
         JakartaServletWebApplication webApplication = JakartaServletWebApplication.buildApplication(context);
@@ -0,0 +1,200 @@
+package it.polimi.tiw.projects.utils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.FileData;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.beans.SongWithAlbum;
+import it.polimi.tiw.projects.dao.*;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import jakarta.servlet.ServletContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm-up phase run once after the application starts, so that the first users
+ * don't pay for cold caches. It fills the connection pools, parses the
+ * templates, initializes the MIME detector and, if a warm-up user is
+ * configured, repeatedly runs the hot DAO and file streaming paths on that
+ * user's library to get them compiled by the JIT.
+ * <p>
+ * The instance is stored in the servlet context under {@link #ATTRIBUTE} and
+ * tells the readiness endpoint whether the node can receive traffic.
+ */
+public class WarmUp implements Runnable {
+    public static final String ATTRIBUTE = "warmUp";
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+    // Files are only streamed a few times, reading them on every iteration would just cost I/O
+    private static final int MAX_STREAMING_ITERATIONS = 10;
+    private static final long POOL_POLL_MILLIS = 50;
+
+    private final ServletContext context;
+    private final Map<Workload, HikariDataSource> pools;
+    private final DAOFactory daoFactory;
+    private final UUID userId;
+    private final int iterations;
+    private volatile boolean done = false;
+
+    /**
+     * @param context    The servlet context, holding the file DAOs.
+     * @param pools      The connection pools to prime, empty if the DAOs don't
+     *                   use the database. The DAOs are exercised on the
+     *                   {@link Workload#BACKGROUND} one.
+     * @param daoFactory The factory of the DAOs to exercise.
+     * @param userId     The user whose library is used to exercise the DAOs, or
+     *                   null to skip that step.
+     * @param iterations How many times the DAO paths are run.
+     */
+    public WarmUp(ServletContext context, Map<Workload, HikariDataSource> pools, DAOFactory daoFactory,
+                  UUID userId, int iterations) {
+        this.context = context;
+        this.pools = pools;
+        this.daoFactory = daoFactory;
+        this.userId = userId;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Creates an instance that is ready right away, used when warm-up is
+     * disabled.
+     */
+    public static WarmUp skipped(ServletContext context) {
+        WarmUp warmUp = new WarmUp(context, Map.of(), null, null, 0);
+        warmUp.done = true;
+        return warmUp;
+    }
+
+    /**
+     * @return true once the warm-up has finished, whatever its outcome.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        logger.info("Warm-up started");
+        try {
+            // Interrupted when the application is undeployed, stop before the pools are closed
+            for (Map.Entry<Workload, HikariDataSource> pool : pools.entrySet()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                primePool(pool.getKey(), pool.getValue());
+            }
+            loadTemplates();
+            loadMimeDetector();
+            if (userId != null && !Thread.currentThread().isInterrupted()) {
+                exerciseDAOs();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error during warm-up: {}", e.getMessage(), e);
+        } finally {
+            done = true;
+            logger.info("Warm-up finished in {} ms, the application is ready", (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void primePool(Workload workload, HikariDataSource dataSource) {
+        // Hikari opens idle connections in the background: wait until it reaches
+        // minimumIdle without borrowing any, so the servlets can use them meanwhile
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            logger.warn("Could not prime the {} connection pool: it is not running", workload.poolName());
+            return;
+        }
+        int target = dataSource.getMinimumIdle();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dataSource.getConnectionTimeout());
+        try {
+            while (pool.getTotalConnections() < target && System.nanoTime() < deadline) {
+                Thread.sleep(POOL_POLL_MILLIS);
+            }
+            logger.debug("Connection pool {} primed with {} of {} connections", workload.poolName(),
+                    pool.getTotalConnections(), target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while priming the {} connection pool", workload.poolName());
+        }
+    }
+
+    private void loadTemplates() {
+        TemplateEngine templateEngine = TemplateHandler.initializeEngine(context);
+        // Placeholder models with one item per list, so that every expression of the
+        // templates is evaluated at least once
+        Song song = new Song();
+        Playlist playlist = new Playlist();
+        SongWithAlbum songWithAlbum = new SongWithAlbum(song, new Album());
+        Map<String, Map<String, Object>> models = Map.of(
+                "/WEB-INF/Home.html", Map.of("songs", List.of(song), "playlists", List.of(playlist), "genres",
+                        List.of(Genre.values())),
+                "/WEB-INF/Playlist.html", Map.of("playlist", playlist, "songWithAlbum", List.of(songWithAlbum),
+                        "songs", List.of(song), "page", 0, "totPages", 1),
+                "/WEB-INF/SongInspector.html", Map.of("swa", songWithAlbum, "playlistId", 0));
+        models.forEach((template, variables) -> {
+            try {
+                templateEngine.process(template, new Context(null, variables), Writer.nullWriter());
+            } catch (TemplateProcessingException e) {
+                logger.warn("Could not render template {} during warm-up: {}", template, e.getMessage());
+            }
+        });
+        logger.debug("Templates loaded");
+    }
+
+    private void loadMimeDetector() {
+        String mimeType = StorageUtils.getMimeDetector().detect(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF});
+        logger.debug("MIME detector loaded, sample detected as {}", mimeType);
+    }
+
+    private void exerciseDAOs() {
+        ImageDAO imageDAO = (ImageDAO) context.getAttribute("imageDAO");
+        AudioDAO audioDAO = (AudioDAO) context.getAttribute("audioDAO");
+        try (Connection connection = daoFactory.requiresConnection()
+                ? pools.get(Workload.BACKGROUND).getConnection() : null) {
+            SongDAO songDAO = daoFactory.getSongDAO(connection);
+            AlbumDAO albumDAO = daoFactory.getAlbumDAO(connection);
+            PlaylistDAO playlistDAO = daoFactory.getPlaylistDAO(connection);
+            for (int i = 0; i < iterations && !Thread.currentThread().isInterrupted(); i++) {
+                List<Song> songs = songDAO.findSongsByUser(userId);
+                List<Album> albums = albumDAO.findAlbumsByUser(userId);
+                List<Playlist> playlists = playlistDAO.findPlaylistsByUser(userId);
+                albumDAO.findAlbumsByIds(albums.stream().map(Album::getIdAlbum).toList());
+                if (!playlists.isEmpty()) {
+                    playlistDAO.findPlaylistById(playlists.getFirst().getIdPlaylist(), userId);
+                }
+                if (i < MAX_STREAMING_ITERATIONS) {
+                    if (!songs.isEmpty()) {
+                        drain(audioDAO.getAudio(songs.getFirst().getAudioFile()));
+                    }
+                    if (!albums.isEmpty() && albums.getFirst().getImage() != null) {
+                        drain(imageDAO.getImage(albums.getFirst().getImage()));
+                    }
+                }
+            }
+            logger.debug("DAO paths exercised {} times for warm-up user {}", iterations, userId);
+        } catch (SQLException | DAOException | IllegalArgumentException | IOException e) {
+            logger.warn("DAO warm-up for user {} stopped early: {}", userId, e.getMessage());
+        }
+    }
+
+    private static void drain(FileData fileData) throws IOException {
+        try (fileData) {
+            fileData.content().transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package it.polimi.tiw.projects.utils;
+
+import java.util.Locale;
+
+/**
+ * The classes of database work that get a connection pool of their own, so
+ * that a burst of one of them can only exhaust its own pool: the others keep
+ * their connections and fail fast with their own timeouts instead of queueing
+ * behind it.
+ */
+public enum Workload {
+    /**
+     * Page rendering: home, playlist and song pages.
+     */
+    INTERACTIVE,
+    /**
+     * Authorization checks of the audio and image downloads.
+     */
+    MEDIA,
+    /**
+     * Form submissions: uploads, playlist changes, sign-up and login. The
+     * passwords are hashed and verified with no connection held, between the
+     * steps that read and store them.
+     */
+    WRITE,
+    /**
+     * Work done outside of the request threads: the asynchronous reads of
+     * the library and the warm-up. Keeping the asynchronous reads apart also
+     * means that a page never waits for a second connection of its own pool.
+     */
+    BACKGROUND;
+
+    /**
+     * @return The name of the pool, used in its metrics and configuration
+     *         parameters.
+     */
+    public String poolName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The servlet context attribute holding the pool.
+     */
+    public String attribute() {
+        return "dataSource." + poolName();
+    }
+}
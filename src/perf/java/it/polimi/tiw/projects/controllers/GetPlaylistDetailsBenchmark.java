@@ -0,0 +1,53 @@
+package it.polimi.tiw.projects.controllers;
+
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.beans.SongWithAlbum;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.perf.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory part of a GetPlaylistDetails request: ordering the playlist,
+ * cutting the requested page and listing the songs that can still be added.
+ * Every album is in the snapshot, so no DAO call is made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetPlaylistDetailsBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int songCount;
+
+    @Param({"10", "1000"})
+    public int playlistSize;
+
+    private LibrarySnapshot library;
+    private Playlist playlist;
+
+    @Setup
+    public void setUp() {
+        library = Fixtures.library(songCount, Math.max(1, songCount / 10), 1, playlistSize, 42);
+        playlist = library.playlists().getFirst();
+    }
+
+    @Benchmark
+    public List<SongWithAlbum> orderAndPaginate() throws DAOException {
+        List<SongWithAlbum> ordered = GetPlaylistDetails.orderAllSongs(playlist, library, null);
+        int lastPage = GetPlaylistDetails.totalPages(ordered.size()) - 1;
+        return GetPlaylistDetails.pageOf(ordered, lastPage);
+    }
+
+    @Benchmark
+    public List<Song> unusedSongs() {
+        return GetPlaylistDetails.getUnusedSongs(playlist, library);
+    }
+}
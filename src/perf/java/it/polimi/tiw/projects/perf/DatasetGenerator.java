@@ -0,0 +1,417 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.dao.PasswordHasher;
+import it.polimi.tiw.projects.dao.UUIDCodec;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.Genre;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the database with a large synthetic library, so that benchmarks and
+ * load tests run against realistic volumes. Ownership is skewed: a small share
+ * of heavy users owns most of the songs, and playlist sizes follow a
+ * log-uniform distribution between 1 and maxPlaylistSize songs, so most
+ * playlists are small and a few are very large.
+ * <p>
+ * Everything is derived from the seed: two runs with the same options produce
+ * the same rows, auto-increment IDs aside. Users are named gen&lt;seed&gt;_&lt;n&gt; with password
+ * {@value #PASSWORD}, and the users of a previous run with the same seed are
+ * deleted (with all their data) before inserting. Rows are inserted with
+ * batched statements and committed once per batch.
+ * <p>
+ * Albums and songs reference a small pool of valid image and audio files,
+ * written in the storage directory of the application if missing.
+ * <p>
+ * Options are passed as key=value arguments:
+ * <ul>
+ * <li>users: number of users (default 1000)</li>
+ * <li>songs: total number of songs (default 100000)</li>
+ * <li>heavyUsers: share of users that are heavy users (default 0.1)</li>
+ * <li>heavyShare: share of the songs owned by heavy users (default 0.8)</li>
+ * <li>songsPerAlbum: average number of songs per album (default 10)</li>
+ * <li>playlistsPerUser: playlists of every user with songs (default 5)</li>
+ * <li>maxPlaylistSize: size of the largest playlists (default 10000)</li>
+ * <li>fixtures: number of distinct image and audio files (default 16)</li>
+ * <li>batchSize: rows per batch (default 1000)</li>
+ * <li>seed: the seed of the random choices (default 42)</li>
+ * <li>storage: the storage directory (default ~/Spolify)</li>
+ * </ul>
+ */
+public class DatasetGenerator {
+    public static final String PASSWORD = "generated";
+    private static final int AUDIO_MILLIS = 1000;
+    private static final int IMAGE_SIZE = 64;
+    private static final long PLAYLIST_AGE_MILLIS = TimeUnit.DAYS.toMillis(3 * 365);
+    private static final long EPOCH_MILLIS = 1_700_000_000_000L;
+
+    private static final String DELETE_USERS_QUERY = "DELETE FROM User WHERE username LIKE ?";
+    private static final String INSERT_USER_QUERY = "INSERT INTO User (idUser, username, password, name, surname) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_ALBUM_QUERY = "INSERT INTO Album (name, year, artist, image, idUser) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_SONG_QUERY = "INSERT INTO Song (title, idAlbum, genre, audioFile, idUser) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_PLAYLIST_QUERY = "INSERT INTO playlist_metadata (name, birthday, idUser) "
+            + "VALUES (?, ?, ?)";
+    private static final String INSERT_PLAYLIST_CONTENT_QUERY = "INSERT INTO playlist_content (idPlaylist, idSong) "
+            + "VALUES (?, ?)";
+
+    public record Config(int users, int songs, double heavyUsers, double heavyShare, int songsPerAlbum,
+                         int playlistsPerUser, int maxPlaylistSize, int fixtures, int batchSize, long seed,
+                         Path storage) {
+
+        private static final Set<String> KEYS = Set.of("users", "songs", "heavyUsers", "heavyShare", "songsPerAlbum",
+                "playlistsPerUser", "maxPlaylistSize", "fixtures", "batchSize", "seed", "storage");
+
+        static Config parse(String[] args) {
+            Map<String, String> options = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0 || !KEYS.contains(arg.substring(0, separator))) {
+                    throw new IllegalArgumentException("Expected key=value with a key in " + KEYS + ", got: " + arg);
+                }
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            Config config = new Config(Integer.parseInt(options.getOrDefault("users", "1000")),
+                    Integer.parseInt(options.getOrDefault("songs", "100000")),
+                    Double.parseDouble(options.getOrDefault("heavyUsers", "0.1")),
+                    Double.parseDouble(options.getOrDefault("heavyShare", "0.8")),
+                    Integer.parseInt(options.getOrDefault("songsPerAlbum", "10")),
+                    Integer.parseInt(options.getOrDefault("playlistsPerUser", "5")),
+                    Integer.parseInt(options.getOrDefault("maxPlaylistSize", "10000")),
+                    Integer.parseInt(options.getOrDefault("fixtures", "16")),
+                    Integer.parseInt(options.getOrDefault("batchSize", "1000")),
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    options.containsKey("storage") ? Path.of(options.get("storage"))
+                            : Path.of(System.getProperty("user.home"), "Spolify"));
+            if (config.users() < 1 || config.songs() < 0 || config.songsPerAlbum() < 1 || config.fixtures() < 1
+                    || config.batchSize() < 1 || config.maxPlaylistSize() < 1 || config.playlistsPerUser() < 0
+                    || config.heavyUsers() <= 0 || config.heavyUsers() > 1 || config.heavyShare() < 0
+                    || config.heavyShare() > 1 || config.seed() < 0) {
+                throw new IllegalArgumentException("Invalid options: " + config);
+            }
+            return config;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBinder {
+        void bind(PreparedStatement statement, int row) throws SQLException;
+    }
+
+    private final Config config;
+    private final Connection connection;
+    private final Random random;
+    private final String usernamePrefix;
+
+    public DatasetGenerator(Config config, Connection connection) {
+        this.config = config;
+        this.connection = connection;
+        this.random = new Random(config.seed());
+        this.usernamePrefix = "gen" + config.seed() + "_";
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        try (Connection connection = PerfDatabase.open()) {
+            new DatasetGenerator(config, connection).generate();
+        }
+    }
+
+    /**
+     * Replaces the dataset of the seed with a new one.
+     *
+     * @throws SQLException if a statement fails, the current batch is rolled back.
+     * @throws IOException  if the fixture files cannot be written.
+     */
+    public void generate() throws SQLException, IOException {
+        String[] images = new String[config.fixtures()];
+        String[] audios = new String[config.fixtures()];
+        writeFixtures(images, audios);
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            deletePreviousRun();
+
+            UUID[] userIds = insertUsers();
+            int[] songCounts = distributeSongs();
+            int[][] albumIds = insertAlbums(userIds, songCounts, images);
+            int[][] songIds = insertSongs(userIds, albumIds, songCounts, audios);
+            insertPlaylists(userIds, songIds);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.printf("Dataset ready, log in as %s0 ... %s%d with password %s%n", usernamePrefix, usernamePrefix,
+                config.users() - 1, PASSWORD);
+    }
+
+    private void writeFixtures(String[] images, String[] audios) throws IOException {
+        Path imageDirectory = Files.createDirectories(config.storage().resolve("image"));
+        Path audioDirectory = Files.createDirectories(config.storage().resolve("song"));
+        byte[] audio = Fixtures.wav(AUDIO_MILLIS);
+        for (int i = 0; i < config.fixtures(); i++) {
+            images[i] = usernamePrefix + i + ".png";
+            audios[i] = usernamePrefix + i + ".wav";
+            Path imagePath = imageDirectory.resolve(images[i]);
+            if (Files.notExists(imagePath)) {
+                Files.write(imagePath, Fixtures.png(IMAGE_SIZE, config.seed() + i));
+            }
+            Path audioPath = audioDirectory.resolve(audios[i]);
+            if (Files.notExists(audioPath)) {
+                Files.write(audioPath, audio);
+            }
+        }
+    }
+
+    private void deletePreviousRun() throws SQLException {
+        long start = System.nanoTime();
+        try (PreparedStatement pStatement = connection.prepareStatement(DELETE_USERS_QUERY)) {
+            pStatement.setString(1, usernamePrefix.replace("_", "\\_") + "%");
+            int deleted = pStatement.executeUpdate();
+            connection.commit();
+            report("Deleted previous users", deleted, start);
+        }
+    }
+
+    private UUID[] insertUsers() throws SQLException {
+        long start = System.nanoTime();
+        // One hash shared by every user, hashing thousands of passwords would take minutes
+        String passwordHash;
+        try {
+            passwordHash = PasswordHasher.getInstance().hash(PASSWORD);
+        } catch (DAOException e) {
+            throw new SQLException("Could not hash the password: " + e.getMessage(), e);
+        }
+        UUID[] userIds = new UUID[config.users()];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.nameUUIDFromBytes((usernamePrefix + i).getBytes(StandardCharsets.UTF_8));
+        }
+        insert(INSERT_USER_QUERY, userIds.length, false, (statement, row) -> {
+            UUIDCodec.bind(statement, 1, userIds[row]);
+            statement.setString(2, usernamePrefix + row);
+            statement.setString(3, passwordHash);
+            statement.setString(4, "Generated");
+            statement.setString(5, "User " + row);
+        });
+        report("Users", userIds.length, start);
+        return userIds;
+    }
+
+    /**
+     * Heavy users are the first ones: each song belongs to a random heavy user
+     * with probability heavyShare, to a random light user otherwise.
+     */
+    private int[] distributeSongs() {
+        int heavyUsers = Math.max(1, (int) Math.round(config.users() * config.heavyUsers()));
+        int lightUsers = config.users() - heavyUsers;
+        int[] songCounts = new int[config.users()];
+        for (int i = 0; i < config.songs(); i++) {
+            if (lightUsers == 0 || random.nextDouble() < config.heavyShare()) {
+                songCounts[random.nextInt(heavyUsers)]++;
+            } else {
+                songCounts[heavyUsers + random.nextInt(lightUsers)]++;
+            }
+        }
+        return songCounts;
+    }
+
+    private int[][] insertAlbums(UUID[] userIds, int[] songCounts, String[] images) throws SQLException {
+        long start = System.nanoTime();
+        int[] albumCounts = new int[userIds.length];
+        for (int user = 0; user < userIds.length; user++) {
+            albumCounts[user] = (songCounts[user] + config.songsPerAlbum() - 1) / config.songsPerAlbum();
+        }
+        int[] owners = owners(albumCounts);
+        int[] firstRows = firstRows(albumCounts);
+        int artists = Math.max(1, config.songs() / (config.songsPerAlbum() * 3));
+
+        int[] keys = insert(INSERT_ALBUM_QUERY, owners.length, true, (statement, row) -> {
+            statement.setString(1, "Album " + (row - firstRows[owners[row]]));
+            statement.setInt(2, 1960 + random.nextInt(66));
+            statement.setString(3, "Artist " + random.nextInt(artists));
+            statement.setString(4, images[random.nextInt(images.length)]);
+            UUIDCodec.bind(statement, 5, userIds[owners[row]]);
+        });
+        report("Albums", keys.length, start);
+        return split(keys, albumCounts);
+    }
+
+    private int[][] insertSongs(UUID[] userIds, int[][] albumIds, int[] songCounts, String[] audios)
+            throws SQLException {
+        long start = System.nanoTime();
+        int[] owners = owners(songCounts);
+        int[] firstRows = firstRows(songCounts);
+        Genre[] genres = Genre.values();
+
+        int[] keys = insert(INSERT_SONG_QUERY, owners.length, true, (statement, row) -> {
+            int[] userAlbums = albumIds[owners[row]];
+            statement.setString(1, "Song " + (row - firstRows[owners[row]]));
+            statement.setInt(2, userAlbums[random.nextInt(userAlbums.length)]);
+            statement.setString(3, genres[random.nextInt(genres.length)].name());
+            statement.setString(4, audios[random.nextInt(audios.length)]);
+            UUIDCodec.bind(statement, 5, userIds[owners[row]]);
+        });
+        report("Songs", keys.length, start);
+        return split(keys, songCounts);
+    }
+
+    private void insertPlaylists(UUID[] userIds, int[][] songIds) throws SQLException {
+        long start = System.nanoTime();
+        int[] playlistCounts = new int[userIds.length];
+        for (int user = 0; user < userIds.length; user++) {
+            playlistCounts[user] = songIds[user].length == 0 ? 0 : config.playlistsPerUser();
+        }
+        int[] owners = owners(playlistCounts);
+        int[] firstRows = firstRows(playlistCounts);
+
+        int[] playlistIds = insert(INSERT_PLAYLIST_QUERY, owners.length, true, (statement, row) -> {
+            statement.setString(1, "Playlist " + (row - firstRows[owners[row]]));
+            statement.setTimestamp(2, new Timestamp(EPOCH_MILLIS - (long) (random.nextDouble() * PLAYLIST_AGE_MILLIS)));
+            UUIDCodec.bind(statement, 3, userIds[owners[row]]);
+        });
+        report("Playlists", playlistIds.length, start);
+
+        start = System.nanoTime();
+        long rows = 0;
+        try (PreparedStatement pStatement = connection.prepareStatement(INSERT_PLAYLIST_CONTENT_QUERY)) {
+            int pending = 0;
+            for (int playlist = 0; playlist < playlistIds.length; playlist++) {
+                int[] candidates = songIds[owners[playlist]].clone();
+                int size = playlistSize(candidates.length);
+                // Partial Fisher-Yates shuffle: the first size candidates are a random sample
+                for (int i = 0; i < size; i++) {
+                    int j = i + random.nextInt(candidates.length - i);
+                    int swap = candidates[i];
+                    candidates[i] = candidates[j];
+                    candidates[j] = swap;
+
+                    pStatement.setInt(1, playlistIds[playlist]);
+                    pStatement.setInt(2, candidates[i]);
+                    pStatement.addBatch();
+                    if (++pending == config.batchSize()) {
+                        pStatement.executeBatch();
+                        connection.commit();
+                        pending = 0;
+                    }
+                }
+                rows += size;
+            }
+            if (pending > 0) {
+                pStatement.executeBatch();
+                connection.commit();
+            }
+        }
+        report("Playlist songs", rows, start);
+    }
+
+    /**
+     * @param available The number of songs of the owner.
+     * @return A log-uniform size between 1 and maxPlaylistSize, capped at the
+     * number of available songs.
+     */
+    private int playlistSize(int available) {
+        int max = Math.min(available, config.maxPlaylistSize());
+        int size = (int) Math.round(Math.exp(random.nextDouble() * Math.log(max)));
+        return Math.clamp(size, 1, max);
+    }
+
+    /**
+     * Inserts the rows in batches of batchSize, committing after every batch.
+     *
+     * @return The generated keys, in insertion order, or an empty array if
+     * generatedKeys is false.
+     */
+    private int[] insert(String query, int rows, boolean generatedKeys, RowBinder binder) throws SQLException {
+        int[] keys = new int[generatedKeys ? rows : 0];
+        int nextKey = 0;
+        try (PreparedStatement pStatement = generatedKeys
+                ? connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(query)) {
+            for (int row = 0; row < rows; row++) {
+                binder.bind(pStatement, row);
+                pStatement.addBatch();
+                if ((row + 1) % config.batchSize() == 0 || row == rows - 1) {
+                    pStatement.executeBatch();
+                    if (generatedKeys) {
+                        try (ResultSet result = pStatement.getGeneratedKeys()) {
+                            while (result.next()) {
+                                keys[nextKey++] = result.getInt(1);
+                            }
+                        }
+                    }
+                    connection.commit();
+                }
+            }
+        }
+        if (nextKey != keys.length) {
+            throw new SQLException("Expected " + keys.length + " generated keys, got " + nextKey);
+        }
+        return keys;
+    }
+
+    /**
+     * @return For every row, the user owning it, with the rows of each user
+     * contiguous and in user order.
+     */
+    private static int[] owners(int[] counts) {
+        int[] owners = new int[total(counts)];
+        int row = 0;
+        for (int user = 0; user < counts.length; user++) {
+            for (int i = 0; i < counts[user]; i++) {
+                owners[row++] = user;
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * @return For every user, the index of its first row.
+     */
+    private static int[] firstRows(int[] counts) {
+        int[] firstRows = new int[counts.length];
+        for (int user = 1; user < counts.length; user++) {
+            firstRows[user] = firstRows[user - 1] + counts[user - 1];
+        }
+        return firstRows;
+    }
+
+    private static int[][] split(int[] keys, int[] counts) {
+        int[][] perUser = new int[counts.length][];
+        int from = 0;
+        for (int user = 0; user < counts.length; user++) {
+            perUser[user] = Arrays.copyOfRange(keys, from, from + counts[user]);
+            from += counts[user];
+        }
+        return perUser;
+    }
+
+    private static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static void report(String what, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-16s %10d rows in %7.2f s (%.0f rows/s)%n", what, rows, seconds,
+                seconds > 0 ? rows / seconds : 0);
+    }
+}
@@ -0,0 +1,119 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.beans.*;
+import it.polimi.tiw.projects.utils.Genre;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Small valid media files and in-memory libraries shared by the benchmarks and
+ * the performance tools. Everything is derived from a seed, so runs are
+ * reproducible.
+ */
+public final class Fixtures {
+    private static final int SAMPLE_RATE = 8000;
+    private static final Genre[] GENRES = Genre.values();
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param durationMillis The length of the clip.
+     * @return A mono 16-bit PCM WAV file containing silence.
+     */
+    public static byte[] wav(int durationMillis) {
+        int dataSize = SAMPLE_RATE * durationMillis / 1000 * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) 1);
+        buffer.putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(dataSize);
+        return buffer.array();
+    }
+
+    /**
+     * @param size The width and height of the image.
+     * @param seed The seed of the pixel colours.
+     * @return A PNG image filled with a single colour.
+     */
+    public static byte[] png(int size, long seed) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        int rgb = new Random(seed).nextInt(0xFFFFFF);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds a library without touching the database.
+     *
+     * @param songCount     The number of songs.
+     * @param albumCount    The number of albums the songs are spread on.
+     * @param playlistCount The number of playlists.
+     * @param playlistSize  The number of songs in every playlist.
+     * @param seed          The seed of the random choices.
+     * @return The library, with IDs starting from 1.
+     */
+    public static LibrarySnapshot library(int songCount, int albumCount, int playlistCount, int playlistSize,
+                                          long seed) {
+        Random random = new Random(seed);
+        UUID userId = new UUID(seed, seed);
+
+        List<Album> albums = new ArrayList<>(albumCount);
+        for (int i = 1; i <= albumCount; i++) {
+            Album album = new Album();
+            album.setIdAlbum(i);
+            album.setName("Album " + i);
+            album.setYear(1960 + random.nextInt(65));
+            album.setArtist("Artist " + random.nextInt(Math.max(1, albumCount / 3)));
+            album.setImage("album_" + i + ".png");
+            album.setIdUser(userId);
+            albums.add(album);
+        }
+
+        List<Song> songs = new ArrayList<>(songCount);
+        for (int i = 1; i <= songCount; i++) {
+            Song song = new Song();
+            song.setIdSong(i);
+            song.setTitle("Song " + i);
+            song.setIdAlbum(1 + random.nextInt(albumCount));
+            song.setGenre(GENRES[random.nextInt(GENRES.length)]);
+            song.setAudioFile("song_" + i + ".wav");
+            song.setIdUser(userId);
+            songs.add(song);
+        }
+
+        List<Playlist> playlists = new ArrayList<>(playlistCount);
+        for (int i = 1; i <= playlistCount; i++) {
+            Playlist playlist = new Playlist();
+            playlist.setIdPlaylist(i);
+            playlist.setName("Playlist " + i);
+            playlist.setBirthday(new Timestamp(1_700_000_000_000L + i * 60_000L));
+            playlist.setIdUser(userId);
+            playlist.setSongs(random.ints(1, songCount + 1).distinct().limit(Math.min(playlistSize, songCount))
+                    .boxed().toList());
+            playlists.add(playlist);
+        }
+
+        return new LibrarySnapshot(1, songs, albums, playlists);
+    }
+}
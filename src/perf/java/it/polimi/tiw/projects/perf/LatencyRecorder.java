@@ -0,0 +1,84 @@
+package it.polimi.tiw.projects.perf;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe per-endpoint latency histograms, recorded in microseconds.
+ */
+public class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    /**
+     * @param endpoint     The name of the endpoint.
+     * @param elapsedNanos The time the request took.
+     * @param success      Whether the response had the expected status.
+     */
+    public void record(String endpoint, long elapsedNanos, boolean success) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS);
+        histograms.computeIfAbsent(endpoint, e -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS))
+                .recordValue(micros);
+        if (!success) {
+            errors.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Prints one line per endpoint with the count, errors, throughput and the
+     * main percentiles in milliseconds.
+     *
+     * @param out            The stream to print to.
+     * @param elapsedSeconds The duration of the run, used for the throughput.
+     */
+    public void printSummary(PrintStream out, double elapsedSeconds) {
+        out.printf("%-20s %8s %7s %9s %9s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "req/s", "p50 ms",
+                "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        histograms.forEach((endpoint, histogram) -> out.printf("%-20s %8d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint, histogram.getTotalCount(), errorCount(endpoint), histogram.getTotalCount() / elapsedSeconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue())));
+    }
+
+    /**
+     * Writes the full percentile distribution of every endpoint in the .hgrm
+     * format, which the HdrHistogram plotter can read.
+     *
+     * @param directory The directory the files are written to.
+     * @throws IOException if a file cannot be written.
+     */
+    public void writeDistributions(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Path file = directory.resolve(entry.getKey() + ".hgrm");
+            try (PrintStream out = new PrintStream(new FileOutputStream(file.toFile()))) {
+                // Values are in microseconds, the scaling ratio prints them in milliseconds
+                entry.getValue().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    public long errorCount(String endpoint) {
+        LongAdder adder = errors.get(endpoint);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
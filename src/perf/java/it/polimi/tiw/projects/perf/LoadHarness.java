@@ -0,0 +1,194 @@
+package it.polimi.tiw.projects.perf;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.loader.WebappLoader;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.ApplicationParameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: boots the application in an embedded Tomcat against
+ * the configured database (or the in-memory DAOs), waits for /ready and then runs concurrent virtual
+ * users through the {@link UserJourney}. Per-endpoint latency percentiles are
+ * printed at the end and, when an output directory is given, the full
+ * distributions are written as .hgrm files next to a scrape of the
+ * application's /metrics endpoint and its SQL statement report.
+ * <p>
+ * Options are passed as key=value arguments:
+ * <ul>
+ * <li>users: concurrent virtual users (default 20)</li>
+ * <li>iterations: journey iterations per user (default 10)</li>
+ * <li>songs: songs uploaded by each user before the loop (default 12)</li>
+ * <li>pages: playlist pages visited at most per iteration (default 3)</li>
+ * <li>audioMillis: length of the uploaded audio tracks (default 2000)</li>
+ * <li>thinkMillis: pause between the steps of a journey (default 0)</li>
+ * <li>port: the HTTP port, 0 picks a free one (default 0)</li>
+ * <li>webapp: the webapp directory (default src/main/webapp)</li>
+ * <li>out: directory for the .hgrm files, metrics.prom and statements.txt
+ * (default none)</li>
+ * <li>url: target an already running deployment instead of booting one</li>
+ * <li>dao: DAO implementation of the booted application, jdbc or memory
+ * (default: the one in web.xml)</li>
+ * <li>auth: authentication mode of the booted application, session or token
+ * (default: the one in web.xml)</li>
+ * <li>replica: JDBC URL of a read replica for the booted application, for
+ * instance a second local database instance (default: the one in web.xml)</li>
+ * </ul>
+ */
+public class LoadHarness {
+    private static final String CONTEXT_PATH = "/Spolify";
+
+    public record Config(int users, int iterations, int songsPerUser, int maxPages, int audioMillis,
+                         long thinkMillis, int port, String webapp, String out, String url, String dao,
+                         String auth, String replica) {
+
+        private static final Set<String> KEYS = Set.of("users", "iterations", "songs", "pages", "audioMillis",
+                "thinkMillis", "port", "webapp", "out", "url", "dao", "auth",
+                "replica");
+
+        static Config parse(String[] args) {
+            Map<String, String> options = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0 || !KEYS.contains(arg.substring(0, separator))) {
+                    throw new IllegalArgumentException("Expected key=value with a key in " + KEYS + ", got: " + arg);
+                }
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            return new Config(intOption(options, "users", 20), intOption(options, "iterations", 10),
+                    intOption(options, "songs", 12), intOption(options, "pages", 3),
+                    intOption(options, "audioMillis", 2000), intOption(options, "thinkMillis", 0),
+                    intOption(options, "port", 0), options.getOrDefault("webapp", "src/main/webapp"),
+                    options.get("out"), options.get("url"), options.get("dao"), options.get("auth"),
+                    options.get("replica"));
+        }
+
+        private static int intOption(Map<String, String> options, String name, int defaultValue) {
+            String value = options.get(name);
+            return value == null ? defaultValue : Integer.parseInt(value);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        Tomcat tomcat = null;
+        String baseUrl = config.url();
+        if (baseUrl == null) {
+            tomcat = startTomcat(config);
+            baseUrl = "http://localhost:" + tomcat.getConnector().getLocalPort() + CONTEXT_PATH;
+        }
+        try {
+            awaitReady(baseUrl);
+            run(baseUrl, config);
+        } finally {
+            if (tomcat != null) {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+        }
+    }
+
+    private static Tomcat startTomcat(Config config) throws IOException, LifecycleException {
+        Path baseDir = Files.createTempDirectory("spolify-tomcat");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(config.port());
+        tomcat.getConnector();
+        Context context = tomcat.addWebapp(CONTEXT_PATH, new File(config.webapp()).getAbsolutePath());
+        // Not overridable, so they win over the values in web.xml
+        if (config.dao() != null) {
+            context.addApplicationParameter(parameter("dao.implementation", config.dao()));
+        }
+        if (config.auth() != null) {
+            context.addApplicationParameter(parameter("auth.mode", config.auth()));
+        }
+        if (config.replica() != null) {
+            context.addApplicationParameter(parameter("db.replica.url", config.replica()));
+        }
+        // The application has no JSPs and Jasper is not on the classpath
+        context.addLifecycleListener(event -> {
+            if (Lifecycle.BEFORE_START_EVENT.equals(event.getType()) && context.findChild("jsp") != null) {
+                context.removeChild(context.findChild("jsp"));
+            }
+        });
+        // The application classes and their dependencies come from this classpath, not from WEB-INF/lib
+        context.setParentClassLoader(LoadHarness.class.getClassLoader());
+        WebappLoader loader = new WebappLoader();
+        loader.setDelegate(true);
+        context.setLoader(loader);
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static ApplicationParameter parameter(String name, String value) {
+        ApplicationParameter parameter = new ApplicationParameter();
+        parameter.setName(name);
+        parameter.setValue(value);
+        parameter.setOverride(false);
+        return parameter;
+    }
+
+    private static void awaitReady(String baseUrl) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/ready")).GET().build();
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("The application did not become ready");
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private static void run(String baseUrl, Config config) throws IOException, InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder();
+        // Usernames must be unique across runs against the same database
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        System.out.printf("Running %d users x %d iterations against %s%n", config.users(), config.iterations(),
+                baseUrl);
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(config.users())) {
+            for (int i = 0; i < config.users(); i++) {
+                executor.execute(new UserJourney(baseUrl, "perf_" + runId + "_" + i, config, recorder, i));
+            }
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Completed in %.1f s%n", elapsedSeconds);
+        recorder.printSummary(System.out, elapsedSeconds);
+        if (config.out() != null) {
+            recorder.writeDistributions(Path.of(config.out()));
+            save(baseUrl + "/metrics", Path.of(config.out(), "metrics.prom"));
+            save(baseUrl + "/metrics/sql?top=50", Path.of(config.out(), "statements.txt"));
+            System.out.println("Distributions and metrics written to " + config.out());
+        }
+    }
+
+    private static void save(String url, Path file) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        HttpResponse<Path> response = HttpClient.newHttpClient().send(request,
+                HttpResponse.BodyHandlers.ofFile(file));
+        if (response.statusCode() != 200) {
+            // The statement report is missing when the profiler is disabled or the DAOs are in memory
+            Files.deleteIfExists(file);
+            System.out.println(url + " answered " + response.statusCode() + ", not saved");
+        }
+    }
+}
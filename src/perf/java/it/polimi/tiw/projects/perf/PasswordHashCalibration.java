@@ -0,0 +1,140 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.dao.PasswordHasher;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the cost of the password hashes for a target login latency.
+ * <p>
+ * For a fixed memory, it hashes with 1, 2, ... iterations through a
+ * {@link PasswordHasher} configured like the application, while
+ * {@code clients} threads submit hashes as fast as they can, like a burst of
+ * logins. The time of a hash includes the wait in the queue. It prints the
+ * latency and throughput of every cost and recommends the highest number of
+ * iterations whose p99 stays within the target.
+ * <p>
+ * Options are passed as key=value arguments:
+ * <ul>
+ * <li>targetMillis: the target p99 in milliseconds (default 250)</li>
+ * <li>memoryKiB: the memory of a hash in KiB (default 19456)</li>
+ * <li>threads: the hashing threads (default: half of the processors)</li>
+ * <li>clients: the concurrent logins (default: twice the threads)</li>
+ * <li>samples: hashes measured per cost (default 200)</li>
+ * <li>maxIterations: the highest cost tried (default 10)</li>
+ * </ul>
+ */
+public class PasswordHashCalibration {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    public record Config(long targetMillis, int memoryKiB, int threads, int clients, int samples, int maxIterations) {
+
+        private static final Set<String> KEYS = Set.of("targetMillis", "memoryKiB", "threads", "clients", "samples",
+                "maxIterations");
+
+        static Config parse(String[] args) {
+            Map<String, String> options = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0 || !KEYS.contains(arg.substring(0, separator))) {
+                    throw new IllegalArgumentException("Expected key=value with a key in " + KEYS + ", got: " + arg);
+                }
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            int threads = Integer.parseInt(options.getOrDefault("threads",
+                    String.valueOf(PasswordHasher.defaultThreads())));
+            Config config = new Config(Long.parseLong(options.getOrDefault("targetMillis", "250")),
+                    Integer.parseInt(options.getOrDefault("memoryKiB",
+                            String.valueOf(PasswordHasher.DEFAULT_MEMORY_KIB))),
+                    threads, Integer.parseInt(options.getOrDefault("clients", String.valueOf(threads * 2))),
+                    Integer.parseInt(options.getOrDefault("samples", "200")),
+                    Integer.parseInt(options.getOrDefault("maxIterations", "10")));
+            if (config.targetMillis() < 1 || config.memoryKiB() < 8 || config.threads() < 1 || config.clients() < 1
+                    || config.samples() < 1 || config.maxIterations() < 1) {
+                throw new IllegalArgumentException("Invalid options: " + config);
+            }
+            return config;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        System.out.printf("Calibrating argon2id with m=%d KiB, %d threads, %d concurrent logins, target p99 %d ms%n",
+                config.memoryKiB(), config.threads(), config.clients(), config.targetMillis());
+        System.out.printf("%10s %9s %9s %9s %9s%n", "iterations", "p50 ms", "p99 ms", "max ms", "hashes/s");
+
+        int recommended = 0;
+        for (int iterations = 1; iterations <= config.maxIterations(); iterations++) {
+            Measurement measurement = measure(config, iterations);
+            Histogram histogram = measurement.histogram();
+            double p99 = histogram.getValueAtPercentile(99) / 1000.0;
+            System.out.printf("%10d %9.1f %9.1f %9.1f %9.1f%s%n", iterations,
+                    histogram.getValueAtPercentile(50) / 1000.0, p99, histogram.getMaxValue() / 1000.0,
+                    measurement.hashesPerSecond(), p99 > config.targetMillis() ? "  over the target" : "");
+            if (p99 > config.targetMillis()) {
+                break;
+            }
+            recommended = iterations;
+        }
+
+        if (recommended == 0) {
+            System.out.println("Even one iteration is over the target: lower memoryKiB or add hashing threads.");
+        } else {
+            System.out.printf("Recommended: password.hash.memoryKiB=%d password.hash.iterations=%d "
+                    + "password.hash.threads=%d%n", config.memoryKiB(), recommended, config.threads());
+        }
+    }
+
+    private record Measurement(Histogram histogram, double hashesPerSecond) {
+    }
+
+    private static Measurement measure(Config config, int iterations) throws Exception {
+        // Every client has a slot in the queue, nothing is rejected
+        PasswordHasher hasher = new PasswordHasher(config.memoryKiB(), iterations, config.threads(),
+                config.clients());
+        Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        AtomicInteger remaining = new AtomicInteger(config.samples());
+        ExecutorService clients = Executors.newFixedThreadPool(config.clients());
+        try {
+            // Warm-up, not recorded
+            hasher.hash("warm-up");
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < config.clients(); i++) {
+                futures.add(clients.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long hashStart = System.nanoTime();
+                        try {
+                            hasher.hash("calibration password");
+                        } catch (DAOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - hashStart),
+                                HIGHEST_TRACKABLE_MICROS));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Measurement(histogram, histogram.getTotalCount() / seconds);
+        } finally {
+            clients.shutdown();
+            hasher.shutdown();
+        }
+    }
+}
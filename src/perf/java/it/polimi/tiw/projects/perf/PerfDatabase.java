@@ -0,0 +1,32 @@
+package it.polimi.tiw.projects.perf;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Connections of the performance tools, configured with the system properties
+ * perf.db.url, perf.db.user and perf.db.password, which default to the ones
+ * used by the tests. Pass them to a tool run through exec:exec with
+ * {@code -Dperf.jvmArgs="-Dperf.db.url=..."}.
+ */
+public final class PerfDatabase {
+
+    private PerfDatabase() {
+    }
+
+    /**
+     * @return A new connection, with batched statements rewritten into
+     * multi-row inserts as in the application pool.
+     * @throws SQLException if the connection cannot be opened.
+     */
+    public static Connection open() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("perf.db.user", "tiw"));
+        properties.setProperty("password", System.getProperty("perf.db.password", "TIW2025"));
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return DriverManager.getConnection(System.getProperty("perf.db.url", "jdbc:mysql://localhost:3306/TIW2025"),
+                properties);
+    }
+}
@@ -0,0 +1,96 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.beans.AddSongsToPlaylistResult;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.dao.JdbcPlaylistDAO;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.UUIDCodec;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlaylistDAO calls against a live database. The benchmark picks the user
+ * owning the most playlists and that user's largest playlist, so it should be
+ * run on a database filled with a realistic dataset. Adding the songs of that
+ * playlist to it again measures a bulk add made only of duplicates, which
+ * leaves the database unchanged.
+ * <p>
+ * The connection is configured as in {@link PerfDatabase}. Forked JVMs need
+ * the properties too: pass them with
+ * {@code -Dperf.args="-jvmArgs -Dperf.db.url=... PlaylistDAO"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaylistDAOBenchmark {
+    private static final String MOST_PLAYLISTS_QUERY = "SELECT idUser FROM playlist_metadata "
+            + "GROUP BY idUser ORDER BY COUNT(*) DESC LIMIT 1";
+    private static final String LARGEST_PLAYLIST_QUERY = "SELECT pm.idPlaylist FROM playlist_metadata pm "
+            + "LEFT JOIN playlist_content pc ON pc.idPlaylist = pm.idPlaylist WHERE pm.idUser = ? "
+            + "GROUP BY pm.idPlaylist ORDER BY COUNT(pc.idSong) DESC LIMIT 1";
+    private static final String PLAYLIST_SONGS_QUERY = "SELECT idSong FROM playlist_content WHERE idPlaylist = ?";
+
+    private Connection connection;
+    private PlaylistDAO playlistDAO;
+    private UUID userId;
+    private int playlistId;
+    private List<Integer> playlistSongIds;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = PerfDatabase.open();
+        playlistDAO = new JdbcPlaylistDAO(connection);
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(MOST_PLAYLISTS_QUERY)) {
+            if (!result.next()) {
+                throw new IllegalStateException("No playlists in the database, generate a dataset first");
+            }
+            userId = UUIDCodec.read(result, 1);
+        }
+        try (PreparedStatement pStatement = connection.prepareStatement(LARGEST_PLAYLIST_QUERY)) {
+            UUIDCodec.bind(pStatement, 1, userId);
+            try (ResultSet result = pStatement.executeQuery()) {
+                result.next();
+                playlistId = result.getInt("idPlaylist");
+            }
+        }
+        playlistSongIds = new ArrayList<>();
+        try (PreparedStatement pStatement = connection.prepareStatement(PLAYLIST_SONGS_QUERY)) {
+            pStatement.setInt(1, playlistId);
+            try (ResultSet result = pStatement.executeQuery()) {
+                while (result.next()) {
+                    playlistSongIds.add(result.getInt(1));
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Playlist> findPlaylistsByUser() throws DAOException {
+        return playlistDAO.findPlaylistsByUser(userId);
+    }
+
+    @Benchmark
+    public Playlist findPlaylistById() throws DAOException {
+        return playlistDAO.findPlaylistById(playlistId, userId);
+    }
+
+    @Benchmark
+    public AddSongsToPlaylistResult addDuplicateSongs() throws DAOException {
+        return playlistDAO.addSongsToPlaylist(playlistId, userId, playlistSongIds);
+    }
+}
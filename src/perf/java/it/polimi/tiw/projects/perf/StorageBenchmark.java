@@ -0,0 +1,85 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.beans.FileData;
+import it.polimi.tiw.projects.dao.AudioDAO;
+import it.polimi.tiw.projects.dao.ImageDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.StorageUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * File storage hot paths: secure path resolution, MIME detection and the
+ * metadata lookup done by the audio and image getters before streaming.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    private static final String AUDIO_NAME = "bench_audio.wav";
+    private static final String IMAGE_NAME = "bench_image.png";
+
+    private Path baseDirectory;
+    private Path audioDirectory;
+    private Path audioPath;
+    private Path imagePath;
+    private AudioDAO audioDAO;
+    private ImageDAO imageDAO;
+
+    @Setup
+    public void setUp() throws IOException {
+        baseDirectory = Files.createTempDirectory("spolify-bench");
+        audioDAO = new AudioDAO(baseDirectory);
+        imageDAO = new ImageDAO(baseDirectory);
+        audioDirectory = baseDirectory.resolve("song");
+        audioPath = Files.write(audioDirectory.resolve(AUDIO_NAME), Fixtures.wav(3000));
+        imagePath = Files.write(baseDirectory.resolve("image").resolve(IMAGE_NAME), Fixtures.png(64, 1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(baseDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public Path resolveSecurePath() throws DAOException {
+        return StorageUtils.validateAndResolveSecurePath(AUDIO_NAME, audioDirectory);
+    }
+
+    @Benchmark
+    public String detectAudioMimeType() throws IOException {
+        return StorageUtils.getMimeDetector().detect(audioPath);
+    }
+
+    @Benchmark
+    public String detectImageMimeType() throws IOException {
+        return StorageUtils.getMimeDetector().detect(imagePath);
+    }
+
+    @Benchmark
+    public long openAudio() throws DAOException, IOException {
+        try (FileData fileData = audioDAO.getAudio(AUDIO_NAME)) {
+            return fileData.size();
+        }
+    }
+
+    @Benchmark
+    public long openImage() throws DAOException, IOException {
+        try (FileData fileData = imageDAO.getImage(IMAGE_NAME)) {
+            return fileData.size();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.beans.*;
+import it.polimi.tiw.projects.utils.Genre;
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IExpressionContext;
+import org.thymeleaf.linkbuilder.StandardLinkBuilder;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.FileTemplateResolver;
+
+import java.io.StringWriter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thymeleaf rendering of the Home and Playlist pages with the same model the
+ * servlets build. Templates are read from perf.webapp (default
+ * src/main/webapp) and parsed once, as in the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int songCount;
+
+    private TemplateEngine templateEngine;
+    private Context homeContext;
+    private Context playlistContext;
+
+    @Setup
+    public void setUp() {
+        FileTemplateResolver resolver = new FileTemplateResolver();
+        resolver.setPrefix(System.getProperty("perf.webapp", "src/main/webapp"));
+        resolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        // Links normally take the context path from the request, which a benchmark doesn't have
+        templateEngine.setLinkBuilder(new StandardLinkBuilder() {
+            @Override
+            protected String computeContextPath(IExpressionContext context, String base, Map<String, Object> parameters) {
+                return "/Spolify";
+            }
+        });
+
+        LibrarySnapshot library = Fixtures.library(songCount, Math.max(1, songCount / 10), 50, 20, 7);
+
+        homeContext = new Context(Locale.ENGLISH);
+        homeContext.setVariable("playlists", library.playlists());
+        homeContext.setVariable("songs", library.songs());
+        homeContext.setVariable("genres", Arrays.asList(Genre.values()));
+
+        Playlist playlist = library.playlists().getFirst();
+        Map<Integer, Album> albums = new HashMap<>();
+        library.albums().forEach(album -> albums.put(album.getIdAlbum(), album));
+        List<SongWithAlbum> page = playlist.getSongs().stream().limit(5)
+                .map(id -> library.findSong(id)).map(song -> new SongWithAlbum(song, albums.get(song.getIdAlbum())))
+                .toList();
+        Set<Integer> inPlaylist = new HashSet<>(playlist.getSongs());
+        playlistContext = new Context(Locale.ENGLISH);
+        playlistContext.setVariable("playlist", playlist);
+        playlistContext.setVariable("songWithAlbum", page);
+        playlistContext.setVariable("page", 1);
+        playlistContext.setVariable("totPages", 4);
+        playlistContext.setVariable("songs",
+                library.songs().stream().filter(song -> !inPlaylist.contains(song.getIdSong())).toList());
+    }
+
+    @Benchmark
+    public String renderHome() {
+        StringWriter writer = new StringWriter();
+        templateEngine.process("/WEB-INF/Home.html", homeContext, writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String renderPlaylist() {
+        StringWriter writer = new StringWriter();
+        templateEngine.process("/WEB-INF/Playlist.html", playlistContext, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,198 @@
+package it.polimi.tiw.projects.perf;
+
+import it.polimi.tiw.projects.utils.Genre;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The scripted behaviour of one virtual user: sign up, log in, upload a few
+ * songs, then repeatedly open the home page, create a playlist, page through
+ * it, open a song and stream its audio. Every request is timed on its own,
+ * redirects are not followed.
+ */
+public class UserJourney implements Runnable {
+    private static final Pattern SONG_ID = Pattern.compile("id=\"song_(\\d+)\"");
+    private static final Pattern PLAYLIST_ID = Pattern.compile("GetPlaylistDetails\\?playlistId=(\\d+)\"");
+    private static final Pattern OPEN_SONG = Pattern.compile("OpenSong\\?songId=(\\d+)");
+    private static final Pattern AUDIO_NAME = Pattern.compile("GetSong\\?audioName=([^\"&]+)");
+    private static final Pattern PAGE_BUTTON = Pattern.compile("name=\"page\"[^>]*value=\"(\\d+)\"");
+    private static final String BOUNDARY = "----SpolifyLoadHarnessBoundary";
+    private static final String PASSWORD = "perfPassword";
+
+    private final String baseUrl;
+    private final String username;
+    private final LoadHarness.Config config;
+    private final LatencyRecorder recorder;
+    private final Random random;
+    private final HttpClient client;
+
+    public UserJourney(String baseUrl, String username, LoadHarness.Config config, LatencyRecorder recorder,
+                       long seed) {
+        this.baseUrl = baseUrl;
+        this.username = username;
+        this.config = config;
+        this.recorder = recorder;
+        this.random = new Random(seed);
+        this.client = HttpClient.newBuilder().cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER).connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @Override
+    public void run() {
+        try {
+            setUp();
+            for (int i = 0; i < config.iterations(); i++) {
+                iteration(i);
+            }
+        } catch (IOException e) {
+            System.err.println("Journey of " + username + " aborted: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void setUp() throws IOException, InterruptedException {
+        post("SignUp", "/SignUp", form(Map.of("sName", "Perf", "sSurname", "Tester", "sUsername", username,
+                "sPwd", PASSWORD)), 302);
+        post("CheckLogin", "/CheckLogin", form(Map.of("lUsername", username, "lPwd", PASSWORD)), 302);
+        for (int i = 0; i < config.songsPerUser(); i++) {
+            uploadSong(i);
+        }
+    }
+
+    private void iteration(int iteration) throws IOException, InterruptedException {
+        String home = get("Home", "/Home", 200);
+        List<String> songIds = all(SONG_ID, home);
+        if (songIds.isEmpty()) {
+            return;
+        }
+        Collections.shuffle(songIds, random);
+        List<String> selected = songIds.subList(0, 1 + random.nextInt(songIds.size()));
+        StringBuilder body = new StringBuilder(form(Map.of("pName", "Perf playlist " + iteration)));
+        for (String songId : selected) {
+            body.append("&songsSelect=").append(songId);
+        }
+        post("NewPlaylist", "/NewPlaylist", body.toString(), 302);
+        think();
+
+        List<String> playlistIds = all(PLAYLIST_ID, get("Home", "/Home", 200));
+        if (playlistIds.isEmpty()) {
+            return;
+        }
+        String playlistId = playlistIds.get(random.nextInt(playlistIds.size()));
+        String page = get("GetPlaylistDetails", "/GetPlaylistDetails?playlistId=" + playlistId + "&page=0", 200);
+        List<String> songsInPlaylist = new ArrayList<>(all(OPEN_SONG, page));
+        // Follow the "next" button until the last page
+        for (int pageNumber = 1; pageNumber < config.maxPages(); pageNumber++) {
+            if (!all(PAGE_BUTTON, page).contains(String.valueOf(pageNumber))) {
+                break;
+            }
+            page = get("GetPlaylistDetails", "/GetPlaylistDetails?playlistId=" + playlistId + "&page=" + pageNumber,
+                    200);
+            songsInPlaylist.addAll(all(OPEN_SONG, page));
+        }
+        think();
+
+        if (songsInPlaylist.isEmpty()) {
+            return;
+        }
+        String songId = songsInPlaylist.get(random.nextInt(songsInPlaylist.size()));
+        String inspector = get("OpenSong", "/OpenSong?songId=" + songId + "&playlistId=" + playlistId, 200);
+        Matcher audio = AUDIO_NAME.matcher(inspector);
+        if (audio.find()) {
+            stream("GetSong", "/GetSong?audioName=" + audio.group(1));
+        }
+        think();
+    }
+
+    private void uploadSong(int index) throws IOException, InterruptedException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        // A few albums per user, the first song of each creates it
+        int album = index % 3;
+        textPart(body, "sTitle", "Perf song " + index);
+        textPart(body, "sAlbum", "Perf album " + album);
+        textPart(body, "sYear", String.valueOf(2000 + album));
+        textPart(body, "sArtist", "Perf artist " + album);
+        textPart(body, "sGenre", Genre.values()[index % Genre.values().length].name());
+        filePart(body, "sIcon", "cover.png", "image/png", Fixtures.png(32, album));
+        filePart(body, "sFile", "track.wav", "audio/wav", Fixtures.wav(config.audioMillis()));
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/NewSong"))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())).build();
+        send("NewSong", request, HttpResponse.BodyHandlers.discarding(), 302);
+    }
+
+    private String get(String endpoint, String path, int expectedStatus) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        return send(endpoint, request, HttpResponse.BodyHandlers.ofString(), expectedStatus).body();
+    }
+
+    private void stream(String endpoint, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        send(endpoint, request, HttpResponse.BodyHandlers.discarding(), 200);
+    }
+
+    private void post(String endpoint, String path, String formBody, int expectedStatus)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(formBody)).build();
+        send(endpoint, request, HttpResponse.BodyHandlers.discarding(), expectedStatus);
+    }
+
+    private <T> HttpResponse<T> send(String endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler,
+                                     int expectedStatus) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<T> response = client.send(request, handler);
+        recorder.record(endpoint, System.nanoTime() - start, response.statusCode() == expectedStatus);
+        return response;
+    }
+
+    private void think() throws InterruptedException {
+        if (config.thinkMillis() > 0) {
+            Thread.sleep(config.thinkMillis());
+        }
+    }
+
+    private static List<String> all(Pattern pattern, String html) {
+        Set<String> values = new LinkedHashSet<>();
+        Matcher matcher = pattern.matcher(html);
+        while (matcher.find()) {
+            values.add(matcher.group(1));
+        }
+        return new ArrayList<>(values);
+    }
+
+    private static String form(Map<String, String> fields) {
+        StringJoiner joiner = new StringJoiner("&");
+        fields.forEach((key, value) -> joiner.add(key + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        return joiner.toString();
+    }
+
+    private static void textPart(ByteArrayOutputStream body, String name, String value) {
+        body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value
+                + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void filePart(ByteArrayOutputStream body, String name, String filename, String contentType,
+                                 byte[] content) {
+        body.writeBytes(("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"" + name + "\"; filename=\""
+                + filename + "\"\r\nContent-Type: " + contentType + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
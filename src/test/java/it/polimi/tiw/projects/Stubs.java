@@ -0,0 +1,66 @@
+package it.polimi.tiw.projects;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stubs of interfaces, such as the JDBC ones, for the tests that need a few
+ * of their methods without a database. The methods given an answer run it,
+ * every other method throws an {@link UnsupportedOperationException} naming
+ * it, so that a test fails loudly when the code under test starts using one.
+ *
+ * @param <T> The stubbed interface.
+ */
+public final class Stubs<T> {
+    private final Class<T> type;
+    private final Map<String, Answer> answers = new HashMap<>();
+
+    private Stubs(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Starts a stub of the given interface, answering no method yet.
+     */
+    public static <T> Stubs<T> of(Class<T> type) {
+        return new Stubs<>(type);
+    }
+
+    /**
+     * Answers every overload of a method.
+     *
+     * @return This instance, to add more answers.
+     */
+    public Stubs<T> on(String methodName, Answer answer) {
+        answers.put(methodName, answer);
+        return this;
+    }
+
+    /**
+     * @return The stub, answering the methods given so far.
+     */
+    public T build() {
+        Map<String, Answer> answers = Map.copyOf(this.answers);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Answer answer = answers.get(method.getName());
+                    if (answer == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return answer.answer(args != null ? args : new Object[0]);
+                }));
+    }
+
+    /**
+     * What a stubbed method does.
+     */
+    @FunctionalInterface
+    public interface Answer {
+        /**
+         * @param args The arguments of the call, empty if there are none.
+         * @return The result of the call, null for a void method.
+         */
+        Object answer(Object[] args) throws Throwable;
+    }
+}
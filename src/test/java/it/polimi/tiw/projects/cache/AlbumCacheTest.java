@@ -0,0 +1,77 @@
+package it.polimi.tiw.projects.cache;
+
+import it.polimi.tiw.projects.beans.Album;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlbumCacheTest {
+
+    private static Album newAlbum(int idAlbum, String name) {
+        Album album = new Album();
+        album.setIdAlbum(idAlbum);
+        album.setName(name);
+        album.setYear(2024);
+        album.setArtist("JUnit Artist");
+        album.setIdUser(UUID.randomUUID());
+        return album;
+    }
+
+    @Test
+    @DisplayName("Cached albums are returned as independent copies")
+    void testGet_ReturnsCopies() {
+        AlbumCache cache = new AlbumCache(10, 0);
+        Album album = newAlbum(1, "Original");
+        cache.put(album, cache.generation());
+        album.setName("Changed by the caller");
+
+        Album first = cache.get(1);
+        assertNotNull(first);
+        assertEquals("Original", first.getName(), "Mutating the stored bean must not affect the cache.");
+        first.setName("Changed again");
+        assertEquals("Original", cache.get(1).getName(), "Mutating a returned bean must not affect the cache.");
+        assertNull(cache.get(2));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    @DisplayName("An album read before an invalidation is not stored")
+    void testPut_IgnoredAfterInvalidation() {
+        AlbumCache cache = new AlbumCache(10, 0);
+        long generation = cache.generation();
+        cache.invalidate(1);
+        cache.put(newAlbum(1, "Stale"), generation);
+
+        assertNull(cache.get(1), "A stale read must not populate the cache.");
+        cache.put(newAlbum(1, "Fresh"), cache.generation());
+        assertEquals("Fresh", cache.get(1).getName());
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    @DisplayName("Least recently used albums are evicted beyond the maximum size")
+    void testPut_EvictsBeyondMaxEntries() {
+        AlbumCache cache = new AlbumCache(2, 0);
+        cache.put(newAlbum(1, "One"), cache.generation());
+        cache.put(newAlbum(2, "Two"), cache.generation());
+        cache.get(1);
+        cache.put(newAlbum(3, "Three"), cache.generation());
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2), "The least recently used album should be evicted.");
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Invalid sizes are rejected")
+    void testConstructor_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new AlbumCache(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AlbumCache(10, -1));
+    }
+}
@@ -0,0 +1,205 @@
+package it.polimi.tiw.projects.cache;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.LibrarySnapshot;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.dao.AsyncDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.JdbcAlbumDAO;
+import it.polimi.tiw.projects.dao.JdbcDAOFactory;
+import it.polimi.tiw.projects.dao.JdbcUserDAO;
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.Genre;
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LibraryCacheTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibraryCacheTest.class);
+    // Database connection details
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/TIW2025";
+    private static final String DB_USER = "tiw";
+    private static final String DB_PASS = "TIW2025";
+    // Test User details
+    private static final String TEST_USERNAME = "library_cache_test_user_junit";
+    private static final String TEST_PASSWORD = "password_cache";
+    private static final String TEST_ALBUM_NAME = "JUnit Cache Album - " + System.currentTimeMillis();
+    private static final String TEST_SONG_TITLE = "JUnit Cache Song - " + System.currentTimeMillis();
+    // Auto-commit connection, like the ones handed out by the pool to the servlets
+    private static Connection connection;
+    private static UUID testUserId;
+    private static int testAlbumId;
+
+    @BeforeAll
+    void setUpClass() throws SQLException, DAOException {
+        connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
+        cleanupTestUser();
+
+        UserDAO userDAO = new JdbcUserDAO(connection);
+        userDAO.createUser(TEST_USERNAME, TEST_PASSWORD, "CacheJUnit", "Tester");
+        User testUser = userDAO.checkCredentials(TEST_USERNAME, TEST_PASSWORD);
+        testUserId = testUser.getIdUser();
+        Album album = new JdbcAlbumDAO(connection).createAlbum(TEST_ALBUM_NAME, 2024, "JUnit Artist", null, testUserId);
+        testAlbumId = album.getIdAlbum();
+        logger.info("Test user {} created with album {}", testUserId, testAlbumId);
+    }
+
+    @AfterAll
+    void tearDownClass() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            try {
+                cleanupTestUser();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+
+    // Songs and albums are removed by the ON DELETE CASCADE constraints
+    private void cleanupTestUser() throws SQLException {
+        try (PreparedStatement pStatement = connection.prepareStatement("DELETE FROM User WHERE username = ?")) {
+            pStatement.setString(1, TEST_USERNAME);
+            pStatement.executeUpdate();
+        }
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("Second lookup is served from the cache")
+    void testGet_HitAfterMiss() throws DAOException {
+        LibraryCache cache = new LibraryCache(10);
+
+        LibrarySnapshot first = cache.get(testUserId, connection);
+        LibrarySnapshot second = cache.get(testUserId, connection);
+
+        assertSame(first, second, "The second lookup should return the cached snapshot.");
+        assertEquals(1, first.albums().size());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("DAO writes invalidate the library of their user and bump the version")
+    void testDaoWrite_InvalidatesSnapshot() throws DAOException {
+        LibraryCache cache = new LibraryCache(10);
+        DAOFactory daoFactory = new LibraryInvalidatingDAOFactory(new JdbcDAOFactory(), () -> cache);
+        LibrarySnapshot before = cache.get(testUserId, connection);
+        long versionBefore = cache.currentVersion(testUserId);
+        UUID otherUserId = UUID.randomUUID();
+        long otherVersion = cache.currentVersion(otherUserId);
+
+        Song song = daoFactory.getSongDAO(connection).createSong(TEST_SONG_TITLE, testAlbumId, Genre.POP,
+                "junit_cache.mp3", testUserId);
+
+        assertTrue(cache.currentVersion(testUserId) > versionBefore, "A write should bump the library version.");
+        LibrarySnapshot after = cache.get(testUserId, connection);
+        assertNotSame(before, after);
+        assertNotNull(after.findSong(song.getIdSong()), "The reloaded snapshot should contain the new song.");
+        assertThrows(UnsupportedOperationException.class, () -> after.songs().clear(),
+                "Cached lists must not be modifiable.");
+        assertThrows(UnsupportedOperationException.class, () -> after.findSong(song.getIdSong()).setTitle("x"),
+                "Cached beans must not be modifiable.");
+        assertEquals(TEST_SONG_TITLE, after.findSong(song.getIdSong()).getTitle());
+
+        // Reads don't invalidate, and deleting a song only invalidates its owner
+        daoFactory.getSongDAO(connection).findSongsByUser(testUserId);
+        assertSame(after, cache.get(testUserId, connection));
+        daoFactory.getSongDAO(connection).deleteSong(song.getIdSong());
+        assertNull(cache.get(testUserId, connection).findSong(song.getIdSong()));
+        assertEquals(otherVersion, cache.currentVersion(otherUserId));
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("Least recently used users are evicted beyond the maximum size")
+    void testGet_EvictsBeyondMaxEntries() throws DAOException {
+        LibraryCache cache = new LibraryCache(1);
+
+        cache.get(testUserId, connection);
+        cache.get(UUID.randomUUID(), connection);
+        cache.get(testUserId, connection);
+
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getMissCount(), "The evicted user should be loaded again.");
+        assertTrue(cache.getEvictionCount() >= 2);
+    }
+
+    @Test
+    @Order(4)
+    @DisplayName("Snapshots read inside a transaction are not cached")
+    void testGet_NotCachedInsideTransaction() throws DAOException, SQLException {
+        LibraryCache cache = new LibraryCache(10);
+        connection.setAutoCommit(false);
+        try {
+            cache.get(testUserId, connection);
+            cache.get(testUserId, connection);
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    @Order(5)
+    @DisplayName("Concurrent loads through AsyncDAO give the same snapshot as sequential ones")
+    void testGet_ConcurrentLoadMatchesSequential() throws DAOException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASS);
+        config.setMaximumPoolSize(3);
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            AsyncDAO asyncDAO = new AsyncDAO(dataSource, 3);
+            try {
+                LibrarySnapshot concurrent = new LibraryCache(10, asyncDAO).get(testUserId, connection);
+                LibrarySnapshot sequential = new LibraryCache(10).get(testUserId, connection);
+
+                assertEquals(sequential.songs().size(), concurrent.songs().size());
+                assertEquals(sequential.albums().size(), concurrent.albums().size());
+                assertEquals(sequential.playlists().size(), concurrent.playlists().size());
+                assertEquals(testAlbumId, concurrent.albums().getFirst().getIdAlbum());
+            } finally {
+                asyncDAO.shutdown();
+            }
+            assertThrows(DAOException.class, () -> AsyncDAO.join(asyncDAO.findSongsByUser(testUserId)),
+                    "Reads after shutdown should fail with a DAOException.");
+        }
+    }
+
+    @Test
+    @Order(6)
+    @DisplayName("A cache of size 0 loads every lookup and never repeats a version")
+    void testGet_DisabledCache() throws DAOException {
+        LibraryCache cache = new LibraryCache(0);
+
+        LibrarySnapshot first = cache.get(testUserId, connection);
+        LibrarySnapshot second = cache.get(testUserId, connection);
+
+        assertNotSame(first, second);
+        assertNotEquals(first.version(), second.version());
+        assertNotEquals(cache.currentVersion(testUserId), cache.currentVersion(testUserId));
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getMissCount());
+        assertThrows(IllegalArgumentException.class, () -> new LibraryCache(-1));
+    }
+}
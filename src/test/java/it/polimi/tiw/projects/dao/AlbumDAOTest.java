@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -55,8 +56,8 @@ class AlbumDAOTest {
             Class.forName("com.mysql.cj.jdbc.Driver");
             connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
             connection.setAutoCommit(false); // Manage transactions manually
-            albumDAO = new AlbumDAO(connection);
-            UserDAO userDAO = new UserDAO(connection);
+            albumDAO = new JdbcAlbumDAO(connection);
+            UserDAO userDAO = new JdbcUserDAO(connection);
             logger.info("Database connection established for AlbumDAOTest.");
 
             // Initial cleanup of potential leftover test data (order matters: albums first)
@@ -265,7 +266,7 @@ class AlbumDAOTest {
         connection.commit();
 
         // Create a second temporary user
-        UserDAO tempUserDAO = new UserDAO(connection); // Use separate DAO instance if needed, or
+        UserDAO tempUserDAO = new JdbcUserDAO(connection); // Use separate DAO instance if needed, or
         // reuse userDAO
         String tempUsername = "temp_album_user_" + System.currentTimeMillis();
         UUID tempUserId = null;
@@ -718,6 +719,30 @@ class AlbumDAOTest {
                 "Album should still exist after unauthorized delete attempt.");
     }
 
+    @Test
+    @Order(20)
+    @DisplayName("Test finding several albums by ID with a single query")
+    void testFindAlbumsByIds_Success() throws DAOException, SQLException {
+        assertNotNull(testUserId, "Test User ID must be set.");
+        Album album1 = albumDAO.createAlbum(TEST_ALBUM_NAME_1, TEST_ALBUM_YEAR_1, TEST_ALBUM_ARTIST_1, null,
+                testUserId);
+        Album album2 = albumDAO.createAlbum(TEST_ALBUM_NAME_2, TEST_ALBUM_YEAR_2, TEST_ALBUM_ARTIST_2, null,
+                testUserId);
+        createdAlbumId1 = album1.getIdAlbum();
+        createdAlbumId2 = album2.getIdAlbum();
+        connection.commit();
+
+        int nonExistentId = -999;
+        Map<Integer, Album> found = albumDAO.findAlbumsByIds(List.of(createdAlbumId1, createdAlbumId2, nonExistentId));
+
+        assertEquals(2, found.size(), "Only the existing albums should be returned.");
+        assertEquals(TEST_ALBUM_NAME_1, found.get(createdAlbumId1).getName());
+        assertEquals(TEST_ALBUM_NAME_2, found.get(createdAlbumId2).getName());
+        assertEquals(testUserId, found.get(createdAlbumId2).getIdUser());
+        assertFalse(found.containsKey(nonExistentId));
+        assertTrue(albumDAO.findAlbumsByIds(List.of()).isEmpty(), "No IDs should give an empty map.");
+    }
+
     // --- Helper method for direct DB verification (includes idUser and image) ---
     private Album findAlbumByIdDirectly(int albumId) throws SQLException {
         // Added image to SELECT
@@ -0,0 +1,69 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncDAOTest {
+
+    @Test
+    void testJoinWaitsUntilTheDeadline() {
+        CompletableFuture<String> never = new CompletableFuture<>();
+        RequestTrace trace = RequestTrace.start("async");
+        try {
+            RequestTrace.setDeadline(Duration.ofMillis(50));
+            DAOException e = assertThrows(DAOException.class, () -> AsyncDAO.join(never));
+            assertEquals(DAOErrorType.TIMEOUT, e.getErrorType());
+            assertTrue(never.isCancelled());
+        } finally {
+            trace.end();
+        }
+    }
+
+    @Test
+    void testReadsBeyondTheQueueAreRejected() throws DAOException {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncDAO asyncDAO = new AsyncDAO(blockingDataSource(release), new JdbcDAOFactory(), null, 1, 1);
+        try {
+            UUID userId = UUID.randomUUID();
+            // One read runs, one waits in the queue
+            CompletableFuture<?> running = asyncDAO.findSongsByUser(userId);
+            CompletableFuture<?> queued = asyncDAO.findAlbumsByUser(userId);
+
+            DAOException e = assertThrows(DAOException.class,
+                    () -> AsyncDAO.join(asyncDAO.findPlaylistsByUser(userId)));
+            assertEquals(DAOErrorType.UNAVAILABLE, e.getErrorType());
+
+            release.countDown();
+            // Like the servlets, the reads that get no connection are asked to retry later
+            for (CompletableFuture<?> future : List.of(running, queued)) {
+                assertEquals(DAOErrorType.UNAVAILABLE,
+                        assertThrows(DAOException.class, () -> AsyncDAO.join(future)).getErrorType());
+            }
+        } finally {
+            asyncDAO.shutdown();
+        }
+    }
+
+    /**
+     * @return A pool that has no connection to give once released.
+     */
+    private static DataSource blockingDataSource(CountDownLatch release) {
+        return Stubs.of(DataSource.class).on("getConnection", args -> {
+            release.await();
+            throw new SQLException("Connection is not available, request timed out");
+        }).build();
+    }
+}
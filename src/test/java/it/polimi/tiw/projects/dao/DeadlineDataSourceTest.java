@@ -0,0 +1,87 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineDataSourceTest {
+
+    @Test
+    void testTimeoutSecondsRoundUp() {
+        assertEquals(1, DeadlineDataSource.timeoutSeconds(1));
+        assertEquals(1, DeadlineDataSource.timeoutSeconds(1_000_000_000L));
+        assertEquals(2, DeadlineDataSource.timeoutSeconds(1_000_000_001L));
+        assertEquals(Integer.MAX_VALUE, DeadlineDataSource.timeoutSeconds(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void testStatementsGetTheTimeLeft() throws SQLException {
+        List<Integer> timeouts = new ArrayList<>();
+        DataSource dataSource = new DeadlineDataSource(dataSource(timeouts));
+
+        // Outside of a request the statements are unbounded
+        try (Connection connection = dataSource.getConnection()) {
+            connection.prepareStatement("SELECT 1");
+        }
+        assertEquals(List.of(), timeouts);
+
+        RequestTrace trace = RequestTrace.start("deadline");
+        try {
+            RequestTrace.setDeadline(Duration.ofMillis(2500));
+            try (Connection connection = dataSource.getConnection()) {
+                connection.prepareStatement("SELECT 1");
+                connection.createStatement();
+            }
+            assertEquals(List.of(3, 3), timeouts);
+
+            RequestTrace.setDeadline(Duration.ZERO);
+            try (Connection connection = dataSource.getConnection()) {
+                // Only creating statements is refused
+                assertTrue(connection.getAutoCommit());
+                SQLTimeoutException e = assertThrows(SQLTimeoutException.class,
+                        () -> connection.prepareStatement("SELECT 1"));
+                assertEquals(DAOException.DAOErrorType.TIMEOUT,
+                        new DAOException("failed", e, DAOException.DAOErrorType.GENERIC_ERROR).getErrorType());
+                assertEquals(DAOException.DAOErrorType.NOT_FOUND,
+                        new DAOException("failed", e, DAOException.DAOErrorType.NOT_FOUND).getErrorType());
+
+                RequestTrace.clearDeadline();
+                connection.prepareStatement("SELECT 1");
+            }
+            assertEquals(2, timeouts.size());
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * @return A data source whose statements record their query timeouts.
+     */
+    private static DataSource dataSource(List<Integer> timeouts) {
+        PreparedStatement statement = Stubs.of(PreparedStatement.class)
+                .on("setQueryTimeout", args -> {
+                    timeouts.add((Integer) args[0]);
+                    return null;
+                })
+                .build();
+        Connection connection = Stubs.of(Connection.class)
+                .on("prepareStatement", args -> statement)
+                .on("createStatement", args -> statement)
+                .on("getAutoCommit", args -> true)
+                .on("close", args -> null)
+                .build();
+        return Stubs.of(DataSource.class).on("getConnection", args -> connection).build();
+    }
+}
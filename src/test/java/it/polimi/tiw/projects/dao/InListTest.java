@@ -0,0 +1,65 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InListTest {
+
+    @Test
+    void testPlaceholdersArePaddedToPowersOfTwo() {
+        assertEquals(1, InList.placeholders(1));
+        assertEquals(2, InList.placeholders(2));
+        assertEquals(4, InList.placeholders(3));
+        assertEquals(4, InList.placeholders(4));
+        assertEquals(8, InList.placeholders(5));
+        assertEquals(InList.MAX_PLACEHOLDERS, InList.placeholders(InList.MAX_PLACEHOLDERS));
+        assertEquals(1, InList.placeholders(InList.MAX_PLACEHOLDERS + 1));
+
+        assertEquals("idSong IN (?, ?, ?, ?)", InList.condition("idSong", 3));
+        // Every length up to the ceiling maps to one of few statements
+        long texts = IntStream.rangeClosed(1, InList.MAX_PLACEHOLDERS)
+                .mapToObj(size -> InList.condition("idSong", size)).distinct().count();
+        assertEquals(Integer.numberOfTrailingZeros(InList.MAX_PLACEHOLDERS) + 1, texts);
+        assertEquals(InList.condition("idSong", InList.MAX_PLACEHOLDERS + 1),
+                InList.condition("idSong", 10 * InList.MAX_PLACEHOLDERS));
+    }
+
+    @Test
+    void testBind() throws SQLException {
+        Map<Integer, Object> parameters = new HashMap<>();
+        PreparedStatement statement = statement(parameters);
+
+        assertEquals(6, InList.bind(statement, 2, List.of(7, 8, 9)));
+        assertEquals(Map.of(2, 7, 3, 8, 4, 9, 5, 9), parameters);
+
+        parameters.clear();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i <= InList.MAX_PLACEHOLDERS; i++) {
+            ids.add(i);
+        }
+        assertEquals(2, InList.bind(statement, 1, ids));
+        String json = (String) parameters.get(1);
+        assertTrue(json.startsWith("[0,1,2,") && json.endsWith("," + InList.MAX_PLACEHOLDERS + "]"), json);
+    }
+
+    /**
+     * @return A statement recording its setInt and setString parameters.
+     */
+    private static PreparedStatement statement(Map<Integer, Object> parameters) {
+        Stubs.Answer setParameter = args -> {
+            parameters.put((Integer) args[0], args[1]);
+            return null;
+        };
+        return Stubs.of(PreparedStatement.class).on("setInt", setParameter).on("setString", setParameter).build();
+    }
+}
@@ -0,0 +1,97 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    // Cheap parameters, the cost doesn't change the behavior
+    private PasswordHasher hasher;
+
+    @BeforeEach
+    void setUp() {
+        hasher = new PasswordHasher(64, 1, 2, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.shutdown();
+    }
+
+    @Test
+    void testHashAndVerify() throws DAOException {
+        String hash = hasher.hash("secret");
+        assertTrue(hash.startsWith("$argon2id$v=19$m=64,t=1,p=1$"), hash);
+        assertTrue(hash.length() <= 255, "Must fit the password column");
+        assertNotEquals(hash, hasher.hash("secret"), "Salts must differ");
+
+        assertTrue(hasher.verify("secret", hash));
+        assertFalse(hasher.verify("Secret", hash));
+        assertFalse(hasher.verify("secret", null));
+        assertFalse(hasher.verify("secret", "$argon2id$v=19$m=64,t=1,p=1$bad$hash"));
+        assertFalse(hasher.needsRehash(hash));
+    }
+
+    @Test
+    void testLegacyAndOutdatedHashes() throws DAOException {
+        assertTrue(hasher.verify("plain", "plain"));
+        assertFalse(hasher.verify("plain", "other"));
+        assertTrue(hasher.needsRehash("plain"));
+
+        // A hash with another cost is still accepted, but replaced
+        PasswordHasher stronger = new PasswordHasher(128, 2, 1, 1);
+        try {
+            String outdated = stronger.hash("secret");
+            assertTrue(hasher.verify("secret", outdated));
+            assertTrue(hasher.needsRehash(outdated));
+        } finally {
+            stronger.shutdown();
+        }
+    }
+
+    @Test
+    void testPlainTextPasswordsAreCheckedLikeHashes() {
+        // They go through the hashing threads too, costing a hash
+        hasher.shutdown();
+        DAOException e = assertThrows(DAOException.class, () -> hasher.verify("plain", "plain"));
+        assertEquals(DAOErrorType.UNAVAILABLE, e.getErrorType());
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        PasswordHasher slow = new PasswordHasher(64 * 1024, 4, 1, 1);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(clients.submit(() -> slow.hash("secret")));
+            }
+            int rejected = 0;
+            for (Future<String> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    DAOException daoException = assertInstanceOf(DAOException.class, e.getCause());
+                    assertEquals(DAOErrorType.UNAVAILABLE, daoException.getErrorType());
+                    rejected++;
+                }
+            }
+            // One thread and one queue slot, at least one of the 8 hashes is refused
+            assertTrue(rejected > 0 && rejected < 8, "rejected: " + rejected);
+        } finally {
+            clients.shutdown();
+            slow.shutdown();
+        }
+    }
+}
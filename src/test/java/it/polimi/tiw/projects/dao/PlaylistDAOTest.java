@@ -1,5 +1,6 @@
 package it.polimi.tiw.projects.dao;
 
+import it.polimi.tiw.projects.beans.AddSongsToPlaylistResult;
 import it.polimi.tiw.projects.beans.Album;
 import it.polimi.tiw.projects.beans.Playlist;
 import it.polimi.tiw.projects.beans.Song;
@@ -61,10 +62,10 @@ class PlaylistDAOTest {
             Class.forName("com.mysql.cj.jdbc.Driver");
             connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
             connection.setAutoCommit(false);
-            playlistDAO = new PlaylistDAO(connection);
-            UserDAO userDAO = new UserDAO(connection);
-            songDAO = new SongDAO(connection);
-            AlbumDAO albumDAO = new AlbumDAO(connection);
+            playlistDAO = new JdbcPlaylistDAO(connection);
+            UserDAO userDAO = new JdbcUserDAO(connection);
+            songDAO = new JdbcSongDAO(connection);
+            AlbumDAO albumDAO = new JdbcAlbumDAO(connection);
 
             // Cleanup existing test data
             cleanupTestPlaylists();
@@ -761,4 +762,33 @@ class PlaylistDAOTest {
         assertNotNull(playlists, "Playlist list should not be null.");
         assertTrue(playlists.isEmpty(), "Should find no playlists for a user who hasn't created any.");
     }
+
+    @Test
+    @Order(15)
+    void testAddSongsToPlaylist_Duplicates() throws Exception {
+        Playlist playlist = playlistDAO.createPlaylist("Playlist For Bulk Adds", testUserId, List.of(createdSongId));
+        connection.commit();
+        int playlistId = playlist.getIdPlaylist();
+        Song newSong = songDAO.createSong("Bulk JUnit Song", createdAlbumId, TEST_SONG_GENRE,
+                "/audio/bulk_test.mp3", testUserId);
+        connection.commit();
+        int newSongId = newSong.getIdSong();
+
+        // Songs already in the playlist and repeated in the list are reported, not added
+        AddSongsToPlaylistResult result = playlistDAO.addSongsToPlaylist(playlistId, testUserId,
+                List.of(createdSongId, newSongId, newSongId));
+        assertEquals(List.of(newSongId), result.getAddedSongIds());
+        assertEquals(List.of(createdSongId, newSongId), result.getDuplicateSongIds());
+        Playlist updated = playlistDAO.findPlaylistById(playlistId, testUserId);
+        assertEquals(2, updated.getSongs().size());
+
+        // A single duplicate is still an exception, without a stack trace
+        DAOException duplicate = assertThrows(DAOException.class,
+                () -> playlistDAO.addSongToPlaylist(playlistId, testUserId, newSongId));
+        connection.rollback();
+        assertEquals(DAOErrorType.DUPLICATE_ENTRY, duplicate.getErrorType());
+        assertEquals(0, duplicate.getStackTrace().length);
+        assertNotNull(duplicate.getCause());
+        assertTrue(new DAOException("failed", DAOErrorType.GENERIC_ERROR).getStackTrace().length > 0);
+    }
 }
@@ -0,0 +1,207 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.utils.RequestTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRouterTest {
+    private static final long SECOND = 1_000_000_000L;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final AtomicLong now = new AtomicLong(42 * SECOND);
+    private DataSource replica;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() {
+        replica = Stubs.of(DataSource.class).build();
+        router = new ReplicaRouter(replica, Duration.ofSeconds(5), now::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.end();
+        }
+    }
+
+    @Test
+    void testReadsOfAUserStayOnPrimaryAfterItsWrite() {
+        assertSame(replica, router.replicaFor(alice));
+        assertSame(replica, router.replicaFor(null));
+
+        router.recordWrite(alice);
+        assertNull(router.replicaFor(alice));
+        assertSame(replica, router.replicaFor(bob));
+        assertSame(replica, router.replicaFor(null));
+
+        now.addAndGet(5 * SECOND);
+        assertNull(router.replicaFor(alice));
+        now.addAndGet(1);
+        assertSame(replica, router.replicaFor(alice));
+
+        // A write with no known user could be read by anyone
+        router.recordWrite(null);
+        assertNull(router.replicaFor(bob));
+        now.addAndGet(6 * SECOND);
+        assertSame(replica, router.replicaFor(bob));
+    }
+
+    @Test
+    void testRequestRoutesByItsUserAndWrites() {
+        RequestTrace trace = RequestTrace.start("req-1");
+        RequestTrace.setUser(alice);
+        assertSame(replica, router.replicaFor(null));
+
+        // The authenticated user wins over the arguments
+        router.recordWrite(bob);
+        assertTrue(trace.hasWritten());
+        assertNull(router.replicaFor(bob));
+        trace.end();
+        assertNull(router.replicaFor(alice));
+        assertSame(replica, router.replicaFor(bob));
+
+        // Later requests of other users read from the replica, unless they wrote
+        now.addAndGet(10 * SECOND);
+        RequestTrace.start("req-2");
+        RequestTrace.setUser(bob);
+        assertSame(replica, router.replicaFor(bob));
+        RequestTrace.recordWrite();
+        assertNull(router.replicaFor(bob));
+    }
+
+    @Test
+    void testOnlyLoginsThatRehashAreWrites() throws DAOException {
+        RoutingDAOFactory factory = new RoutingDAOFactory(daoFactory(), router);
+        UserDAO userDAO = factory.getUserDAO(connection());
+
+        // A wrong password must not send the reads of everybody to the primary
+        assertThrows(DAOException.class, () -> userDAO.checkCredentials("alice", "wrong"));
+        assertSame(replica, router.replicaFor(null));
+        assertSame(replica, router.replicaFor(alice));
+
+        assertEquals(alice, userDAO.checkCredentials("alice", "password").getIdUser());
+        assertSame(replica, router.replicaFor(alice));
+
+        // Rehashing the password only pins the reads of its user
+        assertEquals(alice, userDAO.checkCredentials("alice", "legacy").getIdUser());
+        assertNull(router.replicaFor(alice));
+        assertSame(replica, router.replicaFor(bob));
+        assertSame(replica, router.replicaFor(null));
+    }
+
+    @Test
+    void testWritesWithNoUserPinEveryRead() throws DAOException {
+        RoutingDAOFactory factory = new RoutingDAOFactory(daoFactory(), router);
+        factory.getSongDAO(connection()).deleteSong(7);
+        assertNull(router.replicaFor(bob));
+        assertNull(router.replicaFor(null));
+    }
+
+    /**
+     * @return A factory of DAOs updating one row per write: the user DAO
+     *         rehashes the password "legacy", the song DAO deletes songs.
+     */
+    private DAOFactory daoFactory() {
+        return new DAOFactory() {
+            @Override
+            public boolean requiresConnection() {
+                return true;
+            }
+
+            @Override
+            public UserDAO getUserDAO(Connection connection) {
+                return new UserDAO() {
+                    @Override
+                    public User insertUser(String username, String passwordHash, String name, String surname) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public Credentials findCredentials(String username) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public boolean updatePassword(UUID userId, String expectedHash, String passwordHash) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public User checkCredentials(String username, String pwd) throws DAOException {
+                        if (pwd.equals("wrong")) {
+                            throw new DAOException("Invalid credentials",
+                                    DAOException.DAOErrorType.INVALID_CREDENTIALS);
+                        }
+                        if (pwd.equals("legacy")) {
+                            update(connection);
+                        }
+                        User user = new User();
+                        user.setIdUser(alice);
+                        return user;
+                    }
+
+                    @Override
+                    public void modifyUser(User user, String name, String surname) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public SongDAO getSongDAO(Connection connection) {
+                return Stubs.of(SongDAO.class).on("deleteSong", args -> {
+                    update(connection);
+                    return null;
+                }).build();
+            }
+
+            @Override
+            public AlbumDAO getAlbumDAO(Connection connection) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public PlaylistDAO getPlaylistDAO(Connection connection) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static void update(Connection connection) throws DAOException {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE")) {
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DAOException("failed", e, DAOException.DAOErrorType.GENERIC_ERROR);
+        }
+    }
+
+    /**
+     * @return A connection whose statements update one row.
+     */
+    private static Connection connection() {
+        PreparedStatement statement = Stubs.of(PreparedStatement.class)
+                .on("executeUpdate", args -> 1)
+                .on("close", args -> null)
+                .build();
+        return Stubs.of(Connection.class)
+                .on("prepareStatement", args -> statement)
+                .on("getAutoCommit", args -> true)
+                .build();
+    }
+}
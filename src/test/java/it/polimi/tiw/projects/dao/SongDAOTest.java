@@ -10,8 +10,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -64,11 +66,11 @@ class SongDAOTest {
             Class.forName("com.mysql.cj.jdbc.Driver");
             connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
             connection.setAutoCommit(false); // Manage transactions manually
-            songDAO = new SongDAO(connection);
+            songDAO = new JdbcSongDAO(connection);
             // To manage a test user if needed
-            UserDAO userDAO = new UserDAO(connection); // Initialize UserDAO for test user setup
+            UserDAO userDAO = new JdbcUserDAO(connection); // Initialize UserDAO for test user setup
             // To manage a test album
-            AlbumDAO albumDAO = new AlbumDAO(connection); // Initialize AlbumDAO
+            AlbumDAO albumDAO = new JdbcAlbumDAO(connection); // Initialize AlbumDAO
             logger.info("Database connection established for SongDAOTest.");
 
             // Initial cleanup of potential leftover test data (order matters)
@@ -382,9 +384,10 @@ class SongDAOTest {
         // Verify it exists before delete
         assertNotNull(findSongByIdDirectly(createdSongId1), "Song should exist before deletion.");
 
-        // Delete the song - Now returns void
-        assertDoesNotThrow(() -> songDAO.deleteSong(createdSongId1),
+        // Delete the song, which returns its owner
+        UUID owner = assertDoesNotThrow(() -> songDAO.deleteSong(createdSongId1),
                 "Successful delete should not throw an exception.");
+        assertEquals(testUserId, owner);
         connection.commit(); // Commit the deletion
 
         // Verify it's gone
@@ -559,6 +562,60 @@ class SongDAOTest {
                 "Should find no songs when requesting another user's song ID.");
     }
 
+    @Test
+    @Order(14)
+    @DisplayName("Test streaming all songs")
+    void testStreamAllSongs() throws DAOException, SQLException {
+        assertNotNull(testAlbumId, "Test Album ID must be set before creating songs.");
+        Song song1 = songDAO.createSong(TEST_SONG_TITLE_1, testAlbumId, TEST_GENRE,
+                TEST_AUDIO_FILE_1, testUserId);
+        Song song2 = songDAO.createSong(TEST_SONG_TITLE_2, testAlbumId,
+                TEST_GENRE, TEST_AUDIO_FILE_2, testUserId);
+        createdSongId1 = song1.getIdSong();
+        createdSongId2 = song2.getIdSong();
+        connection.commit();
+
+        List<Song> testSongs;
+        try (Stream<Song> songs = songDAO.streamAllSongs()) {
+            testSongs = songs.filter(s -> s.getIdSong() == createdSongId1 || s.getIdSong() == createdSongId2)
+                    .toList();
+        }
+        assertEquals(2, testSongs.size());
+        assertTrue(testSongs.stream().allMatch(s -> testUserId.equals(s.getIdUser()) && s.getGenre() == TEST_GENRE));
+        assertSame(testSongs.get(0).getIdUser(), testSongs.get(1).getIdUser(),
+                "Songs of the same owner should share its UUID");
+
+        // Closing the stream frees the connection for the next statement
+        assertEquals(2, songDAO.findSongsByUser(testUserId).size());
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("Test findSongsByIdsAndUser - More IDs than the IN list ceiling")
+    void testFindSongsByIdsAndUser_ManyIds() throws DAOException, SQLException {
+        assertNotNull(testAlbumId, "Test Album ID must be set.");
+        Song song1 = songDAO.createSong(TEST_SONG_TITLE_1, testAlbumId, TEST_GENRE,
+                TEST_AUDIO_FILE_1, testUserId);
+        Song song3 = songDAO.createSong(TEST_SONG_TITLE_2, testAlbumId, TEST_GENRE,
+                TEST_AUDIO_FILE_3, testUserId2);
+        createdSongId1 = song1.getIdSong();
+        createdSongId3 = song3.getIdSong();
+        connection.commit();
+
+        // Bound as a JSON array, with IDs that don't exist and a duplicate
+        List<Integer> requestedIds = new ArrayList<>();
+        requestedIds.add(createdSongId1);
+        requestedIds.add(createdSongId3);
+        for (int i = 1; requestedIds.size() <= InList.MAX_PLACEHOLDERS; i++) {
+            requestedIds.add(-i);
+        }
+        requestedIds.add(createdSongId1);
+        List<Song> foundSongs = songDAO.findSongsByIdsAndUser(requestedIds, testUserId);
+
+        assertEquals(1, foundSongs.size(), "Should find the song of user 1 once.");
+        assertEquals(createdSongId1, foundSongs.getFirst().getIdSong());
+    }
+
     // --- Helper method for direct DB verification ---
     private Song findSongByIdDirectly(int songId) throws SQLException {
         String query =
@@ -0,0 +1,139 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.metrics.Counter;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionsTest {
+    private final List<String> calls = new ArrayList<>();
+    private boolean autoCommit = true;
+
+    @BeforeEach
+    void setUp() {
+        Transactions.configure(3, Duration.ofMillis(1), Duration.ofMillis(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        Transactions.configure(3, Duration.ofMillis(10), Duration.ofMillis(200));
+    }
+
+    @Test
+    void testDelayBoundDoublesUpToTheMaximum() {
+        Transactions.configure(5, Duration.ofNanos(10), Duration.ofNanos(50));
+        assertEquals(10, Transactions.delayBoundNanos(1));
+        assertEquals(20, Transactions.delayBoundNanos(2));
+        assertEquals(40, Transactions.delayBoundNanos(3));
+        assertEquals(50, Transactions.delayBoundNanos(4));
+        assertEquals(50, Transactions.delayBoundNanos(100));
+    }
+
+    @Test
+    void testTransientCauses() {
+        assertNotNull(Transactions.transientCause(deadlock()));
+        assertNotNull(Transactions.transientCause(new SQLException("Lock wait timeout", "HY000", 1205)));
+        assertNotNull(Transactions.transientCause(new DAOException("failed",
+                new SQLException("Serialization failure", "40001"), DAOErrorType.GENERIC_ERROR)));
+        assertNull(Transactions.transientCause(new SQLException("No state")));
+        assertNull(Transactions.transientCause(new SQLException("Duplicate entry", "23000", 1062)));
+    }
+
+    @Test
+    void testDeadlocksAreRetried() throws DAOException {
+        Counter retries = MetricsRegistry.getInstance().counter("spolify_dao_transaction_retries_total",
+                "Transactions run again after a transient failure", "operation", "retried");
+        long retriesBefore = retries.get();
+        AtomicInteger attempts = new AtomicInteger();
+
+        int result = Transactions.run(connection(), "retried", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw deadlock();
+            }
+            return 42;
+        }, e -> fail("Translated " + e));
+
+        assertEquals(42, result);
+        assertEquals(List.of("rollback", "rollback", "commit"), calls);
+        assertEquals(2, retries.get() - retriesBefore);
+        assertTrue(autoCommit);
+    }
+
+    @Test
+    void testGivesUpAsUnavailable() {
+        Counter aborts = MetricsRegistry.getInstance().counter("spolify_dao_transaction_aborts_total",
+                "Transactions given up after transient failures", "operation", "aborted");
+        long abortsBefore = aborts.get();
+
+        DAOException e = assertThrows(DAOException.class, () -> Transactions.run(connection(), "aborted",
+                () -> {
+                    throw new DAOException("failed", deadlock(), DAOErrorType.GENERIC_ERROR);
+                }, sqlException -> fail("Translated " + sqlException)));
+
+        assertEquals(DAOErrorType.UNAVAILABLE, e.getErrorType());
+        assertEquals(List.of("rollback", "rollback", "rollback"), calls);
+        assertEquals(1, aborts.get() - abortsBefore);
+        assertTrue(autoCommit);
+    }
+
+    @Test
+    void testOtherFailuresAreNotRetried() {
+        DAOException translated = new DAOException("translated", DAOErrorType.NAME_ALREADY_EXISTS);
+        DAOException e = assertThrows(DAOException.class, () -> Transactions.run(connection(), "failed",
+                () -> {
+                    throw new SQLException("Duplicate entry", "23000", 1062);
+                }, sqlException -> translated));
+        assertSame(translated, e);
+        assertEquals(List.of("rollback"), calls);
+
+        // The transaction of the caller was rolled back as a whole, it can't be retried here
+        calls.clear();
+        autoCommit = false;
+        e = assertThrows(DAOException.class, () -> Transactions.run(connection(), "nested",
+                () -> {
+                    throw deadlock();
+                }, sqlException -> translated));
+        assertSame(translated, e);
+        assertEquals(List.of("rollback"), calls);
+        assertFalse(autoCommit);
+    }
+
+    private static SQLTransactionRollbackException deadlock() {
+        return new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001", 1213);
+    }
+
+    /**
+     * @return A connection recording its commits and rollbacks.
+     */
+    private Connection connection() {
+        return Stubs.of(Connection.class)
+                .on("getAutoCommit", args -> autoCommit)
+                .on("setAutoCommit", args -> {
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                })
+                .on("commit", args -> {
+                    calls.add("commit");
+                    return null;
+                })
+                .on("rollback", args -> {
+                    calls.add("rollback");
+                    return null;
+                })
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package it.polimi.tiw.projects.dao;
+
+import it.polimi.tiw.projects.Stubs;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UUIDCodecTest {
+
+    @Test
+    void testSameBytesAsUuidToBin() throws SQLException {
+        UUID uuid = UUID.fromString("0196a3c4-8f21-7abc-9def-0123456789ab");
+        byte[] bytes = UUIDCodec.toBytes(uuid);
+        // UUID_TO_BIN without the swap flag stores the hexadecimal digits in order
+        assertEquals(uuid.toString().replace("-", ""), HexFormat.of().formatHex(bytes));
+        assertEquals(uuid, UUIDCodec.fromBytes(bytes));
+
+        UUID negative = new UUID(-1L, Long.MIN_VALUE);
+        assertEquals(negative, UUIDCodec.fromBytes(UUIDCodec.toBytes(negative)));
+        assertThrows(SQLException.class, () -> UUIDCodec.fromBytes(new byte[15]));
+    }
+
+    @Test
+    void testReaderSharesRepeatedValues() throws SQLException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        ResultSet result = column(List.of(first, second, first, first));
+        UUIDCodec.Reader reader = UUIDCodec.reader();
+
+        UUID a = reader.read(result, 1);
+        UUID b = reader.read(result, 1);
+        UUID c = reader.read(result, 1);
+        UUID d = reader.read(result, 1);
+        assertEquals(first, a);
+        assertEquals(second, b);
+        assertSame(a, c);
+        assertSame(a, d);
+        assertNull(reader.read(result, 1));
+    }
+
+    @Test
+    void testStreamReaderOnlyRemembersTheLastValue() throws SQLException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        ResultSet result = column(List.of(first, first, second, first));
+        UUIDCodec.Reader reader = UUIDCodec.streamReader();
+
+        UUID a = reader.read(result, 1);
+        assertSame(a, reader.read(result, 1));
+        assertEquals(second, reader.read(result, 1));
+        UUID d = reader.read(result, 1);
+        assertEquals(first, d);
+        assertNotSame(a, d);
+    }
+
+    /**
+     * @return A result set whose getBytes returns the given UUIDs, then nulls.
+     */
+    private static ResultSet column(List<UUID> values) {
+        Iterator<UUID> iterator = values.iterator();
+        // A new array for every row, like the driver
+        return Stubs.of(ResultSet.class)
+                .on("getBytes", args -> iterator.hasNext() ? UUIDCodec.toBytes(iterator.next()) : null)
+                .build();
+    }
+}
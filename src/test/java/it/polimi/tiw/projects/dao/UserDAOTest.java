@@ -9,6 +9,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.UUID;
 
@@ -41,7 +42,7 @@ public class UserDAOTest {
             connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
             // Disable auto-commit to manage transactions manually for tests
             connection.setAutoCommit(false);
-            userDAO = new UserDAO(connection);
+            userDAO = new JdbcUserDAO(connection);
             logger.info("Database connection established for tests (DB: {}).", DB_URL);
 
         } catch (ClassNotFoundException e) { // Added catch block for ClassNotFoundException
@@ -285,4 +286,83 @@ public class UserDAOTest {
         assertEquals(TEST_SURNAME_MODIFIED, modifiedUser.getSurname(),
                 "Surname should be updated.");
     }
+
+    @Test
+    @Order(10)
+    public void testCreateUser_ReturnsUser() throws DAOException, SQLException {
+        User created = userDAO.createUser(TEST_USERNAME, TEST_PASSWORD, TEST_NAME, TEST_SURNAME);
+        connection.commit();
+
+        assertEquals(7, created.getIdUser().version(), "New users should get time-ordered IDs.");
+        assertEquals(TEST_USERNAME, created.getUsername());
+        assertEquals(TEST_NAME, created.getName());
+        assertEquals(TEST_SURNAME, created.getSurname());
+        assertEquals(created.getIdUser(), userDAO.checkCredentials(TEST_USERNAME, TEST_PASSWORD).getIdUser());
+    }
+
+    @Test
+    @Order(11)
+    public void testCheckCredentials_MigratesPlainTextPassword() throws DAOException, SQLException {
+        // A user saved by a version storing passwords in plain text
+        try (PreparedStatement pStatement = connection.prepareStatement(
+                "INSERT INTO User (idUser, username, password, name, surname) VALUES (UUID_TO_BIN(?), ?, ?, ?, ?)")) {
+            pStatement.setString(1, UUID.randomUUID().toString());
+            pStatement.setString(2, TEST_USERNAME);
+            pStatement.setString(3, TEST_PASSWORD);
+            pStatement.setString(4, TEST_NAME);
+            pStatement.setString(5, TEST_SURNAME);
+            pStatement.executeUpdate();
+        }
+        connection.commit();
+
+        assertEquals(TEST_USERNAME, userDAO.checkCredentials(TEST_USERNAME, TEST_PASSWORD).getUsername());
+        connection.commit();
+
+        String stored = storedPassword();
+        assertNotEquals(TEST_PASSWORD, stored, "The password should have been rehashed at login.");
+        assertFalse(PasswordHasher.getInstance().needsRehash(stored));
+        // The hash keeps working, the wrong password is still refused
+        assertNotNull(userDAO.checkCredentials(TEST_USERNAME, TEST_PASSWORD));
+        assertEquals(stored, storedPassword());
+        DAOException exception = assertThrows(DAOException.class,
+                () -> userDAO.checkCredentials(TEST_USERNAME, "wrongPassword"));
+        assertEquals(DAOException.DAOErrorType.INVALID_CREDENTIALS, exception.getErrorType());
+    }
+
+    @Test
+    @Order(12)
+    public void testUpdatePassword_OnlyReplacesTheExpectedHash() throws DAOException, SQLException {
+        User created = userDAO.createUser(TEST_USERNAME, TEST_PASSWORD, TEST_NAME, TEST_SURNAME);
+        connection.commit();
+        UserDAO.Credentials credentials = userDAO.findCredentials(TEST_USERNAME);
+        assertEquals(created.getIdUser(), credentials.user().getIdUser());
+        assertEquals(storedPassword(), credentials.passwordHash());
+        assertNull(userDAO.findCredentials("nonExistentUser" + System.currentTimeMillis()).user());
+
+        // A login that read the password before it changed doesn't overwrite it
+        assertFalse(userDAO.updatePassword(created.getIdUser(), "stale", "replacement"));
+        assertTrue(userDAO.updatePassword(created.getIdUser(), credentials.passwordHash(), "replacement"));
+        connection.commit();
+        assertEquals("replacement", storedPassword());
+    }
+
+    @Test
+    @Order(13)
+    public void testCreateUser_OtherIntegrityViolationIsNotADuplicate() {
+        // A missing username violates NOT NULL, also with SQLState 23000
+        DAOException exception = assertThrows(DAOException.class,
+                () -> userDAO.insertUser(null, "hash", TEST_NAME, TEST_SURNAME));
+        assertEquals(DAOException.DAOErrorType.GENERIC_ERROR, exception.getErrorType());
+    }
+
+    private String storedPassword() throws SQLException {
+        try (PreparedStatement pStatement = connection.prepareStatement(
+                "SELECT password FROM User WHERE username = ?")) {
+            pStatement.setString(1, TEST_USERNAME);
+            try (ResultSet result = pStatement.executeQuery()) {
+                assertTrue(result.next());
+                return result.getString(1);
+            }
+        }
+    }
 }
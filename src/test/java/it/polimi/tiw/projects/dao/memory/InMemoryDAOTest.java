@@ -0,0 +1,246 @@
+package it.polimi.tiw.projects.dao.memory;
+
+import it.polimi.tiw.projects.beans.AddSongsToPlaylistResult;
+import it.polimi.tiw.projects.beans.Album;
+import it.polimi.tiw.projects.beans.Playlist;
+import it.polimi.tiw.projects.beans.Song;
+import it.polimi.tiw.projects.beans.User;
+import it.polimi.tiw.projects.dao.AlbumDAO;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.PlaylistDAO;
+import it.polimi.tiw.projects.dao.SongDAO;
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import it.polimi.tiw.projects.utils.Genre;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The in-memory DAOs need no database: every test starts from an empty store.
+ */
+class InMemoryDAOTest {
+
+    private UserDAO userDAO;
+    private SongDAO songDAO;
+    private AlbumDAO albumDAO;
+    private PlaylistDAO playlistDAO;
+    private UUID userId;
+    private UUID otherUserId;
+    private int albumId;
+
+    @BeforeEach
+    void setUp() throws DAOException {
+        DAOFactory factory = new InMemoryDAOFactory();
+        assertFalse(factory.requiresConnection());
+        userDAO = factory.getUserDAO(null);
+        songDAO = factory.getSongDAO(null);
+        albumDAO = factory.getAlbumDAO(null);
+        playlistDAO = factory.getPlaylistDAO(null);
+
+        userDAO.createUser("memory_user", "password", "Memory", "User");
+        userDAO.createUser("memory_other", "password", "Other", "User");
+        userId = userDAO.checkCredentials("memory_user", "password").getIdUser();
+        otherUserId = userDAO.checkCredentials("memory_other", "password").getIdUser();
+        albumId = albumDAO.createAlbum("Album", 2020, "Artist", null, userId).getIdAlbum();
+    }
+
+    private int createSong(String title, UUID owner) throws DAOException {
+        return songDAO.createSong(title, albumId, Genre.POP, title + ".mp3", owner).getIdSong();
+    }
+
+    @Test
+    void testUsers() throws DAOException {
+        DAOException duplicate = assertThrows(DAOException.class,
+                () -> userDAO.createUser("MEMORY_USER", "x", "A", "B"));
+        assertEquals(DAOErrorType.NAME_ALREADY_EXISTS, duplicate.getErrorType());
+
+        DAOException wrongPassword = assertThrows(DAOException.class,
+                () -> userDAO.checkCredentials("memory_user", "wrong"));
+        assertEquals(DAOErrorType.INVALID_CREDENTIALS, wrongPassword.getErrorType());
+
+        User user = userDAO.checkCredentials("memory_user", "password");
+        userDAO.modifyUser(user, "Changed", null);
+        assertEquals("Changed", user.getName());
+        assertEquals("User", user.getSurname());
+        assertEquals("Changed", userDAO.checkCredentials("memory_user", "password").getName());
+    }
+
+    @Test
+    void testAlbums() throws DAOException {
+        Album older = albumDAO.createAlbum("Older", 1990, "Artist", "older.png", userId);
+
+        DAOException duplicate = assertThrows(DAOException.class,
+                () -> albumDAO.createAlbum("ALBUM", 2000, "Other", null, userId));
+        assertEquals(DAOErrorType.NAME_ALREADY_EXISTS, duplicate.getErrorType());
+        // Names are unique per user only
+        albumDAO.createAlbum("Album", 2000, "Other", null, otherUserId);
+
+        List<Album> albums = albumDAO.findAlbumsByUser(userId);
+        assertEquals(List.of(older.getIdAlbum(), albumId), albums.stream().map(Album::getIdAlbum).toList());
+        assertEquals(3, albumDAO.findAllAlbums().size());
+
+        DAOException rename = assertThrows(DAOException.class,
+                () -> albumDAO.updateAlbum(older.getIdAlbum(), userId, "album", null, null, null));
+        assertEquals(DAOErrorType.NAME_ALREADY_EXISTS, rename.getErrorType());
+        DAOException notOwner = assertThrows(DAOException.class,
+                () -> albumDAO.updateAlbum(older.getIdAlbum(), otherUserId, "Stolen", null, null, null));
+        assertEquals(DAOErrorType.NOT_FOUND, notOwner.getErrorType());
+        assertThrows(IllegalArgumentException.class,
+                () -> albumDAO.updateAlbum(older.getIdAlbum(), userId, null, null, null, null));
+
+        albumDAO.updateAlbum(older.getIdAlbum(), userId, "Renamed", 1991, null, null);
+        Album renamed = albumDAO.findAlbumById(older.getIdAlbum());
+        assertEquals("Renamed", renamed.getName());
+        assertEquals(1991, renamed.getYear());
+        assertEquals("older.png", renamed.getImage());
+        // The old name is free again
+        albumDAO.createAlbum("Older", 1990, "Artist", null, userId);
+
+        // Returned beans are copies
+        renamed.setName("Changed outside");
+        assertEquals("Renamed", albumDAO.findAlbumsByIds(List.of(older.getIdAlbum(), 999))
+                .get(older.getIdAlbum()).getName());
+    }
+
+    @Test
+    void testSongs() throws DAOException {
+        int first = createSong("First", userId);
+        int second = createSong("Second", userId);
+        int foreign = createSong("Foreign", otherUserId);
+
+        DAOException missingAlbum = assertThrows(DAOException.class,
+                () -> songDAO.createSong("Nowhere", 999, Genre.POP, "nowhere.mp3", userId));
+        assertEquals(DAOErrorType.NOT_FOUND, missingAlbum.getErrorType());
+
+        assertEquals(List.of(first, second), songDAO.findSongsByUser(userId).stream().map(Song::getIdSong).toList());
+        assertEquals(3, songDAO.findAllSongs().size());
+        assertEquals(List.of(first), songDAO.findSongsByIdsAndUser(List.of(first, foreign, 999), userId).stream()
+                .map(Song::getIdSong).toList());
+
+        assertEquals(userId, songDAO.deleteSong(first));
+        assertEquals(List.of(second), songDAO.findSongsByUser(userId).stream().map(Song::getIdSong).toList());
+        DAOException missingSong = assertThrows(DAOException.class, () -> songDAO.deleteSong(first));
+        assertEquals(DAOErrorType.NOT_FOUND, missingSong.getErrorType());
+    }
+
+    @Test
+    void testCreatePlaylist() throws DAOException {
+        int first = createSong("First", userId);
+        int second = createSong("Second", userId);
+        int foreign = createSong("Foreign", otherUserId);
+
+        Playlist playlist = playlistDAO.createPlaylist("Mix", userId, List.of(second, first));
+        assertEquals(List.of(first, second), playlist.getSongs());
+        assertEquals(userId, playlist.getIdUser());
+        assertNotNull(playlist.getBirthday());
+
+        assertEquals(DAOErrorType.NAME_ALREADY_EXISTS, assertThrows(DAOException.class,
+                () -> playlistDAO.createPlaylist("MIX", userId, List.of())).getErrorType());
+        assertEquals(DAOErrorType.DUPLICATE_ENTRY, assertThrows(DAOException.class,
+                () -> playlistDAO.createPlaylist("Twice", userId, List.of(first, first))).getErrorType());
+        assertEquals(DAOErrorType.NOT_FOUND, assertThrows(DAOException.class,
+                () -> playlistDAO.createPlaylist("Foreign", userId, List.of(first, foreign))).getErrorType());
+        List<Integer> withNull = new ArrayList<>();
+        withNull.add(null);
+        assertEquals(DAOErrorType.CONSTRAINT_VIOLATION, assertThrows(DAOException.class,
+                () -> playlistDAO.createPlaylist("Null", userId, withNull)).getErrorType());
+
+        // Failed creations leave nothing behind
+        assertEquals(1, playlistDAO.findPlaylistsByUser(userId).size());
+        playlistDAO.createPlaylist("Twice", userId, List.of(first));
+
+        assertEquals(DAOErrorType.ACCESS_DENIED, assertThrows(DAOException.class,
+                () -> playlistDAO.findPlaylistById(playlist.getIdPlaylist(), otherUserId)).getErrorType());
+        assertEquals(DAOErrorType.NOT_FOUND, assertThrows(DAOException.class,
+                () -> playlistDAO.findPlaylistById(999, userId)).getErrorType());
+    }
+
+    @Test
+    void testPlaylistContent() throws DAOException {
+        int first = createSong("First", userId);
+        int second = createSong("Second", userId);
+        int third = createSong("Third", userId);
+        int foreign = createSong("Foreign", otherUserId);
+        int playlistId = playlistDAO.createPlaylist("Mix", userId, List.of(first)).getIdPlaylist();
+
+        assertEquals(DAOErrorType.DUPLICATE_ENTRY, assertThrows(DAOException.class,
+                () -> playlistDAO.addSongToPlaylist(playlistId, userId, first)).getErrorType());
+        assertEquals(DAOErrorType.NOT_FOUND, assertThrows(DAOException.class,
+                () -> playlistDAO.addSongToPlaylist(playlistId, userId, foreign)).getErrorType());
+
+        // A failure in the middle of the list rolls the whole operation back
+        assertThrows(DAOException.class,
+                () -> playlistDAO.addSongsToPlaylist(playlistId, userId, List.of(second, foreign)));
+        assertEquals(List.of(first), playlistDAO.findPlaylistById(playlistId, userId).getSongs());
+
+        AddSongsToPlaylistResult result = playlistDAO.addSongsToPlaylist(playlistId, userId,
+                List.of(third, first, second));
+        assertEquals(List.of(third, second), result.getAddedSongIds());
+        assertEquals(List.of(first), result.getDuplicateSongIds());
+        assertEquals(List.of(first, second, third), playlistDAO.findPlaylistById(playlistId, userId).getSongs());
+
+        assertTrue(playlistDAO.removeSongFromPlaylist(playlistId, userId, second));
+        assertFalse(playlistDAO.removeSongFromPlaylist(playlistId, userId, second));
+
+        // Deleting a song removes it from the playlists
+        songDAO.deleteSong(third);
+        assertEquals(List.of(first), playlistDAO.findPlaylistById(playlistId, userId).getSongs());
+
+        playlistDAO.deletePlaylist(playlistId, userId);
+        assertTrue(playlistDAO.findPlaylistsByUser(userId).isEmpty());
+    }
+
+    @Test
+    void testDeleteAlbumCascades() throws DAOException {
+        int song = createSong("Song", userId);
+        int foreign = createSong("Foreign", otherUserId);
+        int playlistId = playlistDAO.createPlaylist("Mix", userId, List.of(song)).getIdPlaylist();
+
+        assertEquals(DAOErrorType.NOT_FOUND, assertThrows(DAOException.class,
+                () -> albumDAO.deleteAlbum(albumId, otherUserId)).getErrorType());
+        albumDAO.deleteAlbum(albumId, userId);
+
+        assertTrue(songDAO.findSongsByUser(userId).isEmpty());
+        assertTrue(songDAO.findSongsByIdsAndUser(List.of(foreign), otherUserId).isEmpty());
+        assertTrue(playlistDAO.findPlaylistById(playlistId, userId).getSongs().isEmpty());
+        assertEquals(DAOErrorType.NOT_FOUND,
+                assertThrows(DAOException.class, () -> albumDAO.findAlbumById(albumId)).getErrorType());
+    }
+
+    @Test
+    void testConcurrentAdditions() throws Exception {
+        int songCount = 200;
+        List<Integer> songIds = new ArrayList<>();
+        for (int i = 0; i < songCount; i++) {
+            songIds.add(createSong("Song " + i, userId));
+        }
+        int playlistId = playlistDAO.createPlaylist("Concurrent", userId, List.of()).getIdPlaylist();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int songId : songIds) {
+                futures.add(executor.submit(() -> {
+                    playlistDAO.addSongToPlaylist(playlistId, userId, songId);
+                    return playlistDAO.findPlaylistsByUser(userId);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(songIds, playlistDAO.findPlaylistById(playlistId, userId).getSongs());
+    }
+}
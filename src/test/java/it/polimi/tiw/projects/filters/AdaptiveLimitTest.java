@@ -0,0 +1,83 @@
+package it.polimi.tiw.projects.filters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    void testRejectsBeyondLimit() {
+        AdaptiveLimit limit = new AdaptiveLimit(2, 1, 10, 2.0);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        limit.release(10 * MILLIS);
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void testGrowsWhileFastAndUsed() {
+        AdaptiveLimit limit = new AdaptiveLimit(4, 1, 6, 2.0);
+        // Idle capacity is no reason to grow
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(10 * MILLIS);
+        }
+        assertEquals(4, limit.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            fill(limit);
+            limit.release(10 * MILLIS);
+            drain(limit);
+        }
+        assertEquals(6, limit.getLimit());
+    }
+
+    @Test
+    void testShrinksWhenLatencyRises() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 2, 20, 2.0);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(10 * MILLIS);
+        }
+
+        // A stall shrinks the limit once per limit-many requests, not on every slow one
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(100 * MILLIS);
+        }
+        double shrunk = limit.getLimit();
+        // About one step per ten, then nine, eight... requests, far from 50 steps
+        assertTrue(shrunk < 10 * Math.pow(AdaptiveLimit.BACKOFF, 5) && shrunk > 10 * Math.pow(AdaptiveLimit.BACKOFF, 8),
+                "limit " + shrunk);
+
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(1000 * MILLIS);
+        }
+        assertTrue(limit.getLimit() >= 2);
+    }
+
+    @Test
+    void testRejectsInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(1, 2, 10, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(20, 2, 10, 2.0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimit(5, 2, 10, 1.0));
+    }
+
+    private static void fill(AdaptiveLimit limit) {
+        while (limit.tryAcquire()) {
+            // Take every free slot
+        }
+    }
+
+    private static void drain(AdaptiveLimit limit) {
+        while (limit.getInFlight() > 0) {
+            limit.release(10 * MILLIS);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package it.polimi.tiw.projects.filters;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitoringAccessFilterTest {
+
+    @Test
+    void testParsesOnlyIpLiterals() {
+        assertEquals(MonitoringAccessFilter.parseAddress("::1"),
+                MonitoringAccessFilter.parseAddress("0:0:0:0:0:0:0:1"));
+        assertNotNull(MonitoringAccessFilter.parseAddress("127.0.0.1"));
+        assertNotEquals(MonitoringAccessFilter.parseAddress("127.0.0.1"),
+                MonitoringAccessFilter.parseAddress("10.0.0.1"));
+
+        // Names are never resolved
+        assertNull(MonitoringAccessFilter.parseAddress("localhost"));
+        assertNull(MonitoringAccessFilter.parseAddress("cafe"));
+        assertNull(MonitoringAccessFilter.parseAddress("300.0.0.1"));
+        assertNull(MonitoringAccessFilter.parseAddress(null));
+    }
+}
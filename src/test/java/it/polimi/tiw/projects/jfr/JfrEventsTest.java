@@ -0,0 +1,101 @@
+package it.polimi.tiw.projects.jfr;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryDAOFactory;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.metrics.MetricsRegistry;
+import it.polimi.tiw.projects.metrics.ProfilingDataSource;
+import it.polimi.tiw.projects.metrics.StatementProfiler;
+import it.polimi.tiw.projects.metrics.TimedDAOFactory;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrEventsTest {
+
+    private static List<RecordedEvent> record(Configuration settings, ThrowingRunnable action) throws Exception {
+        Path file = Files.createTempFile("spolify", ".jfr");
+        try (Recording recording = new Recording(settings)) {
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().startsWith("spolify."))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    @Test
+    void testEventsAreOffByDefault() throws Exception {
+        DAOFactory factory = new TimedDAOFactory(new InMemoryDAOFactory(), MetricsRegistry.getInstance());
+        List<RecordedEvent> events = record(Configuration.getConfiguration("default"), () ->
+                factory.getUserDAO(null).createUser("jfr_default_user", "password", "Jfr", "User"));
+        assertTrue(events.isEmpty(), events.toString());
+    }
+
+    @Test
+    void testDAOAndStatementEvents() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:mysql://localhost:3306/TIW2025");
+        config.setUsername("tiw");
+        config.setPassword("TIW2025");
+        config.setMaximumPoolSize(1);
+        DAOFactory factory = new TimedDAOFactory(new InMemoryDAOFactory(), MetricsRegistry.getInstance());
+
+        List<RecordedEvent> events;
+        try (HikariDataSource pool = new HikariDataSource(config)) {
+            ProfilingDataSource dataSource = new ProfilingDataSource(pool, new StatementProfiler(10_000));
+            events = record(Configuration.create(Path.of("src/main/resources/spolify.jfc")), () -> {
+                UserDAO userDAO = factory.getUserDAO(null);
+                userDAO.createUser("jfr_user", "password", "Jfr", "User");
+                assertThrows(DAOException.class, () -> userDAO.checkCredentials("jfr_user", "wrong"));
+                try (Connection connection = dataSource.getConnection();
+                     PreparedStatement statement = connection.prepareStatement("SELECT ? UNION ALL SELECT ?")) {
+                    statement.setInt(1, 1);
+                    statement.setInt(2, 2);
+                    try (ResultSet result = statement.executeQuery()) {
+                        while (result.next()) {
+                            assertTrue(result.getInt(1) > 0);
+                        }
+                    }
+                }
+            });
+        }
+
+        List<RecordedEvent> daoCalls = events.stream()
+                .filter(event -> event.getEventType().getName().equals("spolify.DAOCall")).toList();
+        assertEquals(2, daoCalls.size(), events.toString());
+        assertEquals("UserDAO", daoCalls.get(0).getString("dao"));
+        assertEquals("createUser", daoCalls.get(0).getString("method"));
+        assertNull(daoCalls.get(0).getString("error"));
+        assertEquals("INVALID_CREDENTIALS", daoCalls.get(1).getString("error"));
+
+        RecordedEvent statement = events.stream()
+                .filter(event -> event.getEventType().getName().equals("spolify.SqlStatement")).findFirst()
+                .orElseThrow();
+        assertEquals("SELECT ? UNION ALL SELECT ?", statement.getString("fingerprint"));
+        assertEquals(2, statement.getLong("rows"));
+        assertFalse(statement.getBoolean("failed"));
+    }
+}
@@ -0,0 +1,85 @@
+package it.polimi.tiw.projects.metrics;
+
+import it.polimi.tiw.projects.dao.UserDAO;
+import it.polimi.tiw.projects.dao.memory.InMemoryDAOFactory;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.exceptions.DAOException.DAOErrorType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    private static String scrape(MetricsRegistry registry) throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writePrometheus(writer);
+        return writer.toString();
+    }
+
+    @Test
+    void testHistogramExposition() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("test_duration_seconds", "Test durations", "name", "a\"b");
+        assertSame(histogram, registry.histogram("test_duration_seconds", "Test durations", "name", "a\"b"));
+
+        histogram.observeNanos(200_000); // 0.2 ms
+        histogram.observeNanos(500_000); // exactly on the first bound
+        histogram.observeNanos(3_000_000); // 3 ms
+        histogram.observeNanos(60_000_000_000L); // above every bound
+        assertEquals(4, histogram.count());
+
+        String text = scrape(registry);
+        assertTrue(text.contains("# TYPE test_duration_seconds histogram\n"));
+        assertTrue(text.contains("test_duration_seconds_bucket{name=\"a\\\"b\",le=\"0.0005\"} 2\n"), text);
+        assertTrue(text.contains("test_duration_seconds_bucket{name=\"a\\\"b\",le=\"0.0025\"} 2\n"), text);
+        assertTrue(text.contains("test_duration_seconds_bucket{name=\"a\\\"b\",le=\"0.005\"} 3\n"), text);
+        assertTrue(text.contains("test_duration_seconds_bucket{name=\"a\\\"b\",le=\"10\"} 3\n"), text);
+        assertTrue(text.contains("test_duration_seconds_bucket{name=\"a\\\"b\",le=\"+Inf\"} 4\n"), text);
+        assertTrue(text.contains("test_duration_seconds_sum{name=\"a\\\"b\"} 60.0037\n"), text);
+        assertTrue(text.contains("test_duration_seconds_count{name=\"a\\\"b\"} 4\n"), text);
+    }
+
+    @Test
+    void testCountersAndGauges() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_total", "Test counter").add(3);
+        registry.counter("test_total", "Test counter").increment();
+        Gauge gauge = registry.gauge("test_active", "Test gauge");
+        gauge.increment();
+        gauge.increment();
+        gauge.decrement();
+        registry.gauge("test_pool", "Test pool", () -> 7, "state", "idle");
+
+        String text = scrape(registry);
+        assertTrue(text.contains("test_total 4\n"), text);
+        assertTrue(text.contains("test_active 1\n"), text);
+        assertTrue(text.contains("test_pool{state=\"idle\"} 7\n"), text);
+
+        registry.remove("test_pool", "state", "idle");
+        assertFalse(scrape(registry).contains("test_pool"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("test_total", "Not a histogram"));
+    }
+
+    @Test
+    void testTimedDAOFactory() throws DAOException, IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        TimedDAOFactory factory = new TimedDAOFactory(new InMemoryDAOFactory(), registry);
+        assertFalse(factory.requiresConnection());
+
+        UserDAO userDAO = factory.getUserDAO(null);
+        userDAO.createUser("timed_user", "password", "Timed", "User");
+        DAOException exception = assertThrows(DAOException.class,
+                () -> userDAO.checkCredentials("timed_user", "wrong"));
+        assertEquals(DAOErrorType.INVALID_CREDENTIALS, exception.getErrorType());
+
+        assertEquals(1, registry.histogram(TimedDAOFactory.DURATION, "", "dao", "UserDAO", "method",
+                "createUser").count());
+        assertEquals(1, registry.counter(TimedDAOFactory.ERRORS, "", "dao", "UserDAO", "method",
+                "checkCredentials", "type", "INVALID_CREDENTIALS").get());
+        assertTrue(scrape(registry).contains(
+                "spolify_dao_call_duration_seconds_count{dao=\"UserDAO\",method=\"checkCredentials\"} 1\n"));
+    }
+}
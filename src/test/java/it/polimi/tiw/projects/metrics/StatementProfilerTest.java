@@ -0,0 +1,121 @@
+package it.polimi.tiw.projects.metrics;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import it.polimi.tiw.projects.dao.JdbcSongDAO;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import it.polimi.tiw.projects.metrics.StatementProfiler.StatementStats;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementProfilerTest {
+
+    @Test
+    void testFingerprint() {
+        assertEquals("SELECT * FROM Song WHERE idSong IN (?, ...) AND idUser = UUID_TO_BIN(?)", StatementProfiler
+                .normalize("SELECT *\n  FROM Song WHERE idSong IN (?, ?,?) AND idUser = UUID_TO_BIN(?)"));
+        assertEquals("SELECT * FROM Song WHERE idSong IN (?, ...)",
+                StatementProfiler.normalize("SELECT * FROM Song WHERE idSong in(?)"));
+        assertEquals("SELECT name FROM Album WHERE name = ? AND year > ? LIMIT ?",
+                StatementProfiler.normalize("SELECT name FROM Album WHERE name = 'it''s' AND year > 1990 LIMIT 10"));
+        assertEquals("INSERT INTO playlist_content (idPlaylist, idSong) VALUES (?, ?), ...",
+                StatementProfiler.normalize("INSERT INTO playlist_content (idPlaylist, idSong) VALUES (?, ?), (?, ?)"));
+        // Digits inside identifiers are kept
+        assertEquals("SELECT col1 FROM t2", StatementProfiler.normalize("SELECT col1 FROM t2"));
+    }
+
+    @Test
+    void testStatistics() {
+        StatementProfiler profiler = new StatementProfiler(1_000);
+        for (int i = 1; i <= 100; i++) {
+            profiler.record("SELECT * FROM Song WHERE idSong IN (" + "?, ".repeat(i) + "?)", i * 10_000L, 0, false,
+                    null);
+        }
+        profiler.record("UPDATE Album SET name = ? WHERE idAlbum = ?", 2_000_000, 1, false, null);
+        profiler.record("UPDATE Album SET name = ? WHERE idAlbum = ?", 3_000_000, 0, true, null);
+
+        List<StatementStats> byCount = profiler.top(10, StatementProfiler.Order.COUNT);
+        assertEquals(2, byCount.size());
+        StatementStats select = byCount.get(0);
+        assertEquals(100, select.count());
+        assertEquals(0, select.errors());
+        assertEquals(1_000_000, select.maxNanos());
+        // Within the bucket containing the true value
+        assertTrue(select.p50Nanos() > 250_000 && select.p50Nanos() <= 500_000, Long.toString(select.p50Nanos()));
+        assertTrue(select.p99Nanos() > 500_000 && select.p99Nanos() <= 1_000_000, Long.toString(select.p99Nanos()));
+
+        StatementStats update = profiler.top(1, StatementProfiler.Order.P99).get(0);
+        assertEquals("UPDATE Album SET name = ? WHERE idAlbum = ?", update.fingerprint());
+        assertEquals(2, update.count());
+        assertEquals(1, update.errors());
+        assertEquals(1, update.rows());
+
+        String report = profiler.report(1, StatementProfiler.Order.TOTAL);
+        assertEquals(2, report.lines().count());
+        assertTrue(report.contains("SELECT * FROM Song WHERE idSong IN (?, ...)"), report);
+    }
+
+    @Test
+    void testParameterSummary() {
+        assertEquals("[NULL, 42, String(5), byte[16]]",
+                StatementProfiler.summarize(Arrays.asList(null, 42, "short", new byte[16])));
+        String summary = StatementProfiler.summarize(List.of("x".repeat(40), 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11));
+        assertTrue(summary.startsWith("[String(40), 1,"), summary);
+        assertTrue(summary.endsWith(", 9, ... 2 more]"), summary);
+    }
+
+    @Test
+    void testProfilingDataSource() throws SQLException, DAOException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:mysql://localhost:3306/TIW2025");
+        config.setUsername("tiw");
+        config.setPassword("TIW2025");
+        config.setMaximumPoolSize(1);
+        StatementProfiler profiler = new StatementProfiler(0);
+        try (HikariDataSource pool = new HikariDataSource(config);
+             Connection connection = new ProfilingDataSource(pool, profiler).getConnection()) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 UNION ALL SELECT ? UNION ALL SELECT ?")) {
+                assertSame(connection, statement.getConnection());
+                statement.setInt(1, 2);
+                statement.setString(2, "3");
+                try (ResultSet result = statement.executeQuery()) {
+                    while (result.next()) {
+                        assertTrue(result.getInt(1) > 0);
+                    }
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                assertThrows(SQLException.class, () -> statement.executeQuery("SELECT * FROM missing_table"));
+            }
+            // Every size of the dynamic IN list is the same statement
+            JdbcSongDAO songDAO = new JdbcSongDAO(connection);
+            UUID nobody = UUID.randomUUID();
+            songDAO.findSongsByIdsAndUser(List.of(1), nobody);
+            songDAO.findSongsByIdsAndUser(List.of(1, 2, 3), nobody);
+        }
+
+        List<StatementStats> statements = profiler.top(10, StatementProfiler.Order.COUNT);
+        StatementStats songs = statements.get(0);
+        assertTrue(songs.fingerprint().endsWith("idSong IN (?, ...)"), songs.fingerprint());
+        assertEquals(2, songs.count());
+        assertEquals(0, songs.rows());
+        StatementStats union = statements.stream().filter(stats -> stats.fingerprint().startsWith("SELECT ? UNION"))
+                .findFirst().orElseThrow();
+        assertEquals(1, union.count());
+        assertEquals(3, union.rows());
+        StatementStats missing = statements.stream().filter(stats -> stats.fingerprint().contains("missing_table"))
+                .findFirst().orElseThrow();
+        assertEquals(1, missing.errors());
+    }
+}
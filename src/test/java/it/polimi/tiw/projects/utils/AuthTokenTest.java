@@ -0,0 +1,76 @@
+package it.polimi.tiw.projects.utils;
+
+import it.polimi.tiw.projects.beans.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenTest {
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    private static User user() {
+        User user = new User();
+        user.setIdUser(UUID.randomUUID());
+        user.setUsername("token_user");
+        return user;
+    }
+
+    private static AuthToken at(Instant instant) {
+        return new AuthToken(KEY, Duration.ofMinutes(60), Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    @Test
+    void testRoundTrip() {
+        User user = user();
+        String token = at(NOW).issue(user);
+
+        // Another node with the same key accepts it
+        AuthToken.Claims claims = at(NOW.plusSeconds(1)).verify(token);
+        assertNotNull(claims);
+        assertEquals(user.getIdUser(), claims.user().getIdUser());
+        assertEquals("token_user", claims.user().getUsername());
+        assertEquals(NOW.plusSeconds(3600).getEpochSecond(), claims.expiresAt());
+    }
+
+    @Test
+    void testRejectsForgedAndMalformedTokens() {
+        AuthToken authToken = at(NOW);
+        String token = authToken.issue(user());
+        String payload = token.substring(0, token.indexOf('.'));
+        String signature = token.substring(token.indexOf('.') + 1);
+
+        byte[] otherKey = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+        assertNull(new AuthToken(otherKey, Duration.ofMinutes(60)).verify(token));
+        // Payload of another user with the original signature
+        String otherPayload = authToken.issue(user()).split("\\.")[0];
+        assertNull(authToken.verify(otherPayload + "." + signature));
+
+        assertNull(authToken.verify(null));
+        assertNull(authToken.verify(""));
+        assertNull(authToken.verify(payload));
+        assertNull(authToken.verify(payload + "."));
+        assertNull(authToken.verify("." + signature));
+        assertNull(authToken.verify(token + ".x"));
+        assertNull(authToken.verify(payload + ".not*base64"));
+    }
+
+    @Test
+    void testExpiryAndRenewal() {
+        String token = at(NOW).issue(user());
+
+        AuthToken.Claims early = at(NOW.plusSeconds(60)).verify(token);
+        assertFalse(at(NOW.plusSeconds(60)).shouldRenew(early));
+        AuthToken.Claims late = at(NOW.plusSeconds(45 * 60)).verify(token);
+        assertTrue(at(NOW.plusSeconds(45 * 60)).shouldRenew(late));
+
+        assertNull(at(NOW.plusSeconds(3600)).verify(token));
+    }
+}
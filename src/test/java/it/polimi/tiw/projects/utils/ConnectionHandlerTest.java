@@ -0,0 +1,87 @@
+package it.polimi.tiw.projects.utils;
+
+import it.polimi.tiw.projects.Stubs;
+import it.polimi.tiw.projects.dao.DAOFactory;
+import it.polimi.tiw.projects.dao.memory.InMemoryDAOFactory;
+import it.polimi.tiw.projects.exceptions.DAOException;
+import jakarta.servlet.ServletContext;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionHandlerTest {
+
+    @Test
+    void testStepRunsOnAConnectionOfItsWorkload() throws DAOException {
+        AtomicInteger open = new AtomicInteger();
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Workload.MEDIA.attribute(), dataSource(open));
+        ServletContext context = context(attributes);
+
+        Connection used = ConnectionHandler.withConnection(context, Workload.MEDIA, connection -> {
+            assertEquals(1, open.get());
+            return connection;
+        });
+        assertNotNull(used);
+        assertEquals(0, open.get());
+
+        // The connection is given back when the step fails too
+        assertThrows(DAOException.class, () -> ConnectionHandler.withConnection(context, Workload.MEDIA,
+                connection -> {
+                    throw new DAOException("failed", DAOException.DAOErrorType.GENERIC_ERROR);
+                }));
+        assertEquals(0, open.get());
+
+        // Another workload doesn't share the pool
+        DAOException e = assertThrows(DAOException.class,
+                () -> ConnectionHandler.withConnection(context, Workload.INTERACTIVE, connection -> null));
+        assertEquals(DAOException.DAOErrorType.UNAVAILABLE, e.getErrorType());
+    }
+
+    @Test
+    void testPoolTimeoutIsUnavailable() {
+        DataSource exhausted = Stubs.of(DataSource.class).on("getConnection", args -> {
+            throw new SQLTransientConnectionException("write - Connection is not available");
+        }).build();
+        ServletContext context = context(Map.of(Workload.WRITE.attribute(), exhausted));
+
+        DAOException e = assertThrows(DAOException.class,
+                () -> ConnectionHandler.withConnection(context, Workload.WRITE, connection -> fail("Step ran")));
+        assertEquals(DAOException.DAOErrorType.UNAVAILABLE, e.getErrorType());
+    }
+
+    @Test
+    void testNoConnectionWithoutDatabase() throws DAOException {
+        ServletContext context = context(Map.of(DAOFactory.ATTRIBUTE, new InMemoryDAOFactory()));
+
+        assertEquals("done", ConnectionHandler.withConnection(context, Workload.INTERACTIVE, connection -> {
+            assertNull(connection);
+            return "done";
+        }));
+    }
+
+    /**
+     * @return A pool counting its open connections.
+     */
+    private static DataSource dataSource(AtomicInteger open) {
+        Connection connection = Stubs.of(Connection.class).on("close", args -> {
+            open.decrementAndGet();
+            return null;
+        }).build();
+        return Stubs.of(DataSource.class).on("getConnection", args -> {
+            open.incrementAndGet();
+            return connection;
+        }).build();
+    }
+
+    private static ServletContext context(Map<String, Object> attributes) {
+        return Stubs.of(ServletContext.class).on("getAttribute", args -> attributes.get((String) args[0])).build();
+    }
+}
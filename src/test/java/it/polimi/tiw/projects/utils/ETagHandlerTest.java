@@ -0,0 +1,41 @@
+package it.polimi.tiw.projects.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagHandlerTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Test
+    @DisplayName("The tag changes with the version, the user and the page parameters")
+    void testWeakETag_DependsOnInputs() {
+        String etag = ETagHandler.weakETag(USER_ID, 7, "GetPlaylistDetails", 3, "1");
+
+        assertTrue(etag.startsWith("W/\"") && etag.endsWith("\""), "The tag should be a quoted weak tag.");
+        assertEquals(etag, ETagHandler.weakETag(USER_ID, 7, "GetPlaylistDetails", 3, "1"));
+        assertNotEquals(etag, ETagHandler.weakETag(USER_ID, 8, "GetPlaylistDetails", 3, "1"));
+        assertNotEquals(etag, ETagHandler.weakETag(UUID.randomUUID(), 7, "GetPlaylistDetails", 3, "1"));
+        assertNotEquals(etag, ETagHandler.weakETag(USER_ID, 7, "GetPlaylistDetails", 3, "2"));
+        assertNotEquals(etag, ETagHandler.weakETag(USER_ID, 7, "GetPlaylistDetails", 3, null));
+    }
+
+    @Test
+    @DisplayName("If-None-Match uses the weak comparison and accepts lists and wildcards")
+    void testMatches() {
+        String etag = ETagHandler.weakETag(USER_ID, 1, "Home");
+        String strongForm = etag.substring(2);
+
+        assertTrue(ETagHandler.matches(etag, etag));
+        assertTrue(ETagHandler.matches(strongForm, etag));
+        assertTrue(ETagHandler.matches("\"other\", " + etag, etag));
+        assertTrue(ETagHandler.matches("*", etag));
+        assertFalse(ETagHandler.matches(null, etag));
+        assertFalse(ETagHandler.matches("", etag));
+        assertFalse(ETagHandler.matches(ETagHandler.weakETag(USER_ID, 2, "Home"), etag));
+    }
+}
@@ -0,0 +1,85 @@
+package it.polimi.tiw.projects.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTraceTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) {
+            trace.end();
+        }
+    }
+
+    @Test
+    void testRecordsOnlyWithinRequest() {
+        // Outside of a request the recorders do nothing
+        RequestTrace.recordQuery(1_000_000);
+        assertNull(RequestTrace.current());
+
+        RequestTrace trace = RequestTrace.start("req-1");
+        assertEquals("req-1", MDC.get(RequestTrace.MDC_KEY));
+        RequestTrace.recordDAOCall("SongDAO.findSongsByUser", System.nanoTime(), 2_000_000);
+        RequestTrace.recordQuery(1_500_000);
+        RequestTrace.recordQuery(500_000);
+        RequestTrace.recordRender("WEB-INF/Home.html", System.nanoTime(), 3_000_000);
+
+        assertEquals(1, trace.getDAOCalls());
+        assertEquals(2_000_000, trace.getDAONanos());
+        assertEquals(2, trace.getQueries());
+        assertEquals(2_000_000, trace.getDBNanos());
+        assertEquals(1, trace.getRenders());
+        assertEquals(3_000_000, trace.getRenderNanos());
+        String spans = trace.formatSpans();
+        assertTrue(spans.startsWith("SongDAO.findSongsByUser@"), spans);
+        assertTrue(spans.contains("render WEB-INF/Home.html@"), spans);
+
+        trace.end();
+        assertNull(RequestTrace.current());
+        assertNull(MDC.get(RequestTrace.MDC_KEY));
+    }
+
+    @Test
+    void testSpansAreBounded() {
+        RequestTrace trace = RequestTrace.start("req-2");
+        for (int i = 0; i < RequestTrace.MAX_SPANS + 3; i++) {
+            RequestTrace.recordDAOCall("call", System.nanoTime(), 1);
+        }
+        assertEquals(RequestTrace.MAX_SPANS + 3, trace.getDAOCalls());
+        assertTrue(trace.formatSpans().endsWith("... 3 more"));
+    }
+
+    @Test
+    void testPropagate() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> MDC.put("other", "worker")).get();
+
+            RequestTrace trace = RequestTrace.start("req-3");
+            String seen = CompletableFuture.supplyAsync(RequestTrace.propagate(() -> {
+                RequestTrace.recordQuery(1_000);
+                return MDC.get(RequestTrace.MDC_KEY);
+            }), executor).get();
+            assertEquals("req-3", seen);
+            assertEquals(1, trace.getQueries());
+
+            // The worker gets its own context back
+            executor.submit(() -> {
+                assertNull(RequestTrace.current());
+                assertNull(MDC.get(RequestTrace.MDC_KEY));
+                assertEquals("worker", MDC.get("other"));
+            }).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
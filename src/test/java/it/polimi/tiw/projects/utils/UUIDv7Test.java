@@ -0,0 +1,45 @@
+package it.polimi.tiw.projects.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UUIDv7Test {
+
+    // Order of the bytes in a BINARY(16) column, UUID.compareTo compares signed longs
+    private static final Comparator<UUID> UNSIGNED = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Test
+    void testLayout() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUIDv7.randomUUID();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = UUIDv7.timestamp(uuid);
+        assertTrue(timestamp >= before && timestamp <= after + 1, "timestamp " + timestamp);
+        assertEquals(uuid, UUID.fromString(uuid.toString()));
+        assertThrows(IllegalArgumentException.class, () -> UUIDv7.timestamp(UUID.randomUUID()));
+    }
+
+    @Test
+    void testStrictlyIncreasing() {
+        // Many more than fit in one millisecond's counter
+        UUID[] uuids = new UUID[20_000];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = UUIDv7.randomUUID();
+        }
+        for (int i = 1; i < uuids.length; i++) {
+            assertTrue(UNSIGNED.compare(uuids[i - 1], uuids[i]) < 0, "not increasing at " + i);
+        }
+        assertEquals(uuids.length, new HashSet<>(Arrays.asList(uuids)).size());
+    }
+}